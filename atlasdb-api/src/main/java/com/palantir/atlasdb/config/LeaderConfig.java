@@ -46,6 +46,15 @@ public abstract class LeaderConfig {
         return new File("var/data/paxos/acceptor");
     }
 
+    /**
+     * Whether the learner and acceptor logs are kept in segmented append-only files, rather than in a file per round.
+     * Existing logs are migrated when this is first enabled, and cannot be read with it disabled afterwards.
+     */
+    @Value.Default
+    public boolean segmentedPaxosLogs() {
+        return false;
+    }
+
     public abstract String localServer();
 
     @Size(min = 1)
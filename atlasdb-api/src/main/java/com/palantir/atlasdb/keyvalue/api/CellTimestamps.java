@@ -0,0 +1,88 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.api;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSortedSet;
+
+/**
+ * The timestamps of the versions of a cell below some timestamp, and whether the most recent of those versions is
+ * empty (a delete).
+ * @see KeyValueService#getRangeOfCellTimestamps
+ */
+public final class CellTimestamps implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ImmutableSortedSet<Long> timestamps;
+    private final boolean latestValueEmpty;
+
+    @JsonCreator
+    public static CellTimestamps create(@JsonProperty("timestamps") Set<Long> timestamps,
+                                        @JsonProperty("latestValueEmpty") boolean latestValueEmpty) {
+        return new CellTimestamps(ImmutableSortedSet.copyOf(timestamps), latestValueEmpty);
+    }
+
+    private CellTimestamps(ImmutableSortedSet<Long> timestamps, boolean latestValueEmpty) {
+        this.timestamps = timestamps;
+        this.latestValueEmpty = latestValueEmpty;
+    }
+
+    /**
+     * The timestamps of the versions of the cell, in ascending order.
+     */
+    public Set<Long> getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * Whether the version with the greatest of {@link #getTimestamps()} has empty contents.
+     */
+    public boolean isLatestValueEmpty() {
+        return latestValueEmpty;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        CellTimestamps other = (CellTimestamps) obj;
+        return latestValueEmpty == other.latestValueEmpty
+                && timestamps.equals(other.timestamps);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamps, latestValueEmpty);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("timestamps", timestamps)
+                .add("latestValueEmpty", latestValueEmpty)
+                .toString();
+    }
+}
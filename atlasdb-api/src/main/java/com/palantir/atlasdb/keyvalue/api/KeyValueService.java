@@ -391,6 +391,33 @@ public interface KeyValueService extends AutoCloseable {
             RangeRequest rangeRequest,
             @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
 
+    /**
+     * Gets the same timestamps as {@link #getRangeOfTimestamps}, and also whether the most recent version of each
+     * cell strictly before timestamp is empty.
+     * <p>
+     * This is what sweep needs to know about each cell. Key value services which can tell whether the latest
+     * version is empty while reading the timestamps should implement this in a single pass; others may fall back to
+     * {@code KeyValueServices.getRangeOfCellTimestampsUsingGetRange}, which also reads the latest values with
+     * {@link #getRange}.
+     * <p>
+     * This has the same consistency guarantees as {@link #getRangeOfTimestamps}.
+     *
+     * @param tableRef the name of the table to read from.
+     * @param rangeRequest the range to load.
+     * @param timestamp the maximum timestamp to load.
+     *
+     * @throws InsufficientConsistencyException if not all hosts respond successfully
+     */
+    @POST
+    @Path("get-range-of-cell-timestamps")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Idempotent
+    ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(
+            @QueryParam("tableRef") TableReference tableRef,
+            RangeRequest rangeRequest,
+            @QueryParam("timestamp") long timestamp) throws InsufficientConsistencyException;
+
     /**
      * For each range passed in the result will have the first page of results for that range.
      * <p>
@@ -48,4 +48,26 @@ public interface TransactionService {
      */
     void putUnlessExists(long startTimestamp, long commitTimestamp)
             throws KeyAlreadyExistsException;
+
+    /**
+     * Sets each given commit timestamp unless its start timestamp already has one. This is not atomic across
+     * start timestamps: each mapping that does not already exist is set, even if others already exist.
+     * @throws KeyAlreadyExistsException If at least one of the values was already set.
+     * @throws RuntimeException If a runtime exception is thrown, any of the values may or may
+     * not have been set.
+     */
+    default void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp)
+            throws KeyAlreadyExistsException {
+        KeyAlreadyExistsException alreadyExists = null;
+        for (Map.Entry<Long, Long> entry : startTimestampToCommitTimestamp.entrySet()) {
+            try {
+                putUnlessExists(entry.getKey(), entry.getValue());
+            } catch (KeyAlreadyExistsException e) {
+                alreadyExists = e;
+            }
+        }
+        if (alreadyExists != null) {
+            throw alreadyExists;
+        }
+    }
 }
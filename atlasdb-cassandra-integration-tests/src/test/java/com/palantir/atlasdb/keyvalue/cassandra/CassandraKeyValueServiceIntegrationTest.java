@@ -16,11 +16,14 @@
 
 package com.palantir.atlasdb.keyvalue.cassandra;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -43,12 +46,14 @@ import org.junit.Test;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
 import com.palantir.atlasdb.config.LockLeader;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.impl.AbstractAtlasDbKeyValueServiceTest;
@@ -57,6 +62,10 @@ import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
 import com.palantir.atlasdb.table.description.TableDefinition;
 import com.palantir.atlasdb.table.description.ValueType;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.SimpleTransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionService;
 
 public class CassandraKeyValueServiceIntegrationTest extends AbstractAtlasDbKeyValueServiceTest {
     private static final long LOCK_ID = 123456789;
@@ -186,6 +195,56 @@ public class CassandraKeyValueServiceIntegrationTest extends AbstractAtlasDbKeyV
         assertThat(result.getRows(), is(empty()));
     }
 
+    @Test
+    public void canCommitTwoStartTimestampsInTheSameTransactionsBucket() {
+        TransactionTables.createTables(keyValueService);
+        TransactionTableLayout layout = TransactionTableLayout.withCutover(0L);
+        TransactionService transactionService = new SimpleTransactionService(keyValueService, layout);
+
+        long firstStartTs = 7 * TransactionTableLayout.PARTITIONING_QUANTUM + 3;
+        long secondStartTs = firstStartTs + TransactionTableLayout.ROWS_PER_QUANTUM;
+        assertThat(layout.getCell(secondStartTs).getRowName(), is(layout.getCell(firstStartTs).getRowName()));
+
+        transactionService.putUnlessExists(firstStartTs, firstStartTs + 1);
+        transactionService.putUnlessExists(secondStartTs, secondStartTs + 1);
+
+        assertThat(transactionService.get(firstStartTs), is(firstStartTs + 1));
+        assertThat(transactionService.get(secondStartTs), is(secondStartTs + 1));
+    }
+
+    @Test(expected = KeyAlreadyExistsException.class)
+    public void cannotCommitTheSameStartTimestampTwiceInTheBucketedTransactionsTable() {
+        TransactionTables.createTables(keyValueService);
+        TransactionService transactionService =
+                new SimpleTransactionService(keyValueService, TransactionTableLayout.withCutover(0L));
+
+        long startTs = 9 * TransactionTableLayout.PARTITIONING_QUANTUM + 5;
+        transactionService.putUnlessExists(startTs, startTs + 1);
+        transactionService.putUnlessExists(startTs, startTs + 2);
+    }
+
+    @Test
+    public void commitsInOneBucketAreWrittenTogetherOrNotAtAll() {
+        TransactionTables.createTables(keyValueService);
+        TransactionTableLayout layout = TransactionTableLayout.withCutover(0L);
+        SimpleTransactionService transactionService = new SimpleTransactionService(keyValueService, layout);
+
+        long firstStartTs = 11 * TransactionTableLayout.PARTITIONING_QUANTUM + 1;
+        long secondStartTs = firstStartTs + TransactionTableLayout.ROWS_PER_QUANTUM;
+        transactionService.putUnlessExists(secondStartTs, secondStartTs + 1);
+        try {
+            transactionService.putUnlessExists(ImmutableMap.of(
+                    firstStartTs, firstStartTs + 1,
+                    secondStartTs, secondStartTs + 2));
+            fail();
+        } catch (KeyAlreadyExistsException e) {
+            assertThat(e.getExistingKeys(), contains(layout.getCell(secondStartTs)));
+        }
+
+        assertThat(transactionService.get(firstStartTs), is(nullValue()));
+        assertThat(transactionService.get(secondStartTs), is(secondStartTs + 1));
+    }
+
     private void grabLock(SchemaMutationLockTestTools lockTestTools) throws TException {
         lockTestTools.setLocksTableValue(LOCK_ID, 0);
     }
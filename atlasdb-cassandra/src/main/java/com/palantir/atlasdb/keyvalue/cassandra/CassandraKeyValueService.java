@@ -110,6 +110,7 @@ import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence;
 import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
 import com.palantir.atlasdb.util.AnnotatedCallable;
 import com.palantir.atlasdb.util.AnnotationType;
 import com.palantir.common.annotation.Idempotent;
@@ -156,6 +157,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     private final ConsistencyLevel deleteConsistency = ConsistencyLevel.ALL;
 
     private final TracingQueryRunner queryRunner;
+    private final CqlExecutor writeCqlExecutor;
 
     public static CassandraKeyValueService create(
             CassandraKeyValueServiceConfigManager configManager,
@@ -187,6 +189,7 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         this.log = log;
         this.configManager = configManager;
         this.clientPool = new CassandraClientPool(configManager.getConfig());
+        this.writeCqlExecutor = new CqlExecutor(clientPool, writeConsistency);
         this.compactionManager = compactionManager;
         this.leaderConfig = leaderConfig;
         this.hiddenTables = new HiddenTables();
@@ -1765,6 +1768,10 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
     @Override
     public void putUnlessExists(final TableReference tableRef, final Map<Cell, byte[]> values)
             throws KeyAlreadyExistsException {
+        if (tableRef.equals(TransactionConstants.TRANSACTION_TABLE_V2)) {
+            putUnlessExistsInSharedRows(tableRef, values);
+            return;
+        }
         String tableName = internalTableName(tableRef);
         try {
             clientPool.runWithRetry(new FunctionCheckedException<Client, Void, Exception>() {
@@ -1801,6 +1808,30 @@ public class CassandraKeyValueService extends AbstractKeyValueService {
         }
     }
 
+    /**
+     * A thrift CAS with no expected columns requires the whole row to be absent, which breaks the bucketed
+     * transactions table, where many start timestamps share a row. A CQL lightweight transaction checks just the
+     * cells being written, at the cost of writing them at the transaction's own Cassandra timestamp.
+     */
+    private void putUnlessExistsInSharedRows(TableReference tableRef, Map<Cell, byte[]> values)
+            throws KeyAlreadyExistsException {
+        Map<ByteBuffer, Map<Cell, byte[]>> valuesByRow = Maps.newLinkedHashMap();
+        for (Map.Entry<Cell, byte[]> e : values.entrySet()) {
+            valuesByRow.computeIfAbsent(ByteBuffer.wrap(e.getKey().getRowName()), row -> Maps.newLinkedHashMap())
+                    .put(e.getKey(), e.getValue());
+        }
+        for (Map.Entry<ByteBuffer, Map<Cell, byte[]>> row : valuesByRow.entrySet()) {
+            List<Cell> existing = writeCqlExecutor.putUnlessExists(
+                    tableRef,
+                    row.getKey().array(),
+                    row.getValue(),
+                    AtlasDbConstants.TRANSACTION_TS);
+            if (!existing.isEmpty()) {
+                throw new KeyAlreadyExistsException("This transaction row already exists.", existing);
+            }
+        }
+    }
+
     @Override
     public void compactInternally(TableReference tableRef) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(tableRef.getQualifiedName()),
@@ -21,20 +21,28 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
+import org.apache.cassandra.thrift.Column;
 import org.apache.cassandra.thrift.Compression;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.CqlResult;
 import org.apache.cassandra.thrift.CqlRow;
 import org.apache.thrift.TException;
 
+import com.google.common.collect.ImmutableList;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.common.base.Throwables;
 
 public class CqlExecutor {
+    private static final String APPLIED_COLUMN = "[applied]";
+
     private CassandraClientPool clientPool;
     private ConsistencyLevel consistency;
 
@@ -109,6 +117,64 @@ public class CqlExecutor {
         return getCells(row, cqlResult);
     }
 
+    /**
+     * Inserts cells of a single row using a lightweight transaction. Unlike a thrift CAS with no expected columns,
+     * which requires the whole row to be absent, this only checks that the given cells have not been written. The
+     * cells share a partition, so they are written in one conditional batch: either all of them are written, or none.
+     * <p>
+     * Cassandra rejects custom timestamps on conditional statements, so the cells get the write timestamp of the
+     * lightweight transaction rather than {@code timestamp}.
+     *
+     * @param tableRef the table to insert into
+     * @param row the row name of every cell
+     * @param values the cells to insert
+     * @param timestamp the AtlasDB timestamp to write the cells at
+     * @return the cells that already existed, which is empty if the cells were written
+     */
+    List<Cell> putUnlessExists(TableReference tableRef, byte[] row, Map<Cell, byte[]> values, long timestamp) {
+        String quotedTableName = getQuotedTableName(tableRef);
+        String inserts = values.entrySet().stream()
+                .map(e -> String.format(
+                        "INSERT INTO %s (key, column1, column2, value) VALUES (%s, %s, %s, %s) IF NOT EXISTS;",
+                        quotedTableName,
+                        CassandraKeyValueServices.encodeAsHex(row),
+                        CassandraKeyValueServices.encodeAsHex(e.getKey().getColumnName()),
+                        ~timestamp,
+                        CassandraKeyValueServices.encodeAsHex(e.getValue())))
+                .collect(Collectors.joining(" "));
+        String query = values.size() == 1 ? inserts : "BEGIN BATCH " + inserts + " APPLY BATCH;";
+        CqlResult cqlResult = executeQueryOnHost(query, getHostForRow(row));
+        if (wasApplied(cqlResult)) {
+            return ImmutableList.of();
+        }
+        List<Cell> existing = cqlResult.getRows().stream()
+                .map(cqlRow -> getColumn(cqlRow, "column1"))
+                .filter(Objects::nonNull)
+                .map(columnName -> Cell.create(row, columnName))
+                .filter(values::containsKey)
+                .distinct()
+                .collect(Collectors.toList());
+        return existing.isEmpty() ? ImmutableList.copyOf(values.keySet()) : existing;
+    }
+
+    private static boolean wasApplied(CqlResult cqlResult) {
+        byte[] applied = getColumn(cqlResult.getRows().get(0), APPLIED_COLUMN);
+        if (applied == null) {
+            throw new IllegalStateException("Lightweight transaction result had no " + APPLIED_COLUMN + " column");
+        }
+        return applied.length > 0 && applied[0] != 0;
+    }
+
+    @Nullable
+    private static byte[] getColumn(CqlRow row, String name) {
+        for (Column column : row.getColumns()) {
+            if (name.equals(new String(column.getName(), StandardCharsets.UTF_8))) {
+                return column.getValue();
+            }
+        }
+        return null;
+    }
+
     private InetSocketAddress getHostForRow(byte[] row) {
         return clientPool.getRandomHostForKey(row);
     }
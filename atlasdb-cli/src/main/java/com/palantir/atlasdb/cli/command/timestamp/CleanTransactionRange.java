@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.cli.command.timestamp;
 
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,9 +26,11 @@ import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.services.AtlasDbServices;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.common.base.ClosableIterator;
 
 import io.airlift.airline.Command;
@@ -52,47 +56,43 @@ public class CleanTransactionRange extends AbstractTimestampCommand {
     protected int executeTimestampCommand(AtlasDbServices services) {
         KeyValueService kvs = services.getKeyValueService();
 
+        // The original layout is ordered by start timestamp, but the bucketed layout is not, so scan all of it.
         byte[] startRowInclusive = TransactionConstants.getValueForTimestamp(timestamp);
-        ClosableIterator<RowResult<Value>> range = kvs.getRange(
-                TransactionConstants.TRANSACTION_TABLE,
-                RangeRequest.builder()
-                        .startRowInclusive(startRowInclusive)
-                        .build(),
-                Long.MAX_VALUE);
-
-        Multimap<Cell, Long> toDelete = HashMultimap.create();
-        while (range.hasNext()) {
-            RowResult<Value> row = range.next();
-            byte[] rowName = row.getRowName();
-            long startTs = TransactionConstants.getTimestampForValue(rowName);
+        cleanTransactionsTable(kvs, TransactionConstants.TRANSACTION_TABLE,
+                RangeRequest.builder().startRowInclusive(startRowInclusive).build());
+        if (kvs.getAllTableNames().contains(TransactionConstants.TRANSACTION_TABLE_V2)) {
+            cleanTransactionsTable(kvs, TransactionConstants.TRANSACTION_TABLE_V2, RangeRequest.all());
+        }
 
-            Value value;
-            try {
-                value = row.getOnlyColumnValue();
-            } catch (IllegalStateException e){
-                //this should never happen
-                log.error("Found a row in the transactions table that didn't have 1 and only 1 column value: start={}", startTs);
-                continue;
-            }
+        return 0;
+    }
 
-            long commitTs = TransactionConstants.getTimestampForValue(value.getContents());
-            if (commitTs <= timestamp) {
-                continue; // this is a valid transaction
+    private void cleanTransactionsTable(KeyValueService kvs, TableReference table, RangeRequest rangeRequest) {
+        Multimap<Cell, Long> toDelete = HashMultimap.create();
+        try (ClosableIterator<RowResult<Value>> range = kvs.getRange(table, rangeRequest, Long.MAX_VALUE)) {
+            while (range.hasNext()) {
+                RowResult<Value> row = range.next();
+                for (Map.Entry<Cell, Value> entry : row.getCells()) {
+                    Cell key = entry.getKey();
+                    Value value = entry.getValue();
+                    long startTs = TransactionTableLayout.getStartTimestamp(table, key);
+                    long commitTs = TransactionConstants.getTimestampForValue(value.getContents());
+                    if (commitTs <= timestamp) {
+                        continue; // this is a valid transaction
+                    }
+
+                    log.info("Found and cleaning possibly inconsistent transaction: [start={}, commit={}]",
+                            startTs, commitTs);
+                    toDelete.put(key, value.getTimestamp());  //value.getTimestamp() should always be 0L
+                }
             }
-
-            log.info("Found and cleaning possibly inconsistent transaction: [start={}, commit={}]", startTs, commitTs);
-
-            Cell key = Cell.create(rowName, TransactionConstants.COMMIT_TS_COLUMN);
-            toDelete.put(key, value.getTimestamp());  //value.getTimestamp() should always be 0L
         }
 
         if (!toDelete.isEmpty()) {
-            kvs.delete(TransactionConstants.TRANSACTION_TABLE, toDelete);
-            log.info("Delete completed.");
+            kvs.delete(table, toDelete);
+            log.info("Delete completed for {}.", table);
         } else {
-            log.info("Found no transactions after the given timestamp to delete.");
+            log.info("Found no transactions in {} after the given timestamp to delete.", table);
         }
-
-        return 0;
     }
 }
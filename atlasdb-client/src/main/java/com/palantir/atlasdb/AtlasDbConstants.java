@@ -31,8 +31,11 @@ public class AtlasDbConstants {
 
     public static final TableReference PUNCH_TABLE = TableReference.createWithEmptyNamespace("_punch");
     public static final TableReference SCRUB_TABLE = TableReference.createWithEmptyNamespace("_scrub");
+    public static final TableReference SWEEP_QUEUE_TABLE = TableReference.createWithEmptyNamespace("_sweep_queue");
     public static final TableReference NAMESPACE_TABLE = TableReference.createWithEmptyNamespace("_namespace");
     public static final TableReference TIMESTAMP_TABLE = TableReference.createWithEmptyNamespace("_timestamp");
+    public static final TableReference NAMESPACED_TIMESTAMP_TABLE =
+            TableReference.createWithEmptyNamespace("_timestamp_namespaces");
     public static final TableReference METADATA_TABLE = TableReference.createWithEmptyNamespace("_metadata");
     public static final TableReference ORACLE_METADATA_TABLE = TableReference.createWithEmptyNamespace("atlasdb_metadata");
     public static final String NAMESPACE_PREFIX = "_n_";
@@ -56,18 +59,21 @@ public class AtlasDbConstants {
     // TODO (ejin): Organize constants (maybe into a single class?)
     public static final Set<TableReference> hiddenTables = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTION_TABLE_V2,
             PUNCH_TABLE,
             SCRUB_TABLE,
+            SWEEP_QUEUE_TABLE,
             NAMESPACE_TABLE,
             PARTITION_MAP_TABLE);
     public static final Set<TableReference> SKIP_POSTFILTER_TABLES = ImmutableSet.of(TransactionConstants.TRANSACTION_TABLE,
-            NAMESPACE_TABLE);
+            TransactionConstants.TRANSACTION_TABLE_V2, NAMESPACE_TABLE);
 
     /**
      * Tables that must always be on a KVS that supports an atomic putUnlessExists operation.
      */
     public static final Set<TableReference> ATOMIC_TABLES = ImmutableSet.of(
             TransactionConstants.TRANSACTION_TABLE,
+            TransactionConstants.TRANSACTION_TABLE_V2,
             NAMESPACE_TABLE);
 
     public static final Set<TableReference> TABLES_KNOWN_TO_BE_POORLY_DESIGNED = ImmutableSet.of(TableReference.createWithEmptyNamespace("resync_object"));
@@ -83,5 +89,22 @@ public class AtlasDbConstants {
     public static final long DEFAULT_SWEEP_PAUSE_MILLIS = 5 * 1000;
     public static final int DEFAULT_SWEEP_BATCH_SIZE = 1000;
     public static final int DEFAULT_SWEEP_CELL_BATCH_SIZE = 10_000;
+    public static final int DEFAULT_SWEEP_THREADS = 1;
+    public static final int DEFAULT_SWEEP_SEGMENTS_PER_TABLE = 1;
+    public static final long DEFAULT_SWEEP_LATENCY_BUDGET_MILLIS = 0;
+    public static final boolean DEFAULT_THROTTLE_SWEEP_ON_FOREGROUND_LATENCY = true;
+    public static final boolean DEFAULT_ENABLE_TARGETED_SWEEP = false;
+    public static final int DEFAULT_TARGETED_SWEEP_SHARDS = 16;
+    public static final int DEFAULT_TARGETED_SWEEP_BATCH_SIZE = 1000;
     public static final int DEFAULT_STREAM_IN_MEMORY_THRESHOLD = 4 * 1024 * 1024;
+    public static final long DEFAULT_COMMIT_TIMESTAMP_CACHE_SIZE = 100_000;
+    public static final boolean DEFAULT_ENABLE_TRANSACTION_GROUP_COMMIT = false;
+    public static final int DEFAULT_RANGE_SCAN_PREFETCH_DEPTH = 0;
+    public static final int DEFAULT_RANGE_SCAN_PREFETCH_THREADS = 16;
+    public static final long DEFAULT_RANGE_SCAN_PREFETCH_MAX_BYTES_PER_TRANSACTION = 64L * 1024 * 1024;
+    public static final boolean DEFAULT_VALIDATE_SERIALIZABLE_READS_BY_TIMESTAMP = false;
+    public static final long DEFAULT_HOT_TABLE_READ_CACHE_SIZE = 0;
+    public static final boolean DEFAULT_ENABLE_NEGATIVE_LOOKUP_BLOOM_FILTERS = false;
+    public static final long DEFAULT_NEGATIVE_LOOKUP_BLOOM_FILTER_EXPECTED_ROWS = 1_000_000;
+    public static final double DEFAULT_NEGATIVE_LOOKUP_BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
 }
@@ -49,12 +49,16 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.AtlasDbPerformanceConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowColumnRangeIterator;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.collect.Maps2;
 import com.palantir.common.concurrent.NamedThreadFactory;
@@ -326,4 +330,11 @@ public abstract class AbstractKeyValueService implements KeyValueService {
                                                                           cellBatchHint,
                                                                           timestamp);
     }
+
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             RangeRequest rangeRequest,
+                                                                             long timestamp) {
+        return KeyValueServices.getRangeOfCellTimestampsUsingGetRange(this, tableRef, rangeRequest, timestamp);
+    }
 }
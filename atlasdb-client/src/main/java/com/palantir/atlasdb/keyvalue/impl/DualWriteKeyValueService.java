@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -190,6 +191,11 @@ public class DualWriteKeyValueService implements KeyValueService {
         return delegate1.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        return delegate1.getRangeOfCellTimestamps(tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
         delegate1.createTables(tableRefToTableMetadata);
@@ -48,6 +48,7 @@ import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -198,6 +199,33 @@ public class InMemoryKeyValueService extends AbstractKeyValueService {
         });
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             final RangeRequest range,
+                                                                             final long timestamp) {
+        return getRangeInternal(tableRef, range, new ResultProducer<CellTimestamps>() {
+            @Override
+            public CellTimestamps apply(Iterator<Entry<Key, byte[]>> entries) {
+                Set<Long> timestamps = Sets.newTreeSet();
+                byte[] latestContents = null;
+                while (entries.hasNext()) {
+                    Entry<Key, byte[]> entry = entries.next();
+                    Key key = entry.getKey();
+                    if (key.ts >= timestamp) {
+                        break;
+                    }
+                    timestamps.add(key.ts);
+                    latestContents = entry.getValue();
+                }
+                if (!timestamps.isEmpty()) {
+                    return CellTimestamps.create(timestamps, latestContents.length == 0);
+                } else {
+                    return null;
+                }
+            }
+        });
+    }
+
     private <T> ClosableIterator<RowResult<T>> getRangeInternal(TableReference tableRef,
                                                                 final RangeRequest range,
                                                                 final ResultProducer<T> resultProducer) {
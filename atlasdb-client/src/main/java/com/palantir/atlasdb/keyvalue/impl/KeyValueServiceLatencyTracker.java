@@ -0,0 +1,63 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates the latencies of key value service calls recorded by a {@link LatencyTrackingKeyValueService},
+ * separately for calls made by background threads, such as the background sweeper's, and by every other thread.
+ */
+public final class KeyValueServiceLatencyTracker {
+    private final ThreadLocal<Boolean> isBackgroundThread = ThreadLocal.withInitial(() -> false);
+    private final LongAdder foregroundCalls = new LongAdder();
+    private final LongAdder foregroundNanos = new LongAdder();
+    private final LongAdder backgroundCalls = new LongAdder();
+    private final LongAdder backgroundNanos = new LongAdder();
+
+    /**
+     * Records the calls made by the current thread from now on as background calls.
+     */
+    public void markCurrentThreadAsBackground() {
+        isBackgroundThread.set(true);
+    }
+
+    public void record(long nanos) {
+        if (isBackgroundThread.get()) {
+            backgroundCalls.increment();
+            backgroundNanos.add(nanos);
+        } else {
+            foregroundCalls.increment();
+            foregroundNanos.add(nanos);
+        }
+    }
+
+    public long getForegroundCalls() {
+        return foregroundCalls.sum();
+    }
+
+    public long getForegroundNanos() {
+        return foregroundNanos.sum();
+    }
+
+    public long getBackgroundCalls() {
+        return backgroundCalls.sum();
+    }
+
+    public long getBackgroundNanos() {
+        return backgroundNanos.sum();
+    }
+}
@@ -18,6 +18,7 @@ package com.palantir.atlasdb.keyvalue.impl;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -31,13 +32,16 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -50,6 +54,7 @@ import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.table.description.TableMetadata;
 import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ClosableIterators;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.BlockingWorkerPool;
 import com.palantir.util.crypto.Sha256Hash;
@@ -150,6 +155,50 @@ public class KeyValueServices {
         return ret;
     }
 
+    /**
+     * Implements {@link KeyValueService#getRangeOfCellTimestamps} with two scans of the range: one of the timestamps,
+     * and one of the latest values to tell whether they are empty.
+     */
+    public static ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestampsUsingGetRange(
+            KeyValueService kv,
+            TableReference tableRef,
+            RangeRequest rangeRequest,
+            long timestamp) {
+        ClosableIterator<RowResult<Set<Long>>> timestamps =
+                kv.getRangeOfTimestamps(tableRef, rangeRequest, timestamp);
+        ClosableIterator<RowResult<Value>> values = kv.getRange(tableRef, rangeRequest, timestamp);
+        Comparator<byte[]> rowOrder = rangeRequest.isReverse()
+                ? UnsignedBytes.lexicographicalComparator().reversed()
+                : UnsignedBytes.lexicographicalComparator();
+        PeekingIterator<RowResult<Value>> peekingValues = Iterators.peekingIterator(values);
+        Iterator<RowResult<CellTimestamps>> results = Iterators.transform(timestamps, row -> {
+            // Every row with a value below the timestamp also has timestamps below it, so the values can only be
+            // behind the timestamps.
+            while (peekingValues.hasNext()
+                    && rowOrder.compare(peekingValues.peek().getRowName(), row.getRowName()) < 0) {
+                peekingValues.next();
+            }
+            Map<byte[], Value> latestValues = peekingValues.hasNext()
+                    && Arrays.equals(peekingValues.peek().getRowName(), row.getRowName())
+                    ? peekingValues.peek().getColumns()
+                    : ImmutableMap.<byte[], Value>of();
+            SortedMap<byte[], CellTimestamps> columns = Maps.newTreeMap(UnsignedBytes.lexicographicalComparator());
+            for (Map.Entry<byte[], Set<Long>> column : row.getColumns().entrySet()) {
+                Value latestValue = latestValues.get(column.getKey());
+                boolean latestValueEmpty = latestValue != null && latestValue.getContents().length == 0;
+                columns.put(column.getKey(), CellTimestamps.create(column.getValue(), latestValueEmpty));
+            }
+            return RowResult.create(row.getRowName(), columns);
+        });
+        return ClosableIterators.wrap(results, () -> {
+            try {
+                timestamps.close();
+            } finally {
+                values.close();
+            }
+        });
+    }
+
     public static Collection<Map.Entry<Cell, Value>> toConstantTimestampValues(final Collection<Map.Entry<Cell, byte[]>> cells, final long timestamp) {
         return Collections2.transform(cells, new Function<Map.Entry<Cell, byte[]>, Map.Entry<Cell, Value>>() {
             @Override
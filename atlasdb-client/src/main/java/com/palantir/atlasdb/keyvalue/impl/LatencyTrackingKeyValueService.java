@@ -0,0 +1,191 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.common.base.ClosableIterator;
+import com.palantir.common.base.ForwardingClosableIterator;
+
+/**
+ * Records the latency of the reads and writes made through this key value service in a
+ * {@link KeyValueServiceLatencyTracker}. A range scan is recorded as the time taken to open it and read its first
+ * row, as the latency of the whole scan depends on how much of the range the caller reads.
+ */
+public final class LatencyTrackingKeyValueService extends ForwardingKeyValueService {
+    private final KeyValueService delegate;
+    private final KeyValueServiceLatencyTracker tracker;
+
+    public static LatencyTrackingKeyValueService create(KeyValueService delegate,
+                                                        KeyValueServiceLatencyTracker tracker) {
+        return new LatencyTrackingKeyValueService(delegate, tracker);
+    }
+
+    private LatencyTrackingKeyValueService(KeyValueService delegate, KeyValueServiceLatencyTracker tracker) {
+        this.delegate = delegate;
+        this.tracker = tracker;
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        return time(() -> delegate().get(tableRef, timestampByCell));
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        return time(() -> delegate().getRows(tableRef, rows, columnSelection, timestamp));
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Value>> getRange(TableReference tableRef,
+                                                       RangeRequest rangeRequest,
+                                                       long timestamp) {
+        return timeFirstRow(() -> delegate().getRange(tableRef, rangeRequest, timestamp));
+    }
+
+    @Override
+    public ClosableIterator<RowResult<Set<Long>>> getRangeOfTimestamps(TableReference tableRef,
+                                                                       RangeRequest rangeRequest,
+                                                                       long timestamp) {
+        return timeFirstRow(() -> delegate().getRangeOfTimestamps(tableRef, rangeRequest, timestamp));
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        return time(() -> delegate().getLatestTimestamps(tableRef, timestampByCell));
+    }
+
+    @Override
+    public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef, Set<Cell> cells, long timestamp) {
+        return time(() -> delegate().getAllTimestamps(tableRef, cells, timestamp));
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        time(() -> delegate().put(tableRef, values, timestamp));
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        time(() -> delegate().multiPut(valuesByTable, timestamp));
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        time(() -> delegate().putWithTimestamps(tableRef, values));
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        time(() -> delegate().putUnlessExists(tableRef, values));
+    }
+
+    @Override
+    public void delete(TableReference tableRef, Multimap<Cell, Long> keys) {
+        time(() -> delegate().delete(tableRef, keys));
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        time(() -> delegate().addGarbageCollectionSentinelValues(tableRef, cells));
+    }
+
+    private <T> T time(Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            tracker.record(System.nanoTime() - start);
+        }
+    }
+
+    private <T> ClosableIterator<T> timeFirstRow(Supplier<ClosableIterator<T>> openRange) {
+        long start = System.nanoTime();
+        ClosableIterator<T> range;
+        try {
+            range = openRange.get();
+        } catch (RuntimeException | Error e) {
+            tracker.record(System.nanoTime() - start);
+            throw e;
+        }
+        long openNanos = System.nanoTime() - start;
+        return new ForwardingClosableIterator<T>() {
+            private boolean recorded = false;
+
+            @Override
+            protected ClosableIterator<T> delegate() {
+                return range;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return recorded ? super.hasNext() : timeFirstCall(super::hasNext);
+            }
+
+            @Override
+            public T next() {
+                return recorded ? super.next() : timeFirstCall(super::next);
+            }
+
+            @Override
+            public void close() {
+                if (!recorded) {
+                    recorded = true;
+                    tracker.record(openNanos);
+                }
+                super.close();
+            }
+
+            private <R> R timeFirstCall(Supplier<R> call) {
+                recorded = true;
+                long callStart = System.nanoTime();
+                try {
+                    return call.get();
+                } finally {
+                    tracker.record(openNanos + System.nanoTime() - callStart);
+                }
+            }
+        };
+    }
+
+    private void time(Runnable call) {
+        long start = System.nanoTime();
+        try {
+            call.run();
+        } finally {
+            tracker.record(System.nanoTime() - start);
+        }
+    }
+}
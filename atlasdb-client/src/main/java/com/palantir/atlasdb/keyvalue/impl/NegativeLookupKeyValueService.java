@@ -0,0 +1,348 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * This kvs wrapper keeps an in-process Bloom filter of the rows of every table declared with
+ * {@code negativeLookups()}, so that gets of rows which do not exist usually return without a round trip to
+ * the underlying key value service.
+ * <p>
+ * The filter of a table is built by scanning the table when the table is first seen, and rows are added to it
+ * before they are written. When a snapshot directory is given, the filters are written to it on close, and read
+ * back instead of scanning when a table is next seen. A snapshot is deleted once it has been read, so that a
+ * process which does not close cleanly rebuilds its filters.
+ * <p>
+ * Rows written by other processes are not added to the filters, so this must only be used when the tables
+ * with negative lookups are written exclusively through this key value service.
+ */
+public final class NegativeLookupKeyValueService extends ForwardingKeyValueService {
+    private static final Logger log = LoggerFactory.getLogger(NegativeLookupKeyValueService.class);
+    private static final String SNAPSHOT_SUFFIX = ".rows.bloom";
+    private static final int SCAN_BATCH_SIZE = 10_000;
+
+    private final KeyValueService delegate;
+    private final long expectedRowsPerTable;
+    private final double falsePositiveRate;
+    private final Optional<File> snapshotDirectory;
+    private final ConcurrentMap<TableReference, TableFilter> filters = Maps.newConcurrentMap();
+
+    public static NegativeLookupKeyValueService create(KeyValueService delegate,
+                                                       long expectedRowsPerTable,
+                                                       double falsePositiveRate,
+                                                       Optional<File> snapshotDirectory) {
+        NegativeLookupKeyValueService kvs = new NegativeLookupKeyValueService(
+                delegate, expectedRowsPerTable, falsePositiveRate, snapshotDirectory);
+        kvs.addFilters(delegate.getMetadataForTables());
+        return kvs;
+    }
+
+    private NegativeLookupKeyValueService(KeyValueService delegate,
+                                          long expectedRowsPerTable,
+                                          double falsePositiveRate,
+                                          Optional<File> snapshotDirectory) {
+        this.delegate = delegate;
+        this.expectedRowsPerTable = expectedRowsPerTable;
+        this.falsePositiveRate = falsePositiveRate;
+        this.snapshotDirectory = snapshotDirectory;
+        // Fail fast on invalid settings, rather than when the first table is seen.
+        RowBloomFilter.create(expectedRowsPerTable, falsePositiveRate);
+    }
+
+    @Override
+    protected KeyValueService delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        RowBloomFilter filter = getFilter(tableRef);
+        if (filter == null) {
+            return delegate().get(tableRef, timestampByCell);
+        }
+        Map<Cell, Long> cellsToRead = Maps.filterKeys(
+                timestampByCell,
+                cell -> filter.mightContain(cell.getRowName()));
+        if (cellsToRead.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        return delegate().get(tableRef, ImmutableMap.copyOf(cellsToRead));
+    }
+
+    @Override
+    public Map<Cell, Value> getRows(TableReference tableRef,
+                                    Iterable<byte[]> rows,
+                                    ColumnSelection columnSelection,
+                                    long timestamp) {
+        RowBloomFilter filter = getFilter(tableRef);
+        if (filter == null) {
+            return delegate().getRows(tableRef, rows, columnSelection, timestamp);
+        }
+        ImmutableList<byte[]> rowsToRead = ImmutableList.copyOf(Iterables.filter(rows, filter::mightContain));
+        if (rowsToRead.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        return delegate().getRows(tableRef, rowsToRead, columnSelection, timestamp);
+    }
+
+    @Override
+    public Map<Cell, Long> getLatestTimestamps(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+        RowBloomFilter filter = getFilter(tableRef);
+        if (filter == null) {
+            return delegate().getLatestTimestamps(tableRef, timestampByCell);
+        }
+        Map<Cell, Long> cellsToRead = Maps.filterKeys(
+                timestampByCell,
+                cell -> filter.mightContain(cell.getRowName()));
+        if (cellsToRead.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        return delegate().getLatestTimestamps(tableRef, ImmutableMap.copyOf(cellsToRead));
+    }
+
+    @Override
+    public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+        addRows(tableRef, values.keySet());
+        delegate().put(tableRef, values, timestamp);
+    }
+
+    @Override
+    public void multiPut(Map<TableReference, ? extends Map<Cell, byte[]>> valuesByTable, long timestamp) {
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
+            addRows(e.getKey(), e.getValue().keySet());
+        }
+        delegate().multiPut(valuesByTable, timestamp);
+    }
+
+    @Override
+    public void putWithTimestamps(TableReference tableRef, Multimap<Cell, Value> values) {
+        addRows(tableRef, values.keySet());
+        delegate().putWithTimestamps(tableRef, values);
+    }
+
+    @Override
+    public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) throws KeyAlreadyExistsException {
+        addRows(tableRef, values.keySet());
+        delegate().putUnlessExists(tableRef, values);
+    }
+
+    @Override
+    public void addGarbageCollectionSentinelValues(TableReference tableRef, Set<Cell> cells) {
+        addRows(tableRef, cells);
+        delegate().addGarbageCollectionSentinelValues(tableRef, cells);
+    }
+
+    @Override
+    public void createTable(TableReference tableRef, byte[] tableMetadata) {
+        delegate().createTable(tableRef, tableMetadata);
+        addFilters(ImmutableMap.of(tableRef, tableMetadata));
+    }
+
+    @Override
+    public void createTables(Map<TableReference, byte[]> tableRefToTableMetadata) {
+        delegate().createTables(tableRefToTableMetadata);
+        addFilters(tableRefToTableMetadata);
+    }
+
+    @Override
+    public void putMetadataForTable(TableReference tableRef, byte[] metadata) {
+        delegate().putMetadataForTable(tableRef, metadata);
+        addFilters(ImmutableMap.of(tableRef, metadata));
+    }
+
+    @Override
+    public void putMetadataForTables(Map<TableReference, byte[]> tableRefToMetadata) {
+        delegate().putMetadataForTables(tableRefToMetadata);
+        addFilters(tableRefToMetadata);
+    }
+
+    @Override
+    public void dropTable(TableReference tableRef) {
+        delegate().dropTable(tableRef);
+        filters.remove(tableRef);
+    }
+
+    @Override
+    public void dropTables(Set<TableReference> tableRefs) {
+        delegate().dropTables(tableRefs);
+        filters.keySet().removeAll(tableRefs);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (snapshotDirectory.isPresent()) {
+                for (Map.Entry<TableReference, TableFilter> e : filters.entrySet()) {
+                    if (e.getValue().ready) {
+                        writeSnapshot(e.getKey(), e.getValue().filter);
+                    }
+                }
+            }
+        } finally {
+            delegate().close();
+        }
+    }
+
+    /**
+     * Returns the filter of the given table, or null if the table has no filter or it is still being built.
+     */
+    @Nullable
+    private RowBloomFilter getFilter(TableReference tableRef) {
+        TableFilter tableFilter = filters.get(tableRef);
+        return tableFilter != null && tableFilter.ready ? tableFilter.filter : null;
+    }
+
+    private void addRows(TableReference tableRef, Iterable<Cell> cells) {
+        TableFilter tableFilter = filters.get(tableRef);
+        if (tableFilter != null) {
+            for (Cell cell : cells) {
+                tableFilter.filter.put(cell.getRowName());
+            }
+        }
+    }
+
+    private void addFilters(Map<TableReference, byte[]> tableRefToMetadata) {
+        for (Map.Entry<TableReference, byte[]> e : tableRefToMetadata.entrySet()) {
+            TableReference tableRef = e.getKey();
+            byte[] metadata = e.getValue();
+            if (metadata == null || metadata.length == 0
+                    || !TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).hasNegativeLookups()) {
+                continue;
+            }
+            TableFilter tableFilter = new TableFilter(RowBloomFilter.create(expectedRowsPerTable, falsePositiveRate));
+            // The filter is registered before it is populated, so that rows written meanwhile are added to it.
+            if (filters.putIfAbsent(tableRef, tableFilter) == null) {
+                populate(tableRef, tableFilter.filter);
+                tableFilter.ready = true;
+            }
+        }
+    }
+
+    private void populate(TableReference tableRef, RowBloomFilter filter) {
+        if (readSnapshot(tableRef, filter)) {
+            return;
+        }
+        Stopwatch watch = Stopwatch.createStarted();
+        long rowCount = 0;
+        RangeRequest range = RangeRequest.builder().batchHint(SCAN_BATCH_SIZE).build();
+        try (ClosableIterator<RowResult<Value>> rows = delegate().getRange(tableRef, range, Long.MAX_VALUE)) {
+            while (rows.hasNext()) {
+                filter.put(rows.next().getRowName());
+                rowCount++;
+            }
+        }
+        log.info("Built the negative lookup filter of table {} from {} rows in {} ms.",
+                tableRef, rowCount, watch.elapsed(TimeUnit.MILLISECONDS));
+        if (rowCount > expectedRowsPerTable) {
+            log.warn("Table {} has {} rows, more than the {} expected rows of its negative lookup filter,"
+                    + " so more of its lookups will reach the key value service.",
+                    tableRef, rowCount, expectedRowsPerTable);
+        }
+    }
+
+    private boolean readSnapshot(TableReference tableRef, RowBloomFilter filter) {
+        if (!snapshotDirectory.isPresent()) {
+            return false;
+        }
+        File snapshot = getSnapshotFile(tableRef);
+        if (!snapshot.exists()) {
+            return false;
+        }
+        try {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+                if (filter.mergeFrom(in)) {
+                    return true;
+                }
+                log.info("Ignoring the negative lookup filter snapshot of table {} as its settings have changed.",
+                        tableRef);
+                return false;
+            } finally {
+                // A snapshot is only valid until the table is next written, so it must never be read twice.
+                Files.deleteIfExists(snapshot.toPath());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read the negative lookup filter snapshot of table {}, so it will be rebuilt.",
+                    tableRef, e);
+            return false;
+        }
+    }
+
+    private void writeSnapshot(TableReference tableRef, RowBloomFilter filter) {
+        File snapshot = getSnapshotFile(tableRef);
+        File tempFile = new File(snapshot.getPath() + ".tmp");
+        try {
+            Files.createDirectories(snapshotDirectory.get().toPath());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                filter.writeTo(out);
+            }
+            Files.move(tempFile.toPath(), snapshot.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write the negative lookup filter snapshot of table {}.", tableRef, e);
+        }
+    }
+
+    private File getSnapshotFile(TableReference tableRef) {
+        return new File(snapshotDirectory.get(), tableRef.getQualifiedName() + SNAPSHOT_SUFFIX);
+    }
+
+    private static final class TableFilter {
+        final RowBloomFilter filter;
+        volatile boolean ready = false;
+
+        TableFilter(RowBloomFilter filter) {
+            this.filter = filter;
+        }
+    }
+}
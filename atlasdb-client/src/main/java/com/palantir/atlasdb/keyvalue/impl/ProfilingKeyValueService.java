@@ -31,6 +31,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -282,6 +283,18 @@ public class ProfilingKeyValueService implements KeyValueService {
         }
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef, RangeRequest rangeRequest, long timestamp) {
+        if (log.isTraceEnabled()) {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            ClosableIterator<RowResult<CellTimestamps>> result = delegate.getRangeOfCellTimestamps(tableRef, rangeRequest, timestamp);
+            logTimeAndTable("getRangeOfCellTimestamps", tableRef.getQualifiedName(), stopwatch);
+            return result;
+        } else {
+            return delegate.getRangeOfCellTimestamps(tableRef, rangeRequest, timestamp);
+        }
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef, Iterable<byte[]> rows, ColumnSelection columnSelection, long timestamp) {
         if (log.isTraceEnabled()) {
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+
+/**
+ * A Bloom filter over row names which may be read and updated concurrently.
+ * <p>
+ * Guava's {@link com.google.common.hash.BloomFilter} is not safe for concurrent use in the version we depend on, so
+ * this keeps its bits in an {@link AtomicLongArray}. A row put by one thread is seen by every call to
+ * {@link #mightContain} which starts after the put has returned.
+ */
+final class RowBloomFilter {
+    private static final int SERIALIZATION_VERSION = 1;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int numHashFunctions;
+
+    static RowBloomFilter create(long expectedRows, double falsePositiveRate) {
+        Preconditions.checkArgument(expectedRows > 0, "expectedRows must be positive, was %s", expectedRows);
+        Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1,
+                "falsePositiveRate must be between 0 and 1, was %s", falsePositiveRate);
+        long optimalBits = (long) (-expectedRows * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int numLongs = Math.toIntExact(Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE));
+        double bitsPerRow = (double) numLongs * Long.SIZE / expectedRows;
+        int numHashFunctions = Math.max(1, (int) Math.round(bitsPerRow * Math.log(2)));
+        return new RowBloomFilter(numLongs, numHashFunctions);
+    }
+
+    private RowBloomFilter(int numLongs, int numHashFunctions) {
+        this.bits = new AtomicLongArray(numLongs);
+        this.bitCount = (long) numLongs * Long.SIZE;
+        this.numHashFunctions = numHashFunctions;
+    }
+
+    void put(byte[] row) {
+        long[] hashes = hash(row);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long bitIndex = getBitIndex(hashes, i);
+            int longIndex = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+            if ((bits.get(longIndex) & mask) == 0) {
+                bits.getAndAccumulate(longIndex, mask, (current, bit) -> current | bit);
+            }
+        }
+    }
+
+    boolean mightContain(byte[] row) {
+        long[] hashes = hash(row);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long bitIndex = getBitIndex(hashes, i);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(SERIALIZATION_VERSION);
+        out.writeInt(numHashFunctions);
+        out.writeInt(bits.length());
+        for (int i = 0; i < bits.length(); i++) {
+            out.writeLong(bits.get(i));
+        }
+    }
+
+    /**
+     * Adds the rows of a filter written by {@link #writeTo} to this filter.
+     *
+     * @return false, without changing this filter, if the written filter has a different size or number of hash
+     *         functions.
+     */
+    boolean mergeFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != SERIALIZATION_VERSION
+                || in.readInt() != numHashFunctions
+                || in.readInt() != bits.length()) {
+            return false;
+        }
+        long[] words = new long[bits.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        for (int i = 0; i < words.length; i++) {
+            bits.getAndAccumulate(i, words[i], (current, word) -> current | word);
+        }
+        return true;
+    }
+
+    private long getBitIndex(long[] hashes, int i) {
+        // Kirsch-Mitzenmacher double hashing, as used by Guava's Bloom filters.
+        long combinedHash = hashes[0] + i * hashes[1];
+        return (combinedHash & Long.MAX_VALUE) % bitCount;
+    }
+
+    private static long[] hash(byte[] row) {
+        byte[] bytes = HASH_FUNCTION.hashBytes(row).asBytes();
+        return new long[] {
+                Longs.fromBytes(bytes[7], bytes[6], bytes[5], bytes[4], bytes[3], bytes[2], bytes[1], bytes[0]),
+                Longs.fromBytes(bytes[15], bytes[14], bytes[13], bytes[12], bytes[11], bytes[10], bytes[9], bytes[8])};
+    }
+}
@@ -26,6 +26,7 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
 import com.palantir.atlasdb.table.description.ColumnValueDescription;
@@ -52,7 +53,17 @@ public class SimpleKvsTimestampBoundStore implements TimestampBoundStore {
 
     public static TimestampBoundStore create(KeyValueService kv) {
         kv.createTable(AtlasDbConstants.TIMESTAMP_TABLE, TIMESTAMP_TABLE_METADATA.persistToBytes());
-        return new SimpleKvsTimestampBoundStore(kv);
+        return new SimpleKvsTimestampBoundStore(kv, AtlasDbConstants.TIMESTAMP_TABLE, TS_CELL);
+    }
+
+    /**
+     * Creates a bound store for one of many independent timestamp sequences in {@code kv}, which keeps the bound of
+     * {@code namespace} in its own row of {@link AtlasDbConstants#NAMESPACED_TIMESTAMP_TABLE}.
+     */
+    public static TimestampBoundStore createForNamespace(KeyValueService kv, String namespace) {
+        kv.createTable(AtlasDbConstants.NAMESPACED_TIMESTAMP_TABLE, TIMESTAMP_TABLE_METADATA.persistToBytes());
+        Cell cell = Cell.create(namespace.getBytes(Charsets.UTF_8), ROW_AND_COLUMN_NAME.getBytes(Charsets.UTF_8));
+        return new SimpleKvsTimestampBoundStore(kv, AtlasDbConstants.NAMESPACED_TIMESTAMP_TABLE, cell);
     }
 
     @GuardedBy("this")
@@ -60,25 +71,29 @@ public class SimpleKvsTimestampBoundStore implements TimestampBoundStore {
     @GuardedBy("this")
     private Throwable lastWriteException = null;
     private final KeyValueService kv;
+    private final TableReference table;
+    private final Cell cell;
 
-    private SimpleKvsTimestampBoundStore(KeyValueService kv) {
+    private SimpleKvsTimestampBoundStore(KeyValueService kv, TableReference table, Cell cell) {
         this.kv = kv;
+        this.table = table;
+        this.cell = cell;
     }
 
     @Override
     public synchronized long getUpperLimit() {
-        Map<Cell, Value> result = kv.get(AtlasDbConstants.TIMESTAMP_TABLE, ImmutableMap.of(TS_CELL, KV_TS+1));
+        Map<Cell, Value> result = kv.get(table, ImmutableMap.of(cell, KV_TS+1));
         if (result.isEmpty()) {
             putValue(INITIAL_VALUE);
         }
-        result = kv.get(AtlasDbConstants.TIMESTAMP_TABLE, ImmutableMap.of(TS_CELL, KV_TS+1));
+        result = kv.get(table, ImmutableMap.of(cell, KV_TS+1));
         currentLimit = getValueFromResult(result);
         return currentLimit;
     }
 
     @Override
     public synchronized void storeUpperLimit(long limit) throws MultipleRunningTimestampServiceError {
-        Map<Cell, Value> result = kv.get(AtlasDbConstants.TIMESTAMP_TABLE, ImmutableMap.of(TS_CELL, KV_TS+1));
+        Map<Cell, Value> result = kv.get(table, ImmutableMap.of(cell, KV_TS+1));
         long oldValue = getValueFromResult(result);
         if (oldValue != currentLimit) {
             String msg = "Timestamp limit changed underneath us (limit in memory: " + currentLimit
@@ -91,10 +106,10 @@ public class SimpleKvsTimestampBoundStore implements TimestampBoundStore {
     }
 
     private void putValue(long value) {
-        kv.put(AtlasDbConstants.TIMESTAMP_TABLE, ImmutableMap.of(TS_CELL, PtBytes.toBytes(value)), KV_TS);
+        kv.put(table, ImmutableMap.of(cell, PtBytes.toBytes(value)), KV_TS);
     }
 
     private long getValueFromResult(Map<Cell, Value> result) {
-        return PtBytes.toLong(result.get(TS_CELL).getContents());
+        return PtBytes.toLong(result.get(cell).getContents());
     }
 }
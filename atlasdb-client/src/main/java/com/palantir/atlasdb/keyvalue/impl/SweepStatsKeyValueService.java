@@ -54,6 +54,7 @@ import com.palantir.atlasdb.schema.generated.SweepPriorityTable;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityNamedColumn;
 import com.palantir.atlasdb.schema.generated.SweepPriorityTable.SweepPriorityRow;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.persist.Persistables;
 import com.palantir.timestamp.TimestampService;
@@ -75,6 +76,7 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
 
     private final KeyValueService delegate;
     private final TimestampService timestampService;
+    private final TransactionTableLayout transactionTableLayout;
     private final Multiset<TableReference> writesByTable = ConcurrentHashMultiset.create();
     private final Set<TableReference> clearedTables = Collections.newSetFromMap(new ConcurrentHashMap<TableReference, Boolean>());
     private final AtomicInteger totalModifications = new AtomicInteger();
@@ -82,13 +84,21 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     private final ScheduledExecutorService flushExecutor = PTExecutors.newSingleThreadScheduledExecutor();
 
     public static SweepStatsKeyValueService create(KeyValueService delegate, TimestampService timestampService) {
-        return new SweepStatsKeyValueService(delegate, timestampService);
+        return create(delegate, timestampService, TransactionTableLayout.legacy());
+    }
+
+    public static SweepStatsKeyValueService create(KeyValueService delegate,
+                                                   TimestampService timestampService,
+                                                   TransactionTableLayout transactionTableLayout) {
+        return new SweepStatsKeyValueService(delegate, timestampService, transactionTableLayout);
     }
 
     private SweepStatsKeyValueService(KeyValueService delegate,
-                                     TimestampService timestampService) {
+                                     TimestampService timestampService,
+                                     TransactionTableLayout transactionTableLayout) {
         this.delegate = delegate;
         this.timestampService = timestampService;
+        this.transactionTableLayout = transactionTableLayout;
         this.flushExecutor.scheduleWithFixedDelay(createFlushTask(), FLUSH_DELAY_SECONDS, FLUSH_DELAY_SECONDS, TimeUnit.SECONDS);
     }
 
@@ -264,7 +274,8 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
         } catch (RuntimeException e) {
             Set<TableReference> allTableNames = delegate().getAllTableNames();
             if (!allTableNames.contains(SWEEP_PRIORITY_TABLE)
-                    || !allTableNames.contains(TransactionConstants.TRANSACTION_TABLE)) {
+                    || !allTableNames.contains(TransactionConstants.TRANSACTION_TABLE)
+                    || !allTableNames.contains(TransactionConstants.TRANSACTION_TABLE_V2)) {
                 // ignore problems when sweep or transaction tables don't exist
                 log.warn("Ignoring failed sweep stats flush due to {}", e.getMessage(), e);
             }
@@ -275,10 +286,8 @@ public class SweepStatsKeyValueService extends ForwardingKeyValueService {
     }
 
     private void commit(long timestamp) {
-        Cell cell = Cell.create(
-                TransactionConstants.getValueForTimestamp(timestamp),
-                TransactionConstants.COMMIT_TS_COLUMN);
+        Cell cell = transactionTableLayout.getCell(timestamp);
         byte[] value = TransactionConstants.getValueForTimestamp(timestamp);
-        delegate().putUnlessExists(TransactionConstants.TRANSACTION_TABLE, ImmutableMap.of(cell, value));
+        delegate().putUnlessExists(transactionTableLayout.getTable(timestamp), ImmutableMap.of(cell, value));
     }
 }
@@ -41,11 +41,13 @@ public enum SweepSchema implements AtlasSchema {
                 SweepSchema.class.getPackage().getName() + ".generated",
                 NAMESPACE);
 
-        // This table tracks progress on a sweep job of a single table.
+        // This table tracks progress on the sweep jobs in flight. Each row
+        // is one segment of the row range of a table being swept.
         schema.addTableDefinition("progress", new TableDefinition() {{
             javaTableName("SweepProgress");
             rowName();
-                // This table has at most one row.
+                // The id of the segment. Sweeps that are not split into
+                // segments use a single row with id 0.
                 rowComponent("dummy", ValueType.VAR_LONG);
             columns();
                 // The name of the table being swept.
@@ -60,6 +62,12 @@ public enum SweepSchema implements AtlasSchema {
                 column("cells_deleted", "d", ValueType.VAR_LONG);
                 // The number of cells examined so far.
                 column("cells_examined", "e", ValueType.VAR_LONG);
+                // The row to stop sweeping at, exclusive. Absent if the
+                // segment runs to the end of the table.
+                column("end_row", "r", ValueType.BLOB);
+                // The (wall clock) time the segment finished at. Absent
+                // while the segment is still being swept.
+                column("finish_time", "f", ValueType.VAR_LONG);
             conflictHandler(ConflictHandler.IGNORE_ALL);
             ignoreHotspottingChecks();
         }});
@@ -349,6 +349,126 @@ public final class SweepProgressTable implements
         }
     }
 
+    /**
+     * <pre>
+     * Column value description {
+     *   type: byte[];
+     * }
+     * </pre>
+     */
+    public static final class EndRow implements SweepProgressNamedColumnValue<byte[]> {
+        private final byte[] value;
+
+        public static EndRow of(byte[] value) {
+            return new EndRow(value);
+        }
+
+        private EndRow(byte[] value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "end_row";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "r";
+        }
+
+        @Override
+        public byte[] getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = value;
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("r");
+        }
+
+        public static final Hydrator<EndRow> BYTES_HYDRATOR = new Hydrator<EndRow>() {
+            @Override
+            public EndRow hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.getBytesFromOffsetToEnd(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
+    /**
+     * <pre>
+     * Column value description {
+     *   type: Long;
+     * }
+     * </pre>
+     */
+    public static final class FinishTime implements SweepProgressNamedColumnValue<Long> {
+        private final Long value;
+
+        public static FinishTime of(Long value) {
+            return new FinishTime(value);
+        }
+
+        private FinishTime(Long value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getColumnName() {
+            return "finish_time";
+        }
+
+        @Override
+        public String getShortColumnName() {
+            return "f";
+        }
+
+        @Override
+        public Long getValue() {
+            return value;
+        }
+
+        @Override
+        public byte[] persistValue() {
+            byte[] bytes = EncodingUtils.encodeUnsignedVarLong(value);
+            return CompressionUtils.compress(bytes, Compression.NONE);
+        }
+
+        @Override
+        public byte[] persistColumnName() {
+            return PtBytes.toCachedBytes("f");
+        }
+
+        public static final Hydrator<FinishTime> BYTES_HYDRATOR = new Hydrator<FinishTime>() {
+            @Override
+            public FinishTime hydrateFromBytes(byte[] bytes) {
+                bytes = CompressionUtils.decompress(bytes, Compression.NONE);
+                return of(EncodingUtils.decodeUnsignedVarLong(bytes, 0));
+            }
+        };
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(getClass().getSimpleName())
+                .add("Value", this.value)
+                .toString();
+        }
+    }
+
     /**
      * <pre>
      * Column value description {
@@ -575,6 +695,14 @@ public final class SweepProgressTable implements
             return row.getColumns().containsKey(PtBytes.toCachedBytes("e"));
         }
 
+        public boolean hasEndRow() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("r"));
+        }
+
+        public boolean hasFinishTime() {
+            return row.getColumns().containsKey(PtBytes.toCachedBytes("f"));
+        }
+
         public boolean hasFullTableName() {
             return row.getColumns().containsKey(PtBytes.toCachedBytes("n"));
         }
@@ -605,6 +733,24 @@ public final class SweepProgressTable implements
             return value.getValue();
         }
 
+        public byte[] getEndRow() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("r"));
+            if (bytes == null) {
+                return null;
+            }
+            EndRow value = EndRow.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
+        public Long getFinishTime() {
+            byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("f"));
+            if (bytes == null) {
+                return null;
+            }
+            FinishTime value = FinishTime.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+            return value.getValue();
+        }
+
         public String getFullTableName() {
             byte[] bytes = row.getColumns().get(PtBytes.toCachedBytes("n"));
             if (bytes == null) {
@@ -650,6 +796,24 @@ public final class SweepProgressTable implements
             };
         }
 
+        public static Function<SweepProgressRowResult, byte[]> getEndRowFun() {
+            return new Function<SweepProgressRowResult, byte[]>() {
+                @Override
+                public byte[] apply(SweepProgressRowResult rowResult) {
+                    return rowResult.getEndRow();
+                }
+            };
+        }
+
+        public static Function<SweepProgressRowResult, Long> getFinishTimeFun() {
+            return new Function<SweepProgressRowResult, Long>() {
+                @Override
+                public Long apply(SweepProgressRowResult rowResult) {
+                    return rowResult.getFinishTime();
+                }
+            };
+        }
+
         public static Function<SweepProgressRowResult, String> getFullTableNameFun() {
             return new Function<SweepProgressRowResult, String>() {
                 @Override
@@ -683,6 +847,8 @@ public final class SweepProgressTable implements
                 .add("RowName", getRowName())
                 .add("CellsDeleted", getCellsDeleted())
                 .add("CellsExamined", getCellsExamined())
+                .add("EndRow", getEndRow())
+                .add("FinishTime", getFinishTime())
                 .add("FullTableName", getFullTableName())
                 .add("MinimumSweptTimestamp", getMinimumSweptTimestamp())
                 .add("StartRow", getStartRow())
@@ -703,6 +869,18 @@ public final class SweepProgressTable implements
                 return PtBytes.toCachedBytes("e");
             }
         },
+        END_ROW {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("r");
+            }
+        },
+        FINISH_TIME {
+            @Override
+            public byte[] getShortName() {
+                return PtBytes.toCachedBytes("f");
+            }
+        },
         FULL_TABLE_NAME {
             @Override
             public byte[] getShortName() {
@@ -749,6 +927,8 @@ public final class SweepProgressTable implements
                 .put("s", StartRow.BYTES_HYDRATOR)
                 .put("d", CellsDeleted.BYTES_HYDRATOR)
                 .put("e", CellsExamined.BYTES_HYDRATOR)
+                .put("r", EndRow.BYTES_HYDRATOR)
+                .put("f", FinishTime.BYTES_HYDRATOR)
                 .build();
 
     public Map<SweepProgressRow, String> getFullTableNames(Collection<SweepProgressRow> rows) {
@@ -821,6 +1001,34 @@ public final class SweepProgressTable implements
         return ret;
     }
 
+    public Map<SweepProgressRow, byte[]> getEndRows(Collection<SweepProgressRow> rows) {
+        Map<Cell, SweepProgressRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (SweepProgressRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("r")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableRef, cells.keySet());
+        Map<SweepProgressRow, byte[]> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            byte[] val = EndRow.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
+    public Map<SweepProgressRow, Long> getFinishTimes(Collection<SweepProgressRow> rows) {
+        Map<Cell, SweepProgressRow> cells = Maps.newHashMapWithExpectedSize(rows.size());
+        for (SweepProgressRow row : rows) {
+            cells.put(Cell.create(row.persistToBytes(), PtBytes.toCachedBytes("f")), row);
+        }
+        Map<Cell, byte[]> results = t.get(tableRef, cells.keySet());
+        Map<SweepProgressRow, Long> ret = Maps.newHashMapWithExpectedSize(results.size());
+        for (Entry<Cell, byte[]> e : results.entrySet()) {
+            Long val = FinishTime.BYTES_HYDRATOR.hydrateFromBytes(e.getValue()).getValue();
+            ret.put(cells.get(e.getKey()), val);
+        }
+        return ret;
+    }
+
     public void putFullTableName(SweepProgressRow row, String value) {
         put(ImmutableMultimap.of(row, FullTableName.of(value)));
     }
@@ -941,6 +1149,54 @@ public final class SweepProgressTable implements
         putUnlessExists(Multimaps.forMap(toPut));
     }
 
+    public void putEndRow(SweepProgressRow row, byte[] value) {
+        put(ImmutableMultimap.of(row, EndRow.of(value)));
+    }
+
+    public void putEndRow(Map<SweepProgressRow, byte[]> map) {
+        Map<SweepProgressRow, SweepProgressNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepProgressRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), EndRow.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putEndRowUnlessExists(SweepProgressRow row, byte[] value) {
+        putUnlessExists(ImmutableMultimap.of(row, EndRow.of(value)));
+    }
+
+    public void putEndRowUnlessExists(Map<SweepProgressRow, byte[]> map) {
+        Map<SweepProgressRow, SweepProgressNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepProgressRow, byte[]> e : map.entrySet()) {
+            toPut.put(e.getKey(), EndRow.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
+    public void putFinishTime(SweepProgressRow row, Long value) {
+        put(ImmutableMultimap.of(row, FinishTime.of(value)));
+    }
+
+    public void putFinishTime(Map<SweepProgressRow, Long> map) {
+        Map<SweepProgressRow, SweepProgressNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepProgressRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), FinishTime.of(e.getValue()));
+        }
+        put(Multimaps.forMap(toPut));
+    }
+
+    public void putFinishTimeUnlessExists(SweepProgressRow row, Long value) {
+        putUnlessExists(ImmutableMultimap.of(row, FinishTime.of(value)));
+    }
+
+    public void putFinishTimeUnlessExists(Map<SweepProgressRow, Long> map) {
+        Map<SweepProgressRow, SweepProgressNamedColumnValue<?>> toPut = Maps.newHashMapWithExpectedSize(map.size());
+        for (Entry<SweepProgressRow, Long> e : map.entrySet()) {
+            toPut.put(e.getKey(), FinishTime.of(e.getValue()));
+        }
+        putUnlessExists(Multimaps.forMap(toPut));
+    }
+
     @Override
     public void put(Multimap<SweepProgressRow, ? extends SweepProgressNamedColumnValue<?>> rows) {
         t.useTable(tableRef, this);
@@ -1012,6 +1268,26 @@ public final class SweepProgressTable implements
         t.delete(tableRef, cells);
     }
 
+    public void deleteEndRow(SweepProgressRow row) {
+        deleteEndRow(ImmutableSet.of(row));
+    }
+
+    public void deleteEndRow(Iterable<SweepProgressRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("r");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableRef, cells);
+    }
+
+    public void deleteFinishTime(SweepProgressRow row) {
+        deleteFinishTime(ImmutableSet.of(row));
+    }
+
+    public void deleteFinishTime(Iterable<SweepProgressRow> rows) {
+        byte[] col = PtBytes.toCachedBytes("f");
+        Set<Cell> cells = Cells.cellsWithConstantColumn(Persistables.persistAll(rows), col);
+        t.delete(tableRef, cells);
+    }
+
     @Override
     public void delete(SweepProgressRow row) {
         delete(ImmutableSet.of(row));
@@ -1020,9 +1296,11 @@ public final class SweepProgressTable implements
     @Override
     public void delete(Iterable<SweepProgressRow> rows) {
         List<byte[]> rowBytes = Persistables.persistAll(rows);
-        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size() * 5);
+        Set<Cell> cells = Sets.newHashSetWithExpectedSize(rowBytes.size() * 7);
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("d")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("e")));
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("r")));
+        cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("f")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("n")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("m")));
         cells.addAll(Cells.cellsWithConstantColumn(rowBytes, PtBytes.toCachedBytes("s")));
@@ -1277,5 +1555,5 @@ public final class SweepProgressTable implements
      * {@link UnsignedBytes}
      * {@link ValueType}
      */
-    static String __CLASS_HASH = "l7F97+c9eg+A3wd/jO0jhQ==";
+    static String __CLASS_HASH = "NCHD88VfqDFMYCVm9iJj2Q==";
 }
@@ -22,6 +22,7 @@ import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.ptobject.EncodingUtils;
 import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
 import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
 import com.palantir.atlasdb.table.description.NameComponentDescription;
 import com.palantir.atlasdb.table.description.NameMetadataDescription;
 import com.palantir.atlasdb.table.description.NamedColumnDescription;
@@ -34,6 +35,7 @@ public class TransactionConstants {
     private TransactionConstants() {/* */}
 
     public static final TableReference TRANSACTION_TABLE = TableReference.createWithEmptyNamespace("_transactions");
+    public static final TableReference TRANSACTION_TABLE_V2 = TableReference.createWithEmptyNamespace("_transactions2");
     public static final String COMMIT_TS_COLUMN_STRING = "t";
     public static final byte[] COMMIT_TS_COLUMN = PtBytes.toBytes(COMMIT_TS_COLUMN_STRING);
     public static final long FAILED_COMMIT_TS = -1L;
@@ -57,4 +59,14 @@ public class TransactionConstants {
             new NamedColumnDescription(COMMIT_TS_COLUMN_STRING, "commit_ts", ColumnValueDescription.forType(ValueType.VAR_LONG)))),
         ConflictHandler.IGNORE_ALL);
 
+    /**
+     * Metadata for the bucketed layout described in {@link TransactionTableLayout}.
+     */
+    public static final TableMetadata TRANSACTION_TABLE_V2_METADATA = new TableMetadata(
+        NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription("bucket", ValueType.BLOB))),
+        new ColumnMetadataDescription(new DynamicColumnDescription(
+            NameMetadataDescription.create(ImmutableList.of(new NameComponentDescription("offset", ValueType.VAR_LONG))),
+            ColumnValueDescription.forType(ValueType.VAR_LONG))),
+        ConflictHandler.IGNORE_ALL);
+
 }
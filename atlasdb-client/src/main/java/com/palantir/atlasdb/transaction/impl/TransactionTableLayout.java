@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+
+/**
+ * Decides where the commit timestamp of a transaction is stored.
+ * <p>
+ * Transactions that started before the cutover timestamp use the original layout in
+ * {@link TransactionConstants#TRANSACTION_TABLE}, with one row per start timestamp. Consecutive start timestamps
+ * then map to adjacent rows, so on ordered key value services all concurrent commits hit the same partition.
+ * <p>
+ * Transactions that started at or after the cutover timestamp use the bucketed layout in
+ * {@link TransactionConstants#TRANSACTION_TABLE_V2}. Start timestamps are split into quanta of
+ * {@link #PARTITIONING_QUANTUM}; within a quantum, timestamp {@code ts} is stored in row
+ * {@code ts % ROWS_PER_QUANTUM} under column {@code (ts % PARTITIONING_QUANTUM) / ROWS_PER_QUANTUM}. Row names are
+ * bit-reversed, so consecutive timestamps are spread over {@link #ROWS_PER_QUANTUM} rows that are far apart in
+ * the key space, while a lookup for a range of start timestamps still only touches that many rows.
+ * <p>
+ * All clients of a key value service must agree on the cutover timestamp, and it must be greater than the start
+ * timestamp of any transaction that may still commit when the cutover is first configured.
+ */
+public final class TransactionTableLayout {
+    public static final long NO_CUTOVER = Long.MAX_VALUE;
+    public static final long PARTITIONING_QUANTUM = 25_000_000L;
+    public static final int ROWS_PER_QUANTUM = 16;
+
+    private static final TransactionTableLayout LEGACY = new TransactionTableLayout(NO_CUTOVER);
+
+    private final long cutoverTimestamp;
+
+    private TransactionTableLayout(long cutoverTimestamp) {
+        Preconditions.checkArgument(cutoverTimestamp >= 0, "The cutover timestamp must not be negative");
+        this.cutoverTimestamp = cutoverTimestamp;
+    }
+
+    /**
+     * Stores every commit timestamp in the original layout.
+     */
+    public static TransactionTableLayout legacy() {
+        return LEGACY;
+    }
+
+    /**
+     * Stores commit timestamps of transactions starting at or after {@code cutoverTimestamp} in the bucketed layout.
+     */
+    public static TransactionTableLayout withCutover(long cutoverTimestamp) {
+        return new TransactionTableLayout(cutoverTimestamp);
+    }
+
+    public long getCutoverTimestamp() {
+        return cutoverTimestamp;
+    }
+
+    public boolean isBucketed(long startTimestamp) {
+        return startTimestamp >= cutoverTimestamp;
+    }
+
+    public TableReference getTable(long startTimestamp) {
+        return isBucketed(startTimestamp)
+                ? TransactionConstants.TRANSACTION_TABLE_V2
+                : TransactionConstants.TRANSACTION_TABLE;
+    }
+
+    public Cell getCell(long startTimestamp) {
+        return isBucketed(startTimestamp)
+                ? getBucketedCell(startTimestamp)
+                : getLegacyCell(startTimestamp);
+    }
+
+    /**
+     * Inverse of {@link #getCell} for a cell read from {@code table}.
+     */
+    public static long getStartTimestamp(TableReference table, Cell cell) {
+        if (table.equals(TransactionConstants.TRANSACTION_TABLE_V2)) {
+            return getStartTimestampFromBucketedCell(cell);
+        }
+        Preconditions.checkArgument(table.equals(TransactionConstants.TRANSACTION_TABLE),
+                "%s is not a transactions table", table);
+        return TransactionConstants.getTimestampForValue(cell.getRowName());
+    }
+
+    static Cell getLegacyCell(long startTimestamp) {
+        return Cell.create(
+                TransactionConstants.getValueForTimestamp(startTimestamp),
+                TransactionConstants.COMMIT_TS_COLUMN);
+    }
+
+    static Cell getBucketedCell(long startTimestamp) {
+        long quantum = startTimestamp / PARTITIONING_QUANTUM;
+        long offset = startTimestamp % PARTITIONING_QUANTUM;
+        long row = quantum * ROWS_PER_QUANTUM + offset % ROWS_PER_QUANTUM;
+        long column = offset / ROWS_PER_QUANTUM;
+        return Cell.create(PtBytes.toBytes(Long.reverse(row)), EncodingUtils.encodeVarLong(column));
+    }
+
+    static long getStartTimestampFromBucketedCell(Cell cell) {
+        long row = Long.reverse(PtBytes.toLong(cell.getRowName()));
+        long column = EncodingUtils.decodeVarLong(cell.getColumnName());
+        return (row / ROWS_PER_QUANTUM) * PARTITIONING_QUANTUM + column * ROWS_PER_QUANTUM + row % ROWS_PER_QUANTUM;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionTableLayout{cutoverTimestamp=" + cutoverTimestamp + "}";
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.timestamp.MultipleRunningTimestampServiceError;
+import com.palantir.timestamp.TimestampBoundStore;
+
+public class SimpleKvsTimestampBoundStoreTest {
+    private static final long INITIAL_LIMIT = 10000L;
+
+    private KeyValueService kvs;
+
+    @Before
+    public void setUp() {
+        kvs = overwritingKvs(new InMemoryKeyValueService(false));
+    }
+
+    @Test
+    public void namespacedStoreStartsAtInitialLimit() {
+        TimestampBoundStore store = SimpleKvsTimestampBoundStore.createForNamespace(kvs, "client");
+
+        assertThat(store.getUpperLimit(), is(INITIAL_LIMIT));
+        assertThat(kvs.getAllTableNames().contains(AtlasDbConstants.NAMESPACED_TIMESTAMP_TABLE), is(true));
+    }
+
+    @Test
+    public void namespacedStoresAreIndependentOfEachOtherAndOfTheDefaultStore() {
+        TimestampBoundStore defaultStore = SimpleKvsTimestampBoundStore.create(kvs);
+        TimestampBoundStore first = SimpleKvsTimestampBoundStore.createForNamespace(kvs, "first");
+        TimestampBoundStore second = SimpleKvsTimestampBoundStore.createForNamespace(kvs, "second");
+        defaultStore.getUpperLimit();
+        first.getUpperLimit();
+        second.getUpperLimit();
+
+        first.storeUpperLimit(50000L);
+
+        assertThat(SimpleKvsTimestampBoundStore.createForNamespace(kvs, "first").getUpperLimit(), is(50000L));
+        assertThat(second.getUpperLimit(), is(INITIAL_LIMIT));
+        assertThat(defaultStore.getUpperLimit(), is(INITIAL_LIMIT));
+    }
+
+    @Test(expected = MultipleRunningTimestampServiceError.class)
+    public void detectsAnotherStoreWritingTheSameNamespace() {
+        TimestampBoundStore store = SimpleKvsTimestampBoundStore.createForNamespace(kvs, "client");
+        TimestampBoundStore other = SimpleKvsTimestampBoundStore.createForNamespace(kvs, "client");
+        store.getUpperLimit();
+        other.getUpperLimit();
+
+        other.storeUpperLimit(20000L);
+        store.storeUpperLimit(30000L);
+    }
+
+    /**
+     * The bound store overwrites its cell at a fixed timestamp, which the key value services it is used with allow
+     * but the in-memory one does not.
+     */
+    private static KeyValueService overwritingKvs(KeyValueService delegate) {
+        return new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return delegate;
+            }
+
+            @Override
+            public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
+                delegate.delete(tableRef, Multimaps.forMap(Maps.transformValues(values, unused -> timestamp)));
+                delegate.put(tableRef, values, timestamp);
+            }
+        };
+    }
+}
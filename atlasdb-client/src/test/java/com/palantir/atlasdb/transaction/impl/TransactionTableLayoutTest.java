@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+
+public class TransactionTableLayoutTest {
+    private static final long CUTOVER = 1000L;
+
+    private final TransactionTableLayout layout = TransactionTableLayout.withCutover(CUTOVER);
+
+    @Test
+    public void timestampsBeforeTheCutoverUseTheOriginalTable() {
+        assertThat(layout.getTable(CUTOVER - 1)).isEqualTo(TransactionConstants.TRANSACTION_TABLE);
+        assertThat(layout.getCell(CUTOVER - 1)).isEqualTo(Cell.create(
+                TransactionConstants.getValueForTimestamp(CUTOVER - 1),
+                TransactionConstants.COMMIT_TS_COLUMN));
+    }
+
+    @Test
+    public void timestampsFromTheCutoverUseTheBucketedTable() {
+        assertThat(layout.getTable(CUTOVER)).isEqualTo(TransactionConstants.TRANSACTION_TABLE_V2);
+        assertThat(layout.getTable(Long.MAX_VALUE - 1)).isEqualTo(TransactionConstants.TRANSACTION_TABLE_V2);
+    }
+
+    @Test
+    public void legacyLayoutNeverUsesTheBucketedTable() {
+        assertThat(TransactionTableLayout.legacy().getTable(Long.MAX_VALUE - 1))
+                .isEqualTo(TransactionConstants.TRANSACTION_TABLE);
+    }
+
+    @Test
+    public void startTimestampsRoundTrip() {
+        long[] timestamps = {0L, 1L, 15L, 16L, 17L, TransactionTableLayout.PARTITIONING_QUANTUM - 1,
+                TransactionTableLayout.PARTITIONING_QUANTUM, 123_456_789_012L, Long.MAX_VALUE - 1};
+        for (long ts : timestamps) {
+            assertThat(TransactionTableLayout.getStartTimestamp(
+                    TransactionConstants.TRANSACTION_TABLE_V2, TransactionTableLayout.getBucketedCell(ts)))
+                    .isEqualTo(ts);
+            assertThat(TransactionTableLayout.getStartTimestamp(
+                    TransactionConstants.TRANSACTION_TABLE, TransactionTableLayout.getLegacyCell(ts)))
+                    .isEqualTo(ts);
+        }
+    }
+
+    @Test
+    public void consecutiveTimestampsAreSpreadOverRowsThatAreFarApart() {
+        long base = 10 * TransactionTableLayout.PARTITIONING_QUANTUM;
+        Set<Long> rows = Sets.newHashSet();
+        for (long ts = base; ts < base + 10 * TransactionTableLayout.ROWS_PER_QUANTUM; ts++) {
+            rows.add(PtBytes.toLong(TransactionTableLayout.getBucketedCell(ts).getRowName()));
+        }
+        assertThat(rows).hasSize(TransactionTableLayout.ROWS_PER_QUANTUM);
+
+        byte[] first = TransactionTableLayout.getBucketedCell(base).getRowName();
+        byte[] second = TransactionTableLayout.getBucketedCell(base + 1).getRowName();
+        assertThat(first[0]).isNotEqualTo(second[0]);
+    }
+}
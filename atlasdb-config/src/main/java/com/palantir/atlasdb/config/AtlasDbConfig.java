@@ -159,6 +159,207 @@ public abstract class AtlasDbConfig {
         return AtlasDbConstants.DEFAULT_SWEEP_CELL_BATCH_SIZE;
     }
 
+    /**
+     * The number of threads the background sweeper sweeps tables with.
+     * Each thread sweeps a batch of a different table, or a different
+     * segment of the same table, at a time.
+     */
+    @Value.Default
+    public int getSweepThreads() {
+        return AtlasDbConstants.DEFAULT_SWEEP_THREADS;
+    }
+
+    /**
+     * The number of segments the background sweeper splits the row range
+     * of each table into, so that several threads can sweep one table.
+     * Segments are split evenly on the first eight bytes of the row name, so
+     * they are only of similar sizes for tables whose row names are
+     * spread evenly, such as hashed row names.
+     */
+    @Value.Default
+    public int getSweepSegmentsPerTable() {
+        return AtlasDbConstants.DEFAULT_SWEEP_SEGMENTS_PER_TABLE;
+    }
+
+    /**
+     * If positive, the background sweeper adapts its batch sizes and its
+     * pause between batches to keep the mean latency of key value service
+     * reads and writes under this many milliseconds. It shrinks its batches
+     * and pauses for longer while over budget, and grows its batches back
+     * to the configured sizes with no pause while well under budget, in
+     * which case the sweep pause is only where it starts from. 0 disables
+     * this, and the sweeper uses the configured sizes and pause.
+     */
+    @Value.Default
+    public long getSweepLatencyBudgetMillis() {
+        return AtlasDbConstants.DEFAULT_SWEEP_LATENCY_BUDGET_MILLIS;
+    }
+
+    /**
+     * If true, the sweep latency budget also applies to the key value
+     * service calls made by everything other than the sweeper, so that
+     * sweep backs off while foreground traffic is slow. Otherwise only
+     * the latency of the sweeper's own calls is considered.
+     */
+    @Value.Default
+    public boolean throttleSweepOnForegroundLatency() {
+        return AtlasDbConstants.DEFAULT_THROTTLE_SWEEP_ON_FOREGROUND_LATENCY;
+    }
+
+    /**
+     * If true, committing transactions queue the cells they write in the
+     * sweep queue table, and a background thread sweeps the overwritten
+     * versions of those cells once the sweep timestamp has passed them.
+     * This does work proportional to the number of writes instead of
+     * scanning whole tables, at the cost of an extra write per cell.
+     * It runs alongside the background sweeper, which is still needed to
+     * sweep cells written before this was enabled. Like the background
+     * sweeper, it does not sweep while {@link #enableSweep()} is false;
+     * cells are still queued, and are swept once sweep is enabled again.
+     */
+    @Value.Default
+    public boolean enableTargetedSweep() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TARGETED_SWEEP;
+    }
+
+    /**
+     * The number of shards the sweep queue is split into. Every client of
+     * the key value service must be configured with the same number, and
+     * it must be between 1 and 256.
+     */
+    @Value.Default
+    public int getTargetedSweepShards() {
+        return AtlasDbConstants.DEFAULT_TARGETED_SWEEP_SHARDS;
+    }
+
+    /**
+     * The maximum number of queued cells the targeted sweeper sweeps from
+     * each shard of the sweep queue at a time.
+     */
+    @Value.Default
+    public int getTargetedSweepBatchSize() {
+        return AtlasDbConstants.DEFAULT_TARGETED_SWEEP_BATCH_SIZE;
+    }
+
+    /**
+     * The maximum number of start timestamp to commit timestamp mappings cached
+     * in memory and shared by all transactions, the background sweeper and
+     * the scrubber.
+     */
+    @Value.Default
+    public long getCommitTimestampCacheSize() {
+        return AtlasDbConstants.DEFAULT_COMMIT_TIMESTAMP_CACHE_SIZE;
+    }
+
+    /**
+     * If true, commit timestamps of concurrently committing transactions
+     * are written to the transactions table together, with one key value
+     * service call per batch instead of one per transaction. This trades a
+     * little latency on an idle client for higher commit throughput under
+     * contention.
+     */
+    @Value.Default
+    public boolean enableTransactionGroupCommit() {
+        return AtlasDbConstants.DEFAULT_ENABLE_TRANSACTION_GROUP_COMMIT;
+    }
+
+    /**
+     * The number of pages each transactional range scan fetches and post filters
+     * ahead of the caller, or 0 to fetch each page only when it is needed.
+     */
+    @Value.Default
+    public int getRangeScanPrefetchDepth() {
+        return AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_DEPTH;
+    }
+
+    /**
+     * The number of threads shared by the range scan prefetches of all
+     * transactions.
+     */
+    @Value.Default
+    public int getRangeScanPrefetchThreads() {
+        return AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_THREADS;
+    }
+
+    /**
+     * The approximate number of bytes of prefetched range scan pages that a
+     * single transaction may hold before it stops prefetching.
+     */
+    @Value.Default
+    public long getRangeScanPrefetchMaxBytesPerTransaction() {
+        return AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_MAX_BYTES_PER_TRANSACTION;
+    }
+
+    /**
+     * If true, serializable transactions validate the cells they read at
+     * commit time by checking which transactions last wrote them, and only
+     * read the values of cells that may have changed again. This avoids
+     * reading wide values twice. Ranges, column ranges and rows read with
+     * all of their columns are still validated by reading their values.
+     */
+    @Value.Default
+    public boolean validateSerializableReadsByTimestamp() {
+        return AtlasDbConstants.DEFAULT_VALIDATE_SERIALIZABLE_READS_BY_TIMESTAMP;
+    }
+
+    /**
+     * The number of cells of tables with a HOT or HOTTEST cache priority
+     * to cache across transactions, or 0 to disable the cache. Cached
+     * values are invalidated by the commits of this process only, so this
+     * must only be enabled if those tables are not written by any other
+     * process.
+     */
+    @Value.Default
+    public long getHotTableReadCacheSize() {
+        return AtlasDbConstants.DEFAULT_HOT_TABLE_READ_CACHE_SIZE;
+    }
+
+    /**
+     * If true, rows of tables declared with negative lookups are tracked in
+     * an in-process Bloom filter per table, so that most reads of rows that
+     * do not exist return without reading the key value service. The
+     * filters are built by scanning the tables on startup, and only see the
+     * writes of this process, so this must only be enabled if those tables
+     * are not written by any other process.
+     */
+    @Value.Default
+    public boolean enableNegativeLookupBloomFilters() {
+        return AtlasDbConstants.DEFAULT_ENABLE_NEGATIVE_LOOKUP_BLOOM_FILTERS;
+    }
+
+    /**
+     * The number of rows each negative lookup Bloom filter is sized for.
+     * Tables with more rows still work, with a higher false positive rate.
+     */
+    @Value.Default
+    public long getNegativeLookupBloomFilterExpectedRows() {
+        return AtlasDbConstants.DEFAULT_NEGATIVE_LOOKUP_BLOOM_FILTER_EXPECTED_ROWS;
+    }
+
+    @Value.Default
+    public double getNegativeLookupBloomFilterFalsePositiveRate() {
+        return AtlasDbConstants.DEFAULT_NEGATIVE_LOOKUP_BLOOM_FILTER_FALSE_POSITIVE_RATE;
+    }
+
+    /**
+     * If present, the negative lookup Bloom filters are written to this
+     * directory on shutdown, and read back on startup instead of scanning
+     * the tables again.
+     */
+    public abstract Optional<String> negativeLookupBloomFilterSnapshotDirectory();
+
+    /**
+     * If present, transactions starting at or after this timestamp store their commit timestamps in the
+     * bucketed {@code _transactions2} table, which spreads concurrent commits over many rows instead of
+     * appending to a single range of {@code _transactions}. Transactions that started earlier are still
+     * read from {@code _transactions}, so this can be enabled on a live deployment.
+     * <p>
+     * Every client of the key value service must be configured with the same value, and it must be larger
+     * than any timestamp handed out before the first client is restarted with it, for example a fresh timestamp
+     * plus a comfortable margin.
+     */
+    public abstract Optional<Long> transactionsTableCutoverTimestamp();
+
     @Value.Check
     protected final void check() {
         if (leader().isPresent()) {
@@ -38,10 +38,13 @@ import com.palantir.leader.PaxosLeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.paxos.PaxosAcceptor;
 import com.palantir.paxos.PaxosAcceptorImpl;
+import com.palantir.paxos.PaxosAcceptorState;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosLearnerImpl;
 import com.palantir.paxos.PaxosProposer;
 import com.palantir.paxos.PaxosProposerImpl;
+import com.palantir.paxos.PaxosValue;
+import com.palantir.paxos.SegmentedPaxosStateLog;
 
 public final class Leaders {
     private Leaders() {
@@ -56,8 +59,14 @@ public final class Leaders {
             Environment env,
             LeaderConfig config) {
 
-        PaxosAcceptor ourAcceptor = PaxosAcceptorImpl.newAcceptor(config.acceptorLogDir().getPath());
-        PaxosLearner ourLearner = PaxosLearnerImpl.newLearner(config.learnerLogDir().getPath());
+        String acceptorLogDir = config.acceptorLogDir().getPath();
+        String learnerLogDir = config.learnerLogDir().getPath();
+        PaxosAcceptor ourAcceptor = config.segmentedPaxosLogs()
+                ? PaxosAcceptorImpl.newAcceptor(SegmentedPaxosStateLog.<PaxosAcceptorState>create(acceptorLogDir))
+                : PaxosAcceptorImpl.newAcceptor(acceptorLogDir);
+        PaxosLearner ourLearner = config.segmentedPaxosLogs()
+                ? PaxosLearnerImpl.newLearner(SegmentedPaxosStateLog.<PaxosValue>create(learnerLogDir))
+                : PaxosLearnerImpl.newLearner(learnerLogDir);
 
         Set<String> remoteLeaderUris = Sets.newHashSet(config.leaders());
         remoteLeaderUris.remove(config.localServer());
@@ -15,6 +15,7 @@
  */
 package com.palantir.atlasdb.factory;
 
+import java.io.File;
 import java.util.ServiceLoader;
 import java.util.Set;
 
@@ -39,38 +40,53 @@ import com.palantir.atlasdb.config.ServerListConfig;
 import com.palantir.atlasdb.http.AtlasDbHttpClients;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.NamespacedKeyValueServices;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServiceLatencyTracker;
+import com.palantir.atlasdb.keyvalue.impl.LatencyTrackingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.NegativeLookupKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ProfilingKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.SweepStatsKeyValueService;
 import com.palantir.atlasdb.keyvalue.impl.ValidatingQueryRewritingKeyValueService;
 import com.palantir.atlasdb.schema.SweepSchema;
 import com.palantir.atlasdb.schema.generated.SweepTableFactory;
 import com.palantir.atlasdb.spi.AtlasDbFactory;
+import com.palantir.atlasdb.sweep.AdaptiveSweepThrottle;
 import com.palantir.atlasdb.sweep.BackgroundSweeper;
 import com.palantir.atlasdb.sweep.BackgroundSweeperImpl;
 import com.palantir.atlasdb.sweep.CellsSweeper;
 import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
+import com.palantir.atlasdb.sweep.TargetedSweepQueue;
+import com.palantir.atlasdb.sweep.TargetedSweeper;
 import com.palantir.atlasdb.table.description.Schema;
 import com.palantir.atlasdb.table.description.Schemas;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.TransactionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.HotTableReadCache;
+import com.palantir.atlasdb.transaction.impl.ImmutableTransactionOptions;
+import com.palantir.atlasdb.transaction.impl.RangePrefetcher;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.CachingTransactionService;
+import com.palantir.atlasdb.transaction.service.CommitTimestampCache;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
+import com.palantir.lock.AsyncLockService;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.lock.client.LockRefreshingRemoteLockService;
+import com.palantir.lock.impl.AsyncLockResource;
 import com.palantir.lock.impl.LockServiceImpl;
 import com.palantir.remoting.ssl.SslConfiguration;
 import com.palantir.remoting.ssl.SslSocketFactories;
+import com.palantir.timestamp.CoalescingTimestampService;
 import com.palantir.timestamp.TimestampService;
 
 public final class TransactionManagers {
@@ -130,13 +146,35 @@ public final class TransactionManagers {
         KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
         kvs = ProfilingKeyValueService.create(kvs);
-        kvs = SweepStatsKeyValueService.create(kvs, lts.time());
+        KeyValueServiceLatencyTracker latencyTracker = new KeyValueServiceLatencyTracker();
+        if (config.getSweepLatencyBudgetMillis() > 0) {
+            kvs = LatencyTrackingKeyValueService.create(kvs, latencyTracker);
+        }
+        if (config.enableNegativeLookupBloomFilters()) {
+            kvs = NegativeLookupKeyValueService.create(
+                    kvs,
+                    config.getNegativeLookupBloomFilterExpectedRows(),
+                    config.getNegativeLookupBloomFilterFalsePositiveRate(),
+                    config.negativeLookupBloomFilterSnapshotDirectory().transform(File::new));
+        }
+        TransactionTableLayout transactionTableLayout = config.transactionsTableCutoverTimestamp()
+                .transform(TransactionTableLayout::withCutover)
+                .or(TransactionTableLayout.legacy());
+        kvs = SweepStatsKeyValueService.create(kvs, lts.time(), transactionTableLayout);
 
         TransactionTables.createTables(kvs);
 
-        TransactionService transactionService = TransactionServices.createTransactionService(kvs);
+        TransactionService transactionService = config.enableTransactionGroupCommit()
+                ? TransactionServices.createBatchingTransactionService(kvs, transactionTableLayout)
+                : TransactionServices.createTransactionService(kvs, transactionTableLayout);
+        CommitTimestampCache commitTimestampCache = CommitTimestampCache.create(config.getCommitTimestampCacheSize());
+        TransactionService cachingTransactionService =
+                CachingTransactionService.create(transactionService, commitTimestampCache);
         ConflictDetectionManager conflictManager = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager sweepStrategyManager = SweepStrategyManagers.createDefault(kvs);
+        TargetedSweepQueue sweepQueue = config.enableTargetedSweep()
+                ? TargetedSweepQueue.create(kvs, sweepStrategyManager, config.getTargetedSweepShards())
+                : TargetedSweepQueue.disabled();
 
         Set<Schema> allSchemas = ImmutableSet.<Schema>builder()
                 .add(SweepSchema.INSTANCE.getLatestSchema())
@@ -154,7 +192,7 @@ public final class TransactionManagers {
                 lts.time(),
                 LOCK_CLIENT,
                 ImmutableList.of(follower),
-                transactionService)
+                cachingTransactionService)
                 .setBackgroundScrubAggressively(config.backgroundScrubAggressively())
                 .setBackgroundScrubBatchSize(config.getBackgroundScrubBatchSize())
                 .setBackgroundScrubFrequencyMillis(config.getBackgroundScrubFrequencyMillis())
@@ -172,13 +210,23 @@ public final class TransactionManagers {
                 conflictManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                ImmutableTransactionOptions.builder()
+                        .rangePrefetcher(RangePrefetcher.create(
+                                config.getRangeScanPrefetchThreads(),
+                                config.getRangeScanPrefetchDepth(),
+                                config.getRangeScanPrefetchMaxBytesPerTransaction()))
+                        .validateReadsByTimestamp(config.validateSerializableReadsByTimestamp())
+                        .readCache(HotTableReadCache.create(kvs, config.getHotTableReadCacheSize()))
+                        .sweepQueue(sweepQueue)
+                        .build());
 
         SweepTaskRunner sweepRunner = new SweepTaskRunnerImpl(
                 kvs,
                 getUnreadableTsSupplier(transactionManager),
                 getImmutableTsSupplier(transactionManager),
-                transactionService,
+                cachingTransactionService,
                 sweepStrategyManager,
                 new CellsSweeper(transactionManager, kvs, ImmutableList.of(follower)));
         BackgroundSweeper backgroundSweeper = new BackgroundSweeperImpl(
@@ -189,8 +237,25 @@ public final class TransactionManagers {
                 Suppliers.ofInstance(config.getSweepPauseMillis()),
                 Suppliers.ofInstance(config.getSweepBatchSize()),
                 Suppliers.ofInstance(config.getSweepCellBatchSize()),
-                SweepTableFactory.of());
+                SweepTableFactory.of(),
+                config.getSweepThreads(),
+                config.getSweepSegmentsPerTable(),
+                AdaptiveSweepThrottle.create(
+                        latencyTracker,
+                        config.getSweepLatencyBudgetMillis(),
+                        config.throttleSweepOnForegroundLatency()));
         backgroundSweeper.runInBackground();
+        if (sweepQueue.isEnabled()) {
+            BackgroundSweeper targetedSweeper = new TargetedSweeper(
+                    transactionManager,
+                    sweepQueue,
+                    sweepRunner,
+                    cachingTransactionService,
+                    Suppliers.ofInstance(config.enableSweep() && config.enableTargetedSweep()),
+                    Suppliers.ofInstance(config.getSweepPauseMillis()),
+                    Suppliers.ofInstance(config.getTargetedSweepBatchSize()));
+            targetedSweeper.runInBackground();
+        }
 
         return transactionManager;
     }
@@ -243,7 +308,8 @@ public final class TransactionManagers {
         LeaderElectionService leader = Leaders.create(env, leaderConfig);
 
         env.register(AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, lock, leader));
-        env.register(AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, time, leader));
+        env.register(CoalescingTimestampService.create(
+                AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, time, leader)));
 
         Optional<SSLSocketFactory> sslSocketFactory = createSslSocketFactory(leaderConfig.sslConfiguration());
 
@@ -271,6 +337,9 @@ public final class TransactionManagers {
         TimestampService timeService = time.get();
 
         env.register(lockService);
+        if (lockService instanceof AsyncLockService) {
+            env.register(new AsyncLockResource((AsyncLockService) lockService));
+        }
         env.register(timeService);
 
         return ImmutableLockAndTimestampServices.builder()
@@ -31,6 +31,7 @@ import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
@@ -47,11 +48,12 @@ public class KeyValueServiceModule {
     @Named("kvs")
     public KeyValueService provideWrappedKeyValueService(@Named("rawKvs") KeyValueService rawKvs,
                                                          TimestampService tss,
+                                                         TransactionTableLayout transactionTableLayout,
                                                          ServicesConfig config) {
         KeyValueService kvs = NamespacedKeyValueServices.wrapWithStaticNamespaceMappingKvs(rawKvs);
         kvs = ValidatingQueryRewritingKeyValueService.create(kvs);
         kvs = ProfilingKeyValueService.create(kvs);
-        kvs = SweepStatsKeyValueService.create(kvs, tss);
+        kvs = SweepStatsKeyValueService.create(kvs, tss, transactionTableLayout);
         TransactionTables.createTables(kvs);
         ImmutableSet<Schema> schemas =
                 ImmutableSet.<Schema>builder()
@@ -65,8 +67,17 @@ public class KeyValueServiceModule {
 
     @Provides
     @Singleton
-    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs) {
-        return TransactionServices.createTransactionService(kvs);
+    public TransactionTableLayout provideTransactionTableLayout(ServicesConfig config) {
+        return config.atlasDbConfig().transactionsTableCutoverTimestamp()
+                .transform(TransactionTableLayout::withCutover)
+                .or(TransactionTableLayout.legacy());
+    }
+
+    @Provides
+    @Singleton
+    public TransactionService provideTransactionService(@Named("kvs") KeyValueService kvs,
+                                                        TransactionTableLayout layout) {
+        return TransactionServices.createTransactionService(kvs, layout);
     }
 
     @Provides
@@ -26,6 +26,7 @@ import com.palantir.atlasdb.sweep.SweepTaskRunner;
 import com.palantir.atlasdb.sweep.SweepTaskRunnerImpl;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.atlasdb.transaction.service.CachingTransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 
 import dagger.Module;
@@ -45,7 +46,7 @@ public class SweeperModule {
                 kvs,
                 txm::getUnreadableTimestamp,
                 txm::getImmutableTimestamp,
-                transactionService,
+                CachingTransactionService.create(transactionService, txm.getCommitTimestampCache()),
                 sweepStrategyManager,
                 new CellsSweeper(txm, kvs, ImmutableList.of(follower)));
     }
@@ -17,6 +17,7 @@ package com.palantir.atlasdb.cleaner;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -27,6 +28,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -37,14 +39,15 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Functions;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableMultimap.Builder;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
@@ -73,6 +76,7 @@ import com.palantir.common.collect.Maps2;
 import com.palantir.common.concurrent.ExecutorInheritableThreadLocal;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.JMXUtils;
 
 /**
  * Scrubs individuals cells on-demand.
@@ -87,6 +91,9 @@ public final class Scrubber {
     private static final int MAX_RETRY_ATTEMPTS = 100;
     private static final int RETRY_SLEEP_INTERVAL_IN_MILLIS = 1000;
     private static final int MAX_DELETES_IN_BATCH = 10_000;
+    private static final int MAX_BACKLOG_CELLS_TO_COUNT = 100_000;
+    private static final String METRICS_BEAN_NAME_PREFIX = "com.palantir.atlasdb:type=Scrubber_";
+    private static final AtomicInteger instanceCount = new AtomicInteger();
 
     private final ScheduledExecutorService service = PTExecutors.newSingleThreadScheduledExecutor(
             new NamedThreadFactory("scrubber", true /* daemon */));
@@ -107,6 +114,9 @@ public final class Scrubber {
     private final int readThreadCount;
     private final ExecutorService readerExec;
     private final ExecutorService exec;
+    private final Semaphore batchesInFlight;
+    private final ScrubberMetrics metrics = new ScrubberMetrics();
+    private final String metricsBeanName = METRICS_BEAN_NAME_PREFIX + instanceCount.getAndIncrement();
 
     private static final String SCRUBBER_THREAD_PREFIX = "AtlasScrubber";
 
@@ -144,6 +154,7 @@ public final class Scrubber {
                 threadCount,
                 readThreadCount,
                 followers);
+        JMXUtils.registerMBeanCatchAndLogExceptions(scrubber.metrics, scrubber.metricsBeanName);
         return scrubber;
     }
 
@@ -174,6 +185,7 @@ public final class Scrubber {
         NamedThreadFactory threadFactory = new NamedThreadFactory(SCRUBBER_THREAD_PREFIX, true);
         this.readerExec = PTExecutors.newFixedThreadPool(readThreadCount, threadFactory);
         this.exec = PTExecutors.newFixedThreadPool(threadCount, threadFactory);
+        this.batchesInFlight = new Semaphore(threadCount);
     }
 
     /**
@@ -243,7 +255,11 @@ public final class Scrubber {
                     + ", unreadableTimestamp: " + unreadableTimestamp
                     + ", min: " + maxScrubTimestamp);
         }
-        final int batchSize = (int) Math.ceil(batchSizeSupplier.get() * ((double) threadCount / readThreadCount));
+        metrics.recordBacklog(
+                scrubberStore.getNumberRemainingScrubCells(MAX_BACKLOG_CELLS_TO_COUNT),
+                maxScrubTimestamp);
+        final int batchSize = batchSizeSupplier.get();
+        Stopwatch watch = Stopwatch.createStarted();
 
         List<byte[]> rangeBoundaries = Lists.newArrayList();
         rangeBoundaries.add(PtBytes.EMPTY_BYTE_ARRAY);
@@ -262,32 +278,39 @@ public final class Scrubber {
             readerFutures.add(readerExec.submit(() -> {
                 BatchingVisitable<SortedMap<Long, Multimap<TableReference, Cell>>> scrubQueue = scrubberStore
                         .getBatchingVisitableScrubQueue(batchSize, maxScrubTimestamp, startRow, endRow);
-                // Take one at a time since we already batched them together in KeyValueServiceScrubberStore.
-                BatchingVisitableView.of(scrubQueue).batchAccept(1, batch -> {
-                    for (SortedMap<Long, Multimap<TableReference, Cell>> cells : batch) {
-                        // We may actually get more cells than the batch size. The batch size is used
-                        // for pulling off the scrub queue, and a single entry in the scrub queue may
-                        // match multiple tables. These will get broken down into smaller batches later
-                        // on when we actually do deletes.
-                        int numCellsRead = scrubSomeCells(cells, txManager, maxScrubTimestamp);
-                        int totalRead = totalCellsRead.addAndGet(numCellsRead);
-                        if (log.isInfoEnabled()) {
-                            log.info("Scrub task processed " + numCellsRead + " cells in a batch,"
-                                    + " total " + totalRead + " processed so far.");
-                        }
-                        if (!isScrubEnabled.get()) {
-                            log.info("Stopping scrub for banned hours.");
-                            break;
+                List<Future<Void>> batchFutures = Lists.newArrayList();
+                try {
+                    // Take one at a time since we already batched them together in KeyValueServiceScrubberStore.
+                    BatchingVisitableView.of(scrubQueue).batchAccept(1, batch -> {
+                        for (SortedMap<Long, Multimap<TableReference, Cell>> cells : batch) {
+                            // We may actually get more cells than the batch size. The batch size is used
+                            // for pulling off the scrub queue, and a single entry in the scrub queue may
+                            // match multiple tables. These will get broken down into smaller batches later
+                            // on when we actually do deletes.
+                            removeFinished(batchFutures);
+                            batchFutures.add(submitScrubBatch(cells, txManager, maxScrubTimestamp, totalCellsRead));
+                            if (!isScrubEnabled.get()) {
+                                log.info("Stopping scrub for banned hours.");
+                                break;
+                            }
                         }
+                        return isScrubEnabled.get();
+                    });
+                } finally {
+                    for (Future<Void> batchFuture : batchFutures) {
+                        Futures.getUnchecked(batchFuture);
                     }
-                    return isScrubEnabled.get();
-                });
+                }
                 return null;
             }));
         }
 
-        for (Future<Void> readerFuture : readerFutures) {
-            Futures.getUnchecked(readerFuture);
+        try {
+            for (Future<Void> readerFuture : readerFutures) {
+                Futures.getUnchecked(readerFuture);
+            }
+        } finally {
+            metrics.recordTaskFinished(watch.elapsed(TimeUnit.MILLISECONDS));
         }
 
         log.info("Scrub background task running at timestamp " + maxScrubTimestamp
@@ -296,6 +319,58 @@ public final class Scrubber {
         log.info("Finished scrub task");
     }
 
+    /**
+     * Scrubs a batch of the scrub queue on the scrub threads, waiting first while as many batches as there are scrub
+     * threads are in flight, so that reading the scrub queue stays only a little ahead of scrubbing it.
+     */
+    private Future<Void> submitScrubBatch(SortedMap<Long, Multimap<TableReference, Cell>> cells,
+                                          TransactionManager txManager,
+                                          long maxScrubTimestamp,
+                                          AtomicInteger totalCellsRead) {
+        try {
+            batchesInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+        metrics.recordBatchStarted();
+        try {
+            return exec.submit(() -> {
+                inScrubThread.set(true);
+                boolean succeeded = false;
+                try {
+                    int numCellsRead = scrubSomeCells(cells, txManager, maxScrubTimestamp);
+                    int totalRead = totalCellsRead.addAndGet(numCellsRead);
+                    if (log.isInfoEnabled()) {
+                        log.info("Scrub task processed " + numCellsRead + " cells in a batch,"
+                                + " total " + totalRead + " processed so far.");
+                    }
+                    succeeded = true;
+                    return null;
+                } finally {
+                    if (!succeeded) {
+                        metrics.recordBatchFailed();
+                    }
+                    batchesInFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            metrics.recordBatchFailed();
+            batchesInFlight.release();
+            throw e;
+        }
+    }
+
+    private static void removeFinished(List<Future<Void>> futures) {
+        for (Iterator<Future<Void>> iter = futures.iterator(); iter.hasNext();) {
+            Future<Void> future = iter.next();
+            if (future.isDone()) {
+                Futures.getUnchecked(future);
+                iter.remove();
+            }
+        }
+    }
+
     /* package */ void scrubImmediately(final TransactionManager txManager,
                                         final Multimap<TableReference, Cell> tableNameToCell,
                                         final long scrubTimestamp,
@@ -338,7 +413,10 @@ public final class Scrubber {
 
                 // Here we don't need to check scrub timestamps because we guarantee that scrubImmediately is called
                 // AFTER the transaction commits
-                scrubCells(txManager, batchMultimap, scrubTimestamp, TransactionType.AGGRESSIVE_HARD_DELETE);
+                scrubCells(txManager,
+                        Maps.transformValues(batchMultimap.asMap(),
+                                cells -> Maps2.createConstantValueMap(cells, scrubTimestamp)),
+                        TransactionType.AGGRESSIVE_HARD_DELETE);
 
                 Multimap<Cell, Long> cellToScrubTimestamp = HashMultimap.create();
 
@@ -389,10 +467,17 @@ public final class Scrubber {
         scrubberStore.queueCellsForScrubbing(cellToTableRefs, scrubTimestamp, batchSizeSupplier.get());
     }
 
-    private long getCommitTimestampRollBackIfNecessary(long startTimestamp,
-                                                       Multimap<TableReference, Cell> tableNameToCell) {
-        Long commitTimestamp = transactionService.get(startTimestamp);
-        if (commitTimestamp == null) {
+    /**
+     * Returns the commit timestamps of the hard delete transactions with the given start timestamps, rolling back the
+     * ones which have not committed.
+     */
+    private Map<Long, Long> getCommitTimestampsRollBackIfNecessary(Set<Long> startTimestamps) {
+        Map<Long, Long> commitTimestamps = Maps.newHashMap(transactionService.get(startTimestamps));
+        Set<Long> uncommittedTimestamps = Sets.difference(startTimestamps, commitTimestamps.keySet()).immutableCopy();
+        if (uncommittedTimestamps.isEmpty()) {
+            return commitTimestamps;
+        }
+        for (long startTimestamp : uncommittedTimestamps) {
             // Roll back this transaction (note that rolling back arbitrary transactions
             // can never cause correctness issues, only liveness issues)
             try {
@@ -404,22 +489,19 @@ public final class Scrubber {
                 log.error("This isn't a bug but it should be very infrequent. " + msg,
                         new TransactionFailedRetriableException(msg, e));
             }
-            commitTimestamp = transactionService.get(startTimestamp);
         }
-        if (commitTimestamp == null) {
-            throw new RuntimeException("expected commit timestamp to be non-null for startTs: " + startTimestamp);
-        }
-        if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
-            for (TableReference table : tableNameToCell.keySet()) {
-                Map<Cell, Long> toDelete = Maps2.createConstantValueMap(tableNameToCell.get(table), startTimestamp);
-                keyValueService.delete(table, Multimaps.forMap(toDelete));
+        commitTimestamps.putAll(transactionService.get(uncommittedTimestamps));
+        for (long startTimestamp : uncommittedTimestamps) {
+            if (!commitTimestamps.containsKey(startTimestamp)) {
+                throw new RuntimeException("expected commit timestamp to be non-null for startTs: " + startTimestamp);
             }
         }
-        return commitTimestamp;
+        return commitTimestamps;
     }
 
     /**
-     * Scrubs some cells.
+     * Scrubs some cells. The commit timestamps of every hard delete transaction in the batch are read together, and
+     * the cells are scrubbed with one read of their timestamps and one delete per table and batch of cells.
      *
      * @return number of cells read from _scrub table
      */
@@ -443,48 +525,52 @@ public final class Scrubber {
         }
 
         if (scrubTimestampToTableNameToCell.size() == 0) {
+            metrics.recordBatchFinished(0, 0);
             return 0; // No cells left to scrub
         }
 
+        Map<Long, Long> commitTimestamps =
+                getCommitTimestampsRollBackIfNecessary(scrubTimestampToTableNameToCell.keySet());
+
+        Map<TableReference, Multimap<Cell, Long>> rolledBackWrites = Maps.newHashMap();
+        Map<TableReference, Map<Cell, Long>> cellsToScrub = Maps.newHashMap();
         Multimap<Long, Cell> toRemoveFromScrubQueue = HashMultimap.create();
 
         int numCellsReadFromScrubTable = 0;
-        List<Future<Void>> scrubFutures = Lists.newArrayList();
         for (Map.Entry<Long, Multimap<TableReference, Cell>> entry : scrubTimestampToTableNameToCell.entrySet()) {
             final long scrubTimestamp = entry.getKey();
             final Multimap<TableReference, Cell> tableNameToCell = entry.getValue();
 
             numCellsReadFromScrubTable += tableNameToCell.size();
 
-            long commitTimestamp = getCommitTimestampRollBackIfNecessary(scrubTimestamp, tableNameToCell);
+            long commitTimestamp = commitTimestamps.get(scrubTimestamp);
             if (commitTimestamp >= maxScrubTimestamp) {
                 // We cannot scrub this yet because not all transactions can read this value.
                 continue;
-            } else if (commitTimestamp != TransactionConstants.FAILED_COMMIT_TS) {
+            } else if (commitTimestamp == TransactionConstants.FAILED_COMMIT_TS) {
                 // This is CRITICAL; don't scrub if the hard delete transaction didn't actually finish
                 // (we still remove it from the _scrub table with the call to markCellsAsScrubbed though),
                 // or else we could cause permanent data loss if the hard delete transaction failed after
-                // queuing cells to scrub but before successfully committing
-                for (final List<Entry<TableReference, Cell>> batch :
-                        Iterables.partition(tableNameToCell.entries(), batchSizeSupplier.get())) {
-                    final Multimap<TableReference, Cell> batchMultimap = HashMultimap.create();
-                    for (Entry<TableReference, Cell> e : batch) {
-                        batchMultimap.put(e.getKey(), e.getValue());
-                    }
-                    scrubFutures.add(exec.submit(() -> {
-                        scrubCells(txManager, batchMultimap,
-                                scrubTimestamp,
-                                aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE);
-                        return null;
-                    }));
+                // queuing cells to scrub but before successfully committing. Only remove what it wrote.
+                for (Entry<TableReference, Cell> e : tableNameToCell.entries()) {
+                    rolledBackWrites.computeIfAbsent(e.getKey(), tableRef -> HashMultimap.create())
+                            .put(e.getValue(), scrubTimestamp);
+                }
+            } else {
+                // A cell queued by several hard deletes only needs to be scrubbed up to the latest of them.
+                for (Entry<TableReference, Cell> e : tableNameToCell.entries()) {
+                    cellsToScrub.computeIfAbsent(e.getKey(), tableRef -> Maps.newHashMap())
+                            .merge(e.getValue(), scrubTimestamp, Math::max);
                 }
             }
             toRemoveFromScrubQueue.putAll(scrubTimestamp, tableNameToCell.values());
         }
 
-        for (Future<Void> future : scrubFutures) {
-            Futures.getUnchecked(future);
+        for (Map.Entry<TableReference, Multimap<Cell, Long>> e : rolledBackWrites.entrySet()) {
+            deleteInBatches(e.getKey(), e.getValue());
         }
+        long timestampsDeleted = scrubCells(txManager, cellsToScrub,
+                aggressiveScrub ? TransactionType.AGGRESSIVE_HARD_DELETE : TransactionType.HARD_DELETE);
 
         Multimap<Cell, Long> cellToScrubTimestamp = HashMultimap.create();
         scrubberStore.markCellsAsScrubbed(
@@ -507,34 +593,48 @@ public final class Scrubber {
                     + maxTimestamp + ") from tables " + tables);
         }
 
+        metrics.recordBatchFinished(numCellsReadFromScrubTable, timestampsDeleted);
         return numCellsReadFromScrubTable;
     }
 
-    private void scrubCells(TransactionManager txManager,
-                            Multimap<TableReference, Cell> tableNameToCells,
-                            long scrubTimestamp,
+    /**
+     * Deletes every version of each cell written before the scrub timestamp of that cell.
+     *
+     * @return the number of versions deleted.
+     */
+    private long scrubCells(TransactionManager txManager,
+                            Map<TableReference, Map<Cell, Long>> cellToScrubTimestampByTable,
                             Transaction.TransactionType transactionType) {
-        for (Entry<TableReference, Collection<Cell>> entry : tableNameToCells.asMap().entrySet()) {
+        long timestampsDeleted = 0;
+        for (Entry<TableReference, Map<Cell, Long>> entry : cellToScrubTimestampByTable.entrySet()) {
             TableReference tableRef = entry.getKey();
+            Map<Cell, Long> cellToScrubTimestamp = entry.getValue();
             if (log.isInfoEnabled()) {
-                log.info("Attempting to immediately scrub " + entry.getValue().size()
+                log.info("Attempting to immediately scrub " + cellToScrubTimestamp.size()
                         + " cells from table " + tableRef);
             }
-            for (List<Cell> cells : Iterables.partition(entry.getValue(), batchSizeSupplier.get())) {
-                Multimap<Cell, Long> timestampsToDelete = HashMultimap.create(
-                        keyValueService.getAllTimestamps(tableRef, ImmutableSet.copyOf(cells), scrubTimestamp));
-                for (Cell cell : ImmutableList.copyOf(timestampsToDelete.keySet())) {
+            for (List<Cell> cells : Iterables.partition(cellToScrubTimestamp.keySet(), batchSizeSupplier.get())) {
+                long maxScrubTimestamp = cells.stream().mapToLong(cellToScrubTimestamp::get).max().getAsLong();
+                Multimap<Cell, Long> timestampsToDelete = HashMultimap.create();
+                for (Entry<Cell, Long> cellAndTimestamp : keyValueService.getAllTimestamps(
+                        tableRef, ImmutableSet.copyOf(cells), maxScrubTimestamp).entries()) {
+                    long timestamp = cellAndTimestamp.getValue();
                     // Don't scrub garbage collection sentinels
-                    timestampsToDelete.remove(cell, Value.INVALID_VALUE_TIMESTAMP);
+                    if (timestamp != Value.INVALID_VALUE_TIMESTAMP
+                            && timestamp < cellToScrubTimestamp.get(cellAndTimestamp.getKey())) {
+                        timestampsToDelete.put(cellAndTimestamp.getKey(), timestamp);
+                    }
                 }
                 // If transactionType == TransactionType.AGGRESSIVE_HARD_DELETE this might
                 // force other transactions to abort or retry
                 deleteCellsAtTimestamps(txManager, tableRef, timestampsToDelete, transactionType);
+                timestampsDeleted += timestampsToDelete.size();
             }
             if (log.isInfoEnabled()) {
-                log.info("Immediately scrubbed " + entry.getValue().size() + " cells from table " + tableRef);
+                log.info("Immediately scrubbed " + cellToScrubTimestamp.size() + " cells from table " + tableRef);
             }
         }
+        return timestampsDeleted;
     }
 
     private void deleteCellsAtTimestamps(TransactionManager txManager,
@@ -546,11 +646,15 @@ public final class Scrubber {
                 follower.run(txManager, tableRef, cellToTimestamp.keySet(), transactionType);
             }
             keyValueService.addGarbageCollectionSentinelValues(tableRef, cellToTimestamp.keySet());
-            for (List<Entry<Cell, Long>> batch : Iterables.partition(cellToTimestamp.entries(), MAX_DELETES_IN_BATCH)) {
-                Builder<Cell, Long> builder = ImmutableMultimap.builder();
-                batch.stream().forEach(e -> builder.put(e));
-                keyValueService.delete(tableRef, builder.build());
-            }
+            deleteInBatches(tableRef, cellToTimestamp);
+        }
+    }
+
+    private void deleteInBatches(TableReference tableRef, Multimap<Cell, Long> cellToTimestamp) {
+        for (List<Entry<Cell, Long>> batch : Iterables.partition(cellToTimestamp.entries(), MAX_DELETES_IN_BATCH)) {
+            Builder<Cell, Long> builder = ImmutableMultimap.builder();
+            batch.stream().forEach(e -> builder.put(e));
+            keyValueService.delete(tableRef, builder.build());
         }
     }
 
@@ -563,6 +667,7 @@ public final class Scrubber {
     }
 
     public void shutdown() {
+        JMXUtils.unregisterMBeanCatchAndLogExceptions(metricsBeanName);
         exec.shutdown();
         readerExec.shutdown();
         service.shutdownNow();
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scrub throughput and backlog, exported over JMX by the scrubber.
+ * <p>
+ * Throughput counts the batches of the scrub queue processed by the background scrub task of this process, over the
+ * wall clock time spent running that task, during which several batches may be scrubbed at once. The
+ * backlog is the number of cells in the scrub queue as of the start of the last background scrub task, counted up to
+ * a limit, and the maximum scrub timestamp that task used.
+ */
+final class ScrubberMetrics implements ScrubberMetricsMBean {
+    private final AtomicLong batchesScrubbed = new AtomicLong();
+    private final AtomicLong cellsRead = new AtomicLong();
+    private final AtomicLong timestampsDeleted = new AtomicLong();
+    private final AtomicLong scrubMillis = new AtomicLong();
+    private final AtomicInteger batchesInFlight = new AtomicInteger();
+    private volatile long scrubQueueBacklog = 0L;
+    private volatile long maxScrubTimestamp = 0L;
+
+    void recordBatchStarted() {
+        batchesInFlight.incrementAndGet();
+    }
+
+    void recordBatchFinished(int cellsReadInBatch, long timestampsDeletedInBatch) {
+        batchesInFlight.decrementAndGet();
+        batchesScrubbed.incrementAndGet();
+        cellsRead.addAndGet(cellsReadInBatch);
+        timestampsDeleted.addAndGet(timestampsDeletedInBatch);
+    }
+
+    void recordBatchFailed() {
+        batchesInFlight.decrementAndGet();
+    }
+
+    void recordTaskFinished(long millis) {
+        scrubMillis.addAndGet(millis);
+    }
+
+    void recordBacklog(long newScrubQueueBacklog, long newMaxScrubTimestamp) {
+        scrubQueueBacklog = newScrubQueueBacklog;
+        maxScrubTimestamp = newMaxScrubTimestamp;
+    }
+
+    @Override
+    public long getBatchesScrubbed() {
+        return batchesScrubbed.get();
+    }
+
+    @Override
+    public long getCellsReadFromScrubQueue() {
+        return cellsRead.get();
+    }
+
+    @Override
+    public long getTimestampsDeleted() {
+        return timestampsDeleted.get();
+    }
+
+    @Override
+    public long getScrubMillis() {
+        return scrubMillis.get();
+    }
+
+    @Override
+    public double getCellsReadPerSecond() {
+        long millis = scrubMillis.get();
+        return millis == 0 ? 0.0 : 1000.0 * cellsRead.get() / millis;
+    }
+
+    @Override
+    public int getBatchesInFlight() {
+        return batchesInFlight.get();
+    }
+
+    @Override
+    public long getScrubQueueBacklog() {
+        return scrubQueueBacklog;
+    }
+
+    @Override
+    public long getMaxScrubTimestamp() {
+        return maxScrubTimestamp;
+    }
+}
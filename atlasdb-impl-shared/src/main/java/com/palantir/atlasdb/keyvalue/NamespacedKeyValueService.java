@@ -22,6 +22,7 @@ import java.util.Set;
 import com.google.common.collect.Multimap;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -103,6 +104,11 @@ public interface NamespacedKeyValueService {
                                                                 RangeRequest rangeRequest,
                                                                 long timestamp);
 
+    @Idempotent
+    ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableReference,
+                                                                        RangeRequest rangeRequest,
+                                                                        long timestamp);
+
     @Idempotent
     Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>> getFirstBatchForRanges(
             TableReference tableRef,
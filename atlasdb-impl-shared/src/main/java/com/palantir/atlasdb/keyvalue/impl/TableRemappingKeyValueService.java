@@ -31,6 +31,7 @@ import com.palantir.atlasdb.keyvalue.NamespacedKeyValueService;
 import com.palantir.atlasdb.keyvalue.TableMappingService;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -198,6 +199,16 @@ public final class TableRemappingKeyValueService extends ForwardingObject implem
                 timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             RangeRequest rangeRequest,
+                                                                             long timestamp) {
+        return delegate().getRangeOfCellTimestamps(
+                tableMapper.getMappedTableName(tableRef),
+                rangeRequest,
+                timestamp);
+    }
+
     @Override
     public Map<Cell, Value> getRows(TableReference tableRef,
                                     Iterable<byte[]> rows,
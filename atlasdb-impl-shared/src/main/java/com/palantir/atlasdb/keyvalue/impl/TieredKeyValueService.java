@@ -44,6 +44,7 @@ import com.google.common.util.concurrent.Futures;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
@@ -363,6 +364,17 @@ public final class TieredKeyValueService implements KeyValueService {
                 request -> secondary.getRangeOfTimestamps(tableRef, request, timestamp));
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             RangeRequest rangeRequest,
+                                                                             long timestamp) {
+        if (isNotTiered(tableRef)) {
+            return primary.getRangeOfCellTimestamps(tableRef, rangeRequest, timestamp);
+        }
+        // The latest value of a cell may be in either tier, so work it out from the merged ranges.
+        return KeyValueServices.getRangeOfCellTimestampsUsingGetRange(this, tableRef, rangeRequest, timestamp);
+    }
+
     @Override
     public Map<RangeRequest, TokenBackedBasicResultsPage<RowResult<Value>, byte[]>>
             getFirstBatchForRanges(final TableReference tableRef,
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServiceLatencyTracker;
+import com.palantir.util.JMXUtils;
+
+/**
+ * Paces the background sweeper to keep the latency of key value service calls under a budget.
+ * <p>
+ * After each sweep batch, the mean latency of the point reads and writes made since the previous batch is compared
+ * to the budget, taking the larger of the latency seen by the sweeper's own calls and, if enabled, by every other
+ * caller. Over budget, the sweeper halves its batch sizes and doubles its pause between batches; under half of the
+ * budget, it grows its batch sizes back towards the configured sizes and shortens its pause, down to no pause at all.
+ * The sweeper therefore runs at full speed while the key value service is quiet, and backs off while it is busy.
+ */
+public final class AdaptiveSweepThrottle implements AdaptiveSweepThrottleMBean {
+    private static final AdaptiveSweepThrottle DISABLED = new AdaptiveSweepThrottle(null, 0, false);
+    private static final AtomicInteger instanceCount = new AtomicInteger();
+
+    @VisibleForTesting static final double MIN_BATCH_SIZE_MULTIPLIER = 0.01;
+    @VisibleForTesting static final double BATCH_SIZE_MULTIPLIER_INCREASE = 0.05;
+    @VisibleForTesting static final long MIN_BACKOFF_PAUSE_MILLIS = 100;
+    @VisibleForTesting static final long MAX_PAUSE_MILLIS = 60_000;
+
+    @Nullable private final KeyValueServiceLatencyTracker tracker;
+    private final long latencyBudgetMillis;
+    private final boolean includeForegroundLatency;
+
+    @GuardedBy("this") private long lastForegroundCalls = 0L;
+    @GuardedBy("this") private long lastForegroundNanos = 0L;
+    @GuardedBy("this") private long lastSweepCalls = 0L;
+    @GuardedBy("this") private long lastSweepNanos = 0L;
+    private volatile double sweepLatencyMillis = 0.0;
+    private volatile double foregroundLatencyMillis = 0.0;
+    private volatile double batchSizeMultiplier = 1.0;
+    private volatile long pauseMillis = -1L;
+
+    /**
+     * Returns a throttle which leaves the batch sizes and pause of the sweeper as configured.
+     */
+    public static AdaptiveSweepThrottle disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param tracker the latencies recorded by the key value service the sweeper and its callers use.
+     * @param latencyBudgetMillis the mean latency of key value service calls to stay under, or 0 to disable
+     *                            throttling.
+     * @param includeForegroundLatency whether to back off when calls made by threads other than the sweeper's are
+     *                                 over budget.
+     */
+    public static AdaptiveSweepThrottle create(KeyValueServiceLatencyTracker tracker,
+                                               long latencyBudgetMillis,
+                                               boolean includeForegroundLatency) {
+        Preconditions.checkArgument(latencyBudgetMillis >= 0,
+                "latencyBudgetMillis must not be negative, was %s", latencyBudgetMillis);
+        if (latencyBudgetMillis == 0) {
+            return DISABLED;
+        }
+        AdaptiveSweepThrottle throttle =
+                new AdaptiveSweepThrottle(tracker, latencyBudgetMillis, includeForegroundLatency);
+        JMXUtils.registerMBeanCatchAndLogExceptions(throttle,
+                "com.palantir.atlasdb:type=AdaptiveSweepThrottle_" + instanceCount.getAndIncrement());
+        return throttle;
+    }
+
+    private AdaptiveSweepThrottle(@Nullable KeyValueServiceLatencyTracker tracker,
+                                  long latencyBudgetMillis,
+                                  boolean includeForegroundLatency) {
+        this.tracker = tracker;
+        this.latencyBudgetMillis = latencyBudgetMillis;
+        this.includeForegroundLatency = includeForegroundLatency;
+    }
+
+    public boolean isEnabled() {
+        return tracker != null;
+    }
+
+    /**
+     * Records the key value service calls made by the current thread from now on as calls made by the sweeper.
+     */
+    void markCurrentThreadAsSweeping() {
+        if (isEnabled()) {
+            tracker.markCurrentThreadAsBackground();
+        }
+    }
+
+    /**
+     * Adjusts the batch sizes and pause to the latencies recorded since the previous batch.
+     *
+     * @param configuredPauseMillis the pause to start from, used until the first batch is recorded.
+     */
+    synchronized void recordBatch(long configuredPauseMillis) {
+        if (!isEnabled()) {
+            return;
+        }
+        long foregroundCalls = tracker.getForegroundCalls();
+        long foregroundNanos = tracker.getForegroundNanos();
+        long sweepCalls = tracker.getBackgroundCalls();
+        long sweepNanos = tracker.getBackgroundNanos();
+        sweepLatencyMillis = getMeanMillis(sweepCalls - lastSweepCalls, sweepNanos - lastSweepNanos);
+        foregroundLatencyMillis = getMeanMillis(
+                foregroundCalls - lastForegroundCalls,
+                foregroundNanos - lastForegroundNanos);
+        lastForegroundCalls = foregroundCalls;
+        lastForegroundNanos = foregroundNanos;
+        lastSweepCalls = sweepCalls;
+        lastSweepNanos = sweepNanos;
+
+        long pause = pauseMillis < 0 ? configuredPauseMillis : pauseMillis;
+        double latencyMillis = includeForegroundLatency
+                ? Math.max(sweepLatencyMillis, foregroundLatencyMillis)
+                : sweepLatencyMillis;
+        if (latencyMillis > latencyBudgetMillis) {
+            batchSizeMultiplier = Math.max(MIN_BATCH_SIZE_MULTIPLIER, batchSizeMultiplier / 2);
+            pauseMillis = Math.min(MAX_PAUSE_MILLIS, Math.max(MIN_BACKOFF_PAUSE_MILLIS, 2 * pause));
+        } else if (latencyMillis < latencyBudgetMillis / 2.0) {
+            batchSizeMultiplier = Math.min(1.0, batchSizeMultiplier + BATCH_SIZE_MULTIPLIER_INCREASE);
+            pauseMillis = pause * 3 / 4;
+        } else {
+            pauseMillis = pause;
+        }
+    }
+
+    private static double getMeanMillis(long calls, long nanos) {
+        return calls == 0 ? 0.0 : nanos / 1_000_000.0 / calls;
+    }
+
+    @Override
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+
+    @Override
+    public double getSweepLatencyMillis() {
+        return sweepLatencyMillis;
+    }
+
+    @Override
+    public double getForegroundLatencyMillis() {
+        return foregroundLatencyMillis;
+    }
+
+    /**
+     * The fraction of the configured row and cell batch sizes to sweep with.
+     */
+    @Override
+    public double getBatchSizeMultiplier() {
+        return batchSizeMultiplier;
+    }
+
+    @Override
+    public long getPauseMillis() {
+        return pauseMillis;
+    }
+
+    /**
+     * Returns the pause between batches, which is the configured pause if throttling is disabled or no batch has
+     * been recorded yet.
+     */
+    long getPauseMillis(long configuredPauseMillis) {
+        long pause = pauseMillis;
+        return pause < 0 ? configuredPauseMillis : pause;
+    }
+}
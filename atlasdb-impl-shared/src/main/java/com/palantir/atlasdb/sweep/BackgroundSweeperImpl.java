@@ -15,18 +15,26 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.math.BigInteger;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.management.ObjectName;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,15 +46,14 @@ import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedMap;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.UnsignedBytes;
+import com.google.common.primitives.Longs;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
-import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
@@ -63,13 +70,32 @@ import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.impl.TxTask;
 import com.palantir.atlasdb.transaction.impl.UnmodifiableTransaction;
 import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.LockRequest;
 import com.palantir.lock.StringLockDescriptor;
+import com.palantir.util.JMXUtils;
 
+/**
+ * Sweeps the tables of the key value service in the background, in order of their sweep priority.
+ * <p>
+ * The sweeper runs {@code sweepThreads} workers, each of which repeatedly sweeps one batch of rows from a segment of
+ * a table. Tables are taken from a queue ordered by the priorities in the {@link SweepPriorityTable}, and each one is
+ * split into {@code sweepSegmentsPerTable} segments of its row range, split evenly on the first eight bytes of the row
+ * name. Every segment in flight has its own row in the {@link SweepProgressTable}, so that segments are swept
+ * independently and resumed after a restart; the results of a table are written to its priority row once its last
+ * segment finishes.
+ * <p>
+ * Only one process runs the background sweeper at a time, and the workers of that process hold a lock on a segment
+ * while they sweep a batch of it. Throughput and backlog of each table are exported over JMX.
+ * <p>
+ * The batch sizes and the pause between batches are scaled by an {@link AdaptiveSweepThrottle}, which backs off
+ * while the key value service is slow.
+ */
 public class BackgroundSweeperImpl implements BackgroundSweeper {
     private static final Logger log = LoggerFactory.getLogger(BackgroundSweeperImpl.class);
     private final LockAwareTransactionManager txManager;
@@ -80,13 +106,34 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
     private final Supplier<Integer> sweepRowBatchSize;
     private final Supplier<Integer> sweepCellBatchSize;
     private final SweepTableFactory tableFactory;
+    private final int sweepThreads;
+    private final int sweepSegmentsPerTable;
+    private final AdaptiveSweepThrottle throttle;
     private volatile float batchSizeMultiplier = 1.0f;
     private Thread daemon;
 
+    private final Object sweepLock = new Object();
+    @GuardedBy("sweepLock") private Optional<LockRefreshToken> locks = Optional.absent();
+
+    private final Object scheduler = new Object();
+    @GuardedBy("scheduler") private final Set<Long> claimedSegments = Sets.newHashSet();
+    @GuardedBy("scheduler") private final Deque<TableReference> tablesToSweep = new ArrayDeque<>();
+    @GuardedBy("scheduler") private long tablesToSweepComputedMillis = 0L;
+
+    // Serializes starting, finishing and dropping tables in the progress table between the workers of this
+    // process, so that they don't write two tables to the same segments or truncate a table being started.
+    private final ReentrantLock progressTableLock = new ReentrantLock();
+
+    private final ConcurrentMap<TableReference, TableSweepMetrics> metricsByTable = Maps.newConcurrentMap();
+
     // weights one month of no sweeping with the same priority as about 100000 expected cells to sweep.
     private static final double MILLIS_SINCE_SWEEP_PRIORITY_WEIGHT =
             100_000.0 / TimeUnit.MILLISECONDS.convert(30, TimeUnit.DAYS);
 
+    // how long tables are taken from the same queue before the sweep priorities are read again.
+    private static final long TABLES_TO_SWEEP_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int MAX_SEGMENTS_PER_TABLE = 256;
 
     public BackgroundSweeperImpl(
             LockAwareTransactionManager txManager,
@@ -97,6 +144,58 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             Supplier<Integer> sweepBatchSize,
             Supplier<Integer> sweepCellBatchSize,
             SweepTableFactory tableFactory) {
+        this(txManager,
+                kvs,
+                sweepRunner,
+                isSweepEnabled,
+                sweepPauseMillis,
+                sweepBatchSize,
+                sweepCellBatchSize,
+                tableFactory,
+                AtlasDbConstants.DEFAULT_SWEEP_THREADS,
+                AtlasDbConstants.DEFAULT_SWEEP_SEGMENTS_PER_TABLE);
+    }
+
+    public BackgroundSweeperImpl(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize,
+            Supplier<Integer> sweepCellBatchSize,
+            SweepTableFactory tableFactory,
+            int sweepThreads,
+            int sweepSegmentsPerTable) {
+        this(txManager,
+                kvs,
+                sweepRunner,
+                isSweepEnabled,
+                sweepPauseMillis,
+                sweepBatchSize,
+                sweepCellBatchSize,
+                tableFactory,
+                sweepThreads,
+                sweepSegmentsPerTable,
+                AdaptiveSweepThrottle.disabled());
+    }
+
+    public BackgroundSweeperImpl(
+            LockAwareTransactionManager txManager,
+            KeyValueService kvs,
+            SweepTaskRunner sweepRunner,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize,
+            Supplier<Integer> sweepCellBatchSize,
+            SweepTableFactory tableFactory,
+            int sweepThreads,
+            int sweepSegmentsPerTable,
+            AdaptiveSweepThrottle throttle) {
+        Preconditions.checkArgument(sweepThreads > 0, "sweepThreads must be positive, was %s", sweepThreads);
+        Preconditions.checkArgument(sweepSegmentsPerTable > 0 && sweepSegmentsPerTable <= MAX_SEGMENTS_PER_TABLE,
+                "sweepSegmentsPerTable must be between 1 and %s, was %s",
+                MAX_SEGMENTS_PER_TABLE, sweepSegmentsPerTable);
         this.txManager = txManager;
         this.kvs = kvs;
         this.sweepRunner = sweepRunner;
@@ -105,6 +204,9 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         this.sweepRowBatchSize = sweepBatchSize;
         this.sweepCellBatchSize = sweepCellBatchSize;
         this.tableFactory = tableFactory;
+        this.sweepThreads = sweepThreads;
+        this.sweepSegmentsPerTable = sweepSegmentsPerTable;
+        this.throttle = throttle;
     }
 
     @Override
@@ -118,99 +220,311 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
 
     @Override
     public void run() {
-        Optional<LockRefreshToken> locks = Optional.absent();
+        ExecutorService workers = null;
         try {
             // Wait a while before starting so short lived clis don't try to sweep.
             Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
-            log.debug("Starting background sweeper.");
-            while (true) {
-                boolean sweptSuccessfully = false;
-                try {
-                    if (isSweepEnabled.get()) {
-                        locks = lockOrRefresh(locks);
-                        if (locks.isPresent()) {
-                            sweptSuccessfully = runOnce();
-                        } else {
-                            log.debug("Skipping sweep because sweep is running elsewhere.");
+            log.debug("Starting background sweeper with {} threads.", sweepThreads);
+            if (sweepThreads > 1) {
+                workers = PTExecutors.newFixedThreadPool(sweepThreads - 1,
+                        new NamedThreadFactory("BackgroundSweeper", true));
+                for (int i = 1; i < sweepThreads; i++) {
+                    workers.execute(() -> {
+                        try {
+                            sweepUntilInterrupted();
+                        } catch (InterruptedException e) {
+                            // Shutting down, which is logged by the daemon thread.
                         }
+                    });
+                }
+            }
+            sweepUntilInterrupted();
+        } catch (InterruptedException e) {
+            log.debug("Shutting down background sweeper.");
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+                awaitTermination(workers);
+            }
+            synchronized (sweepLock) {
+                if (locks.isPresent()) {
+                    txManager.getLockService().unlock(locks.get());
+                    locks = Optional.absent();
+                }
+            }
+            for (TableReference tableRef : metricsByTable.keySet()) {
+                JMXUtils.unregisterMBeanCatchAndLogExceptions(getMetricsBeanName(tableRef));
+            }
+        }
+    }
+
+    private void sweepUntilInterrupted() throws InterruptedException {
+        throttle.markCurrentThreadAsSweeping();
+        while (true) {
+            boolean sweptSuccessfully = false;
+            try {
+                if (isSweepEnabled.get()) {
+                    if (lockOrRefreshSweepLock()) {
+                        sweptSuccessfully = runOnce();
                     } else {
-                        log.debug("Skipping sweep because it is currently disabled.");
-                    }
-                } catch (InsufficientConsistencyException e) {
-                    log.warn("Could not sweep because not all nodes of the database are online.", e);
-                } catch (RuntimeException e) {
-                    if (checkAndRepairTableDrop()) {
-                        log.error("The table being swept by the background sweeper was dropped, moving on...");
-                    } else {
-                        log.error("The background sweep job failed unexpectedly with a batch size of "
-                                + ((int) (batchSizeMultiplier * sweepRowBatchSize.get()))
-                                + ". Attempting to continue with a lower batch size...", e);
-                        batchSizeMultiplier = Math.min(batchSizeMultiplier / 2, 1.0f / sweepRowBatchSize.get());
+                        log.debug("Skipping sweep because sweep is running elsewhere.");
                     }
+                } else {
+                    log.debug("Skipping sweep because it is currently disabled.");
+                }
+            } catch (InsufficientConsistencyException e) {
+                log.warn("Could not sweep because not all nodes of the database are online.", e);
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Interrupted while sweeping.");
                 }
-                if (sweptSuccessfully) {
-                    batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier * 1.01f);
-                    Thread.sleep(sweepPauseMillis.get());
+                if (checkAndRepairTableDrop()) {
+                    log.error("The table being swept by the background sweeper was dropped, moving on...");
                 } else {
-                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                    log.error("The background sweep job failed unexpectedly with a batch size of "
+                            + ((int) (batchSizeMultiplier * sweepRowBatchSize.get()))
+                            + ". Attempting to continue with a lower batch size...", e);
+                    batchSizeMultiplier = Math.min(batchSizeMultiplier / 2, 1.0f / sweepRowBatchSize.get());
                 }
             }
-        } catch (InterruptedException e) {
-            log.debug("Shutting down background sweeper.");
-        } finally {
-            if (locks.isPresent()) {
-                txManager.getLockService().unlock(locks.get());
+            if (sweptSuccessfully) {
+                batchSizeMultiplier = Math.min(1.0f, batchSizeMultiplier * 1.01f);
+                Thread.sleep(throttle.getPauseMillis(sweepPauseMillis.get()));
+            } else {
+                Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
             }
         }
     }
 
+    /**
+     * Sweeps the next batch of rows from the first segment not being swept by another worker, starting on the next
+     * table to sweep if every segment in flight is taken.
+     *
+     * @return whether a batch was swept.
+     */
     @VisibleForTesting
     boolean runOnce() {
-        SweepProgressRowResult progress = txManager.runTaskWithRetry(tx -> {
-            SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-            SweepProgressRowResult result = progressTable.getRow(SweepProgressRow.of(0)).orNull();
-            if (result == null) {
-                result = chooseNextTableToSweep(new SweepTransaction(
-                        tx,
-                        sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE)));
-            }
-            return result;
-        });
-        if (progress == null) {
+        SweepProgressRowResult segment = claimNextSegment();
+        if (segment == null) {
             // Don't change this log statement. It's parsed by test automation code.
             log.debug("Skipping sweep because no table has enough new writes to be worth sweeping at the moment.");
             return false;
         }
-        int rowBatchSize = Math.max(1, (int) (sweepRowBatchSize.get() * batchSizeMultiplier));
-        int cellBatchSize = sweepCellBatchSize.get();
+        try {
+            Optional<LockRefreshToken> segmentLock = lockSegment(segment);
+            if (!segmentLock.isPresent()) {
+                log.debug("Skipping segment {} of {} because it is being swept elsewhere.",
+                        segment.getRowName().getDummy(), segment.getFullTableName());
+                return false;
+            }
+            try {
+                sweepBatch(segment);
+            } finally {
+                txManager.getLockService().unlock(segmentLock.get());
+            }
+            return true;
+        } finally {
+            synchronized (scheduler) {
+                claimedSegments.remove(segment.getRowName().getDummy());
+            }
+        }
+    }
+
+    private void sweepBatch(SweepProgressRowResult segment) {
+        TableReference tableRef = TableReference.createUnsafe(segment.getFullTableName());
+        int rowBatchSize = Math.max(1,
+                (int) (sweepRowBatchSize.get() * batchSizeMultiplier * throttle.getBatchSizeMultiplier()));
+        int cellBatchSize = Math.max(1, (int) (sweepCellBatchSize.get() * throttle.getBatchSizeMultiplier()));
         Stopwatch watch = Stopwatch.createStarted();
         try {
-            SweepResults results = sweepRunner.run(TableReference.createUnsafe(
-                    progress.getFullTableName()),
+            SweepResults results = sweepRunner.run(
+                    tableRef,
                     rowBatchSize,
                     cellBatchSize,
-                    progress.getStartRow());
+                    segment.getStartRow(),
+                    segment.getEndRow());
+            long elapsedMillis = watch.elapsed(TimeUnit.MILLISECONDS);
             log.debug("Swept {} unique cells from {} starting at {}"
                     + " and performed {} deletions in {} ms"
                     + " up to timestamp {}.",
-                    results.getCellsExamined(), progress.getFullTableName(),
-                    progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()),
-                    results.getCellsDeleted(), watch.elapsed(TimeUnit.MILLISECONDS), results.getSweptTimestamp());
-            saveSweepResults(progress, results);
-            return true;
+                    results.getCellsExamined(), segment.getFullTableName(),
+                    segment.getStartRow() == null ? "0" : PtBytes.encodeHexString(segment.getStartRow()),
+                    results.getCellsDeleted(), elapsedMillis, results.getSweptTimestamp());
+            getMetrics(tableRef).recordBatch(results, elapsedMillis);
+            throttle.recordBatch(sweepPauseMillis.get());
+            saveSweepResults(segment, results);
         } catch (RuntimeException e) {
             // Error logged at a higher log level above.
             log.debug("Failed to sweep {} with row batch size {} and cell batch size {} starting from row {}",
-                    progress.getFullTableName(),
+                    segment.getFullTableName(),
                     rowBatchSize,
                     cellBatchSize,
-                    progress.getStartRow() == null ? "0" : PtBytes.encodeHexString(progress.getStartRow()));
+                    segment.getStartRow() == null ? "0" : PtBytes.encodeHexString(segment.getStartRow()));
+            throw e;
+        }
+    }
+
+    @Nullable
+    private SweepProgressRowResult claimNextSegment() {
+        SweepProgressRowResult segment = claimUnfinishedSegment(getSegments());
+        if (segment != null) {
+            return segment;
+        }
+        if (!progressTableLock.tryLock()) {
+            // Another worker is starting or finishing a table. Its segments can be claimed on the next attempt.
+            return null;
+        }
+        try {
+            // Read again, now that no other worker of this process can start or finish a table.
+            List<SweepProgressRowResult> segments = getSegments();
+            segment = claimUnfinishedSegment(segments);
+            if (segment != null) {
+                return segment;
+            }
+            return startNextTable(segments);
+        } finally {
+            progressTableLock.unlock();
+        }
+    }
+
+    private List<SweepProgressRowResult> getSegments() {
+        List<SweepProgressRowResult> segments = txManager.runTaskReadOnly(tx ->
+                tableFactory.getSweepProgressTable(tx).getAllRowsUnordered().immutableCopy()).stream()
+                // The progress table may be truncated by another worker while we read it without holding the
+                // progressTableLock, which can leave us with rows that have lost some of their columns.
+                .filter(result -> result.getFullTableName() != null)
+                .collect(Collectors.toList());
+        recordSegmentsInProgress(segments);
+        return segments;
+    }
+
+    @Nullable
+    private SweepProgressRowResult claimUnfinishedSegment(List<SweepProgressRowResult> segments) {
+        List<SweepProgressRow> unfinishedSegments = segments.stream()
+                .filter(result -> !result.hasFinishTime())
+                .map(SweepProgressRowResult::getRowName)
+                .sorted(Comparator.comparingLong(SweepProgressRow::getDummy))
+                .collect(Collectors.toList());
+        for (SweepProgressRow row : unfinishedSegments) {
+            synchronized (scheduler) {
+                if (!claimedSegments.add(row.getDummy())) {
+                    continue;
+                }
+            }
+            // Read the segment again now that it is claimed, because the worker that swept it last
+            // may have saved its progress or finished it after the segments were read.
+            SweepProgressRowResult segment = txManager.runTaskReadOnly(tx ->
+                    tableFactory.getSweepProgressTable(tx).getRow(row).orNull());
+            if (segment != null && !segment.hasFinishTime()) {
+                return segment;
+            }
+            synchronized (scheduler) {
+                claimedSegments.remove(row.getDummy());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the segments of the next table to sweep to the progress table, and returns the first of them.
+     */
+    @GuardedBy("progressTableLock")
+    @Nullable
+    private SweepProgressRowResult startNextTable(List<SweepProgressRowResult> segments) {
+        Set<TableReference> tablesInProgress = segments.stream()
+                .map(result -> TableReference.createUnsafe(result.getFullTableName()))
+                .collect(Collectors.toSet());
+        TableReference tableRef = pollNextTableToSweep(tablesInProgress);
+        if (tableRef == null) {
+            return null;
+        }
+
+        Set<Long> usedIds = segments.stream().map(result -> result.getRowName().getDummy()).collect(Collectors.toSet());
+        List<SweepProgressRow> newSegments = Lists.newArrayList();
+        synchronized (scheduler) {
+            // Skip the ids still claimed by workers finishing the segments of a table that was just removed.
+            for (long id = 0; newSegments.size() < sweepSegmentsPerTable; id++) {
+                if (!usedIds.contains(id) && !claimedSegments.contains(id)) {
+                    newSegments.add(SweepProgressRow.of(id));
+                }
+            }
+            claimedSegments.add(newSegments.get(0).getDummy());
+        }
+        SweepProgressRowResult firstSegment;
+        try {
+            firstSegment = txManager.runTaskWithRetry(tx -> {
+                SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+                for (int i = 0; i < newSegments.size(); i++) {
+                    SweepProgressRow row = newSegments.get(i);
+                    progressTable.putFullTableName(row, tableRef.getQualifiedName());
+                    if (i > 0) {
+                        progressTable.putStartRow(row, getSegmentBoundary(i));
+                    }
+                    if (i < newSegments.size() - 1) {
+                        progressTable.putEndRow(row, getSegmentBoundary(i + 1));
+                    }
+                }
+                tableFactory.getSweepPriorityTable(tx).putWriteCount(
+                        SweepPriorityRow.of(tableRef.getQualifiedName()), 0L);
+                return progressTable.getRow(newSegments.get(0)).get();
+            });
+        } catch (RuntimeException e) {
+            synchronized (scheduler) {
+                claimedSegments.remove(newSegments.get(0).getDummy());
+                // Put the table back so that it is the next one tried.
+                tablesToSweep.addFirst(tableRef);
+            }
             throw e;
         }
+        getMetrics(tableRef).recordSegmentsInProgress(newSegments.size());
+
+        log.debug("Now starting to sweep {} in {} segments.", tableRef, newSegments.size());
+        return firstSegment;
     }
 
+    /**
+     * Segments split the row range of a table evenly on the first eight bytes of the row name.
+     */
+    private byte[] getSegmentBoundary(int segment) {
+        return Longs.toByteArray(BigInteger.valueOf(segment)
+                .shiftLeft(Long.SIZE)
+                .divide(BigInteger.valueOf(sweepSegmentsPerTable))
+                .longValue());
+    }
+
+    @GuardedBy("progressTableLock")
     @Nullable
-    private SweepProgressRowResult chooseNextTableToSweep(SweepTransaction tx) {
+    private TableReference pollNextTableToSweep(Set<TableReference> tablesInProgress) {
+        boolean shouldRecompute;
+        synchronized (scheduler) {
+            shouldRecompute = tablesToSweep.isEmpty()
+                    || System.currentTimeMillis() - tablesToSweepComputedMillis > TABLES_TO_SWEEP_REFRESH_MILLIS;
+        }
+        if (shouldRecompute) {
+            List<TableReference> tables = txManager.runTaskWithRetry(tx -> getTablesToSweep(new SweepTransaction(
+                    tx,
+                    sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE))));
+            synchronized (scheduler) {
+                tablesToSweep.clear();
+                tablesToSweep.addAll(tables);
+                tablesToSweepComputedMillis = System.currentTimeMillis();
+            }
+        }
+        synchronized (scheduler) {
+            while (!tablesToSweep.isEmpty()) {
+                TableReference tableRef = tablesToSweep.poll();
+                if (!tablesInProgress.contains(tableRef)) {
+                    return tableRef;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Returns the tables worth sweeping, in the order they should be swept.
+     */
+    private List<TableReference> getTablesToSweep(SweepTransaction tx) {
         Set<TableReference> allTables = Sets.difference(kvs.getAllTableNames(), AtlasDbConstants.hiddenTables);
         SweepPriorityTable oldPriorityTable = tableFactory.getSweepPriorityTable(tx);
         SweepPriorityTable newPriorityTable = tableFactory.getSweepPriorityTable(tx.delegate());
@@ -227,52 +541,42 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                                 Function.identity()
                         )
                 );
-        TableReference tableRef = getTableToSweep(tx, allTables, oldPriorities, newPrioritiesByTableName);
-        if (tableRef == null) {
-            return null;
-        }
-        RowResult<byte[]> rawResult = RowResult.create(SweepProgressRow.of(0).persistToBytes(),
-                ImmutableSortedMap.<byte[], byte[]>orderedBy(UnsignedBytes.lexicographicalComparator())
-                    .put(SweepProgressTable.SweepProgressNamedColumn.FULL_TABLE_NAME.getShortName(),
-                         SweepProgressTable.FullTableName.of(tableRef.getQualifiedName()).persistValue())
-                    .build());
-
-        log.debug("Now starting to sweep {}.", tableRef);
-        return SweepProgressRowResult.of(rawResult);
+        return getTablesToSweep(tx, allTables, oldPriorities, newPrioritiesByTableName);
     }
 
-    @Nullable
-    private TableReference getTableToSweep(SweepTransaction tx,
-                                   Set<TableReference> allTables,
-                                   List<SweepPriorityRowResult> oldPriorities,
-                                   Map<TableReference, SweepPriorityRowResult> newPrioritiesByTableName) {
-        // Arbitrarily pick the first table alphabetically from the never-before-swept tables
-        List<TableReference> unsweptTables = Sets.difference(allTables, newPrioritiesByTableName.keySet())
+    private List<TableReference> getTablesToSweep(SweepTransaction tx,
+                                                  Set<TableReference> allTables,
+                                                  List<SweepPriorityRowResult> oldPriorities,
+                                                  Map<TableReference, SweepPriorityRowResult> newPrioritiesByTableName) {
+        // Sweep the never-before-swept tables first, arbitrarily in alphabetical order
+        List<TableReference> tablesToSweep = Sets.difference(allTables, newPrioritiesByTableName.keySet())
                 .stream().sorted(Comparator.comparing(TableReference::getTablename)).collect(Collectors.toList());
-        if (!unsweptTables.isEmpty()) {
-            return Iterables.get(unsweptTables, 0);
-        }
-        double maxPriority = 0.0;
-        TableReference toSweep = null;
+        Map<TableReference, Double> priorities = Maps.newHashMap();
         Collection<SweepPriorityRow> toDelete = Lists.newArrayList();
         for (SweepPriorityRowResult oldPriority : oldPriorities) {
             TableReference tableRef = TableReference.createUnsafe(oldPriority.getRowName().getFullTableName());
             if (allTables.contains(tableRef)) {
                 SweepPriorityRowResult newPriority = newPrioritiesByTableName.get(tableRef);
                 double priority = getSweepPriority(oldPriority, newPriority);
-                if (priority > maxPriority) {
-                    maxPriority = priority;
-                    toSweep = tableRef;
+                getMetrics(tableRef).recordBacklog(
+                        fromNullable(newPriority.getWriteCount()),
+                        fromNullable(newPriority.getLastSweepTime()),
+                        priority);
+                if (priority > 0.0) {
+                    priorities.put(tableRef, priority);
                 }
             } else {
                 toDelete.add(oldPriority.getRowName());
             }
         }
+        priorities.entrySet().stream()
+                .sorted(Map.Entry.<TableReference, Double>comparingByValue().reversed())
+                .forEachOrdered(entry -> tablesToSweep.add(entry.getKey()));
 
         // Clean up rows for tables that no longer exist.
         tableFactory.getSweepPriorityTable(tx.delegate()).delete(toDelete);
 
-        return toSweep;
+        return tablesToSweep;
     }
 
     private double getSweepPriority(SweepPriorityRowResult oldPriority, SweepPriorityRowResult newPriority) {
@@ -312,7 +616,9 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
                                   final SweepResults results) {
         final long cellsDeleted = fromNullable(progress.getCellsDeleted()) + results.getCellsDeleted();
         final long cellsExamined = fromNullable(progress.getCellsExamined()) + results.getCellsExamined();
-        final long minimumSweptTimestamp = results.getSweptTimestamp();
+        final long minimumSweptTimestamp = progress.hasMinimumSweptTimestamp()
+                ? progress.getMinimumSweptTimestamp()
+                : results.getSweptTimestamp();
         if (results.getNextStartRow().isPresent()) {
             saveIntermediateSweepResults(
                     progress,
@@ -323,21 +629,35 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             return;
         }
 
-        saveFinalSweepResults(progress, cellsDeleted, cellsExamined, minimumSweptTimestamp);
+        TableReference tableRef = TableReference.createUnsafe(progress.getFullTableName());
+        FinishedTable finishedTable;
+        progressTableLock.lock();
+        try {
+            finishedTable = saveFinalSweepResults(progress, cellsDeleted, cellsExamined, minimumSweptTimestamp);
+            if (finishedTable == null) {
+                log.debug("Finished sweeping segment {} of {}, examined {} unique cells, deleted {} cells.",
+                        progress.getRowName().getDummy(), tableRef, cellsExamined, cellsDeleted);
+                return;
+            }
+            if (finishedTable.isLastTableInProgress) {
+                // Truncate instead of delete because the progress table contains only
+                // the rows of this table, which have accumulated many overwrites.
+                kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
+            }
+        } finally {
+            progressTableLock.unlock();
+        }
+        getMetrics(tableRef).recordSegmentsInProgress(0);
 
         log.debug("Finished sweeping {}, examined {} unique cells, deleted {} cells.",
-                progress.getFullTableName(), cellsExamined, cellsDeleted);
+                tableRef, finishedTable.cellsExamined, finishedTable.cellsDeleted);
 
-        if (cellsDeleted > 0) {
+        if (finishedTable.cellsDeleted > 0) {
             Stopwatch watch = Stopwatch.createStarted();
-            kvs.compactInternally(TableReference.createUnsafe(progress.getFullTableName()));
+            kvs.compactInternally(tableRef);
             log.debug("Finished performing compactInternally on {} in {} ms.",
-                    progress.getFullTableName(), watch.elapsed(TimeUnit.MILLISECONDS));
+                    tableRef, watch.elapsed(TimeUnit.MILLISECONDS));
         }
-
-        // Truncate instead of delete because the progress table contains only
-        // a single row that has accumulated many overwrites.
-        kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
     }
 
     private void saveIntermediateSweepResults(final SweepProgressRowResult progress,
@@ -349,63 +669,107 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
             @Override
             public Void execute(Transaction tx) {
                 SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
-                SweepProgressRow row = SweepProgressRow.of(0);
+                SweepProgressRow row = progress.getRowName();
                 progressTable.putFullTableName(row, progress.getFullTableName());
                 progressTable.putStartRow(row, nextStartRow);
                 progressTable.putCellsDeleted(row, cellsDeleted);
                 progressTable.putCellsExamined(row, cellsExamined);
-                if (!progress.hasStartRow()) {
-                    // This is the first set of results being written for this table.
+                if (!progress.hasMinimumSweptTimestamp()) {
+                    // This is the first set of results being written for this segment.
                     progressTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
-
-                    SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
-                    SweepPriorityRow priorityRow = SweepPriorityRow.of(progress.getFullTableName());
-                    priorityTable.putWriteCount(priorityRow, 0L);
                 }
                 return null;
             }
         });
     }
 
-    private void saveFinalSweepResults(final SweepProgressRowResult progress,
-                                       final long cellsDeleted,
-                                       final long cellsExamined,
-                                       final long minimumSweptTimestamp) {
-        txManager.runTaskWithRetry(new TxTask() {
-            @Override
-            public Void execute(Transaction tx) {
-                SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
-                SweepPriorityRow row = SweepPriorityRow.of(progress.getFullTableName());
-                priorityTable.putCellsDeleted(row, cellsDeleted);
-                priorityTable.putCellsExamined(row, cellsExamined);
-                priorityTable.putLastSweepTime(row, System.currentTimeMillis());
-                if (!progress.hasStartRow()) {
-                    // This is the first (and only) set of results being written for this table.
-                    priorityTable.putWriteCount(row, 0L);
-                    priorityTable.putMinimumSweptTimestamp(row, minimumSweptTimestamp);
-                } else {
-                    priorityTable.putMinimumSweptTimestamp(row, fromNullable(progress.getMinimumSweptTimestamp()));
-                }
+    /**
+     * Marks the segment as finished, and if it is the last segment of its table to finish, writes the results of
+     * the whole table to the priority table and removes its segments from the progress table.
+     *
+     * @return the results of the table, or null if other segments of the table are still being swept.
+     */
+    @GuardedBy("progressTableLock")
+    @Nullable
+    private FinishedTable saveFinalSweepResults(final SweepProgressRowResult progress,
+                                                final long cellsDeleted,
+                                                final long cellsExamined,
+                                                final long minimumSweptTimestamp) {
+        return txManager.runTaskWithRetry(tx -> {
+            SweepProgressTable progressTable = tableFactory.getSweepProgressTable(tx);
+            SweepProgressRow progressRow = progress.getRowName();
+            List<SweepProgressRowResult> segments = progressTable.getAllRowsUnordered().immutableCopy();
+            List<SweepProgressRowResult> otherSegmentsOfTable = segments.stream()
+                    .filter(result -> result.getFullTableName().equals(progress.getFullTableName()))
+                    .filter(result -> !result.getRowName().equals(progressRow))
+                    .collect(Collectors.toList());
+            if (otherSegmentsOfTable.stream().anyMatch(result -> !result.hasFinishTime())) {
+                progressTable.putFullTableName(progressRow, progress.getFullTableName());
+                progressTable.putCellsDeleted(progressRow, cellsDeleted);
+                progressTable.putCellsExamined(progressRow, cellsExamined);
+                progressTable.putMinimumSweptTimestamp(progressRow, minimumSweptTimestamp);
+                progressTable.putFinishTime(progressRow, System.currentTimeMillis());
                 return null;
             }
+
+            long tableCellsDeleted = cellsDeleted;
+            long tableCellsExamined = cellsExamined;
+            long tableMinimumSweptTimestamp = minimumSweptTimestamp;
+            for (SweepProgressRowResult segment : otherSegmentsOfTable) {
+                tableCellsDeleted += fromNullable(segment.getCellsDeleted());
+                tableCellsExamined += fromNullable(segment.getCellsExamined());
+                tableMinimumSweptTimestamp = Math.min(
+                        tableMinimumSweptTimestamp,
+                        fromNullable(segment.getMinimumSweptTimestamp()));
+            }
+
+            SweepPriorityTable priorityTable = tableFactory.getSweepPriorityTable(tx);
+            SweepPriorityRow row = SweepPriorityRow.of(progress.getFullTableName());
+            priorityTable.putCellsDeleted(row, tableCellsDeleted);
+            priorityTable.putCellsExamined(row, tableCellsExamined);
+            priorityTable.putLastSweepTime(row, System.currentTimeMillis());
+            priorityTable.putMinimumSweptTimestamp(row, tableMinimumSweptTimestamp);
+
+            boolean isLastTableInProgress = segments.size() == otherSegmentsOfTable.size() + 1;
+            if (!isLastTableInProgress) {
+                progressTable.delete(progressRow);
+                progressTable.delete(Lists.transform(otherSegmentsOfTable, SweepProgressRowResult::getRowName));
+            }
+            return new FinishedTable(tableCellsDeleted, tableCellsExamined, isLastTableInProgress);
         });
     }
 
     /**
-     * Check whether the table being swept was dropped. If so, stop sweeping it and move on.
-     * @return Whether the table being swept was dropped
+     * Check whether any of the tables being swept were dropped. If so, stop sweeping them and move on.
+     * @return Whether any of the tables being swept were dropped
      */
     private boolean checkAndRepairTableDrop() {
         try {
             Set<String> tables = kvs.getAllTableNames().stream()
                     .map(tableRef -> tableRef.getQualifiedName()).collect(Collectors.toSet());
-            SweepProgressRowResult result = txManager.runTaskReadOnly(t ->
-                    tableFactory.getSweepProgressTable(t).getRow(SweepProgressRow.of(0L)).orNull());
-            if (result == null || tables.contains(result.getFullTableName())) {
-                return false;
+            progressTableLock.lock();
+            try {
+                List<SweepProgressRowResult> segments = txManager.runTaskReadOnly(t ->
+                        tableFactory.getSweepProgressTable(t).getAllRowsUnordered().immutableCopy());
+                List<SweepProgressRow> droppedSegments = segments.stream()
+                        .filter(result -> !tables.contains(result.getFullTableName()))
+                        .map(SweepProgressRowResult::getRowName)
+                        .collect(Collectors.toList());
+                if (droppedSegments.isEmpty()) {
+                    return false;
+                }
+                if (droppedSegments.size() == segments.size()) {
+                    kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
+                } else {
+                    txManager.runTaskWithRetry(tx -> {
+                        tableFactory.getSweepProgressTable(tx).delete(droppedSegments);
+                        return null;
+                    });
+                }
+                return true;
+            } finally {
+                progressTableLock.unlock();
             }
-            kvs.truncateTable(tableFactory.getSweepProgressTable(null).getTableRef());
-            return true;
         } catch (RuntimeException e) {
             log.error("Failed to check whether the table being swept was dropped."
                     + " Continuing under the assumption that it wasn't...", e);
@@ -413,10 +777,66 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
+    private void recordSegmentsInProgress(List<SweepProgressRowResult> segments) {
+        Map<TableReference, Long> segmentsByTable = segments.stream()
+                .filter(result -> !result.hasFinishTime())
+                .collect(Collectors.groupingBy(
+                        result -> TableReference.createUnsafe(result.getFullTableName()),
+                        Collectors.counting()));
+        segmentsByTable.forEach((tableRef, count) -> getMetrics(tableRef).recordSegmentsInProgress(count.intValue()));
+    }
+
+    private TableSweepMetrics getMetrics(TableReference tableRef) {
+        TableSweepMetrics metrics = metricsByTable.get(tableRef);
+        if (metrics == null) {
+            metrics = new TableSweepMetrics(tableRef);
+            TableSweepMetrics existingMetrics = metricsByTable.putIfAbsent(tableRef, metrics);
+            if (existingMetrics != null) {
+                return existingMetrics;
+            }
+            JMXUtils.registerMBeanCatchAndLogExceptions(metrics, getMetricsBeanName(tableRef));
+        }
+        return metrics;
+    }
+
+    private static String getMetricsBeanName(TableReference tableRef) {
+        return "com.palantir.atlasdb:type=BackgroundSweeper,table=" + ObjectName.quote(tableRef.getQualifiedName());
+    }
+
     private long fromNullable(Long num) {
         return num == null ? 0L : num.longValue();
     }
 
+    private boolean lockOrRefreshSweepLock() throws InterruptedException {
+        synchronized (sweepLock) {
+            locks = lockOrRefresh(locks);
+            return locks.isPresent();
+        }
+    }
+
+    private Optional<LockRefreshToken> lockSegment(SweepProgressRowResult segment) {
+        LockDescriptor lock = StringLockDescriptor.of(
+                "atlas sweep " + segment.getFullTableName() + " segment " + segment.getRowName().getDummy());
+        LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
+        try {
+            return Optional.fromNullable(
+                    txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService workers) {
+        try {
+            if (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("Background sweep threads did not stop within a minute of shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private Optional<LockRefreshToken> lockOrRefresh(Optional<LockRefreshToken> previousLocks)
             throws InterruptedException {
         if (previousLocks.isPresent()) {
@@ -451,6 +871,18 @@ public class BackgroundSweeperImpl implements BackgroundSweeper {
         }
     }
 
+    private static final class FinishedTable {
+        final long cellsDeleted;
+        final long cellsExamined;
+        final boolean isLastTableInProgress;
+
+        FinishedTable(long cellsDeleted, long cellsExamined, boolean isLastTableInProgress) {
+            this.cellsDeleted = cellsDeleted;
+            this.cellsExamined = cellsExamined;
+            this.isLastTableInProgress = isLastTableInProgress;
+        }
+    }
+
     private static class SweepTransaction extends UnmodifiableTransaction {
         private final long sweepTimestamp;
 
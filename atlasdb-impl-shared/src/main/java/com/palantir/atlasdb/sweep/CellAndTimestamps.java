@@ -26,7 +26,23 @@ public abstract class CellAndTimestamps {
     public abstract Cell cell();
     public abstract Set<Long> timestamps();
 
+    /**
+     * Whether the most recent version of the cell below the sweep timestamp is empty.
+     */
+    @Value.Default
+    public boolean latestValueEmpty() {
+        return false;
+    }
+
     public static CellAndTimestamps of(Cell cell, Set<Long> timestamps) {
         return ImmutableCellAndTimestamps.builder().cell(cell).timestamps(timestamps).build();
     }
+
+    public static CellAndTimestamps of(Cell cell, Set<Long> timestamps, boolean latestValueEmpty) {
+        return ImmutableCellAndTimestamps.builder()
+                .cell(cell)
+                .timestamps(timestamps)
+                .latestValueEmpty(latestValueEmpty)
+                .build();
+    }
 }
@@ -52,7 +52,10 @@ public abstract class CellsAndTimestamps {
 
     public CellsAndTimestamps withoutIgnoredTimestamps(Set<Long> timestampsToIgnore) {
         List<CellAndTimestamps> cellsAndTimestamps = cellAndTimestampsList().stream()
-                .map(item -> CellAndTimestamps.of(item.cell(), Sets.difference(item.timestamps(), timestampsToIgnore)))
+                .map(item -> CellAndTimestamps.of(
+                        item.cell(),
+                        Sets.difference(item.timestamps(), timestampsToIgnore),
+                        item.latestValueEmpty()))
                 .collect(Collectors.toList());
         return ImmutableCellsAndTimestamps.builder()
                 .cellAndTimestampsList(cellsAndTimestamps)
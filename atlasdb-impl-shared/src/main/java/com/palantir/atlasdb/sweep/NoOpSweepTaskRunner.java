@@ -15,6 +15,9 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Set;
+
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
@@ -25,6 +28,20 @@ public class NoOpSweepTaskRunner implements SweepTaskRunner {
         return SweepResults.createEmptySweepResult(getSweepTimestamp(SweepStrategy.NOTHING));
     }
 
+    @Override
+    public SweepResults run(TableReference tableRef,
+                            int rowBatchSize,
+                            int cellBatchSize,
+                            byte[] startRow,
+                            byte[] endRow) {
+        return run(tableRef, rowBatchSize, cellBatchSize, startRow);
+    }
+
+    @Override
+    public SweepResults sweepCells(TableReference tableRef, Set<Cell> cells) {
+        return SweepResults.createEmptySweepResult(getSweepTimestamp(SweepStrategy.NOTHING));
+    }
+
     @Override
     public long getSweepTimestamp(SweepStrategy sweepStrategy) {
         return 0;
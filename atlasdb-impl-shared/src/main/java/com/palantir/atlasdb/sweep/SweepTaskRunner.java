@@ -15,13 +15,33 @@
  */
 package com.palantir.atlasdb.sweep;
 
+import java.util.Set;
+
 import javax.annotation.Nullable;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 
 public interface SweepTaskRunner {
     SweepResults run(TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] startRow);
+
+    /**
+     * Sweeps the next batch of rows of the table, starting at startRow and stopping before endRow, or at the end of
+     * the table if endRow is null.
+     */
+    SweepResults run(TableReference tableRef,
+                     int rowBatchSize,
+                     int cellBatchSize,
+                     @Nullable byte[] startRow,
+                     @Nullable byte[] endRow);
+
+    /**
+     * Sweeps only the given cells of the table, which is how the {@link TargetedSweeper} sweeps the cells taken from
+     * the {@link TargetedSweepQueue}.
+     */
+    SweepResults sweepCells(TableReference tableRef, Set<Cell> cells);
+
     long getSweepTimestamp(SweepStrategy sweepStrategy);
 }
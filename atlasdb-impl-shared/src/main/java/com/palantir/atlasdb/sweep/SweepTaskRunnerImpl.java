@@ -18,11 +18,13 @@ package com.palantir.atlasdb.sweep;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -40,19 +42,17 @@ import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.SweepResults;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.sweep.sweepers.ConservativeSweeper;
 import com.palantir.atlasdb.sweep.sweepers.NothingSweeper;
@@ -98,19 +98,16 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     @Override
     public SweepResults run(
             TableReference tableRef, int rowBatchSize, int cellBatchSize, @Nullable byte[] nullableStartRow) {
-        Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
-        Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
+        return run(tableRef, rowBatchSize, cellBatchSize, nullableStartRow, null);
+    }
 
-        if (tableRef.getQualifiedName().startsWith(AtlasDbConstants.NAMESPACE_PREFIX)) {
-            // this happens sometimes; I think it's because some places in the code can
-            // start this sweeper without doing the full normally ordered KVSModule startup.
-            // I did check and sweep.stats did contain the FQ table name for all of the tables,
-            // so it is at least broken in some way that still allows namespaced tables to eventually be swept.
-            log.warn("The sweeper should not be run on tables passed through namespace mapping.");
-            return SweepResults.createEmptySweepResult(0L);
-        }
-        if (keyValueService.getMetadataForTable(tableRef).length == 0) {
-            log.warn("The sweeper tried to sweep table '{}', but the table does not exist. Skipping table.", tableRef);
+    @Override
+    public SweepResults run(TableReference tableRef,
+                            int rowBatchSize,
+                            int cellBatchSize,
+                            @Nullable byte[] nullableStartRow,
+                            @Nullable byte[] endRow) {
+        if (!canSweep(tableRef)) {
             return SweepResults.createEmptySweepResult(0L);
         }
 
@@ -128,20 +125,22 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
 
         byte[] startRow = MoreObjects.firstNonNull(nullableStartRow, PtBytes.EMPTY_BYTE_ARRAY);
-        RangeRequest range = RangeRequest.builder()
+        RangeRequest.Builder rangeBuilder = RangeRequest.builder()
                 .startRowInclusive(startRow)
-                .batchHint(rowBatchSize)
-                .build();
+                .batchHint(rowBatchSize);
+        if (endRow != null) {
+            rangeBuilder.endRowExclusive(endRow);
+        }
+        RangeRequest range = rangeBuilder.build();
 
         Sweeper sweeper = getSweeperFor(sweepStrategy);
 
         long sweepTs = sweeper.getSweepTimestamp();
 
-        try (ClosableIterator<RowResult<Value>> valueResults = sweeper.getValues(tableRef, range, sweepTs);
-             ClosableIterator<RowResult<Set<Long>>> rowResults = sweeper.getCellTimestamps(tableRef, range, sweepTs)) {
-            CountingIterator<RowResult<Set<Long>>> rowResultTimestamps =
+        try (ClosableIterator<RowResult<CellTimestamps>> rowResults =
+                     sweeper.getCellTimestamps(tableRef, range, sweepTs)) {
+            CountingIterator<RowResult<CellTimestamps>> rowResultTimestamps =
                     new CountingIterator<>(Iterators.limit(rowResults, rowBatchSize));
-            PeekingIterator<RowResult<Value>> peekingValues = Iterators.peekingIterator(valueResults);
 
             BatchingVisitable<CellAndTimestamps> cellsAndTimestamps = BatchingVisitableFromIterable
                     .create(getTimestampsFromRowResultsIterator(() -> rowResultTimestamps));
@@ -151,7 +150,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
                     cellBatchSize,
                     thisBatch -> {
                         CellsAndTimestamps thisBatchCells = CellsAndTimestamps.fromCellAndTimestampsList(thisBatch);
-                        int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs, peekingValues);
+                        int cellsSwept = sweepForCells(thisBatchCells, tableRef, sweeper, sweepTs);
                         totalCellsSwept.addAndGet(cellsSwept);
                         return true;
                     });
@@ -162,6 +161,43 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         }
     }
 
+    @Override
+    public SweepResults sweepCells(TableReference tableRef, Set<Cell> cells) {
+        if (cells.isEmpty() || !canSweep(tableRef)) {
+            return SweepResults.createEmptySweepResult(0L);
+        }
+        SweepStrategy sweepStrategy = sweepStrategyManager.get().getOrDefault(tableRef, SweepStrategy.CONSERVATIVE);
+        Sweeper sweeper = getSweeperFor(sweepStrategy);
+        long sweepTs = sweeper.getSweepTimestamp();
+
+        List<CellAndTimestamps> cellsAndTimestamps = sweeper.getCellTimestamps(tableRef, cells, sweepTs)
+                .entrySet().stream()
+                .map(SweepTaskRunnerImpl::convertToCellAndTimestamps)
+                .collect(Collectors.toList());
+        int cellsSwept = cellsAndTimestamps.isEmpty() ? 0 : sweepForCells(
+                CellsAndTimestamps.fromCellAndTimestampsList(cellsAndTimestamps), tableRef, sweeper, sweepTs);
+        return new SweepResults(null, cells.size(), cellsSwept, sweepTs);
+    }
+
+    private boolean canSweep(TableReference tableRef) {
+        Preconditions.checkNotNull(tableRef, "tableRef cannot be null");
+        Preconditions.checkState(!AtlasDbConstants.hiddenTables.contains(tableRef));
+
+        if (tableRef.getQualifiedName().startsWith(AtlasDbConstants.NAMESPACE_PREFIX)) {
+            // this happens sometimes; I think it's because some places in the code can
+            // start this sweeper without doing the full normally ordered KVSModule startup.
+            // I did check and sweep.stats did contain the FQ table name for all of the tables,
+            // so it is at least broken in some way that still allows namespaced tables to eventually be swept.
+            log.warn("The sweeper should not be run on tables passed through namespace mapping.");
+            return false;
+        }
+        if (keyValueService.getMetadataForTable(tableRef).length == 0) {
+            log.warn("The sweeper tried to sweep table '{}', but the table does not exist. Skipping table.", tableRef);
+            return false;
+        }
+        return true;
+    }
+
     private Sweeper getSweeperFor(SweepStrategy sweepStrategy) {
         switch (sweepStrategy) {
             case NOTHING:
@@ -184,13 +220,12 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
             CellsAndTimestamps currentBatch,
             TableReference tableRef,
             Sweeper sweeper,
-            long sweepTs,
-            PeekingIterator<RowResult<Value>> peekingValues) {
+            long sweepTs) {
         CellsAndTimestamps currentBatchWithoutIgnoredTimestamps =
                 currentBatch.withoutIgnoredTimestamps(sweeper.getTimestampsToIgnore());
 
         CellsToSweep cellsToSweep = getStartTimestampsPerRowToSweep(
-                currentBatchWithoutIgnoredTimestamps, peekingValues, sweepTs, sweeper);
+                currentBatchWithoutIgnoredTimestamps, sweepTs, sweeper);
 
         Multimap<Cell, Long> startTimestampsToSweepPerCell = cellsToSweep.timestampsAsMultimap();
         cellsSweeper.sweepCells(tableRef, startTimestampsToSweepPerCell, cellsToSweep.allSentinels());
@@ -199,21 +234,24 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     }
 
     private static Iterator<CellAndTimestamps> getTimestampsFromRowResultsIterator(
-            Iterable<RowResult<Set<Long>>> cellsToSweep) {
+            Iterable<RowResult<CellTimestamps>> cellsToSweep) {
         return StreamSupport.stream(cellsToSweep.spliterator(), false)
                 .flatMap(SweepTaskRunnerImpl::rowToCellAndTimestampStream)
                 .iterator();
     }
 
-    private static Stream<CellAndTimestamps> rowToCellAndTimestampStream(RowResult<Set<Long>> rowResult) {
-        Set<Map.Entry<Cell, Set<Long>>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
+    private static Stream<CellAndTimestamps> rowToCellAndTimestampStream(RowResult<CellTimestamps> rowResult) {
+        Set<Map.Entry<Cell, CellTimestamps>> cellsInRow = ImmutableSet.copyOf(rowResult.getCells());
         return cellsInRow.stream()
                 .map(SweepTaskRunnerImpl::convertToCellAndTimestamps);
     }
 
     private static CellAndTimestamps convertToCellAndTimestamps(
-            Map.Entry<Cell, Set<Long>> entry) {
-        return CellAndTimestamps.of(entry.getKey(), entry.getValue());
+            Map.Entry<Cell, CellTimestamps> entry) {
+        return CellAndTimestamps.of(
+                entry.getKey(),
+                entry.getValue().getTimestamps(),
+                entry.getValue().isLatestValueEmpty());
     }
 
     @Override
@@ -224,7 +262,6 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
     @VisibleForTesting
     CellsToSweep getStartTimestampsPerRowToSweep(
             CellsAndTimestamps startTimestampsPerCell,
-            PeekingIterator<RowResult<Value>> values,
             long sweepTimestamp,
             Sweeper sweeper) {
 
@@ -241,7 +278,7 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         for (CellAndTimestamps cellAndTimestamps : startTimestampsPerCell.cellAndTimestampsList()) {
             Cell cell = cellAndTimestamps.cell();
             Collection<Long> timestamps = cellAndTimestamps.timestamps();
-            boolean sweepLastCommitted = isLatestValueEmpty(cell, values);
+            boolean sweepLastCommitted = cellAndTimestamps.latestValueEmpty();
             CellToSweep cellToSweep = getTimestampsToSweep(
                     cell,
                     timestamps,
@@ -254,22 +291,6 @@ public class SweepTaskRunnerImpl implements SweepTaskRunner {
         return builder.build();
     }
 
-    private boolean isLatestValueEmpty(Cell cell, PeekingIterator<RowResult<Value>> values) {
-        while (values.hasNext()) {
-            RowResult<Value> result = values.peek();
-            int comparison = UnsignedBytes.lexicographicalComparator().compare(cell.getRowName(), result.getRowName());
-            if (comparison == 0) {
-                Value matchingValue = result.getColumns().get(cell.getColumnName());
-                return matchingValue != null && matchingValue.getContents().length == 0;
-            } else if (comparison < 0) {
-                return false;
-            } else {
-                values.next();
-            }
-        }
-        return false;
-    }
-
     private CellToSweep getTimestampsToSweep(
             Cell cell,
             Collection<Long> startTimestamps,
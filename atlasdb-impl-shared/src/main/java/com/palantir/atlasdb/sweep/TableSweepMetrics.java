@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+
+/**
+ * Sweep throughput and backlog of a single table, exported over JMX by the background sweeper.
+ * <p>
+ * Throughput counts the batches swept by this process. The backlog is as of the last time the background sweeper
+ * read the sweep priorities of every table, and is the number of writes to the table since its last sweep, the time
+ * since its last sweep, and the priority computed from them.
+ */
+final class TableSweepMetrics implements TableSweepMetricsMBean {
+    private final TableReference tableRef;
+    private final AtomicLong batchesSwept = new AtomicLong();
+    private final AtomicLong cellsExamined = new AtomicLong();
+    private final AtomicLong cellsDeleted = new AtomicLong();
+    private final AtomicLong sweepMillis = new AtomicLong();
+    private volatile long writesSinceLastSweep = 0L;
+    private volatile long lastSweepTime = 0L;
+    private volatile double sweepPriority = 0.0;
+    private volatile int segmentsInProgress = 0;
+
+    TableSweepMetrics(TableReference tableRef) {
+        this.tableRef = tableRef;
+    }
+
+    void recordBatch(SweepResults results, long millis) {
+        batchesSwept.incrementAndGet();
+        cellsExamined.addAndGet(results.getCellsExamined());
+        cellsDeleted.addAndGet(results.getCellsDeleted());
+        sweepMillis.addAndGet(millis);
+    }
+
+    void recordBacklog(long newWritesSinceLastSweep, long newLastSweepTime, double newSweepPriority) {
+        writesSinceLastSweep = newWritesSinceLastSweep;
+        lastSweepTime = newLastSweepTime;
+        sweepPriority = newSweepPriority;
+    }
+
+    void recordSegmentsInProgress(int segments) {
+        segmentsInProgress = segments;
+    }
+
+    @Override
+    public String getTableName() {
+        return tableRef.getQualifiedName();
+    }
+
+    @Override
+    public long getBatchesSwept() {
+        return batchesSwept.get();
+    }
+
+    @Override
+    public long getCellsExamined() {
+        return cellsExamined.get();
+    }
+
+    @Override
+    public long getCellsDeleted() {
+        return cellsDeleted.get();
+    }
+
+    @Override
+    public long getSweepMillis() {
+        return sweepMillis.get();
+    }
+
+    @Override
+    public double getCellsExaminedPerSecond() {
+        long millis = sweepMillis.get();
+        return millis == 0 ? 0.0 : 1000.0 * cellsExamined.get() / millis;
+    }
+
+    @Override
+    public long getWritesSinceLastSweep() {
+        return writesSinceLastSweep;
+    }
+
+    @Override
+    public long getMillisSinceLastSweep() {
+        long time = lastSweepTime;
+        return time == 0L ? -1L : System.currentTimeMillis() - time;
+    }
+
+    @Override
+    public double getSweepPriority() {
+        return sweepPriority;
+    }
+
+    @Override
+    public int getSegmentsInProgress() {
+        return segmentsInProgress;
+    }
+}
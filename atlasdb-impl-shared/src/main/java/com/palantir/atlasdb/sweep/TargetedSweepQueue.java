@@ -0,0 +1,247 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.ColumnValueDescription;
+import com.palantir.atlasdb.table.description.DynamicColumnDescription;
+import com.palantir.atlasdb.table.description.NameComponentDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.table.description.ValueType;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * A queue of the cells written by transactions, so that the {@link TargetedSweeper} can sweep the cells that were
+ * overwritten instead of scanning whole tables.
+ * <p>
+ * Committing transactions enqueue every cell they write before they write it, in the same key value service as the
+ * data. The queue is the {@link AtlasDbConstants#SWEEP_QUEUE_TABLE} table: its rows are split into
+ * {@link #getShards()} shards by the hash of the table and cell written, and within each shard into partitions of
+ * {@link #TIMESTAMPS_PER_PARTITION} start timestamps, so that the entries older than a sweep timestamp are found by a
+ * range scan of the first partitions of each shard. Each entry is a column named by the start timestamp of its
+ * transaction, and its value holds the table and cell that were written.
+ * <p>
+ * Writes to tables with the {@link SweepStrategy#NOTHING} sweep strategy and to hidden tables are not queued.
+ */
+public final class TargetedSweepQueue {
+    private static final TargetedSweepQueue DISABLED = new TargetedSweepQueue(null, null, 0);
+
+    static final long TIMESTAMPS_PER_PARTITION = 50_000;
+    private static final int MAX_SHARDS = 256;
+
+    @Nullable private final KeyValueService kvs;
+    @Nullable private final SweepStrategyManager sweepStrategyManager;
+    private final int shards;
+
+    /**
+     * Returns a queue which does not queue any writes.
+     */
+    public static TargetedSweepQueue disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Creates the queue table if it does not exist yet.
+     *
+     * @param shards the number of shards to spread the queue over, which is also the number of range scans the
+     *               sweeper makes each time it reads the queue. Every client of the key value service must be
+     *               configured with the same number.
+     */
+    public static TargetedSweepQueue create(
+            KeyValueService kvs,
+            SweepStrategyManager sweepStrategyManager,
+            int shards) {
+        Preconditions.checkArgument(shards > 0 && shards <= MAX_SHARDS,
+                "shards must be between 1 and %s, was %s", MAX_SHARDS, shards);
+        kvs.createTable(AtlasDbConstants.SWEEP_QUEUE_TABLE, new TableMetadata(
+                NameMetadataDescription.create(ImmutableList.of(
+                        new NameComponentDescription("shard_and_partition", ValueType.BLOB))),
+                new ColumnMetadataDescription(new DynamicColumnDescription(
+                        NameMetadataDescription.create(ImmutableList.of(
+                                new NameComponentDescription("start_ts", ValueType.FIXED_LONG),
+                                new NameComponentDescription("write_index", ValueType.VAR_LONG))),
+                        ColumnValueDescription.forType(ValueType.BLOB))),
+                ConflictHandler.IGNORE_ALL).persistToBytes());
+        return new TargetedSweepQueue(kvs, sweepStrategyManager, shards);
+    }
+
+    private TargetedSweepQueue(
+            @Nullable KeyValueService kvs,
+            @Nullable SweepStrategyManager sweepStrategyManager,
+            int shards) {
+        this.kvs = kvs;
+        this.sweepStrategyManager = sweepStrategyManager;
+        this.shards = shards;
+    }
+
+    public boolean isEnabled() {
+        return kvs != null;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Queues the cells a transaction is about to write. This must be done before the cells are written, so that the
+     * cells are swept even if the transaction fails after writing them.
+     */
+    public void enqueue(Map<TableReference, ? extends Map<Cell, byte[]>> writesByTable, long startTimestamp) {
+        if (!isEnabled()) {
+            return;
+        }
+        Map<TableReference, SweepStrategy> sweepStrategies = sweepStrategyManager.get();
+        Map<Cell, byte[]> entries = Maps.newHashMap();
+        long writeIndex = 0;
+        for (Map.Entry<TableReference, ? extends Map<Cell, byte[]>> tableWrites : writesByTable.entrySet()) {
+            TableReference tableRef = tableWrites.getKey();
+            if (AtlasDbConstants.hiddenTables.contains(tableRef)
+                    || sweepStrategies.getOrDefault(tableRef, SweepStrategy.CONSERVATIVE) == SweepStrategy.NOTHING) {
+                continue;
+            }
+            for (Cell cell : tableWrites.getValue().keySet()) {
+                Cell queueCell = Cell.create(
+                        getRowName(getShard(tableRef, cell), getPartition(startTimestamp)),
+                        EncodingUtils.add(PtBytes.toBytes(startTimestamp), EncodingUtils.encodeVarLong(writeIndex++)));
+                entries.put(queueCell, EncodingUtils.add(
+                        EncodingUtils.encodeVarString(tableRef.getQualifiedName()),
+                        EncodingUtils.encodeSizedBytes(cell.getRowName()),
+                        EncodingUtils.encodeSizedBytes(cell.getColumnName())));
+            }
+        }
+        if (!entries.isEmpty()) {
+            kvs.put(AtlasDbConstants.SWEEP_QUEUE_TABLE, entries, startTimestamp);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} entries of the shard whose start timestamps are below {@code maxStartTimestamp}, in
+     * the order of their start timestamps.
+     */
+    List<Entry> getEntries(int shard, long maxStartTimestamp, int limit) {
+        Preconditions.checkState(isEnabled(), "The targeted sweep queue is disabled");
+        RangeRequest range = RangeRequest.builder()
+                .startRowInclusive(getRowName(shard, 0L))
+                .endRowExclusive(getRowName(shard, getPartition(maxStartTimestamp) + 1))
+                .batchHint(limit)
+                .build();
+        List<Entry> entries = Lists.newArrayList();
+        try (ClosableIterator<RowResult<Value>> rows =
+                     kvs.getRange(AtlasDbConstants.SWEEP_QUEUE_TABLE, range, Long.MAX_VALUE)) {
+            while (rows.hasNext() && entries.size() < limit) {
+                for (Map.Entry<Cell, Value> queueEntry : rows.next().getCells()) {
+                    Entry entry = Entry.decode(queueEntry.getKey(), queueEntry.getValue().getContents());
+                    if (entry.getStartTimestamp() < maxStartTimestamp) {
+                        entries.add(entry);
+                        if (entries.size() == limit) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes entries which have been swept.
+     */
+    void delete(Collection<Entry> entries) {
+        Preconditions.checkState(isEnabled(), "The targeted sweep queue is disabled");
+        Multimap<Cell, Long> queueCells = HashMultimap.create();
+        for (Entry entry : entries) {
+            queueCells.put(entry.queueCell, entry.startTimestamp);
+        }
+        kvs.delete(AtlasDbConstants.SWEEP_QUEUE_TABLE, queueCells);
+    }
+
+    private int getShard(TableReference tableRef, Cell cell) {
+        return Math.floorMod(31 * tableRef.hashCode() + cell.hashCode(), shards);
+    }
+
+    private static long getPartition(long startTimestamp) {
+        return startTimestamp / TIMESTAMPS_PER_PARTITION;
+    }
+
+    private static byte[] getRowName(int shard, long partition) {
+        return EncodingUtils.add(new byte[] {(byte) shard}, PtBytes.toBytes(partition));
+    }
+
+    /**
+     * A cell written by the transaction with the given start timestamp.
+     */
+    static final class Entry {
+        private final Cell queueCell;
+        private final long startTimestamp;
+        private final TableReference tableRef;
+        private final Cell cell;
+
+        private Entry(Cell queueCell, long startTimestamp, TableReference tableRef, Cell cell) {
+            this.queueCell = queueCell;
+            this.startTimestamp = startTimestamp;
+            this.tableRef = tableRef;
+            this.cell = cell;
+        }
+
+        private static Entry decode(Cell queueCell, byte[] value) {
+            long startTimestamp = PtBytes.toLong(queueCell.getColumnName());
+            String tableName = EncodingUtils.decodeVarString(value);
+            int offset = EncodingUtils.sizeOfVarString(tableName);
+            byte[] row = EncodingUtils.decodeSizedBytes(value, offset);
+            offset += EncodingUtils.sizeOfSizedBytes(row);
+            byte[] column = EncodingUtils.decodeSizedBytes(value, offset);
+            return new Entry(queueCell, startTimestamp, TableReference.createUnsafe(tableName),
+                    Cell.create(row, column));
+        }
+
+        long getStartTimestamp() {
+            return startTimestamp;
+        }
+
+        TableReference getTableRef() {
+            return tableRef;
+        }
+
+        Cell getCell() {
+            return cell;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
+import com.palantir.atlasdb.keyvalue.api.SweepResults;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.common.base.Throwables;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Sweeps the cells written by transactions, as recorded in a {@link TargetedSweepQueue}, instead of scanning whole
+ * tables. The work done is proportional to the number of writes rather than to the size of the tables.
+ * <p>
+ * Each pass reads up to a batch of the oldest entries of every shard of the queue whose transactions started before
+ * the conservative sweep timestamp, sweeps their cells table by table with the {@link SweepTaskRunner}, and removes
+ * them from the queue. The conservative sweep timestamp is used because it is the earliest sweep timestamp of any
+ * sweep strategy. Entries of transactions that committed at or after it are left in the queue until it has moved
+ * past their commit timestamp, because the versions they overwrote cannot be swept before then.
+ * <p>
+ * Like the background sweeper, only one process runs the targeted sweeper at a time.
+ */
+public final class TargetedSweeper implements BackgroundSweeper {
+    private static final Logger log = LoggerFactory.getLogger(TargetedSweeper.class);
+
+    private final LockAwareTransactionManager txManager;
+    private final TargetedSweepQueue queue;
+    private final SweepTaskRunner sweepRunner;
+    private final TransactionService transactionService;
+    private final Supplier<Boolean> isSweepEnabled;
+    private final Supplier<Long> sweepPauseMillis;
+    private final Supplier<Integer> sweepBatchSize;
+    private Thread daemon;
+    private Optional<LockRefreshToken> locks = Optional.absent();
+
+    /**
+     * @param sweepBatchSize the maximum number of queue entries to sweep from each shard of the queue per pass.
+     */
+    public TargetedSweeper(
+            LockAwareTransactionManager txManager,
+            TargetedSweepQueue queue,
+            SweepTaskRunner sweepRunner,
+            TransactionService transactionService,
+            Supplier<Boolean> isSweepEnabled,
+            Supplier<Long> sweepPauseMillis,
+            Supplier<Integer> sweepBatchSize) {
+        Preconditions.checkArgument(queue.isEnabled(), "The targeted sweep queue must be enabled");
+        this.txManager = txManager;
+        this.queue = queue;
+        this.sweepRunner = sweepRunner;
+        this.transactionService = transactionService;
+        this.isSweepEnabled = isSweepEnabled;
+        this.sweepPauseMillis = sweepPauseMillis;
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    @Override
+    public synchronized void runInBackground() {
+        Preconditions.checkState(daemon == null);
+        daemon = new Thread(this);
+        daemon.setDaemon(true);
+        daemon.setName("TargetedSweeper");
+        daemon.start();
+    }
+
+    @Override
+    public void run() {
+        try {
+            // Wait a while before starting so short lived clis don't try to sweep.
+            Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+            log.debug("Starting targeted sweeper.");
+            while (true) {
+                int entriesSwept = 0;
+                try {
+                    if (isSweepEnabled.get()) {
+                        if (lockOrRefreshSweepLock()) {
+                            entriesSwept = runOnce();
+                        } else {
+                            log.debug("Skipping targeted sweep because it is running elsewhere.");
+                        }
+                    } else {
+                        log.debug("Skipping targeted sweep because it is currently disabled.");
+                    }
+                } catch (InsufficientConsistencyException e) {
+                    log.warn("Could not sweep because not all nodes of the database are online.", e);
+                } catch (RuntimeException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException("Interrupted while sweeping.");
+                    }
+                    log.error("The targeted sweep job failed unexpectedly. Retrying after a pause...", e);
+                }
+                if (entriesSwept > 0) {
+                    Thread.sleep(sweepPauseMillis.get());
+                } else {
+                    Thread.sleep(20 * (1000 + sweepPauseMillis.get()));
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Shutting down targeted sweeper.");
+        } finally {
+            if (locks.isPresent()) {
+                txManager.getLockService().unlock(locks.get());
+                locks = Optional.absent();
+            }
+        }
+    }
+
+    /**
+     * Sweeps the cells of up to a batch of queue entries from each shard.
+     *
+     * @return the number of queue entries swept and removed from the queue.
+     */
+    @VisibleForTesting
+    int runOnce() {
+        long sweepTimestamp = sweepRunner.getSweepTimestamp(SweepStrategy.CONSERVATIVE);
+        int entriesSwept = 0;
+        for (int shard = 0; shard < queue.getShards(); shard++) {
+            entriesSwept += sweepShard(shard, sweepTimestamp);
+        }
+        return entriesSwept;
+    }
+
+    private int sweepShard(int shard, long sweepTimestamp) {
+        Stopwatch watch = Stopwatch.createStarted();
+        List<TargetedSweepQueue.Entry> entries = queue.getEntries(shard, sweepTimestamp, sweepBatchSize.get());
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        Set<Long> startTimestamps = entries.stream()
+                .map(TargetedSweepQueue.Entry::getStartTimestamp)
+                .collect(Collectors.toSet());
+        Map<Long, Long> commitTimestamps = transactionService.get(startTimestamps);
+        // Transactions which never committed are rolled back by the sweep itself.
+        List<TargetedSweepQueue.Entry> sweepableEntries = entries.stream()
+                .filter(entry -> {
+                    Long commitTs = commitTimestamps.get(entry.getStartTimestamp());
+                    return commitTs == null
+                            || commitTs == TransactionConstants.FAILED_COMMIT_TS
+                            || commitTs < sweepTimestamp;
+                })
+                .collect(Collectors.toList());
+
+        Map<TableReference, Set<Cell>> cellsByTable = sweepableEntries.stream()
+                .collect(Collectors.groupingBy(
+                        TargetedSweepQueue.Entry::getTableRef,
+                        Collectors.mapping(TargetedSweepQueue.Entry::getCell, Collectors.toSet())));
+        long cellsDeleted = 0;
+        for (Map.Entry<TableReference, Set<Cell>> tableCells : cellsByTable.entrySet()) {
+            SweepResults results = sweepRunner.sweepCells(tableCells.getKey(), tableCells.getValue());
+            cellsDeleted += results.getCellsDeleted();
+        }
+        if (!sweepableEntries.isEmpty()) {
+            queue.delete(sweepableEntries);
+        }
+        log.debug("Swept {} queued cells of {} tables from shard {} of the sweep queue"
+                + " and performed {} deletions in {} ms up to timestamp {}.",
+                sweepableEntries.size(), cellsByTable.size(), shard,
+                cellsDeleted, watch.elapsed(TimeUnit.MILLISECONDS), sweepTimestamp);
+        return sweepableEntries.size();
+    }
+
+    private boolean lockOrRefreshSweepLock() throws InterruptedException {
+        if (locks.isPresent()) {
+            Set<LockRefreshToken> refreshedTokens = txManager.getLockService()
+                    .refreshLockRefreshTokens(ImmutableList.of(locks.get()));
+            if (refreshedTokens.isEmpty()) {
+                locks = Optional.absent();
+            }
+        } else {
+            LockDescriptor lock = StringLockDescriptor.of("atlas targeted sweep");
+            LockRequest request = LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build();
+            locks = Optional.fromNullable(
+                    txManager.getLockService().lock(LockClient.ANONYMOUS.getClientId(), request));
+        }
+        return locks.isPresent();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        if (daemon == null) {
+            return;
+        }
+        log.debug("Signalling targeted sweeper to shut down.");
+        daemon.interrupt();
+        try {
+            daemon.join();
+            daemon = null;
+        } catch (InterruptedException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        }
+    }
+}
@@ -15,10 +15,15 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -47,16 +52,25 @@ public class ConservativeSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return ClosableIterators.emptyImmutableClosableIterator();
-    }
-
-    @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<CellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
-        return keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        // The most recent committed version is never swept, so there is no need to read whether it is empty.
+        ClosableIterator<RowResult<Set<Long>>> timestamps =
+                keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        return ClosableIterators.wrap(
+                Iterators.transform(timestamps, row -> RowResult.create(
+                        row.getRowName(),
+                        Maps.transformValues(row.getColumns(), ts -> CellTimestamps.create(ts, false)))),
+                timestamps::close);
+    }
+
+    @Override
+    public Map<Cell, CellTimestamps> getCellTimestamps(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return Maps.transformValues(
+                keyValueService.getAllTimestamps(table, cells, maxTimestamp).asMap(),
+                ts -> CellTimestamps.create(ImmutableSet.copyOf(ts), false));
     }
 
     @Override
@@ -15,13 +15,16 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 import com.palantir.common.base.ClosableIterators;
 
@@ -32,18 +35,18 @@ public class NothingSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return ClosableIterators.emptyImmutableClosableIterator();
-    }
-
-    @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<CellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
         return ClosableIterators.emptyImmutableClosableIterator();
     }
 
+    @Override
+    public Map<Cell, CellTimestamps> getCellTimestamps(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        return ImmutableMap.of();
+    }
+
     @Override
     public Set<Long> getTimestampsToIgnore() {
         return ImmutableSet.of();
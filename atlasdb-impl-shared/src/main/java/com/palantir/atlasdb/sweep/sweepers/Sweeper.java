@@ -15,24 +15,34 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.common.base.ClosableIterator;
 
 public interface Sweeper {
     long getSweepTimestamp();
 
-    ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp);
-
-    ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    /**
+     * Gets the timestamps of each cell in the range below maxTimestamp. Sweepers which may sweep the most recent
+     * committed version of a cell must also report whether it is empty.
+     */
+    ClosableIterator<RowResult<CellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp);
 
+    /**
+     * Gets the timestamps of the given cells below maxTimestamp, in the same way as for a range. Cells with no
+     * timestamps below maxTimestamp are left out.
+     */
+    Map<Cell, CellTimestamps> getCellTimestamps(TableReference table, Set<Cell> cells, long maxTimestamp);
+
     Set<Long> getTimestampsToIgnore();
 
     boolean shouldAddSentinels();
@@ -15,10 +15,16 @@
  */
 package com.palantir.atlasdb.sweep.sweepers;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
@@ -41,16 +47,29 @@ public class ThoroughSweeper implements Sweeper {
     }
 
     @Override
-    public ClosableIterator<RowResult<Value>> getValues(TableReference table, RangeRequest range, long maxTimestamp) {
-        return keyValueService.getRange(table, range, maxTimestamp);
-    }
-
-    @Override
-    public ClosableIterator<RowResult<Set<Long>>> getCellTimestamps(
+    public ClosableIterator<RowResult<CellTimestamps>> getCellTimestamps(
             TableReference table,
             RangeRequest range,
             long maxTimestamp) {
-        return keyValueService.getRangeOfTimestamps(table, range, maxTimestamp);
+        return keyValueService.getRangeOfCellTimestamps(table, range, maxTimestamp);
+    }
+
+    @Override
+    public Map<Cell, CellTimestamps> getCellTimestamps(TableReference table, Set<Cell> cells, long maxTimestamp) {
+        Map<Cell, Collection<Long>> timestamps = keyValueService.getAllTimestamps(table, cells, maxTimestamp).asMap();
+        if (timestamps.isEmpty()) {
+            return ImmutableMap.of();
+        }
+        Map<Cell, Value> latestValues = keyValueService.get(
+                table, Maps.asMap(timestamps.keySet(), cell -> maxTimestamp));
+        ImmutableMap.Builder<Cell, CellTimestamps> result = ImmutableMap.builder();
+        timestamps.forEach((cell, ts) -> {
+            Value latestValue = latestValues.get(cell);
+            result.put(cell, CellTimestamps.create(
+                    ImmutableSet.copyOf(ts),
+                    latestValue != null && latestValue.getContents().length == 0));
+        });
+        return result.build();
     }
 
     @Override
@@ -0,0 +1,287 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.util.JMXUtils;
+import com.palantir.util.Pair;
+
+/**
+ * A bounded cache of committed values, shared by every transaction created by a transaction manager, for the tables
+ * whose {@link TableMetadata#getCachePriority()} is {@link CachePriority#HOT} or {@link CachePriority#HOTTEST}.
+ * <p>
+ * Each entry holds the value of a cell as seen by a transaction, along with that transaction's start timestamp. The
+ * entry may be returned to any transaction that starts later, as long as no transaction of this process has committed
+ * a write to the table since the entry was read, and none is committing one. A write to a table therefore stops every
+ * entry of that table from being served until it is read again, which suits the rarely written tables this is meant
+ * for. Transactions do not cache cells for which they saw a write that was not yet visible to them.
+ * <p>
+ * Writes made by other processes are not seen by this cache, so it must only be enabled when the cached tables are
+ * written exclusively through this process.
+ */
+public final class HotTableReadCache implements HotTableReadCacheMBean, Closeable {
+    private static final HotTableReadCache DISABLED = new HotTableReadCache(null, 0, null);
+
+    private static final AtomicInteger instanceCount = new AtomicInteger();
+
+    @Nullable private final KeyValueService keyValueService;
+    @Nullable private final Cache<Pair<TableReference, Cell>, CachedValue> cache;
+    private final long maxSize;
+    @Nullable private final String jmxBeanRegistrationName;
+    private final ConcurrentMap<TableReference, Boolean> cachedTables = Maps.newConcurrentMap();
+    private final ConcurrentMap<TableReference, TableWrites> writesByTable = Maps.newConcurrentMap();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /**
+     * Returns a cache which caches nothing, so that every read goes to the key value service.
+     */
+    public static HotTableReadCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param maxSize the number of cells to cache across all tables, or 0 to disable caching.
+     */
+    public static HotTableReadCache create(KeyValueService keyValueService, long maxSize) {
+        Preconditions.checkArgument(maxSize >= 0, "maxSize must not be negative, was %s", maxSize);
+        if (maxSize == 0) {
+            return DISABLED;
+        }
+        String jmxBeanRegistrationName =
+                "com.palantir.atlasdb:type=HotTableReadCache_" + instanceCount.getAndIncrement();
+        HotTableReadCache readCache = new HotTableReadCache(keyValueService, maxSize, jmxBeanRegistrationName);
+        JMXUtils.registerMBeanCatchAndLogExceptions(readCache, jmxBeanRegistrationName);
+        return readCache;
+    }
+
+    private HotTableReadCache(@Nullable KeyValueService keyValueService,
+                              long maxSize,
+                              @Nullable String jmxBeanRegistrationName) {
+        this.keyValueService = keyValueService;
+        this.maxSize = maxSize;
+        this.jmxBeanRegistrationName = jmxBeanRegistrationName;
+        this.cache = maxSize == 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns whether reads from the given table are cached. The cache priority of each table is read from its
+     * metadata the first time the table is used.
+     */
+    boolean isCached(TableReference tableRef) {
+        if (cache == null) {
+            return false;
+        }
+        return cachedTables.computeIfAbsent(tableRef, this::isHotTable);
+    }
+
+    private boolean isHotTable(TableReference tableRef) {
+        byte[] metadata = keyValueService.getMetadataForTable(tableRef);
+        if (metadata == null || metadata.length == 0) {
+            return false;
+        }
+        CachePriority cachePriority = TableMetadata.BYTES_HYDRATOR.hydrateFromBytes(metadata).getCachePriority();
+        return cachePriority == CachePriority.HOT || cachePriority == CachePriority.HOTTEST;
+    }
+
+    /**
+     * Returns the cached values of the given cells that are visible to a transaction with the given start timestamp.
+     * Cells which were read as absent or deleted are returned with an empty value, and cells which cannot be served
+     * from the cache are missing from the returned map.
+     */
+    Map<Cell, byte[]> get(TableReference tableRef, Set<Cell> cells, long startTimestamp) {
+        TableWrites writes = getWrites(tableRef);
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        for (Cell cell : cells) {
+            CachedValue cachedValue = cache.getIfPresent(Pair.create(tableRef, cell));
+            if (cachedValue != null && writes.canServe(cachedValue, startTimestamp)) {
+                result.put(cell, cachedValue.value);
+            }
+        }
+        hitCount.addAndGet(result.size());
+        missCount.addAndGet(cells.size() - result.size());
+        return result;
+    }
+
+    /**
+     * Caches the values of the given cells as read by a transaction with the given start timestamp. Cells which are
+     * missing from the values were read as absent.
+     */
+    void put(TableReference tableRef, Iterable<Cell> cells, Map<Cell, byte[]> values, long startTimestamp) {
+        TableWrites writes = getWrites(tableRef);
+        if (!writes.canCache(startTimestamp)) {
+            return;
+        }
+        for (Cell cell : cells) {
+            byte[] value = values.get(cell);
+            cache.put(Pair.create(tableRef, cell),
+                    new CachedValue(value == null ? PtBytes.EMPTY_BYTE_ARRAY : value, startTimestamp));
+        }
+    }
+
+    void invalidate(TableReference tableRef, Iterable<Cell> cells) {
+        if (cache != null) {
+            cache.invalidateAll(Iterables.transform(cells, cell -> Pair.create(tableRef, cell)));
+        }
+    }
+
+    /**
+     * Returns the subset of the given tables that are cached. This looks up table metadata and so may fail; a
+     * committing transaction should call it before taking any locks.
+     */
+    Set<TableReference> getCachedTables(Set<TableReference> tableRefs) {
+        return tableRefs.stream().filter(this::isCached).collect(Collectors.toSet());
+    }
+
+    /**
+     * Must be called by a committing transaction before it gets its commit timestamp, so that no entries of the
+     * given cached tables are served or cached until {@link #finishWrites} is called.
+     *
+     * @param cachedTables the tables written by the transaction, as returned by {@link #getCachedTables}
+     */
+    void startWrites(Set<TableReference> cachedTables) {
+        for (TableReference tableRef : cachedTables) {
+            getWrites(tableRef).pendingWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Must be called once for every call to {@link #startWrites}, whether or not the transaction committed.
+     *
+     * @param cachedTables the same tables that were passed to {@link #startWrites}
+     * @param writes the cells written by the transaction
+     * @param commitTimestamp the commit timestamp of the transaction, if it got one, or
+     *                        {@link TransactionConstants#FAILED_COMMIT_TS} if it did not.
+     */
+    void finishWrites(
+            Set<TableReference> cachedTables,
+            Map<TableReference, ? extends Map<Cell, byte[]>> writes,
+            long commitTimestamp) {
+        for (TableReference tableRef : cachedTables) {
+            TableWrites tableWrites = getWrites(tableRef);
+            if (commitTimestamp != TransactionConstants.FAILED_COMMIT_TS) {
+                // The commit may have succeeded even if the transaction failed, so assume that it did.
+                tableWrites.lastCommitTimestamp.accumulateAndGet(commitTimestamp, Math::max);
+            }
+            invalidate(tableRef, writes.get(tableRef).keySet());
+            tableWrites.pendingWrites.decrementAndGet();
+        }
+    }
+
+    private TableWrites getWrites(TableReference tableRef) {
+        return writesByTable.computeIfAbsent(tableRef, unused -> new TableWrites());
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache == null ? 0 : cache.stats().evictionCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long requests = hits + missCount.get();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public long getSize() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public void close() {
+        if (jmxBeanRegistrationName != null && closed.compareAndSet(false, true)) {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(jmxBeanRegistrationName);
+        }
+    }
+
+    private static final class CachedValue {
+        final byte[] value;
+        final long readTimestamp;
+
+        CachedValue(byte[] value, long readTimestamp) {
+            this.value = value;
+            this.readTimestamp = readTimestamp;
+        }
+    }
+
+    /**
+     * Tracks the writes this process makes to a cached table.
+     * <p>
+     * A writer increments pendingWrites before getting its commit timestamp, and only decrements it after raising
+     * lastCommitTimestamp. So a reader which checks pendingWrites before lastCommitTimestamp sees every write that
+     * committed before its start timestamp.
+     */
+    private static final class TableWrites {
+        final AtomicInteger pendingWrites = new AtomicInteger();
+        final AtomicLong lastCommitTimestamp = new AtomicLong(TransactionConstants.FAILED_COMMIT_TS);
+
+        boolean canServe(CachedValue cachedValue, long startTimestamp) {
+            return cachedValue.readTimestamp <= startTimestamp
+                    && pendingWrites.get() == 0
+                    && lastCommitTimestamp.get() < cachedValue.readTimestamp;
+        }
+
+        boolean canCache(long startTimestamp) {
+            return pendingWrites.get() == 0 && lastCommitTimestamp.get() < startTimestamp;
+        }
+    }
+}
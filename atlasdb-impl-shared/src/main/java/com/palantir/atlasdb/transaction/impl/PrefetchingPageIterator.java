@@ -0,0 +1,167 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import com.google.common.collect.AbstractIterator;
+import com.palantir.common.base.Throwables;
+
+/**
+ * Iterates over the pages returned by a fetcher, fetching up to {@link RangePrefetcher#getPrefetchDepth()} pages
+ * ahead of the caller on the prefetcher's executor.
+ * <p>
+ * The fetcher is never called concurrently: each fetch is chained after the previous one, because the next page of a
+ * range starts after the last row of the previous page. The fetcher returns null once there are no more pages. Pages
+ * which have been fetched but not yet returned count towards the buffered bytes of the transaction, and no more pages
+ * are fetched ahead while that is over {@link RangePrefetcher#getMaxBufferedBytes()}.
+ */
+final class PrefetchingPageIterator<T> extends AbstractIterator<T> {
+    private final Supplier<Page<T>> fetcher;
+    private final Runnable closer;
+    private final RangePrefetcher prefetcher;
+    private final AtomicLong bufferedBytes;
+
+    @GuardedBy("this") private final Deque<CompletableFuture<Page<T>>> pendingPages = new ArrayDeque<>();
+    @GuardedBy("this") private boolean exhausted = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param fetcher fetches the next page, or returns null if there are no more pages.
+     * @param closer releases the resources of the fetcher. It is run once the last fetch has finished.
+     * @param bufferedBytes the number of bytes of prefetched pages held by the transaction.
+     */
+    PrefetchingPageIterator(Supplier<Page<T>> fetcher,
+                            Runnable closer,
+                            RangePrefetcher prefetcher,
+                            AtomicLong bufferedBytes) {
+        this.fetcher = fetcher;
+        this.closer = closer;
+        this.prefetcher = prefetcher;
+        this.bufferedBytes = bufferedBytes;
+    }
+
+    @Override
+    protected T computeNext() {
+        CompletableFuture<Page<T>> nextPage;
+        synchronized (this) {
+            if (exhausted) {
+                return endOfData();
+            }
+            fillPipeline();
+            nextPage = pendingPages.poll();
+        }
+
+        Page<T> page = getUnchecked(nextPage);
+        if (page == null) {
+            synchronized (this) {
+                exhausted = true;
+            }
+            return endOfData();
+        }
+        bufferedBytes.addAndGet(-page.bytes);
+        synchronized (this) {
+            // Start on the next page while the caller works through this one.
+            fillPipeline();
+        }
+        return page.contents;
+    }
+
+    /**
+     * Stops fetching, and releases the fetcher's resources once any fetch in progress has finished.
+     */
+    public void close() {
+        CompletableFuture<Page<T>> lastPage;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lastPage = pendingPages.peekLast();
+            for (CompletableFuture<Page<T>> pendingPage : pendingPages) {
+                pendingPage.thenAccept(page -> {
+                    if (page != null) {
+                        bufferedBytes.addAndGet(-page.bytes);
+                    }
+                });
+            }
+            pendingPages.clear();
+        }
+        if (lastPage == null) {
+            closer.run();
+        } else {
+            lastPage.whenComplete((page, throwable) -> closer.run());
+        }
+    }
+
+    @GuardedBy("this")
+    private void fillPipeline() {
+        while (!closed && pendingPages.size() < prefetcher.getPrefetchDepth()) {
+            CompletableFuture<Page<T>> lastPage = pendingPages.peekLast();
+            // Always keep one page in flight, so the caller is never left without a page to wait for.
+            if (lastPage != null && bufferedBytes.get() >= prefetcher.getMaxBufferedBytes()) {
+                return;
+            }
+            if (lastPage == null) {
+                pendingPages.add(CompletableFuture.supplyAsync(this::fetch, prefetcher.getExecutor()));
+            } else if (lastPage.isDone() && getUnchecked(lastPage) == null) {
+                return;
+            } else {
+                pendingPages.add(lastPage.thenApplyAsync(
+                        previous -> previous == null ? null : fetch(),
+                        prefetcher.getExecutor()));
+            }
+        }
+    }
+
+    @Nullable
+    private Page<T> fetch() {
+        if (closed) {
+            return null;
+        }
+        Page<T> page = fetcher.get();
+        if (page != null) {
+            bufferedBytes.addAndGet(page.bytes);
+        }
+        return page;
+    }
+
+    private static <T> T getUnchecked(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    static final class Page<T> {
+        final T contents;
+        final long bytes;
+
+        Page(T contents, long bytes) {
+            this.contents = contents;
+            this.bytes = bytes;
+        }
+    }
+}
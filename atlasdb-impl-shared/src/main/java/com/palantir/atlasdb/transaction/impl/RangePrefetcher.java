@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Settings for prefetching the pages of transactional range scans, shared by every transaction created by a
+ * transaction manager.
+ * <p>
+ * When enabled, {@link SnapshotTransaction#getRange} fetches up to {@link #getPrefetchDepth()} pages ahead of the
+ * caller on the prefetcher's threads: each page is read from the key value service and post filtered, including the
+ * lookups of its commit timestamps, while the caller is still consuming the previous one. No more pages are prefetched
+ * by a transaction while the pages it has prefetched but not yet consumed hold {@link #getMaxBufferedBytes()} bytes.
+ */
+public final class RangePrefetcher implements Closeable {
+    private static final RangePrefetcher DISABLED = new RangePrefetcher(null, 0, 0);
+
+    @Nullable private final ExecutorService executor;
+    private final int prefetchDepth;
+    private final long maxBufferedBytes;
+
+    /**
+     * Returns a prefetcher which does not prefetch, so that range scans fetch each page only when the caller asks
+     * for it.
+     */
+    public static RangePrefetcher disabled() {
+        return DISABLED;
+    }
+
+    public static RangePrefetcher create(int prefetchDepth) {
+        return create(
+                AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_THREADS,
+                prefetchDepth,
+                AtlasDbConstants.DEFAULT_RANGE_SCAN_PREFETCH_MAX_BYTES_PER_TRANSACTION);
+    }
+
+    /**
+     * @param threads the number of threads shared by the prefetches of every transaction.
+     * @param prefetchDepth the number of pages each range scan fetches ahead of the caller, or 0 to disable
+     *                      prefetching.
+     * @param maxBufferedBytes the approximate number of bytes of prefetched pages each transaction may hold.
+     */
+    public static RangePrefetcher create(int threads, int prefetchDepth, long maxBufferedBytes) {
+        Preconditions.checkArgument(prefetchDepth >= 0, "prefetchDepth must not be negative, was %s", prefetchDepth);
+        if (prefetchDepth == 0) {
+            return DISABLED;
+        }
+        Preconditions.checkArgument(threads > 0, "threads must be positive, was %s", threads);
+        Preconditions.checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive, was %s",
+                maxBufferedBytes);
+        ExecutorService executor = PTExecutors.newFixedThreadPool(threads,
+                new NamedThreadFactory("atlas-range-prefetch", true));
+        return new RangePrefetcher(executor, prefetchDepth, maxBufferedBytes);
+    }
+
+    private RangePrefetcher(@Nullable ExecutorService executor, int prefetchDepth, long maxBufferedBytes) {
+        this.executor = executor;
+        this.prefetchDepth = prefetchDepth;
+        this.maxBufferedBytes = maxBufferedBytes;
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    ExecutorService getExecutor() {
+        Preconditions.checkState(isEnabled(), "Range prefetching is disabled");
+        return executor;
+    }
+
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    public long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
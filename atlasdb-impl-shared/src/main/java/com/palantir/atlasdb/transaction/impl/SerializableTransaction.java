@@ -23,6 +23,7 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -39,11 +40,13 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.cleaner.Cleaner;
@@ -57,6 +60,7 @@ import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RangeRequests;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
@@ -73,7 +77,9 @@ import com.palantir.common.collect.Maps2;
 import com.palantir.lock.LockRefreshToken;
 import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
+import com.palantir.util.DistributedCacheMgrCache;
 import com.palantir.util.Pair;
+import com.palantir.util.SoftCache;
 
 /**
  * This class will track all reads to verify that there are no read-write conflicts at commit time.
@@ -97,6 +103,8 @@ public class SerializableTransaction extends SnapshotTransaction {
     final ConcurrentMap<TableReference, Set<Cell>> cellsRead = Maps.newConcurrentMap();
     final ConcurrentMap<TableReference, Set<RowRead>> rowsRead = Maps.newConcurrentMap();
 
+    private final boolean validateReadsByTimestamp;
+
     public SerializableTransaction(KeyValueService keyValueService,
                                    RemoteLockService lockService,
                                    TimestampService timestampService,
@@ -111,6 +119,80 @@ public class SerializableTransaction extends SnapshotTransaction {
                                    Long transactionTimeoutMillis,
                                    TransactionReadSentinelBehavior readSentinelBehavior,
                                    boolean allowHiddenTableAccess) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             new SoftCache<>());
+    }
+
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   DistributedCacheMgrCache<Long, Long> commitTimestampCache) {
+        this(keyValueService,
+             lockService,
+             timestampService,
+             transactionService,
+             cleaner,
+             startTimeStamp,
+             conflictDetectionManager,
+             sweepStrategyManager,
+             immutableTimestamp,
+             tokensValidForCommit,
+             constraintCheckingMode,
+             transactionTimeoutMillis,
+             readSentinelBehavior,
+             allowHiddenTableAccess,
+             commitTimestampCache,
+             TransactionOptions.defaults());
+    }
+
+    /**
+     * @param options Optional behaviour of this transaction, and the components it shares with the other
+     *        transactions of its transaction manager. If {@link TransactionOptions#validateReadsByTimestamp()},
+     *        cells read by this transaction are validated at commit time by checking which transaction last wrote
+     *        them, and their values are only read again if that transaction committed after this one started or
+     *        cannot be resolved. Rows read without a column selection, ranges and column ranges are always
+     *        validated by reading their values again, as new cells may have been written in them.
+     */
+    public SerializableTransaction(KeyValueService keyValueService,
+                                   RemoteLockService lockService,
+                                   TimestampService timestampService,
+                                   TransactionService transactionService,
+                                   Cleaner cleaner,
+                                   Supplier<Long> startTimeStamp,
+                                   ConflictDetectionManager conflictDetectionManager,
+                                   SweepStrategyManager sweepStrategyManager,
+                                   long immutableTimestamp,
+                                   Iterable<LockRefreshToken> tokensValidForCommit,
+                                   AtlasDbConstraintCheckingMode constraintCheckingMode,
+                                   Long transactionTimeoutMillis,
+                                   TransactionReadSentinelBehavior readSentinelBehavior,
+                                   boolean allowHiddenTableAccess,
+                                   DistributedCacheMgrCache<Long, Long> commitTimestampCache,
+                                   TransactionOptions options) {
         super(keyValueService,
               lockService,
               timestampService,
@@ -124,7 +206,10 @@ public class SerializableTransaction extends SnapshotTransaction {
               constraintCheckingMode,
               transactionTimeoutMillis,
               readSentinelBehavior,
-              allowHiddenTableAccess);
+              allowHiddenTableAccess,
+              commitTimestampCache,
+              options);
+        this.validateReadsByTimestamp = options.validateReadsByTimestamp();
     }
 
     @Override
@@ -255,7 +340,9 @@ public class SerializableTransaction extends SnapshotTransaction {
             if (curVal.length == 0) {
                 return;
             }
-            if (UnsignedBytes.lexicographicalComparator().compare(curVal, maxRow) >= 0) {
+            int comparison = UnsignedBytes.lexicographicalComparator().compare(curVal, maxRow);
+            // A reverse range reads towards smaller rows, so the furthest row read is the smallest.
+            if (range.isReverse() ? comparison <= 0 : comparison >= 0) {
                 return;
             }
             if (rangeEnds.replace(range, curVal, maxRow)) {
@@ -420,11 +507,11 @@ public class SerializableTransaction extends SnapshotTransaction {
         Transaction ro = getReadOnlyTransaction(commitTimestamp);
         verifyRanges(ro);
         verifyColumnRanges(ro);
-        verifyCells(ro);
-        verifyRows(ro);
+        verifyCells(ro, commitTimestamp);
+        verifyRows(ro, commitTimestamp);
     }
 
-    private void verifyRows(Transaction ro) {
+    private void verifyRows(Transaction ro, long commitTimestamp) {
         for (Map.Entry<TableReference, Set<RowRead>> tableAndRowsEntry : rowsRead.entrySet()) {
             TableReference table = tableAndRowsEntry.getKey();
             Set<RowRead> rows = tableAndRowsEntry.getValue();
@@ -437,7 +524,12 @@ public class SerializableTransaction extends SnapshotTransaction {
                 rowsReadByColumns.putAll(r.cols, r.rows);
             }
             for (ColumnSelection cols : rowsReadByColumns.keySet()) {
-                verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
+                if (validateReadsByTimestamp && !cols.allColumnsSelected()) {
+                    // The selected columns are exactly the cells we read, so no new cells can appear in them.
+                    verifyCells(ro, table, getSelectedCells(rowsReadByColumns.get(cols), cols), commitTimestamp);
+                } else {
+                    verifyColumns(ro, table, readsForTable, rowsReadByColumns, cols);
+                }
             }
 
         }
@@ -516,31 +608,101 @@ public class SerializableTransaction extends SnapshotTransaction {
         return true;
     }
 
-    private void verifyCells(Transaction readOnlyTransaction) {
+    private void verifyCells(Transaction readOnlyTransaction, long commitTimestamp) {
         for (Entry<TableReference, Set<Cell>> tableAndCellsEntry : cellsRead.entrySet()) {
-            TableReference table = tableAndCellsEntry.getKey();
-            Set<Cell> cells = tableAndCellsEntry.getValue();
-
-            final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
-            for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
-                // We don't want to verify any reads that we wrote to cause we will just read our own values.
-                // NB: If the value has changed between read and write, our normal SI checking handles this case
-                Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
-                        ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
-                        : batch;
-                ImmutableSet<Cell> batchWithoutWritesSet = ImmutableSet.copyOf(batchWithoutWrites);
-                Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, batchWithoutWritesSet);
-                ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
-                        Sets.intersection(batchWithoutWritesSet, readsForTable.keySet()),
-                        Functions.forMap(readsForTable));
-                if (!areMapsEqual(currentBatch, originalReads)) {
-                    throw TransactionSerializableConflictException.create(
-                            table,
-                            getTimestamp(),
-                            System.currentTimeMillis() - timeCreated);
+            verifyCells(
+                    readOnlyTransaction,
+                    tableAndCellsEntry.getKey(),
+                    tableAndCellsEntry.getValue(),
+                    commitTimestamp);
+        }
+    }
+
+    private void verifyCells(Transaction readOnlyTransaction,
+                             TableReference table,
+                             Iterable<Cell> cells,
+                             long commitTimestamp) {
+        final ConcurrentNavigableMap<Cell, byte[]> readsForTable = getReadsForTable(table);
+        for (Iterable<Cell> batch : Iterables.partition(cells, BATCH_SIZE)) {
+            // We don't want to verify any reads that we wrote to cause we will just read our own values.
+            // NB: If the value has changed between read and write, our normal SI checking handles this case
+            Iterable<Cell> batchWithoutWrites = writesByTable.get(table) != null
+                    ? Iterables.filter(batch, Predicates.not(Predicates.in(writesByTable.get(table).keySet())))
+                    : batch;
+            ImmutableSet<Cell> cellsToRead = ImmutableSet.copyOf(batchWithoutWrites);
+            if (validateReadsByTimestamp) {
+                cellsToRead = ImmutableSet.copyOf(Sets.difference(
+                        cellsToRead,
+                        getUnchangedCells(table, cellsToRead, readsForTable, commitTimestamp)));
+                if (cellsToRead.isEmpty()) {
+                    continue;
+                }
+            }
+            Map<Cell, byte[]> currentBatch = readOnlyTransaction.get(table, cellsToRead);
+            ImmutableMap<Cell, byte[]> originalReads = Maps.toMap(
+                    Sets.intersection(cellsToRead, readsForTable.keySet()),
+                    Functions.forMap(readsForTable));
+            if (!areMapsEqual(currentBatch, originalReads)) {
+                throw TransactionSerializableConflictException.create(
+                        table,
+                        getTimestamp(),
+                        System.currentTimeMillis() - timeCreated);
+            }
+        }
+    }
+
+    /**
+     * Returns the cells which certainly still have the values we read, without reading those values.
+     * <p>
+     * A cell is unchanged if the latest write to it before our commit timestamp was committed before we started,
+     * because that write is then the one we read. A cell with no writes at all is unchanged if we read nothing for
+     * it. Every other cell, such as one whose latest write is uncommitted, aborted or committed after we started,
+     * has to have its value read again, as the value may still be the same.
+     */
+    private Set<Cell> getUnchangedCells(TableReference table,
+                                        Set<Cell> cells,
+                                        Map<Cell, byte[]> readsForTable,
+                                        long commitTimestamp) {
+        Map<Cell, Long> latestTimestamps = keyValueService.getLatestTimestamps(
+                table,
+                Maps.toMap(cells, Functions.constant(commitTimestamp)));
+        long startTimestamp = getTimestamp();
+        Set<Long> earlierStartTimestamps = Sets.newHashSet();
+        for (long latestTimestamp : latestTimestamps.values()) {
+            if (latestTimestamp != Value.INVALID_VALUE_TIMESTAMP && latestTimestamp < startTimestamp) {
+                earlierStartTimestamps.add(latestTimestamp);
+            }
+        }
+        // We do not wait for uncommitted writes here, as the read only transaction will do so if needed.
+        Map<Long, Long> commitTimestamps = getCommitTimestamps(table, earlierStartTimestamps, false);
+
+        Set<Cell> unchangedCells = Sets.newHashSet();
+        for (Cell cell : cells) {
+            Long latestTimestamp = latestTimestamps.get(cell);
+            if (latestTimestamp == null) {
+                if (!readsForTable.containsKey(cell)) {
+                    unchangedCells.add(cell);
                 }
+                continue;
+            }
+            Long latestCommitTimestamp = commitTimestamps.get(latestTimestamp);
+            if (latestCommitTimestamp != null
+                    && latestCommitTimestamp != TransactionConstants.FAILED_COMMIT_TS
+                    && latestCommitTimestamp < startTimestamp) {
+                unchangedCells.add(cell);
             }
         }
+        return unchangedCells;
+    }
+
+    private static List<Cell> getSelectedCells(Iterable<byte[]> rows, ColumnSelection columns) {
+        List<Cell> cells = Lists.newArrayList();
+        for (byte[] row : rows) {
+            for (byte[] column : columns.getSelectedColumns()) {
+                cells.add(Cell.create(row, column));
+            }
+        }
+        return cells;
     }
 
     private void verifyRanges(Transaction readOnlyTransaction) {
@@ -681,6 +843,9 @@ public class SerializableTransaction extends SnapshotTransaction {
 
     private NavigableMap<Cell, byte[]> getReadsInRange(TableReference table,
                                                        RangeRequest range) {
+        if (range.isReverse()) {
+            return getReadsInReverseRange(table, range);
+        }
         NavigableMap<Cell, byte[]> reads = getReadsForTable(table);
         if (range.getStartInclusive().length != 0) {
             reads = reads.tailMap(Cells.createSmallestCellForRow(range.getStartInclusive()), true);
@@ -701,6 +866,42 @@ public class SerializableTransaction extends SnapshotTransaction {
         return reads;
     }
 
+    /**
+     * Returns the reads in a reverse range in the order the range returns them: rows in descending order, and the
+     * columns of each row in ascending order.
+     */
+    private NavigableMap<Cell, byte[]> getReadsInReverseRange(TableReference table,
+                                                              RangeRequest range) {
+        NavigableMap<Cell, byte[]> reads = getReadsForTable(table);
+        byte[] startRow = range.getStartInclusive();
+        if (startRow.length != 0 && !RangeRequests.isLastRowName(startRow)) {
+            reads = reads.headMap(Cells.createSmallestCellForRow(RangeRequests.nextLexicographicName(startRow)), false);
+        }
+        byte[] endRow = range.getEndExclusive();
+        if (endRow.length != 0) {
+            if (RangeRequests.isLastRowName(endRow)) {
+                return ImmutableSortedMap.of();
+            }
+            reads = reads.tailMap(Cells.createSmallestCellForRow(RangeRequests.nextLexicographicName(endRow)), true);
+        }
+        Map<Cell, byte[]> writes = writesByTable.get(table);
+        Predicate<Cell> inRange = Predicates.alwaysTrue();
+        if (writes != null) {
+            inRange = Predicates.not(Predicates.in(writes.keySet()));
+        }
+        if (!range.getColumnNames().isEmpty()) {
+            inRange = Predicates.and(inRange, Predicates.compose(
+                    Predicates.in(range.getColumnNames()),
+                    Cells.getColumnFunction()));
+        }
+        Ordering<byte[]> bytesOrdering = Ordering.from(UnsignedBytes.lexicographicalComparator());
+        NavigableMap<Cell, byte[]> reverseRowOrder = new TreeMap<>(
+                bytesOrdering.reverse().onResultOf(Cell::getRowName)
+                        .compound(bytesOrdering.onResultOf(Cell::getColumnName)));
+        reverseRowOrder.putAll(Maps.filterKeys(reads, inRange));
+        return reverseRowOrder;
+    }
+
     private Transaction getReadOnlyTransaction(final long commitTs) {
         return new SnapshotTransaction(
                 keyValueService,
@@ -716,7 +917,8 @@ public class SerializableTransaction extends SnapshotTransaction {
                 AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
                 transactionReadTimeoutMillis,
                 getReadSentinelBehavior(),
-                allowHiddenTableAccess) {
+                allowHiddenTableAccess,
+                cachedCommitTimes) {
             @Override
             protected Map<Long, Long> getCommitTimestamps(TableReference tableRef,
                                                           Iterable<Long> startTimestamps,
@@ -21,6 +21,7 @@ import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.atlasdb.transaction.service.CommitTimestampCache;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockRefreshToken;
@@ -28,7 +29,6 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 
 public class SerializableTransactionManager extends SnapshotTransactionManager {
-
     public SerializableTransactionManager(KeyValueService keyValueService,
                                           TimestampService timestampService,
                                           LockClient lockClient,
@@ -60,6 +60,60 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                                           SweepStrategyManager sweepStrategyManager,
                                           Cleaner cleaner,
                                           boolean allowHiddenTableAccess) {
+        this(keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                allowHiddenTableAccess,
+                CommitTimestampCache.create());
+    }
+
+    public SerializableTransactionManager(KeyValueService keyValueService,
+                                          TimestampService timestampService,
+                                          LockClient lockClient,
+                                          RemoteLockService lockService,
+                                          TransactionService transactionService,
+                                          Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                          ConflictDetectionManager conflictDetectionManager,
+                                          SweepStrategyManager sweepStrategyManager,
+                                          Cleaner cleaner,
+                                          boolean allowHiddenTableAccess,
+                                          CommitTimestampCache commitTimestampCache) {
+        this(keyValueService,
+                timestampService,
+                lockClient,
+                lockService,
+                transactionService,
+                constraintModeSupplier,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                cleaner,
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                TransactionOptions.defaults());
+    }
+
+    /**
+     * @param options Optional behaviour of every transaction created by this manager. The components it holds are
+     *                closed when this transaction manager is closed.
+     */
+    public SerializableTransactionManager(KeyValueService keyValueService,
+                                          TimestampService timestampService,
+                                          LockClient lockClient,
+                                          RemoteLockService lockService,
+                                          TransactionService transactionService,
+                                          Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+                                          ConflictDetectionManager conflictDetectionManager,
+                                          SweepStrategyManager sweepStrategyManager,
+                                          Cleaner cleaner,
+                                          boolean allowHiddenTableAccess,
+                                          CommitTimestampCache commitTimestampCache,
+                                          TransactionOptions options) {
         super(
                 keyValueService,
                 timestampService,
@@ -70,7 +124,9 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                 conflictDetectionManager,
                 sweepStrategyManager,
                 cleaner,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                options);
     }
 
     @Override
@@ -91,7 +147,9 @@ public class SerializableTransactionManager extends SnapshotTransactionManager {
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                options);
     }
 
 }
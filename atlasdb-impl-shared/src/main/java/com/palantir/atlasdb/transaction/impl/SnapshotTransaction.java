@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
@@ -87,6 +88,7 @@ import com.palantir.atlasdb.keyvalue.impl.Cells;
 import com.palantir.atlasdb.keyvalue.impl.LocalRowColumnRangeIterator;
 import com.palantir.atlasdb.keyvalue.impl.RowResults;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.sweep.TargetedSweepQueue;
 import com.palantir.atlasdb.table.description.exceptions.AtlasDbConstraintException;
 import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
 import com.palantir.atlasdb.transaction.api.ConflictHandler;
@@ -124,6 +126,7 @@ import com.palantir.lock.RemoteLockService;
 import com.palantir.timestamp.TimestampService;
 import com.palantir.util.AssertUtils;
 import com.palantir.util.DistributedCacheMgrCache;
+import com.palantir.util.Pair;
 import com.palantir.util.SoftCache;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -175,8 +178,12 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     protected final ConcurrentMap<TableReference, ConcurrentNavigableMap<Cell, byte[]>> writesByTable =
             Maps.newConcurrentMap();
     private final ConflictDetectionManager conflictDetectionManager;
-    private final DistributedCacheMgrCache<Long, Long> cachedCommitTimes = new SoftCache<>();
+    final DistributedCacheMgrCache<Long, Long> cachedCommitTimes;
     private final AtomicLong byteCount = new AtomicLong();
+    private final RangePrefetcher rangePrefetcher;
+    private final AtomicLong prefetchedBytes = new AtomicLong();
+    private final HotTableReadCache readCache;
+    private final TargetedSweepQueue sweepQueue;
 
     private final AtlasDbConstraintCheckingMode constraintCheckingMode;
 
@@ -211,6 +218,80 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                Long transactionTimeoutMillis,
                                TransactionReadSentinelBehavior readSentinelBehavior,
                                boolean allowHiddenTableAccess) {
+        this(keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                cleaner,
+                startTimeStamp,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                immutableTimestamp,
+                tokensValidForCommit,
+                constraintCheckingMode,
+                transactionTimeoutMillis,
+                readSentinelBehavior,
+                allowHiddenTableAccess,
+                new SoftCache<>());
+    }
+
+    /**
+     * @param commitTimestampCache Cache from start timestamp to commit timestamp.  This may be shared between
+     *                             transactions because a start timestamp only ever has one commit timestamp.
+     */
+    /* package */ SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               DistributedCacheMgrCache<Long, Long> commitTimestampCache) {
+        this(keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                cleaner,
+                startTimeStamp,
+                conflictDetectionManager,
+                sweepStrategyManager,
+                immutableTimestamp,
+                tokensValidForCommit,
+                constraintCheckingMode,
+                transactionTimeoutMillis,
+                readSentinelBehavior,
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                TransactionOptions.defaults());
+    }
+
+    /**
+     * @param options Optional behaviour of this transaction, and the components it shares with the other
+     *                transactions of its transaction manager.
+     */
+    /* package */ SnapshotTransaction(KeyValueService keyValueService,
+                               RemoteLockService lockService,
+                               TimestampService timestampService,
+                               TransactionService transactionService,
+                               Cleaner cleaner,
+                               Supplier<Long> startTimeStamp,
+                               ConflictDetectionManager conflictDetectionManager,
+                               SweepStrategyManager sweepStrategyManager,
+                               long immutableTimestamp,
+                               Iterable<LockRefreshToken> tokensValidForCommit,
+                               AtlasDbConstraintCheckingMode constraintCheckingMode,
+                               Long transactionTimeoutMillis,
+                               TransactionReadSentinelBehavior readSentinelBehavior,
+                               boolean allowHiddenTableAccess,
+                               DistributedCacheMgrCache<Long, Long> commitTimestampCache,
+                               TransactionOptions options) {
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
         this.defaultTransactionService = transactionService;
@@ -225,6 +306,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = transactionTimeoutMillis;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.cachedCommitTimes = commitTimestampCache;
+        this.rangePrefetcher = options.rangePrefetcher();
+        this.readCache = options.readCache();
+        this.sweepQueue = options.sweepQueue();
     }
 
     // TEST ONLY
@@ -251,6 +336,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = false;
+        this.cachedCommitTimes = new SoftCache<>();
+        this.rangePrefetcher = RangePrefetcher.disabled();
+        this.readCache = HotTableReadCache.disabled();
+        this.sweepQueue = TargetedSweepQueue.disabled();
     }
 
     /**
@@ -288,6 +377,10 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         this.transactionReadTimeoutMillis = null;
         this.readSentinelBehavior = readSentinelBehavior;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.cachedCommitTimes = new SoftCache<>();
+        this.rangePrefetcher = RangePrefetcher.disabled();
+        this.readCache = HotTableReadCache.disabled();
+        this.sweepQueue = TargetedSweepQueue.disabled();
     }
 
     @Override
@@ -326,6 +419,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         if (Iterables.isEmpty(rows)) {
             return AbstractTransaction.EMPTY_SORTED_ROWS;
         }
+        if (readCache.isCached(tableRef) && !columnSelection.allColumnsSelected()) {
+            // The selected cells are known, so they can be served from the read cache.
+            Map<Cell, byte[]> cellResults = getCells(tableRef, getSelectedCells(rows, columnSelection));
+            validateExternalAndCommitLocksIfNecessary(tableRef);
+            return RowResults.viewOfSortedMap(Cells.breakCellsUpByRow(
+                    Maps.filterValues(cellResults, Predicates.not(Value.IS_EMPTY))));
+        }
         Map<Cell, byte[]> result = Maps.newHashMap();
         Map<Cell, Value> rawResults = Maps.newHashMap(
                 keyValueService.getRows(tableRef, rows, columnSelection, getStartTimestamp()));
@@ -537,6 +637,16 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         }
     }
 
+    private static Set<Cell> getSelectedCells(Iterable<byte[]> rows, ColumnSelection columnSelection) {
+        Set<Cell> cells = Sets.newHashSet();
+        for (byte[] row : rows) {
+            for (byte[] column : columnSelection.getSelectedColumns()) {
+                cells.add(Cell.create(row, column));
+            }
+        }
+        return cells;
+    }
+
     @Override
     public Map<Cell, byte[]> get(TableReference tableRef, Set<Cell> cells) {
         Stopwatch watch = Stopwatch.createStarted();
@@ -545,18 +655,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             return ImmutableMap.of();
         }
 
-        Map<Cell, byte[]> result = Maps.newHashMap();
-        SortedMap<Cell, byte[]> writes = writesByTable.get(tableRef);
-        if (writes != null) {
-            for (Cell cell : cells) {
-                if (writes.containsKey(cell)) {
-                    result.put(cell, writes.get(cell));
-                }
-            }
-        }
-
-        // We don't need to read any cells that were written locally.
-        result.putAll(getFromKeyValueService(tableRef, Sets.difference(cells, result.keySet())));
+        Map<Cell, byte[]> result = getCells(tableRef, cells);
 
         if (perfLogger.isDebugEnabled()) {
             perfLogger.debug("get({}, {} cells) found {} cells (some possibly deleted), took {} ms",
@@ -578,12 +677,35 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return Maps.filterValues(result, Predicates.not(Value.IS_EMPTY));
     }
 
+    /**
+     * Returns the values of the given cells, including the empty values of deleted cells, taking our local writes
+     * into account.
+     */
+    private Map<Cell, byte[]> getCells(TableReference tableRef, Set<Cell> cells) {
+        Map<Cell, byte[]> result = Maps.newHashMap();
+        SortedMap<Cell, byte[]> writes = writesByTable.get(tableRef);
+        if (writes != null) {
+            for (Cell cell : cells) {
+                if (writes.containsKey(cell)) {
+                    result.put(cell, writes.get(cell));
+                }
+            }
+        }
+
+        // We don't need to read any cells that were written locally.
+        result.putAll(getFromKeyValueService(tableRef, Sets.difference(cells, result.keySet())));
+        return result;
+    }
+
     /**
      * This will load the given keys from the underlying key value service and apply postFiltering
      * so we have snapshot isolation.  If the value in the key value service is the empty array
      * this will be included here and needs to be filtered out.
      */
     private Map<Cell, byte[]> getFromKeyValueService(TableReference tableRef, Set<Cell> cells) {
+        if (readCache.isCached(tableRef)) {
+            return getFromReadCacheOrKeyValueService(tableRef, cells);
+        }
         Map<Cell, byte[]> result = Maps.newHashMap();
         Map<Cell, Long> toRead = Cells.constantValueMap(cells, getStartTimestamp());
         Map<Cell, Value> rawResults = keyValueService.get(tableRef, toRead);
@@ -591,6 +713,45 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return result;
     }
 
+    private Map<Cell, byte[]> getFromReadCacheOrKeyValueService(TableReference tableRef, Set<Cell> cells) {
+        Map<Cell, byte[]> result = Maps.newHashMap(readCache.get(tableRef, cells, getStartTimestamp()));
+        Set<Cell> cellsToRead = ImmutableSet.copyOf(Sets.difference(cells, result.keySet()));
+        if (cellsToRead.isEmpty()) {
+            return result;
+        }
+
+        Map<Cell, byte[]> readResults = Maps.newHashMap();
+        Map<Cell, Value> rawResults = keyValueService.get(
+                tableRef,
+                Cells.constantValueMap(cellsToRead, getStartTimestamp()));
+        getWithPostFiltering(tableRef, rawResults, readResults, Value.GET_VALUE);
+
+        // Other transactions will not see the cells we read if someone else has written them since.
+        Set<Cell> cellsWithNewerWrites = getCellsWithWritesNotVisibleToUs(tableRef, rawResults);
+        readCache.invalidate(tableRef, cellsWithNewerWrites);
+        readCache.put(tableRef, Sets.difference(cellsToRead, cellsWithNewerWrites), readResults, getStartTimestamp());
+
+        result.putAll(readResults);
+        return result;
+    }
+
+    private Set<Cell> getCellsWithWritesNotVisibleToUs(TableReference tableRef, Map<Cell, Value> rawResults) {
+        Map<Long, Long> commitTimestamps = getCommitTimestamps(
+                tableRef,
+                getStartTimestampsForValues(rawResults.values()),
+                false);
+        Set<Cell> cells = Sets.newHashSet();
+        for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
+            Long commitTimestamp = commitTimestamps.get(e.getValue().getTimestamp());
+            if (commitTimestamp == null
+                    || commitTimestamp == TransactionConstants.FAILED_COMMIT_TS
+                    || commitTimestamp > getStartTimestamp()) {
+                cells.add(e.getKey());
+            }
+        }
+        return cells;
+    }
+
     private static byte[] getNextStartRowName(
             RangeRequest range,
             TokenBackedBasicResultsPage<RowResult<Value>, byte[]> prePostFilter) {
@@ -687,14 +848,15 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                                                                      final byte[] endRowExclusive) {
         Map<Cell, Value> prePostFilterCells = Cells.convertRowResultsToCells(prePostFilter);
         Collection<Entry<Cell, byte[]>> postFilteredCells = Collections2.filter(
-                postFiltered.entrySet(),
+                inRangeOrder(postFiltered, rangeRequest.isReverse()).entrySet(),
                 Predicates.compose(
                         Predicates.in(prePostFilterCells.keySet()),
                         MapEntries.getKeyFunction()));
         Collection<Entry<Cell, byte[]>> localWritesInRange = getLocalWritesForRange(
                 tableRef,
                 rangeRequest.getStartInclusive(),
-                endRowExclusive).entrySet();
+                endRowExclusive,
+                rangeRequest.isReverse()).entrySet();
         return ImmutableList.copyOf(mergeInLocalWrites(
                 postFilteredCells.iterator(),
                 localWritesInRange.iterator(),
@@ -721,7 +883,6 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 int requestSize = range.getBatchHint() != null ? range.getBatchHint() : userRequestedSize;
                 int preFilterBatchSize = getRequestHintToKvStore(requestSize);
 
-                Validate.isTrue(!range.isReverse(), "we currently do not support reverse ranges");
                 getBatchingVisitableFromIterator(
                         tableRef,
                         range,
@@ -743,7 +904,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 postFilterIterator(tableRef, range, preFilterBatchSize, Value.GET_VALUE);
         try {
             Iterator<RowResult<byte[]>> localWritesInRange = Cells.createRowView(
-                    getLocalWritesForRange(tableRef, range.getStartInclusive(), range.getEndExclusive()).entrySet());
+                    getLocalWritesForRange(
+                            tableRef,
+                            range.getStartInclusive(),
+                            range.getEndExclusive(),
+                            range.isReverse()).entrySet());
             Iterator<RowResult<byte[]>> mergeIterators =
                     mergeInLocalWritesRows(postFilterIterator, localWritesInRange, range.isReverse());
             return BatchingVisitableFromIterable.create(mergeIterators).batchAccept(userRequestedSize, visitor);
@@ -801,6 +966,9 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 new RowRangeBatchProvider(keyValueService, tableRef, range, getStartTimestamp());
         BatchSizeIncreasingIterator<RowResult<Value>> results =
                 new BatchSizeIncreasingIterator<>(batchProvider, preFilterBatchSize, null);
+        if (rangePrefetcher.isEnabled()) {
+            return prefetchingPostFilterIterator(tableRef, range, results, transformer);
+        }
         Iterator<Iterator<RowResult<T>>> batchedPostFiltered = new AbstractIterator<Iterator<RowResult<T>>>() {
             @Override
             protected Iterator<RowResult<T>> computeNext() {
@@ -808,9 +976,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                 if (batch.isEmpty()) {
                     return endOfData();
                 }
-                SortedMap<Cell, T> postFilter = postFilterRows(tableRef, batch, transformer);
-                results.markNumResultsNotDeleted(Cells.getRows(postFilter.keySet()).size());
-                return Cells.createRowView(postFilter.entrySet());
+                return postFilterBatch(tableRef, range.isReverse(), results, batch, transformer);
             }
         };
 
@@ -828,6 +994,65 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         };
     }
 
+    /**
+     * Fetches and post filters the next pages of the range on the {@link RangePrefetcher}'s threads while the caller
+     * consumes the current one.
+     */
+    private <T> ClosableIterator<RowResult<T>> prefetchingPostFilterIterator(
+            TableReference tableRef,
+            RangeRequest range,
+            BatchSizeIncreasingIterator<RowResult<Value>> results,
+            Function<Value, T> transformer) {
+        final PrefetchingPageIterator<Iterator<RowResult<T>>> batchedPostFiltered = new PrefetchingPageIterator<>(
+                () -> {
+                    List<RowResult<Value>> batch = results.getBatch();
+                    if (batch.isEmpty()) {
+                        return null;
+                    }
+                    return new PrefetchingPageIterator.Page<>(
+                            postFilterBatch(tableRef, range.isReverse(), results, batch, transformer),
+                            estimateSize(batch).rhSide);
+                },
+                results::close,
+                rangePrefetcher,
+                prefetchedBytes);
+
+        final Iterator<RowResult<T>> rows = Iterators.concat(batchedPostFiltered);
+        return new ForwardingClosableIterator<RowResult<T>>() {
+            @Override
+            protected ClosableIterator<RowResult<T>> delegate() {
+                return ClosableIterators.wrap(rows);
+            }
+
+            @Override
+            public void close() {
+                batchedPostFiltered.close();
+            }
+        };
+    }
+
+    private <T> Iterator<RowResult<T>> postFilterBatch(
+            TableReference tableRef,
+            boolean isReverse,
+            BatchSizeIncreasingIterator<RowResult<Value>> results,
+            List<RowResult<Value>> batch,
+            Function<Value, T> transformer) {
+        SortedMap<Cell, T> postFilter = postFilterRows(tableRef, batch, transformer);
+        results.markNumResultsNotDeleted(Cells.getRows(postFilter.keySet()).size());
+        return Cells.createRowView(inRangeOrder(postFilter, isReverse).entrySet());
+    }
+
+    /**
+     * Returns the cells in the order a range scan visits them, which for a reverse range is in descending order. The
+     * cells of each row are still grouped together, which is all that {@link Cells#createRowView} needs.
+     */
+    private static <T> SortedMap<Cell, T> inRangeOrder(SortedMap<Cell, T> cells, boolean isReverse) {
+        if (!isReverse) {
+            return cells;
+        }
+        return ((NavigableMap<Cell, T>) cells).descendingMap();
+    }
+
     private ConcurrentNavigableMap<Cell, byte[]> getLocalWrites(TableReference tableRef) {
         ConcurrentNavigableMap<Cell, byte[]> writes = writesByTable.get(tableRef);
         if (writes == null) {
@@ -843,7 +1068,13 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
     /**
      * This includes deleted writes as zero length byte arrays, be sure to strip them out.
      */
-    private SortedMap<Cell, byte[]> getLocalWritesForRange(TableReference tableRef, byte[] startRow, byte[] endRow) {
+    private SortedMap<Cell, byte[]> getLocalWritesForRange(TableReference tableRef,
+                                                           byte[] startRow,
+                                                           byte[] endRow,
+                                                           boolean isReverse) {
+        if (isReverse) {
+            return getLocalWritesForReverseRange(tableRef, startRow, endRow);
+        }
         SortedMap<Cell, byte[]> writes = getLocalWrites(tableRef);
         if (startRow.length != 0) {
             writes = writes.tailMap(Cells.createSmallestCellForRow(startRow));
@@ -854,6 +1085,26 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return writes;
     }
 
+    /**
+     * Returns the local writes in a reverse range, in descending order. The start row is the greatest row in the
+     * range, and the end row is the greatest row below the range.
+     */
+    private SortedMap<Cell, byte[]> getLocalWritesForReverseRange(TableReference tableRef,
+                                                                  byte[] startRow,
+                                                                  byte[] endRow) {
+        NavigableMap<Cell, byte[]> writes = getLocalWrites(tableRef);
+        if (startRow.length != 0 && !RangeRequests.isLastRowName(startRow)) {
+            writes = writes.headMap(Cells.createSmallestCellForRow(RangeRequests.nextLexicographicName(startRow)), false);
+        }
+        if (endRow.length != 0) {
+            if (RangeRequests.isLastRowName(endRow)) {
+                return ImmutableSortedMap.of();
+            }
+            writes = writes.tailMap(Cells.createSmallestCellForRow(RangeRequests.nextLexicographicName(endRow)), true);
+        }
+        return writes.descendingMap();
+    }
+
     private SortedMap<Cell, byte[]> getLocalWritesForColumnRange(
             TableReference tableRef,
             BatchColumnRangeSelection columnRangeSelection,
@@ -897,7 +1148,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
             return ImmutableSortedMap.of();
         }
 
-        Map<Cell, Value> rawResults = Maps.newHashMapWithExpectedSize(estimateSize(rangeRows));
+        Map<Cell, Value> rawResults = Maps.newHashMapWithExpectedSize(estimateSize(rangeRows).lhSide);
         for (RowResult<Value> rowResult : rangeRows) {
             for (Map.Entry<byte[], Value> e : rowResult.getColumns().entrySet()) {
                 rawResults.put(Cell.create(rowResult.getRowName(), e.getKey()), e.getValue());
@@ -909,12 +1160,19 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         return postFilter;
     }
 
-    private int estimateSize(List<RowResult<Value>> rangeRows) {
-        int estimatedSize = 0;
+    /**
+     * Returns the number of cells in the rows, and approximately how many bytes they hold.
+     */
+    private static Pair<Integer, Long> estimateSize(List<RowResult<Value>> rangeRows) {
+        int cells = 0;
+        long bytes = 0;
         for (RowResult<Value> rowResult : rangeRows) {
-            estimatedSize += rowResult.getColumns().size();
+            for (Map.Entry<byte[], Value> e : rowResult.getColumns().entrySet()) {
+                cells++;
+                bytes += rowResult.getRowName().length + e.getKey().length + e.getValue().getContents().length;
+            }
         }
-        return estimatedSize;
+        return Pair.create(cells, bytes);
     }
 
     private <T> void getWithPostFiltering(TableReference tableRef,
@@ -1213,15 +1471,23 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         if (!hasWrites()) {
             return;
         }
+        // Looking up which tables are cached reads table metadata, which can fail, so do it before taking locks.
+        Set<TableReference> cachedTablesWritten = readCache.getCachedTables(writesByTable.keySet());
         Stopwatch watch = Stopwatch.createStarted();
         LockRefreshToken commitLocksToken = acquireLocksForCommit();
         long millisForLocks = watch.elapsed(TimeUnit.MILLISECONDS);
         try {
+            // This must be done before we get our commit timestamp, so that the read cache does not serve
+            // values we are overwriting to transactions that start after it.
+            readCache.startWrites(cachedTablesWritten);
+
             watch.reset().start();
             throwIfConflictOnCommit(commitLocksToken, transactionService);
             long millisCheckingForConflicts = watch.elapsed(TimeUnit.MILLISECONDS);
 
             watch.reset().start();
+            // Queue the cells before writing them, so that they are swept even if we fail after writing them.
+            sweepQueue.enqueue(writesByTable, getStartTimestamp());
             keyValueService.multiPut(writesByTable, getStartTimestamp());
             long millisForWrites = watch.elapsed(TimeUnit.MILLISECONDS);
 
@@ -1268,7 +1534,11 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
                         millisForPunch, millisForCommitTs, millisSinceCreation, writesByTable.keySet());
             }
         } finally {
-            lockService.unlock(commitLocksToken);
+            try {
+                readCache.finishWrites(cachedTablesWritten, writesByTable, commitTsForScrubbing);
+            } finally {
+                lockService.unlock(commitLocksToken);
+            }
         }
     }
 
@@ -1729,6 +1999,7 @@ public class SnapshotTransaction extends AbstractTransaction implements Constrai
         Validate.isTrue(commitTimestamp > getStartTimestamp(), "commitTs must be greater than startTs");
         try {
             transactionService.putUnlessExists(getStartTimestamp(), commitTimestamp);
+            cachedCommitTimes.put(getStartTimestamp(), commitTimestamp);
         } catch (KeyAlreadyExistsException e) {
             handleKeyAlreadyExistsException(commitTimestamp, e, locksToken);
         } catch (Exception e) {
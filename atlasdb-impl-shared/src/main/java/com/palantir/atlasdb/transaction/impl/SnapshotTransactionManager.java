@@ -15,6 +15,8 @@
  */
 package com.palantir.atlasdb.transaction.impl;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,6 +39,7 @@ import com.palantir.atlasdb.transaction.api.Transaction.TransactionType;
 import com.palantir.atlasdb.transaction.api.TransactionFailedRetriableException;
 import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
 import com.palantir.atlasdb.transaction.api.TransactionTask;
+import com.palantir.atlasdb.transaction.service.CommitTimestampCache;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.common.base.Throwables;
 import com.palantir.lock.AtlasTimestampLockDescriptor;
@@ -63,6 +66,8 @@ import com.palantir.timestamp.TimestampService;
     final AtomicLong recentImmutableTs = new AtomicLong(-1L);
     final Cleaner cleaner;
     final boolean allowHiddenTableAccess;
+    final CommitTimestampCache commitTimestampCache;
+    final TransactionOptions options;
 
     protected SnapshotTransactionManager(
             KeyValueService keyValueService,
@@ -89,6 +94,51 @@ import com.palantir.timestamp.TimestampService;
             SweepStrategyManager sweepStrategyManager,
             Cleaner cleaner,
             boolean allowHiddenTableAccess) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, CommitTimestampCache.create());
+    }
+
+    /**
+     * @param commitTimestampCache Cache of commit timestamps shared by every transaction created by this manager.
+     *                             It may also be shared with the sweeper and scrubber through a
+     *                             {@link com.palantir.atlasdb.transaction.service.CachingTransactionService}.
+     *                             It is closed when this transaction manager is closed.
+     */
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            CommitTimestampCache commitTimestampCache) {
+        this(keyValueService, timestampService, lockClient, lockService, transactionService,
+                constraintModeSupplier, conflictDetectionManager, sweepStrategyManager, cleaner,
+                allowHiddenTableAccess, commitTimestampCache, TransactionOptions.defaults());
+    }
+
+    /**
+     * @param options Optional behaviour of every transaction created by this manager. The components it holds are
+     *                closed when this transaction manager is closed.
+     */
+    protected SnapshotTransactionManager(
+            KeyValueService keyValueService,
+            TimestampService timestampService,
+            LockClient lockClient,
+            RemoteLockService lockService,
+            TransactionService transactionService,
+            Supplier<AtlasDbConstraintCheckingMode> constraintModeSupplier,
+            ConflictDetectionManager conflictDetectionManager,
+            SweepStrategyManager sweepStrategyManager,
+            Cleaner cleaner,
+            boolean allowHiddenTableAccess,
+            CommitTimestampCache commitTimestampCache,
+            TransactionOptions options) {
         Preconditions.checkArgument(lockClient != LockClient.ANONYMOUS);
         this.keyValueService = keyValueService;
         this.timestampService = timestampService;
@@ -100,6 +150,8 @@ import com.palantir.timestamp.TimestampService;
         this.constraintModeSupplier = constraintModeSupplier;
         this.cleaner = cleaner;
         this.allowHiddenTableAccess = allowHiddenTableAccess;
+        this.commitTimestampCache = commitTimestampCache;
+        this.options = options;
     }
 
     @Override
@@ -189,7 +241,9 @@ import com.palantir.timestamp.TimestampService;
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                options);
     }
 
     @Override
@@ -210,7 +264,9 @@ import com.palantir.timestamp.TimestampService;
                 constraintModeSupplier.get(),
                 cleaner.getTransactionReadTimeoutMillis(),
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                allowHiddenTableAccess);
+                allowHiddenTableAccess,
+                commitTimestampCache,
+                options);
         return runTaskThrowOnConflict(task, new ReadTransaction(transaction, sweepStrategyManager));
     }
 
@@ -219,6 +275,16 @@ import com.palantir.timestamp.TimestampService;
         super.close();
         cleaner.close();
         keyValueService.close();
+        commitTimestampCache.close();
+        if (transactionService instanceof Closeable) {
+            try {
+                ((Closeable) transactionService).close();
+            } catch (IOException e) {
+                throw Throwables.rewrapAndThrowUncheckedException(e);
+            }
+        }
+        options.rangePrefetcher().close();
+        options.readCache().close();
     }
 
     private Supplier<Long> getStartTimestampSupplier() {
@@ -287,4 +353,8 @@ import com.palantir.timestamp.TimestampService;
     public TimestampService getTimestampService() {
         return timestampService;
     }
+
+    public CommitTimestampCache getCommitTimestampCache() {
+        return commitTimestampCache;
+    }
 }
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import org.immutables.value.Value;
+
+import com.palantir.atlasdb.sweep.TargetedSweepQueue;
+
+/**
+ * Optional behaviour of transactions, set once on a transaction manager and passed by it to every transaction it
+ * creates. The components are shared by those transactions, and are closed when the transaction manager is closed.
+ * Everything is disabled by default.
+ */
+@Value.Immutable
+public abstract class TransactionOptions {
+    public static TransactionOptions defaults() {
+        return ImmutableTransactionOptions.builder().build();
+    }
+
+    /**
+     * Prefetches the pages of range scans.
+     */
+    @Value.Default
+    public RangePrefetcher rangePrefetcher() {
+        return RangePrefetcher.disabled();
+    }
+
+    /**
+     * If true, serializable transactions validate the cells they read at commit time by checking which transaction
+     * last wrote them, rather than by reading their values again. Snapshot transactions ignore this.
+     */
+    @Value.Default
+    public boolean validateReadsByTimestamp() {
+        return false;
+    }
+
+    /**
+     * Cache of the committed values of hot tables.
+     */
+    @Value.Default
+    public HotTableReadCache readCache() {
+        return HotTableReadCache.disabled();
+    }
+
+    /**
+     * Queue the cells written by transactions are added to before they are written, so that they can be swept
+     * without scanning their tables.
+     */
+    @Value.Default
+    public TargetedSweepQueue sweepQueue() {
+        return TargetedSweepQueue.disabled();
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * A {@link TransactionService} that group commits concurrent {@link #putUnlessExists} calls.
+ * <p>
+ * Callers enqueue their commit timestamp and block; a single writer thread drains everything that queued up
+ * while the previous batch was being written (up to {@code maxBatchSize}) and writes it with one
+ * {@link TransactionService#putUnlessExists(Map)} call on the delegate, which for a
+ * {@link SimpleTransactionService} is one multi-cell putUnlessExists per transactions table. The batching
+ * window is therefore the latency of the previous write, so an idle service adds no delay and a busy one
+ * amortises each key value service call over many committers.
+ * <p>
+ * Because putUnlessExists is not atomic across cells, a batch that fails with a
+ * {@link KeyAlreadyExistsException} is resolved per start timestamp by reading back the transaction table,
+ * so each caller sees exactly the outcome it would have seen from an unbatched write.
+ */
+public final class BatchingTransactionService implements TransactionService, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BatchingTransactionService.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final TransactionService delegate;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingCommit> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService writer = PTExecutors.newSingleThreadExecutor(
+            new NamedThreadFactory("transaction-group-commit", true /* daemon */));
+
+    private volatile boolean closed = false;
+
+    private BatchingTransactionService(TransactionService delegate, int maxBatchSize) {
+        Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public static BatchingTransactionService create(TransactionService delegate) {
+        return create(delegate, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static BatchingTransactionService create(TransactionService delegate, int maxBatchSize) {
+        BatchingTransactionService service = new BatchingTransactionService(delegate, maxBatchSize);
+        service.writer.execute(service::runWriter);
+        return service;
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        return delegate.get(startTimestamp);
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        return delegate.get(startTimestamps);
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        Preconditions.checkState(!closed, "This transaction service has been closed");
+        PendingCommit commit = new PendingCommit(startTimestamp, commitTimestamp);
+        queue.add(commit);
+        if (closed && queue.remove(commit)) {
+            // We raced with close() and nothing is left to write our commit.
+            throw new IllegalStateException("This transaction service has been closed");
+        }
+        try {
+            commit.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.rewrapAndThrowUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw Throwables.rewrapAndThrowUncheckedException(e.getCause());
+        }
+    }
+
+    @VisibleForTesting
+    int getPendingCommitCount() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writer.shutdownNow();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.error("Failed to shut down the transaction group commit writer in a timely manner.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingCommit> abandoned = Lists.newArrayList();
+        queue.drainTo(abandoned);
+        failAll(abandoned, new IllegalStateException("This transaction service has been closed"));
+    }
+
+    private void runWriter() {
+        List<PendingCommit> batch = Lists.newArrayListWithCapacity(maxBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            try {
+                writeBatch(batch);
+            } catch (Throwable t) {
+                log.warn("Failed to write a batch of {} commit timestamps", batch.size(), t);
+                failAll(batch, t);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingCommit> batch) {
+        // The first request for a start timestamp is the one that is written. Any later request for the same
+        // start timestamp in this batch necessarily fails, as would an unbatched putUnlessExists.
+        Map<Long, Long> toWrite = Maps.newHashMapWithExpectedSize(batch.size());
+        List<PendingCommit> written = Lists.newArrayListWithCapacity(batch.size());
+        List<PendingCommit> duplicates = Lists.newArrayList();
+        for (PendingCommit commit : batch) {
+            if (toWrite.containsKey(commit.startTimestamp)) {
+                duplicates.add(commit);
+            } else {
+                toWrite.put(commit.startTimestamp, commit.commitTimestamp);
+                written.add(commit);
+            }
+        }
+
+        try {
+            delegate.putUnlessExists(toWrite);
+            for (PendingCommit commit : written) {
+                commit.result.set(null);
+            }
+        } catch (KeyAlreadyExistsException e) {
+            resolveIndividually(written);
+        }
+
+        for (PendingCommit commit : duplicates) {
+            commit.result.setException(alreadyExists(commit.startTimestamp));
+        }
+    }
+
+    private void resolveIndividually(List<PendingCommit> commits) {
+        Map<Long, Long> existing = delegate.get(Lists.transform(commits, commit -> commit.startTimestamp));
+        for (PendingCommit commit : commits) {
+            Long stored = existing.get(commit.startTimestamp);
+            if (stored == null) {
+                // Our write did not land, so retry it on its own to get a precise outcome.
+                try {
+                    delegate.putUnlessExists(commit.startTimestamp, commit.commitTimestamp);
+                    commit.result.set(null);
+                } catch (Throwable t) {
+                    commit.result.setException(t);
+                }
+            } else if (stored == commit.commitTimestamp) {
+                commit.result.set(null);
+            } else {
+                commit.result.setException(alreadyExists(commit.startTimestamp));
+            }
+        }
+    }
+
+    private static KeyAlreadyExistsException alreadyExists(long startTimestamp) {
+        return new KeyAlreadyExistsException("A commit timestamp already exists for start timestamp "
+                + startTimestamp);
+    }
+
+    private static void failAll(List<PendingCommit> commits, Throwable cause) {
+        for (PendingCommit commit : commits) {
+            commit.result.setException(cause);
+        }
+    }
+
+    private static final class PendingCommit {
+        private final long startTimestamp;
+        private final long commitTimestamp;
+        private final SettableFuture<Void> result = SettableFuture.create();
+
+        PendingCommit(long startTimestamp, long commitTimestamp) {
+            this.startTimestamp = startTimestamp;
+            this.commitTimestamp = commitTimestamp;
+        }
+    }
+}
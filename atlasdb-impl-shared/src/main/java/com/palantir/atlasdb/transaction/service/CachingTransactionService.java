@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+
+/**
+ * A {@link TransactionService} that answers lookups from a shared {@link CommitTimestampCache} and only
+ * goes to the delegate for start timestamps that are not cached. Only committed (or rolled back) values are
+ * cached; missing entries are always re-read, as documented on {@link TransactionService}.
+ */
+public final class CachingTransactionService implements TransactionService {
+    private final TransactionService delegate;
+    private final CommitTimestampCache cache;
+
+    private CachingTransactionService(TransactionService delegate, CommitTimestampCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public static TransactionService create(TransactionService delegate, CommitTimestampCache cache) {
+        return new CachingTransactionService(delegate, cache);
+    }
+
+    @Override
+    public Long get(long startTimestamp) {
+        Long cached = cache.get(startTimestamp);
+        if (cached != null) {
+            return cached;
+        }
+        Long commitTimestamp = delegate.get(startTimestamp);
+        if (commitTimestamp != null) {
+            cache.put(startTimestamp, commitTimestamp);
+        }
+        return commitTimestamp;
+    }
+
+    @Override
+    public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+        Set<Long> requested = ImmutableSet.copyOf(startTimestamps);
+        Map<Long, Long> result = Maps.newHashMap(cache.getAllPresent(requested));
+        if (result.size() == requested.size()) {
+            return result;
+        }
+        Set<Long> misses = ImmutableSet.copyOf(Sets.difference(requested, result.keySet()));
+        Map<Long, Long> loaded = delegate.get(misses);
+        for (Map.Entry<Long, Long> e : loaded.entrySet()) {
+            if (e.getValue() != null) {
+                cache.put(e.getKey(), e.getValue());
+                result.put(e.getKey(), e.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void putUnlessExists(long startTimestamp, long commitTimestamp) throws KeyAlreadyExistsException {
+        delegate.putUnlessExists(startTimestamp, commitTimestamp);
+        cache.put(startTimestamp, commitTimestamp);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.util.DistributedCacheMgrCache;
+import com.palantir.util.JMXUtils;
+
+/**
+ * A bounded, process-wide cache from start timestamp to commit timestamp.
+ * <p>
+ * A start timestamp only ever has one non-null commit timestamp (see {@link TransactionService}), so
+ * entries never need to be invalidated and a single instance can safely be shared between every
+ * transaction, the sweeper and the scrubber. Unlike a per-transaction {@link com.palantir.util.SoftCache},
+ * the size is capped up front and entries are strongly held, so it does not add soft reference
+ * processing to every GC cycle. Hit, miss and eviction counts are exported over JMX.
+ */
+public final class CommitTimestampCache implements DistributedCacheMgrCache<Long, Long>, CommitTimestampCacheMBean,
+        Closeable {
+    private static final AtomicInteger instanceCount = new AtomicInteger();
+
+    private final Cache<Long, Long> cache;
+    private final long maxSize;
+    private final String jmxBeanRegistrationName;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public static CommitTimestampCache create() {
+        return create(AtlasDbConstants.DEFAULT_COMMIT_TIMESTAMP_CACHE_SIZE);
+    }
+
+    public static CommitTimestampCache create(long maxSize) {
+        String jmxBeanRegistrationName =
+                "com.palantir.atlasdb:type=CommitTimestampCache_" + instanceCount.getAndIncrement();
+        CommitTimestampCache commitTimestampCache = new CommitTimestampCache(maxSize, jmxBeanRegistrationName);
+        JMXUtils.registerMBeanCatchAndLogExceptions(commitTimestampCache, jmxBeanRegistrationName);
+        return commitTimestampCache;
+    }
+
+    private CommitTimestampCache(long maxSize, String jmxBeanRegistrationName) {
+        Preconditions.checkArgument(maxSize > 0, "maxSize must be positive, was %s", maxSize);
+        this.maxSize = maxSize;
+        this.jmxBeanRegistrationName = jmxBeanRegistrationName;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Long get(Long startTimestamp) {
+        return cache.getIfPresent(startTimestamp);
+    }
+
+    /**
+     * Returns the cached commit timestamps for the given start timestamps. Start timestamps that
+     * are not cached are absent from the returned map.
+     */
+    public Map<Long, Long> getAllPresent(Iterable<Long> startTimestamps) {
+        return cache.getAllPresent(startTimestamps);
+    }
+
+    @Override
+    public Long put(Long startTimestamp, Long commitTimestamp) {
+        cache.put(startTimestamp, commitTimestamp);
+        return commitTimestamp;
+    }
+
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            JMXUtils.unregisterMBeanCatchAndLogExceptions(jmxBeanRegistrationName);
+        }
+    }
+}
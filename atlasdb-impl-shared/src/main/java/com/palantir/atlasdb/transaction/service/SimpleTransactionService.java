@@ -20,15 +20,24 @@ import java.util.Map;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 public final class SimpleTransactionService implements TransactionService {
     private final KeyValueService keyValueService;
+    private final TransactionTableLayout layout;
 
     public SimpleTransactionService(KeyValueService keyValueService) {
+        this(keyValueService, TransactionTableLayout.legacy());
+    }
+
+    public SimpleTransactionService(KeyValueService keyValueService, TransactionTableLayout layout) {
         this.keyValueService = keyValueService;
+        this.layout = layout;
     }
 
     // The maximum key-value store timestamp (exclusive) at which data is stored
@@ -38,9 +47,9 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public Long get(long startTimestamp) {
-        Cell cell = getTransactionCell(startTimestamp);
+        Cell cell = layout.getCell(startTimestamp);
         Map<Cell, Value> returnMap = keyValueService.get(
-                TransactionConstants.TRANSACTION_TABLE,
+                layout.getTable(startTimestamp),
                 ImmutableMap.of(cell, MAX_TIMESTAMP));
         if (returnMap.containsKey(cell)) {
             return TransactionConstants.getTimestampForValue(returnMap
@@ -52,22 +61,26 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public Map<Long, Long> get(Iterable<Long> startTimestamps) {
-        Map<Cell, Long> startTsMap = Maps.newHashMap();
+        // At most one lookup per transactions table, so at most two across a cutover.
+        Map<TableReference, Map<Cell, Long>> startTsMapByTable = Maps.newHashMap();
         for (Long startTimestamp : startTimestamps) {
-            Cell cell = getTransactionCell(startTimestamp);
-            startTsMap.put(cell, MAX_TIMESTAMP);
+            TableReference table = layout.getTable(startTimestamp);
+            if (!startTsMapByTable.containsKey(table)) {
+                startTsMapByTable.put(table, Maps.newHashMap());
+            }
+            startTsMapByTable.get(table).put(layout.getCell(startTimestamp), MAX_TIMESTAMP);
         }
 
-        Map<Cell, Value> rawResults = keyValueService.get(
-                TransactionConstants.TRANSACTION_TABLE, startTsMap);
-        Map<Long, Long> result = Maps.newHashMapWithExpectedSize(rawResults
-                .size());
-        for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
-            long startTs = TransactionConstants.getTimestampForValue(e.getKey()
-                    .getRowName());
-            long commitTs = TransactionConstants.getTimestampForValue(e
-                    .getValue().getContents());
-            result.put(startTs, commitTs);
+        Map<Long, Long> result = Maps.newHashMap();
+        for (Map.Entry<TableReference, Map<Cell, Long>> tableAndCells : startTsMapByTable.entrySet()) {
+            TableReference table = tableAndCells.getKey();
+            Map<Cell, Value> rawResults = keyValueService.get(table, tableAndCells.getValue());
+            for (Map.Entry<Cell, Value> e : rawResults.entrySet()) {
+                long startTs = TransactionTableLayout.getStartTimestamp(table, e.getKey());
+                long commitTs = TransactionConstants.getTimestampForValue(e
+                        .getValue().getContents());
+                result.put(startTs, commitTs);
+            }
         }
 
         return result;
@@ -75,16 +88,34 @@ public final class SimpleTransactionService implements TransactionService {
 
     @Override
     public void putUnlessExists(long startTimestamp, long commitTimestamp) {
-        Cell key = getTransactionCell(startTimestamp);
+        Cell key = layout.getCell(startTimestamp);
         byte[] value = TransactionConstants
                 .getValueForTimestamp(commitTimestamp);
-        keyValueService.putUnlessExists(TransactionConstants.TRANSACTION_TABLE,
+        keyValueService.putUnlessExists(layout.getTable(startTimestamp),
                 ImmutableMap.of(key, value));
     }
 
-    private Cell getTransactionCell(long startTimestamp) {
-        return Cell.create(
-                TransactionConstants.getValueForTimestamp(startTimestamp),
-                TransactionConstants.COMMIT_TS_COLUMN);
+    /**
+     * Writes all of the given commit timestamps with a single call to the underlying key value service per
+     * transactions table.
+     * Like {@link com.palantir.atlasdb.keyvalue.api.KeyValueService#putUnlessExists}, this is not atomic
+     * across start timestamps: if a {@link KeyAlreadyExistsException} is thrown, some of the other entries
+     * may still have been written.
+     */
+    @Override
+    public void putUnlessExists(Map<Long, Long> startTimestampToCommitTimestamp) throws KeyAlreadyExistsException {
+        Map<TableReference, Map<Cell, byte[]>> valuesByTable = Maps.newHashMap();
+        for (Map.Entry<Long, Long> e : startTimestampToCommitTimestamp.entrySet()) {
+            TableReference table = layout.getTable(e.getKey());
+            if (!valuesByTable.containsKey(table)) {
+                valuesByTable.put(table, Maps.newHashMap());
+            }
+            valuesByTable.get(table).put(
+                    layout.getCell(e.getKey()),
+                    TransactionConstants.getValueForTimestamp(e.getValue()));
+        }
+        for (Map.Entry<TableReference, Map<Cell, byte[]>> e : valuesByTable.entrySet()) {
+            keyValueService.putUnlessExists(e.getKey(), e.getValue());
+        }
     }
 }
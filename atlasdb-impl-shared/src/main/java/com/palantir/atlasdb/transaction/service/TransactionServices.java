@@ -16,6 +16,7 @@
 package com.palantir.atlasdb.transaction.service;
 
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
 
 public final class TransactionServices {
     private TransactionServices() {
@@ -26,4 +27,25 @@ public final class TransactionServices {
             KeyValueService keyValueService) {
         return new SimpleTransactionService(keyValueService);
     }
+
+    public static TransactionService createTransactionService(
+            KeyValueService keyValueService,
+            TransactionTableLayout layout) {
+        return new SimpleTransactionService(keyValueService, layout);
+    }
+
+    /**
+     * Creates a transaction service that group commits concurrent putUnlessExists calls. The returned service
+     * owns a writer thread and should be closed when it is no longer needed.
+     */
+    public static BatchingTransactionService createBatchingTransactionService(
+            KeyValueService keyValueService) {
+        return createBatchingTransactionService(keyValueService, TransactionTableLayout.legacy());
+    }
+
+    public static BatchingTransactionService createBatchingTransactionService(
+            KeyValueService keyValueService,
+            TransactionTableLayout layout) {
+        return BatchingTransactionService.create(createTransactionService(keyValueService, layout));
+    }
 }
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.cleaner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.api.TransactionManager;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+
+public class ScrubberTest {
+    private static final TableReference TABLE = TableReference.createFromFullyQualifiedName("scrubber.test");
+    private static final Cell CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("col"));
+    private static final Cell OTHER_CELL = Cell.create(PtBytes.toBytes("row"), PtBytes.toBytes("other"));
+    private static final long MAX_SCRUB_TIMESTAMP = 100L;
+
+    private KeyValueService kvs;
+    private ScrubberStore scrubberStore;
+    private TransactionService transactionService;
+    private Scrubber scrubber;
+
+    @Before
+    public void setUp() {
+        kvs = new InMemoryKeyValueService(false);
+        kvs.createTable(TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        TransactionTables.createTables(kvs);
+        scrubberStore = KeyValueServiceScrubberStore.create(kvs);
+        transactionService = TransactionServices.createTransactionService(kvs);
+        scrubber = Scrubber.create(
+                kvs,
+                scrubberStore,
+                Suppliers.ofInstance(Long.MAX_VALUE),
+                Suppliers.ofInstance(true),
+                Suppliers.ofInstance(MAX_SCRUB_TIMESTAMP),
+                Suppliers.ofInstance(MAX_SCRUB_TIMESTAMP),
+                transactionService,
+                false,
+                Suppliers.ofInstance(2),
+                2,
+                2,
+                ImmutableList.of());
+    }
+
+    @After
+    public void tearDown() {
+        scrubber.shutdown();
+        kvs.close();
+    }
+
+    @Test
+    public void scrubsVersionsOlderThanCommittedHardDelete() {
+        putCommitted(CELL, 10L, 11L, "old");
+        putCommitted(OTHER_CELL, 12L, 13L, "old");
+        putCommitted(CELL, 20L, 21L, "");
+        putCommitted(OTHER_CELL, 20L, 21L, "");
+        queueForScrubbing(20L, CELL, OTHER_CELL);
+
+        scrubber.runBackgroundScrubTask(mock(TransactionManager.class));
+
+        assertThat(getTimestamps(CELL)).containsExactlyInAnyOrder(-1L, 20L);
+        assertThat(getTimestamps(OTHER_CELL)).containsExactlyInAnyOrder(-1L, 20L);
+        assertThat(scrubberStore.getNumberRemainingScrubCells(10)).isEqualTo(0);
+    }
+
+    @Test
+    public void rollsBackUncommittedHardDeleteAndRemovesOnlyItsWrites() {
+        putCommitted(CELL, 10L, 11L, "old");
+        put(CELL, 30L, "");
+        queueForScrubbing(30L, CELL);
+
+        scrubber.runBackgroundScrubTask(mock(TransactionManager.class));
+
+        assertThat(transactionService.get(30L)).isEqualTo(TransactionConstants.FAILED_COMMIT_TS);
+        assertThat(getTimestamps(CELL)).containsExactly(10L);
+        assertThat(scrubberStore.getNumberRemainingScrubCells(10)).isEqualTo(0);
+    }
+
+    @Test
+    public void leavesHardDeletesCommittedAfterMaxScrubTimestampQueued() {
+        putCommitted(CELL, 10L, 11L, "old");
+        putCommitted(CELL, 40L, MAX_SCRUB_TIMESTAMP + 50, "");
+        queueForScrubbing(40L, CELL);
+
+        scrubber.runBackgroundScrubTask(mock(TransactionManager.class));
+
+        assertThat(getTimestamps(CELL)).containsExactlyInAnyOrder(10L, 40L);
+        assertThat(scrubberStore.getNumberRemainingScrubCells(10)).isEqualTo(1);
+    }
+
+    private void putCommitted(Cell cell, long startTs, long commitTs, String value) {
+        put(cell, startTs, value);
+        if (transactionService.get(startTs) == null) {
+            transactionService.putUnlessExists(startTs, commitTs);
+        }
+    }
+
+    private void put(Cell cell, long startTs, String value) {
+        kvs.put(TABLE, ImmutableMap.of(cell, PtBytes.toBytes(value)), startTs);
+    }
+
+    private void queueForScrubbing(long scrubTimestamp, Cell... cells) {
+        ImmutableMultimap.Builder<Cell, TableReference> builder = ImmutableMultimap.builder();
+        for (Cell cell : cells) {
+            builder.put(cell, TABLE);
+        }
+        scrubberStore.queueCellsForScrubbing(builder.build(), scrubTimestamp, 10);
+    }
+
+    private Iterable<Long> getTimestamps(Cell cell) {
+        Multimap<Cell, Long> timestamps = kvs.getAllTimestamps(TABLE, ImmutableSet.of(cell), Long.MAX_VALUE);
+        return timestamps.get(cell);
+    }
+}
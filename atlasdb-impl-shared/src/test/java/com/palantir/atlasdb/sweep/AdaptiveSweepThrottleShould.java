@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.sweep;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.impl.KeyValueServiceLatencyTracker;
+
+public class AdaptiveSweepThrottleShould {
+    private static final long BUDGET_MILLIS = 10;
+    private static final long CONFIGURED_PAUSE_MILLIS = 1000;
+
+    private final KeyValueServiceLatencyTracker tracker = new KeyValueServiceLatencyTracker();
+
+    @Test
+    public void keepConfiguredSettingsWhenDisabled() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, 0, true);
+        recordSweepCall(TimeUnit.SECONDS.toNanos(1));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(1.0));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(CONFIGURED_PAUSE_MILLIS));
+    }
+
+    @Test
+    public void backOffWhenSweepIsOverBudget() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, false);
+        recordSweepCall(TimeUnit.MILLISECONDS.toNanos(2 * BUDGET_MILLIS));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(0.5));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(2 * CONFIGURED_PAUSE_MILLIS));
+    }
+
+    @Test
+    public void backOffWhenForegroundIsOverBudget() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, true);
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(2 * BUDGET_MILLIS));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(0.5));
+    }
+
+    @Test
+    public void ignoreForegroundLatencyIfNotIncluded() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, false);
+        tracker.record(TimeUnit.MILLISECONDS.toNanos(2 * BUDGET_MILLIS));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(1.0));
+    }
+
+    @Test
+    public void onlyConsiderCallsSinceThePreviousBatch() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, false);
+        recordSweepCall(TimeUnit.MILLISECONDS.toNanos(100 * BUDGET_MILLIS));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+        recordSweepCall(TimeUnit.MILLISECONDS.toNanos(1));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getSweepLatencyMillis(), equalTo(1.0));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(3 * CONFIGURED_PAUSE_MILLIS / 2));
+    }
+
+    @Test
+    public void speedUpToFullSpeedWhenUnderBudget() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, true);
+        for (int i = 0; i < 20; i++) {
+            recordSweepCall(TimeUnit.MILLISECONDS.toNanos(2 * BUDGET_MILLIS));
+            throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+        }
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(AdaptiveSweepThrottle.MIN_BATCH_SIZE_MULTIPLIER));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(AdaptiveSweepThrottle.MAX_PAUSE_MILLIS));
+
+        for (int i = 0; i < 100; i++) {
+            throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+        }
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(1.0));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(0L));
+    }
+
+    @Test
+    public void holdBetweenHalfAndAllOfTheBudget() {
+        AdaptiveSweepThrottle throttle = AdaptiveSweepThrottle.create(tracker, BUDGET_MILLIS, false);
+        recordSweepCall(TimeUnit.MILLISECONDS.toNanos(2 * BUDGET_MILLIS));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+        recordSweepCall(TimeUnit.MILLISECONDS.toNanos(3 * BUDGET_MILLIS / 4));
+        throttle.recordBatch(CONFIGURED_PAUSE_MILLIS);
+
+        assertThat(throttle.getBatchSizeMultiplier(), equalTo(0.5));
+        assertThat(throttle.getPauseMillis(CONFIGURED_PAUSE_MILLIS), equalTo(2 * CONFIGURED_PAUSE_MILLIS));
+        assertThat(throttle.getForegroundLatencyMillis(), lessThan(1.0));
+    }
+
+    private void recordSweepCall(long nanos) {
+        Thread sweepThread = new Thread(() -> {
+            tracker.markCurrentThreadAsBackground();
+            tracker.record(nanos);
+        });
+        sweepThread.start();
+        try {
+            sweepThread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
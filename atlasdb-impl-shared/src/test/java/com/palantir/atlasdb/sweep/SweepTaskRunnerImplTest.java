@@ -43,16 +43,15 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.KeyValueService;
 import com.palantir.atlasdb.keyvalue.api.Namespace;
 import com.palantir.atlasdb.keyvalue.api.RangeRequest;
 import com.palantir.atlasdb.keyvalue.api.RowResult;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
-import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
 import com.palantir.atlasdb.sweep.sweepers.ConservativeSweeper;
 import com.palantir.atlasdb.sweep.sweepers.Sweeper;
@@ -133,7 +132,6 @@ public class SweepTaskRunnerImplTest {
     public void getTimestampsToSweep_noRowsMeansNoTransactionGets() {
         sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(ImmutableMultimap.of()),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 VALID_TIMESTAMP,
                 conservativeSweeper);
 
@@ -148,7 +146,6 @@ public class SweepTaskRunnerImplTest {
 
         Multimap<Cell, Long> startTimestampsPerRowToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 conservativeSweeper).timestampsAsMultimap();
 
@@ -162,7 +159,6 @@ public class SweepTaskRunnerImplTest {
 
         Multimap<Cell, Long> startTimestampsPerRowToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(Collections.emptyIterator()),
                 sweepTimestampLowerThanCommitTimestamp,
                 conservativeSweeper).timestampsAsMultimap();
 
@@ -176,7 +172,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 conservativeSweeper);
 
@@ -190,7 +185,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 sweepTimestampHigherThanCommitTimestamp,
                 thoroughSweeper);
 
@@ -205,7 +199,6 @@ public class SweepTaskRunnerImplTest {
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
                 convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.emptyImmutableClosableIterator()),
                 HIGH_START_TS,
                 conservativeSweeper);
         Multimap<Cell, Long> timestampsToSweep = cellsToSweep.timestampsAsMultimap();
@@ -218,11 +211,11 @@ public class SweepTaskRunnerImplTest {
         Multimap<Cell, Long> timestampsPerRow = ImmutableMultimap.of(SINGLE_CELL, LOW_START_TS);
         when(mockTransactionService.get(anyCollection()))
                 .thenReturn(ImmutableMap.of(LOW_START_TS, LOW_COMMIT_TS));
-        RowResult<Value> rowResult = RowResult.of(SINGLE_CELL, Value.create(null, LOW_START_TS));
+        CellsAndTimestamps latestValueEmpty = CellsAndTimestamps.withSingleItem(
+                CellAndTimestamps.of(SINGLE_CELL, ImmutableSet.copyOf(timestampsPerRow.get(SINGLE_CELL)), true));
 
         CellsToSweep cellsToSweep = sweepTaskRunner.getStartTimestampsPerRowToSweep(
-                convertToCellAndTimestamps(timestampsPerRow),
-                Iterators.peekingIterator(ClosableIterators.wrap(ImmutableList.of(rowResult).iterator())),
+                latestValueEmpty,
                 HIGH_START_TS,
                 thoroughSweeper);
         Multimap<Cell, Long> timestampsToSweep = cellsToSweep.timestampsAsMultimap();
@@ -230,6 +223,27 @@ public class SweepTaskRunnerImplTest {
         assertThat(timestampsToSweep.get(SINGLE_CELL)).contains(LOW_START_TS);
     }
 
+    @Test
+    public void thoroughSweepReadsWhetherLatestValueIsEmptyWithTheTimestamps() {
+        twoCommittedTimestampsForSingleCell();
+        when(mockKvs.getMetadataForTable(TABLE_REFERENCE)).thenReturn(new byte[1]);
+        when(mockSweepStrategyManager.get()).thenReturn(ImmutableMap.of(TABLE_REFERENCE, SweepStrategy.THOROUGH));
+        when(mockImmutableTimestampSupplier.get()).thenReturn(HIGH_COMMIT_TS + 1);
+        RowResult<CellTimestamps> row = RowResult.of(
+                SINGLE_CELL,
+                CellTimestamps.create(ImmutableSet.of(LOW_START_TS, HIGH_START_TS), true));
+        when(mockKvs.getRangeOfCellTimestamps(eq(TABLE_REFERENCE), any(RangeRequest.class), anyLong()))
+                .thenReturn(ClosableIterators.wrap(ImmutableList.of(row).iterator()));
+
+        sweepTaskRunner.run(TABLE_REFERENCE, ROW_BATCH_SIZE, ROW_BATCH_SIZE, null);
+
+        ArgumentCaptor<Multimap> captor = ArgumentCaptor.forClass(Multimap.class);
+        verify(mockCellsSweeper).sweepCells(eq(TABLE_REFERENCE), captor.capture(), anySet());
+        assertThat(captor.getValue().get(SINGLE_CELL)).containsOnly(LOW_START_TS, HIGH_START_TS);
+        verify(mockKvs, never()).getRange(any(TableReference.class), any(RangeRequest.class), anyLong());
+        verify(mockKvs, never()).getRangeOfTimestamps(any(TableReference.class), any(RangeRequest.class), anyLong());
+    }
+
     @Test
     public void cellSweeperCallsShouldBatchRows() {
         int numBatches = 3;
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class BatchingTransactionServiceTest {
+    private final BlockingKeyValueService kvs = new BlockingKeyValueService();
+    private final SimpleTransactionService simpleService = new SimpleTransactionService(kvs);
+    private final ExecutorService committers = PTExecutors.newCachedThreadPool();
+    private BatchingTransactionService batchingService;
+
+    @Before
+    public void setUp() {
+        kvs.createTable(TransactionConstants.TRANSACTION_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        batchingService = BatchingTransactionService.create(simpleService);
+    }
+
+    @After
+    public void tearDown() {
+        kvs.unblock();
+        batchingService.close();
+        committers.shutdownNow();
+    }
+
+    @Test
+    public void uncontendedCommitIsWritten() {
+        batchingService.putUnlessExists(1L, 2L);
+
+        assertThat(batchingService.get(1L)).isEqualTo(2L);
+    }
+
+    @Test
+    public void commitsQueuedBehindAWriteAreWrittenTogether() throws Exception {
+        kvs.block();
+        Future<?> first = commitAsync(1L, 2L);
+        kvs.awaitBlockedWrite();
+        List<Future<?>> queued = ImmutableList.of(commitAsync(3L, 4L), commitAsync(5L, 6L), commitAsync(7L, 8L));
+        awaitPendingCommits(3);
+        kvs.unblock();
+
+        first.get();
+        for (Future<?> commit : queued) {
+            commit.get();
+        }
+        assertThat(kvs.putUnlessExistsBatchSizes).containsExactly(1, 3);
+        assertThat(batchingService.get(ImmutableList.of(1L, 3L, 5L, 7L)))
+                .containsEntry(1L, 2L)
+                .containsEntry(3L, 4L)
+                .containsEntry(5L, 6L)
+                .containsEntry(7L, 8L);
+    }
+
+    @Test
+    public void conflictingCommitInABatchOnlyFailsThatCommit() throws Exception {
+        simpleService.putUnlessExists(3L, TransactionConstants.FAILED_COMMIT_TS);
+        kvs.block();
+        Future<?> first = commitAsync(1L, 2L);
+        kvs.awaitBlockedWrite();
+        Future<?> conflicting = commitAsync(3L, 4L);
+        Future<?> other = commitAsync(5L, 6L);
+        awaitPendingCommits(2);
+        kvs.unblock();
+
+        first.get();
+        other.get();
+        assertFailsWithKeyAlreadyExists(conflicting);
+        assertThat(batchingService.get(3L)).isEqualTo(TransactionConstants.FAILED_COMMIT_TS);
+        assertThat(batchingService.get(5L)).isEqualTo(6L);
+    }
+
+    @Test
+    public void onlyTheFirstCommitForAStartTimestampInABatchSucceeds() throws Exception {
+        kvs.block();
+        Future<?> first = commitAsync(1L, 2L);
+        kvs.awaitBlockedWrite();
+        Future<?> commit = commitAsync(3L, 4L);
+        awaitPendingCommits(1);
+        Future<?> rollback = commitAsync(3L, TransactionConstants.FAILED_COMMIT_TS);
+        awaitPendingCommits(2);
+        kvs.unblock();
+
+        first.get();
+        commit.get();
+        assertFailsWithKeyAlreadyExists(rollback);
+        assertThat(batchingService.get(3L)).isEqualTo(4L);
+    }
+
+    @Test(expected = KeyAlreadyExistsException.class)
+    public void committingAnExistingStartTimestampThrows() {
+        batchingService.putUnlessExists(1L, 2L);
+        batchingService.putUnlessExists(1L, 3L);
+    }
+
+    @Test
+    public void batchesOverDelegatesThatOnlyWriteOneCommitAtATime() throws Exception {
+        batchingService.close();
+        batchingService = BatchingTransactionService.create(new UnbatchedTransactionService(simpleService));
+        simpleService.putUnlessExists(3L, TransactionConstants.FAILED_COMMIT_TS);
+        kvs.block();
+        Future<?> first = commitAsync(1L, 2L);
+        kvs.awaitBlockedWrite();
+        Future<?> conflicting = commitAsync(3L, 4L);
+        Future<?> other = commitAsync(5L, 6L);
+        awaitPendingCommits(2);
+        kvs.unblock();
+
+        first.get();
+        other.get();
+        assertFailsWithKeyAlreadyExists(conflicting);
+        assertThat(batchingService.get(ImmutableList.of(1L, 3L, 5L)))
+                .containsEntry(1L, 2L)
+                .containsEntry(3L, TransactionConstants.FAILED_COMMIT_TS)
+                .containsEntry(5L, 6L);
+    }
+
+    private Future<?> commitAsync(long startTimestamp, long commitTimestamp) {
+        return committers.submit(() -> batchingService.putUnlessExists(startTimestamp, commitTimestamp));
+    }
+
+    private void awaitPendingCommits(int count) throws InterruptedException {
+        while (batchingService.getPendingCommitCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertFailsWithKeyAlreadyExists(Future<?> commit) throws InterruptedException {
+        try {
+            commit.get();
+            fail("Expected the commit to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(KeyAlreadyExistsException.class);
+        }
+    }
+
+    private static class UnbatchedTransactionService implements TransactionService {
+        private final TransactionService delegate;
+
+        UnbatchedTransactionService(TransactionService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Long get(long startTimestamp) {
+            return delegate.get(startTimestamp);
+        }
+
+        @Override
+        public Map<Long, Long> get(Iterable<Long> startTimestamps) {
+            return delegate.get(startTimestamps);
+        }
+
+        @Override
+        public void putUnlessExists(long startTimestamp, long commitTimestamp) {
+            delegate.putUnlessExists(startTimestamp, commitTimestamp);
+        }
+    }
+
+    private static class BlockingKeyValueService extends ForwardingKeyValueService {
+        private final KeyValueService delegate = new InMemoryKeyValueService(false);
+        private final List<Integer> putUnlessExistsBatchSizes = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch entered = new CountDownLatch(0);
+        private volatile CountDownLatch released = new CountDownLatch(0);
+
+        @Override
+        protected KeyValueService delegate() {
+            return delegate;
+        }
+
+        void block() {
+            entered = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+        }
+
+        void unblock() {
+            released.countDown();
+        }
+
+        void awaitBlockedWrite() throws InterruptedException {
+            entered.await();
+        }
+
+        @Override
+        public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values) {
+            putUnlessExistsBatchSizes.add(values.size());
+            entered.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            super.putUnlessExists(tableRef, values);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+
+public class CachingTransactionServiceTest {
+    private static final long START_TIMESTAMP = 100L;
+    private static final long OTHER_START_TIMESTAMP = 150L;
+    private static final long COMMIT_TIMESTAMP = 200L;
+    private static final long OTHER_COMMIT_TIMESTAMP = 250L;
+
+    private final TransactionService delegate = mock(TransactionService.class);
+    private final CommitTimestampCache cache = CommitTimestampCache.create(10);
+    private final TransactionService transactionService = CachingTransactionService.create(delegate, cache);
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void committedTimestampsAreOnlyReadOnce() {
+        when(delegate.get(START_TIMESTAMP)).thenReturn(COMMIT_TIMESTAMP);
+
+        assertThat(transactionService.get(START_TIMESTAMP)).isEqualTo(COMMIT_TIMESTAMP);
+        assertThat(transactionService.get(START_TIMESTAMP)).isEqualTo(COMMIT_TIMESTAMP);
+
+        verify(delegate, times(1)).get(START_TIMESTAMP);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void missingCommitTimestampsAreNotCached() {
+        when(delegate.get(START_TIMESTAMP)).thenReturn(null);
+
+        assertThat(transactionService.get(START_TIMESTAMP)).isNull();
+        assertThat(transactionService.get(START_TIMESTAMP)).isNull();
+
+        verify(delegate, times(2)).get(START_TIMESTAMP);
+    }
+
+    @Test
+    public void batchedGetOnlyReadsUncachedTimestamps() {
+        when(delegate.get(START_TIMESTAMP)).thenReturn(COMMIT_TIMESTAMP);
+        when(delegate.get(ImmutableSet.of(OTHER_START_TIMESTAMP)))
+                .thenReturn(ImmutableMap.of(OTHER_START_TIMESTAMP, OTHER_COMMIT_TIMESTAMP));
+        transactionService.get(START_TIMESTAMP);
+
+        assertThat(transactionService.get(ImmutableSet.of(START_TIMESTAMP, OTHER_START_TIMESTAMP)))
+                .isEqualTo(ImmutableMap.of(
+                        START_TIMESTAMP, COMMIT_TIMESTAMP,
+                        OTHER_START_TIMESTAMP, OTHER_COMMIT_TIMESTAMP));
+
+        verify(delegate).get(START_TIMESTAMP);
+        verify(delegate).get(ImmutableSet.of(OTHER_START_TIMESTAMP));
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void successfulPutUnlessExistsIsCached() {
+        transactionService.putUnlessExists(START_TIMESTAMP, COMMIT_TIMESTAMP);
+
+        assertThat(transactionService.get(START_TIMESTAMP)).isEqualTo(COMMIT_TIMESTAMP);
+
+        verify(delegate).putUnlessExists(START_TIMESTAMP, COMMIT_TIMESTAMP);
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    public void failedPutUnlessExistsIsNotCached() {
+        doThrow(new KeyAlreadyExistsException("Already exists"))
+                .when(delegate).putUnlessExists(START_TIMESTAMP, COMMIT_TIMESTAMP);
+        when(delegate.get(START_TIMESTAMP)).thenReturn(OTHER_COMMIT_TIMESTAMP);
+
+        try {
+            transactionService.putUnlessExists(START_TIMESTAMP, COMMIT_TIMESTAMP);
+        } catch (KeyAlreadyExistsException e) {
+            // expected
+        }
+
+        assertThat(transactionService.get(START_TIMESTAMP)).isEqualTo(OTHER_COMMIT_TIMESTAMP);
+    }
+
+    @Test
+    public void evictsEntriesBeyondMaximumSize() {
+        for (long startTs = 0; startTs < 100; startTs++) {
+            cache.put(startTs, startTs + 1);
+        }
+
+        assertThat(cache.getSize()).isLessThanOrEqualTo(cache.getMaxSize());
+        assertThat(cache.getEvictionCount()).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.atlasdb.transaction.impl.TransactionTableLayout;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+
+public class SimpleTransactionServiceTest {
+    private static final long CUTOVER = 100L;
+
+    private final KeyValueService kvs = new InMemoryKeyValueService(false);
+    private final SimpleTransactionService transactionService =
+            new SimpleTransactionService(kvs, TransactionTableLayout.withCutover(CUTOVER));
+
+    @Before
+    public void setUp() {
+        TransactionTables.createTables(kvs);
+    }
+
+    @Test
+    public void commitsOnEitherSideOfTheCutoverAreStoredInDifferentTables() {
+        transactionService.putUnlessExists(CUTOVER - 1, CUTOVER + 5);
+        transactionService.putUnlessExists(CUTOVER, CUTOVER + 6);
+
+        assertThat(transactionService.get(CUTOVER - 1)).isEqualTo(CUTOVER + 5);
+        assertThat(transactionService.get(CUTOVER)).isEqualTo(CUTOVER + 6);
+        assertThat(new SimpleTransactionService(kvs).get(CUTOVER - 1)).isEqualTo(CUTOVER + 5);
+        assertThat(new SimpleTransactionService(kvs).get(CUTOVER)).isNull();
+    }
+
+    @Test
+    public void batchedLookupsSpanTheCutover() {
+        transactionService.putUnlessExists(ImmutableMap.of(
+                CUTOVER - 2, CUTOVER + 1,
+                CUTOVER + 2, CUTOVER + 3,
+                CUTOVER + 4, TransactionConstants.FAILED_COMMIT_TS));
+
+        assertThat(transactionService.get(ImmutableList.of(CUTOVER - 2, CUTOVER - 1, CUTOVER + 2, CUTOVER + 4)))
+                .containsOnly(
+                        entry(CUTOVER - 2, CUTOVER + 1),
+                        entry(CUTOVER + 2, CUTOVER + 3),
+                        entry(CUTOVER + 4, TransactionConstants.FAILED_COMMIT_TS));
+    }
+
+    @Test(expected = KeyAlreadyExistsException.class)
+    public void cannotOverwriteACommitInTheBucketedTable() {
+        transactionService.putUnlessExists(CUTOVER + 1, CUTOVER + 2);
+        transactionService.putUnlessExists(CUTOVER + 1, TransactionConstants.FAILED_COMMIT_TS);
+    }
+}
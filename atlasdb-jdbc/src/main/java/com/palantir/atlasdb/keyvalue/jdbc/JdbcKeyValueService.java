@@ -109,6 +109,7 @@ import com.google.common.primitives.UnsignedBytes;
 import com.palantir.atlasdb.jdbc.config.JdbcDataSourceConfiguration;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
@@ -702,6 +703,13 @@ public class JdbcKeyValueService implements KeyValueService {
         return KeyValueServices.getFirstBatchForRangesUsingGetRange(this, tableRef, rangeRequests, timestamp);
     }
 
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             RangeRequest rangeRequest,
+                                                                             long timestamp) {
+        return KeyValueServices.getRangeOfCellTimestampsUsingGetRange(this, tableRef, rangeRequest, timestamp);
+    }
+
     private TokenBackedBasicResultsPage<RowResult<Value>, byte[]> getPageWithValues(final TableReference tableRef,
                                                                                     final RangeRequest rangeRequest,
                                                                                     final long timestamp) {
@@ -0,0 +1,259 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.palantir.atlasdb.performance;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.immutables.value.Value;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.util.ListStatistics;
+import org.openjdk.jmh.util.Statistics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.base.Preconditions;
+import com.palantir.atlasdb.performance.PerformanceResults.PerformanceResult;
+
+/**
+ * Compares the results of a run of the benchmarks against those of a baseline run, matching up the results of each
+ * benchmark, backend and parameter set.
+ * <p>
+ * A benchmark has regressed when its score is worse than the baseline's by more than the threshold, and the
+ * confidence intervals of the two scores, computed from the scores of their measurement iterations, do not overlap.
+ * A change within the noise of either run is not reported, however large it is; neither is one of a benchmark with
+ * too few iterations to have a confidence interval. Benchmarks of the baseline which are missing from the current run, e.g.
+ * because they failed, are reported as missing, and count as regressions.
+ */
+public final class PerformanceComparison {
+
+    public static final double DEFAULT_CONFIDENCE = 0.999;
+
+    public enum Status {
+        REGRESSED,
+        IMPROVED,
+        UNCHANGED,
+        NEW,
+        MISSING
+    }
+
+    private final ComparisonReport report;
+
+    private PerformanceComparison(ComparisonReport report) {
+        this.report = report;
+    }
+
+    /**
+     * @param threshold the relative change in score beyond which a benchmark has regressed, e.g. 0.1 for 10%.
+     * @param confidence the confidence level of the intervals that the scores are compared with.
+     */
+    public static PerformanceComparison compare(List<PerformanceResult> baseline,
+                                                List<PerformanceResult> current,
+                                                double threshold,
+                                                double confidence) {
+        Preconditions.checkArgument(threshold >= 0, "threshold must not be negative, was %s", threshold);
+        Preconditions.checkArgument(confidence > 0 && confidence < 1,
+                "confidence must be between 0 and 1, was %s", confidence);
+        Map<String, PerformanceResult> baselineByKey = baseline.stream()
+                .collect(Collectors.toMap(PerformanceComparison::getKey, Function.identity(), (a, b) -> b));
+        List<BenchmarkComparison> comparisons = current.stream()
+                .map(result -> compare(Optional.ofNullable(baselineByKey.get(getKey(result))), result,
+                        threshold, confidence))
+                .collect(Collectors.toList());
+        Set<String> currentKeys = current.stream().map(PerformanceComparison::getKey).collect(Collectors.toSet());
+        baselineByKey.values().stream()
+                .filter(result -> !currentKeys.contains(getKey(result)))
+                .map(result -> missing(result, confidence))
+                .forEach(comparisons::add);
+        return new PerformanceComparison(ImmutableComparisonReport.builder()
+                .threshold(threshold)
+                .confidence(confidence)
+                .comparisons(comparisons)
+                .build());
+    }
+
+    private static BenchmarkComparison compare(Optional<PerformanceResult> baseline,
+                                               PerformanceResult current,
+                                               double threshold,
+                                               double confidence) {
+        Optional<double[]> currentInterval = getConfidenceInterval(current, confidence);
+        ImmutableBenchmarkComparison.Builder comparison = describe(current)
+                .currentMean(current.mean())
+                .currentLower(currentInterval.map(interval -> interval[0]).orElse(null))
+                .currentUpper(currentInterval.map(interval -> interval[1]).orElse(null));
+        if (!baseline.isPresent()) {
+            return comparison.status(Status.NEW).build();
+        }
+        Optional<double[]> baselineInterval = getConfidenceInterval(baseline.get(), confidence);
+        double baselineMean = baseline.get().mean();
+        double relativeChange = getRelativeChange(baselineMean, current.mean());
+        // Positive when the current run is better, whether a higher or a lower score is better.
+        double improvement = current.mode() == Mode.Throughput ? relativeChange : -relativeChange;
+        boolean significant = currentInterval.isPresent() && baselineInterval.isPresent()
+                && intervalsAreDisjoint(baselineInterval.get(), currentInterval.get());
+        Status status = Status.UNCHANGED;
+        if (significant && improvement < -threshold) {
+            status = Status.REGRESSED;
+        } else if (significant && improvement > threshold) {
+            status = Status.IMPROVED;
+        }
+        return comparison
+                .baselineMean(baselineMean)
+                .baselineLower(baselineInterval.map(interval -> interval[0]).orElse(null))
+                .baselineUpper(baselineInterval.map(interval -> interval[1]).orElse(null))
+                .change(baselineMean == 0 ? null : relativeChange)
+                .status(status)
+                .build();
+    }
+
+    /**
+     * Returns the change from the baseline's score relative to it. A change from a baseline of 0 has no relative size,
+     * so it counts as beyond any threshold.
+     */
+    private static double getRelativeChange(double baselineMean, double currentMean) {
+        if (baselineMean != 0) {
+            return (currentMean - baselineMean) / baselineMean;
+        }
+        return currentMean == 0 ? 0 : Math.copySign(Double.POSITIVE_INFINITY, currentMean);
+    }
+
+    /**
+     * Describes a benchmark of the baseline which the current run has no result for, e.g. because it failed.
+     */
+    private static BenchmarkComparison missing(PerformanceResult baseline, double confidence) {
+        Optional<double[]> baselineInterval = getConfidenceInterval(baseline, confidence);
+        return describe(baseline)
+                .baselineMean(baseline.mean())
+                .baselineLower(baselineInterval.map(interval -> interval[0]).orElse(null))
+                .baselineUpper(baselineInterval.map(interval -> interval[1]).orElse(null))
+                .status(Status.MISSING)
+                .build();
+    }
+
+    private static ImmutableBenchmarkComparison.Builder describe(PerformanceResult result) {
+        return ImmutableBenchmarkComparison.builder()
+                .suite(result.suite())
+                .benchmark(result.benchmark())
+                .backend(result.backend())
+                .params(result.params())
+                .mode(result.mode())
+                .units(result.units());
+    }
+
+    private static Optional<double[]> getConfidenceInterval(PerformanceResult result, double confidence) {
+        Statistics statistics = new ListStatistics(
+                result.iterationScores().stream().mapToDouble(Double::doubleValue).toArray());
+        if (statistics.getN() < 2) {
+            return Optional.empty();
+        }
+        return Optional.of(statistics.getConfidenceIntervalAt(confidence));
+    }
+
+    private static boolean intervalsAreDisjoint(double[] first, double[] second) {
+        return first[1] < second[0] || second[1] < first[0];
+    }
+
+    private static String getKey(PerformanceResult result) {
+        return result.suite() + "." + result.benchmark() + "@" + result.backend() + result.params();
+    }
+
+    List<BenchmarkComparison> getComparisons() {
+        return report.comparisons();
+    }
+
+    /**
+     * Returns whether any benchmark regressed, or is missing from the current run.
+     */
+    public boolean hasRegressions() {
+        return report.comparisons().stream().anyMatch(comparison -> comparison.status() == Status.REGRESSED
+                || comparison.status() == Status.MISSING);
+    }
+
+    public void writeToFile(File file) throws IOException {
+        try (BufferedWriter fout = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(fout, report);
+        }
+    }
+
+    public void printSummary(PrintStream out) {
+        for (BenchmarkComparison comparison : report.comparisons()) {
+            String name = comparison.suite() + "." + comparison.benchmark() + " " + comparison.backend()
+                    + (comparison.params().isEmpty() ? "" : " " + comparison.params());
+            if (comparison.status() == Status.NEW || comparison.status() == Status.MISSING) {
+                out.printf("%-9s %s%n", comparison.status(), name);
+            } else if (comparison.change() == null) {
+                out.printf("%-9s %s: %.3f -> %.3f%n", comparison.status(), name,
+                        comparison.baselineMean(), comparison.currentMean());
+            } else {
+                out.printf("%-9s %s: %.3f -> %.3f (%+.1f%%)%n", comparison.status(), name,
+                        comparison.baselineMean(), comparison.currentMean(), 100 * comparison.change());
+            }
+        }
+    }
+
+    @JsonDeserialize(as = ImmutableComparisonReport.class)
+    @JsonSerialize(as = ImmutableComparisonReport.class)
+    @Value.Immutable
+    abstract static class ComparisonReport {
+        public abstract double threshold();
+        public abstract double confidence();
+        public abstract List<BenchmarkComparison> comparisons();
+    }
+
+    /**
+     * The comparison of one benchmark, backend and parameter set, with the confidence interval of each mean score.
+     * The baseline's score and the change from it are null if the baseline run has no such benchmark, and the current
+     * score is null if the current run has none. The change is also null if the baseline's score is 0. An interval is
+     * null if its run has too few samples to compute one.
+     */
+    @JsonDeserialize(as = ImmutableBenchmarkComparison.class)
+    @JsonSerialize(as = ImmutableBenchmarkComparison.class)
+    @Value.Immutable
+    abstract static class BenchmarkComparison {
+        public abstract String suite();
+        public abstract String benchmark();
+        public abstract String backend();
+        public abstract Map<String, String> params();
+        public abstract Mode mode();
+        public abstract TimeUnit units();
+        public abstract Status status();
+        @Nullable public abstract Double change();
+        @Nullable public abstract Double baselineMean();
+        @Nullable public abstract Double baselineLower();
+        @Nullable public abstract Double baselineUpper();
+        @Nullable public abstract Double currentMean();
+        @Nullable public abstract Double currentLower();
+        @Nullable public abstract Double currentUpper();
+    }
+}
@@ -25,26 +25,39 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 
 import org.immutables.value.Value;
+import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.util.Multiset;
 import org.openjdk.jmh.util.Statistics;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
 
 public class PerformanceResults {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new GuavaModule());
+    private static final DateTimeFormatter RUN_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
     private final Collection<RunResult> results;
+    private final long date = System.currentTimeMillis();
 
     public PerformanceResults(Collection<RunResult> results) {
         this.results = results;
@@ -52,30 +65,69 @@ public class PerformanceResults {
 
     public void writeToFile(File file) throws IOException {
         try (BufferedWriter fout = openFileWriter(file)) {
-            long date = System.currentTimeMillis();
-            List<ImmutablePerformanceResult> newResults = results.stream().map(rs -> {
-                String[] benchmarkParts = rs.getParams().getBenchmark().split("\\.");
-                String benchmarkSuite = benchmarkParts[benchmarkParts.length - 2];
-                String benchmarkName = benchmarkParts[benchmarkParts.length - 1];
-                DockerizedDatabaseUri uri =
-                        DockerizedDatabaseUri.fromUriString(rs.getParams().getParam(BenchmarkParam.URI.getKey()));
-                return ImmutablePerformanceResult.builder()
-                        .date(date)
-                        .suite(benchmarkSuite)
-                        .benchmark(benchmarkName)
-                        .backend(uri.getKeyValueServiceType().toString())
-                        .samples(rs.getPrimaryResult().getStatistics().getN())
-                        .std(rs.getPrimaryResult().getStatistics().getStandardDeviation())
-                        .mean(rs.getPrimaryResult().getStatistics().getMean())
-                        .data(getData(rs))
-                        .units(rs.getParams().getTimeUnit())
-                        .p50(rs.getPrimaryResult().getStatistics().getPercentile(50.0))
-                        .p90(rs.getPrimaryResult().getStatistics().getPercentile(90.0))
-                        .p99(rs.getPrimaryResult().getStatistics().getPercentile(99.0))
-                        .build();
-            }).collect(Collectors.toList());
-            new ObjectMapper().writeValue(fout, newResults);
+            OBJECT_MAPPER.writeValue(fout, getResults());
+        }
+    }
+
+    /**
+     * Writes the results to a new file in the given directory of results, named after the time of this run, and
+     * returns that name. The run can then be used as the baseline of later runs.
+     */
+    public String writeToResultsDir(File resultsDir) throws IOException {
+        String runName = RUN_NAME_FORMAT.format(Instant.ofEpochMilli(date).atZone(ZoneId.systemDefault()));
+        if (!resultsDir.isDirectory() && !resultsDir.mkdirs()) {
+            throw new IOException("Unable to create results directory " + resultsDir);
+        }
+        writeToFile(getRunFile(resultsDir, runName));
+        return runName;
+    }
+
+    /**
+     * Returns the file of the named run in the given directory of results.
+     */
+    public static File getRunFile(File resultsDir, String runName) {
+        return new File(resultsDir, runName + ".json");
+    }
+
+    public static List<PerformanceResult> readFromFile(File file) throws IOException {
+        return OBJECT_MAPPER.readValue(file, new TypeReference<List<ImmutablePerformanceResult>>() {});
+    }
+
+    public List<PerformanceResult> getResults() {
+        return results.stream().map(rs -> {
+            String[] benchmarkParts = rs.getParams().getBenchmark().split("\\.");
+            String benchmarkSuite = benchmarkParts[benchmarkParts.length - 2];
+            String benchmarkName = benchmarkParts[benchmarkParts.length - 1];
+            DockerizedDatabaseUri uri =
+                    DockerizedDatabaseUri.fromUriString(rs.getParams().getParam(BenchmarkParam.URI.getKey()));
+            return ImmutablePerformanceResult.builder()
+                    .date(date)
+                    .suite(benchmarkSuite)
+                    .benchmark(benchmarkName)
+                    .backend(uri.getKeyValueServiceType().toString())
+                    .params(getParams(rs))
+                    .mode(rs.getParams().getMode())
+                    .samples(rs.getPrimaryResult().getStatistics().getN())
+                    .std(rs.getPrimaryResult().getStatistics().getStandardDeviation())
+                    .mean(rs.getPrimaryResult().getStatistics().getMean())
+                    .data(getData(rs))
+                    .iterationScores(getIterationScores(rs))
+                    .units(rs.getParams().getTimeUnit())
+                    .p50(rs.getPrimaryResult().getStatistics().getPercentile(50.0))
+                    .p90(rs.getPrimaryResult().getStatistics().getPercentile(90.0))
+                    .p99(rs.getPrimaryResult().getStatistics().getPercentile(99.0))
+                    .build();
+        }).collect(Collectors.toList());
+    }
+
+    private Map<String, String> getParams(RunResult result) {
+        Map<String, String> params = Maps.newTreeMap();
+        for (String key : result.getParams().getParamsKeys()) {
+            if (!key.equals(BenchmarkParam.URI.getKey())) {
+                params.put(key, result.getParams().getParam(key));
+            }
         }
+        return params;
     }
 
     private BufferedWriter openFileWriter(File file) throws FileNotFoundException {
@@ -88,6 +140,13 @@ public class PerformanceResults {
                 .collect(Collectors.toList());
     }
 
+    private List<Double> getIterationScores(RunResult result) {
+        return result.getBenchmarkResults().stream()
+                .flatMap(b -> b.getIterationResults().stream())
+                .map(iteration -> iteration.getPrimaryResult().getScore())
+                .collect(Collectors.toList());
+    }
+
     private List<Double> getRawResults(Statistics statistics) {
         try {
             Field field = statistics.getClass().getDeclaredField("values");
@@ -104,15 +163,42 @@ public class PerformanceResults {
     @JsonDeserialize(as = ImmutablePerformanceResult.class)
     @JsonSerialize(as = ImmutablePerformanceResult.class)
     @Value.Immutable
-    abstract static class PerformanceResult {
+    public abstract static class PerformanceResult {
         public abstract long date();
         public abstract String suite();
         public abstract String benchmark();
         public abstract String backend();
+
+        /**
+         * The values of the benchmark's parameters other than the backend, so that the results of each parameter set
+         * can be told apart.
+         */
+        public abstract Map<String, String> params();
+
+        /**
+         * The benchmark mode, which determines whether a higher or lower score is better.
+         */
+        @Value.Default
+        public Mode mode() {
+            return Mode.SampleTime;
+        }
+
         public abstract long samples();
         public abstract double std();
         public abstract double mean();
         public abstract List<Double> data();
+
+        /**
+         * The score of each measurement iteration, in every fork. Unlike {@link #data}, which in
+         * {@link Mode#SampleTime} holds the time of every sampled operation, these are independent measurements of
+         * the benchmark's score, so they are what its confidence interval is computed from. Results written before
+         * the scores were recorded have none.
+         */
+        @Value.Default
+        public List<Double> iterationScores() {
+            return ImmutableList.of();
+        }
+
         public abstract TimeUnit units();
         public abstract double p50();
         public abstract double p90();
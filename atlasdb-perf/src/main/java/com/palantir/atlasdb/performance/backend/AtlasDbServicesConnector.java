@@ -17,11 +17,14 @@
 package com.palantir.atlasdb.performance.backend;
 
 import java.io.Closeable;
+import java.io.File;
 
+import org.apache.commons.io.FileUtils;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.State;
 
+import com.google.common.io.Files;
 import com.palantir.atlasdb.config.ImmutableAtlasDbConfig;
 import com.palantir.atlasdb.services.AtlasDbServices;
 import com.palantir.atlasdb.services.DaggerAtlasDbServices;
@@ -38,14 +41,20 @@ public class AtlasDbServicesConnector implements Closeable {
     private String uri;
 
     private AtlasDbServices services;
+    private File dataDir;
 
     public AtlasDbServices connect() {
         if (services != null) {
             throw new IllegalStateException("connect() has already been called");
         }
         DockerizedDatabaseUri dburi = DockerizedDatabaseUri.fromUriString(uri);
-        KeyValueServiceConfig config = KeyValueServiceType.getKeyValueServiceConfig(
-                dburi.getKeyValueServiceType(), dburi.getAddress());
+        KeyValueServiceConfig config;
+        if (dburi.getKeyValueServiceType().isDockerized()) {
+            config = KeyValueServiceType.getKeyValueServiceConfig(dburi.getKeyValueServiceType(), dburi.getAddress());
+        } else {
+            dataDir = Files.createTempDir();
+            config = KeyValueServiceType.getEmbeddedKeyValueServiceConfig(dburi.getKeyValueServiceType(), dataDir);
+        }
         services = DaggerAtlasDbServices.builder()
                 .servicesConfigModule(
                         ServicesConfigModule.create(
@@ -60,6 +69,9 @@ public class AtlasDbServicesConnector implements Closeable {
         if (services != null) {
             services.close();
         }
+        if (dataDir != null) {
+            FileUtils.deleteQuietly(dataDir);
+        }
     }
 
 }
@@ -17,6 +17,14 @@ package com.palantir.atlasdb.performance.backend;
 
 import java.net.InetSocketAddress;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Identifies the backend a benchmark runs against, as TYPE@host:port for a backend in a docker container, or just
+ * TYPE for a backend which runs in process and so has no address.
+ */
 public class DockerizedDatabaseUri {
 
     private static final String DELIMITER = "@";
@@ -29,8 +37,16 @@ public class DockerizedDatabaseUri {
         this.addr = addr;
     }
 
+    public static DockerizedDatabaseUri embedded(KeyValueServiceType type) {
+        Preconditions.checkArgument(!type.isDockerized(), "%s must be run in a docker container", type);
+        return new DockerizedDatabaseUri(type, null);
+    }
+
     public static DockerizedDatabaseUri fromUriString(String uri) {
         String[] parts = uri.trim().split(DELIMITER);
+        if (parts.length == 1) {
+            return embedded(KeyValueServiceType.valueOf(parts[0]));
+        }
         String[] addrParts = parts[1].split(":");
         return new DockerizedDatabaseUri(
                 KeyValueServiceType.valueOf(parts[0]),
@@ -41,11 +57,18 @@ public class DockerizedDatabaseUri {
         return type;
     }
 
+    /**
+     * Returns the address of the dockerized backend, or null if the backend runs in process.
+     */
+    @Nullable
     public InetSocketAddress getAddress() {
         return addr;
     }
 
     public String toString() {
+        if (addr == null) {
+            return type.toString();
+        }
         return type.toString() + DELIMITER + addr.toString();
     }
 
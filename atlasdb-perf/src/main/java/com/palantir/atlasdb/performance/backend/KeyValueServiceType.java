@@ -17,7 +17,9 @@
 
 package com.palantir.atlasdb.performance.backend;
 
+import java.io.File;
 import java.net.InetSocketAddress;
+import java.util.Properties;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableSet;
@@ -26,25 +28,47 @@ import com.palantir.atlasdb.cassandra.CassandraKeyValueServiceConfigManager;
 import com.palantir.atlasdb.cassandra.ImmutableCassandraCredentialsConfig;
 import com.palantir.atlasdb.cassandra.ImmutableCassandraKeyValueServiceConfig;
 import com.palantir.atlasdb.config.ImmutableLeaderConfig;
+import com.palantir.atlasdb.jdbc.config.ImmutableHikariDataSourceConfiguration;
 import com.palantir.atlasdb.keyvalue.cassandra.CassandraKeyValueService;
 import com.palantir.atlasdb.keyvalue.dbkvs.ImmutableDbKeyValueServiceConfig;
 import com.palantir.atlasdb.keyvalue.dbkvs.ImmutablePostgresDdlConfig;
+import com.palantir.atlasdb.keyvalue.jdbc.ImmutableJdbcKeyValueConfiguration;
+import com.palantir.atlasdb.memory.InMemoryAtlasDbConfig;
+import com.palantir.atlasdb.rocksdb.ImmutableRocksDbKeyValueServiceConfig;
 import com.palantir.atlasdb.spi.KeyValueServiceConfig;
 import com.palantir.nexus.db.pool.config.ImmutableMaskedValue;
 import com.palantir.nexus.db.pool.config.ImmutablePostgresConnectionConfig;
 
+/**
+ * The backends the benchmarks can run against. POSTGRES and CASSANDRA run in docker containers, while IN_MEMORY,
+ * ROCKSDB and H2 run in the benchmark's own process, so need neither docker nor a network.
+ */
 public enum KeyValueServiceType {
     POSTGRES(5432, "postgres-docker-compose.yml"),
-    CASSANDRA(9160, "cassandra-docker-compose.yml");
+    CASSANDRA(9160, "cassandra-docker-compose.yml"),
+    IN_MEMORY,
+    ROCKSDB,
+    H2;
 
     private final int kvsPort;
     private final String dockerComposeFileName;
 
+    KeyValueServiceType() {
+        this(0, null);
+    }
+
     KeyValueServiceType(int kvsPort, String dockerComposeFileName) {
         this.kvsPort = kvsPort;
         this.dockerComposeFileName = dockerComposeFileName;
     }
 
+    /**
+     * Returns whether this backend has to be started in a docker container, rather than in process.
+     */
+    public boolean isDockerized() {
+        return dockerComposeFileName != null;
+    }
+
     public String getDockerComposeResourceFileName() {
         return dockerComposeFileName;
     }
@@ -89,6 +113,32 @@ public enum KeyValueServiceType {
         }
     }
 
+    /**
+     * Returns the config of an in process backend, which keeps any files it writes in the given directory.
+     */
+    public static KeyValueServiceConfig getEmbeddedKeyValueServiceConfig(KeyValueServiceType type, File dataDir) {
+        switch (type) {
+            case IN_MEMORY:
+                return new InMemoryAtlasDbConfig();
+            case ROCKSDB:
+                return ImmutableRocksDbKeyValueServiceConfig.builder()
+                        .dataDir(new File(dataDir, "rocksdb"))
+                        .build();
+            case H2:
+                Properties properties = new Properties();
+                properties.put("jdbcUrl", "jdbc:h2:" + new File(dataDir, "h2").getAbsolutePath());
+                properties.put("username", "sa");
+                return ImmutableJdbcKeyValueConfiguration.builder()
+                        .dataSourceConfig(ImmutableHikariDataSourceConfiguration.builder()
+                                .sqlDialect("H2")
+                                .properties(properties)
+                                .build())
+                        .build();
+            default:
+                throw new UnsupportedOperationException("Unable to get the embedded KVS config for " + type);
+        }
+    }
+
     public static boolean canConnect(KeyValueServiceType type, InetSocketAddress addr) {
         switch (type) {
             case POSTGRES:
@@ -108,6 +158,10 @@ public enum KeyValueServiceType {
                 } catch (Exception e) {
                     return false;
                 }
+            case IN_MEMORY:
+            case ROCKSDB:
+            case H2:
+                return true;
             default:
                 throw new UnsupportedOperationException("Trying to check connection for unknown KVS " + type);
         }
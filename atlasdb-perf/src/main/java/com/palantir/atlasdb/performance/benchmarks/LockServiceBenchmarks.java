@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Maps;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.lock.AtlasCellLockDescriptor;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.impl.LockServiceImpl;
+
+/**
+ * Performance benchmarks for locking and unlocking cells on an in-process {@link LockServiceImpl}, the way a
+ * committing transaction does.
+ * <p>
+ * Each invocation locks and then unlocks {@code numDescriptors} cell locks in one request, so the lock throughput is
+ * {@code numDescriptors} times the reported operations per second.
+ */
+@State(Scope.Benchmark)
+public class LockServiceBenchmarks {
+    private static final String TABLE_NAME = "lock.benchmarks";
+
+    @Param({"1", "100", "10000"})
+    private int numDescriptors;
+
+    private LockServiceImpl lockService;
+    private LockRequest sharedReadRequest;
+    private final AtomicInteger nextClientId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.lockService = LockServiceImpl.create();
+        this.sharedReadRequest = LockRequest.builder(cellLocks("shared", numDescriptors, LockMode.READ)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() {
+        lockService.close();
+    }
+
+    /** The client and write request of one benchmark thread, on cells that no other thread locks. */
+    @State(Scope.Thread)
+    public static class ClientLocks {
+        private LockClient client;
+        private LockRequest writeRequest;
+
+        @Setup(Level.Trial)
+        public void setup(LockServiceBenchmarks benchmark) {
+            String clientId = "client-" + benchmark.nextClientId.getAndIncrement();
+            this.client = LockClient.of(clientId);
+            this.writeRequest = LockRequest.builder(
+                    cellLocks(clientId, benchmark.numDescriptors, LockMode.WRITE)).build();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public HeldLocksToken writeLocksSingleThread(ClientLocks locks) throws InterruptedException {
+        return lockAndUnlock(locks.client, locks.writeRequest);
+    }
+
+    @Benchmark
+    @Threads(8)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public HeldLocksToken writeLocksEightThreads(ClientLocks locks) throws InterruptedException {
+        return lockAndUnlock(locks.client, locks.writeRequest);
+    }
+
+    @Benchmark
+    @Threads(8)
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public HeldLocksToken sharedReadLocksEightThreads(ClientLocks locks) throws InterruptedException {
+        return lockAndUnlock(locks.client, sharedReadRequest);
+    }
+
+    private HeldLocksToken lockAndUnlock(LockClient client, LockRequest request) throws InterruptedException {
+        HeldLocksToken token = lockService.lockWithFullLockResponse(client, request).getToken();
+        lockService.unlock(token);
+        return token;
+    }
+
+    private static SortedMap<LockDescriptor, LockMode> cellLocks(String row, int numCells, LockMode mode) {
+        SortedMap<LockDescriptor, LockMode> locks = Maps.newTreeMap();
+        for (int i = 0; i < numCells; i++) {
+            locks.put(AtlasCellLockDescriptor.of(TABLE_NAME, PtBytes.toBytes(row), PtBytes.toBytes(i)), mode);
+        }
+        return locks;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.RocksDbKeyFormatTables;
+
+/**
+ * Measures point reads of the RocksDB key value service in batches large enough to be split across its read threads,
+ * in each key format.
+ */
+@State(Scope.Benchmark)
+public class RocksDbBatchReadBenchmarks {
+
+    private static final int KEYS_PER_READ = 5000;
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getManyCells(RocksDbKeyFormatTables tables) {
+        Map<Cell, Value> result = tables.getKvs().get(tables.getReadTableRef(), tables.getCellsRequest(KEYS_PER_READ));
+        Preconditions.checkState(result.size() == KEYS_PER_READ, "Should be %s results, but were: %s",
+                KEYS_PER_READ, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getManyRows(RocksDbKeyFormatTables tables) {
+        List<byte[]> rows = tables.getRows(KEYS_PER_READ);
+        Map<Cell, Value> result = tables.getKvs().getRows(
+                tables.getReadTableRef(), rows, ColumnSelection.all(), Long.MAX_VALUE);
+        Preconditions.checkState(result.size() == KEYS_PER_READ, "Should be %s results, but were: %s",
+                KEYS_PER_READ, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Long> getManyLatestTimestamps(RocksDbKeyFormatTables tables) {
+        Map<Cell, Long> result = tables.getKvs().getLatestTimestamps(
+                tables.getReadTableRef(), tables.getCellsRequest(KEYS_PER_READ));
+        Preconditions.checkState(result.size() == KEYS_PER_READ, "Should be %s results, but were: %s",
+                KEYS_PER_READ, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Multimap<Cell, Long> getAllTimestampsOfManyCells(RocksDbKeyFormatTables tables) {
+        Multimap<Cell, Long> result = tables.getKvs().getAllTimestamps(
+                tables.getReadTableRef(), tables.getCells(KEYS_PER_READ), Long.MAX_VALUE);
+        Preconditions.checkState(result.keySet().size() == KEYS_PER_READ, "Should be %s cells, but were: %s",
+                KEYS_PER_READ, result.keySet().size());
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.ImmutableWriteOpts;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbKeyValueService;
+import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionServices;
+
+/**
+ * Performance benchmarks for committing transactions to an embedded RocksDB key value service under contention, each
+ * commit being a putUnlessExists of a distinct start timestamp into the transaction table.
+ */
+@State(Scope.Benchmark)
+public class RocksDbCommitBenchmarks {
+
+    /**
+     * Whether each commit is synced to disk before it returns.
+     */
+    @Param({"true", "false"})
+    private boolean fsyncCommit;
+
+    private final AtomicLong nextStartTimestamp = new AtomicLong();
+
+    private File dataDir;
+    private RocksDbKeyValueService kvs;
+    private TransactionService transactionService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataDir = Files.createTempDir();
+        kvs = RocksDbKeyValueService.create(
+                dataDir.getAbsolutePath(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableWriteOpts.builder().fsyncCommit(fsyncCommit).build(),
+                "leveldb.BytewiseComparator");
+        TransactionTables.createTables(kvs);
+        transactionService = TransactionServices.createTransactionService(kvs);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        kvs.close();
+        FileUtils.deleteDirectory(dataDir);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long commitSingleThread() {
+        return commit();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long commitEightThreads() {
+        return commit();
+    }
+
+    @Benchmark
+    @Threads(64)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long commitSixtyFourThreads() {
+        return commit();
+    }
+
+    private long commit() {
+        long startTimestamp = nextStartTimestamp.incrementAndGet();
+        transactionService.putUnlessExists(startTimestamp, startTimestamp + 1);
+        return startTimestamp;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.performance.benchmarks.table.RocksDbKeyFormatTables;
+import com.palantir.common.base.ClosableIterator;
+
+/**
+ * Compares the put, get and range scan throughput of the RocksDB key value service with keys in the row size suffix
+ * format, ordered by a java comparator, against keys in the bytewise format, ordered by RocksDB's builtin comparator.
+ * Every benchmark runs once for each format.
+ */
+@State(Scope.Benchmark)
+public class RocksDbKeyFormatBenchmarks {
+
+    private static final int BATCH_SIZE = 250;
+    private static final int CELLS_PER_GET = 100;
+    private static final int ROWS_PER_RANGE = 1000;
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Object batchRandomPut(RocksDbKeyFormatTables tables) {
+        Map<Cell, byte[]> batch = tables.generateBatchToInsert(BATCH_SIZE);
+        tables.getKvs().put(tables.getWriteTableRef(), batch, tables.getLatestTimestamp());
+        return batch;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Map<Cell, Value> getCells(RocksDbKeyFormatTables tables) {
+        Map<Cell, Value> result = tables.getKvs().get(tables.getReadTableRef(), tables.getCellsRequest(CELLS_PER_GET));
+        Preconditions.checkState(result.size() == CELLS_PER_GET, "Should be %s results, but were: %s",
+                CELLS_PER_GET, result.size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public Multimap<Cell, Long> getAllTimestamps(RocksDbKeyFormatTables tables) {
+        Multimap<Cell, Long> result = tables.getKvs().getAllTimestamps(
+                tables.getReadTableRef(), tables.getCells(CELLS_PER_GET), Long.MAX_VALUE);
+        Preconditions.checkState(result.keySet().size() == CELLS_PER_GET, "Should be %s cells, but were: %s",
+                CELLS_PER_GET, result.keySet().size());
+        return result;
+    }
+
+    @Benchmark
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public List<RowResult<Value>> getRange(RocksDbKeyFormatTables tables) {
+        RangeRequest request = tables.getRangeRequest(ROWS_PER_RANGE);
+        try (ClosableIterator<RowResult<Value>> iter =
+                tables.getKvs().getRange(tables.getReadTableRef(), request, Long.MAX_VALUE)) {
+            List<RowResult<Value>> rows = Lists.newArrayList(iter);
+            Preconditions.checkState(rows.size() == ROWS_PER_RANGE, "Should be %s rows, but were: %s",
+                    ROWS_PER_RANGE, rows.size());
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.palantir.timestamp.PersistentTimestampService;
+import com.palantir.timestamp.TimestampBoundStore;
+
+/**
+ * Performance benchmarks for handing out timestamps from a {@link PersistentTimestampService} under contention.
+ * <p>
+ * The bound store is kept in memory so that these measure the allocation path of the timestamp service itself,
+ * independent of the backend being benchmarked.
+ */
+@State(Scope.Benchmark)
+public class TimestampServiceBenchmarks {
+
+    private PersistentTimestampService timestampService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.timestampService = PersistentTimestampService.create(new InMemoryTimestampBoundStore());
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long getFreshTimestampSingleThread() {
+        return timestampService.getFreshTimestamp();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long getFreshTimestampEightThreads() {
+        return timestampService.getFreshTimestamp();
+    }
+
+    @Benchmark
+    @Threads(64)
+    @Warmup(time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 5, timeUnit = TimeUnit.SECONDS)
+    public long getFreshTimestampSixtyFourThreads() {
+        return timestampService.getFreshTimestamp();
+    }
+
+    private static final class InMemoryTimestampBoundStore implements TimestampBoundStore {
+        private volatile long upperLimit = 0;
+
+        @Override
+        public long getUpperLimit() {
+            return upperLimit;
+        }
+
+        @Override
+        public void storeUpperLimit(long limit) {
+            upperLimit = limit;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.atlasdb.performance.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+import com.palantir.atlasdb.performance.backend.AtlasDbServicesConnector;
+import com.palantir.atlasdb.services.AtlasDbServices;
+import com.palantir.atlasdb.transaction.service.BatchingTransactionService;
+import com.palantir.atlasdb.transaction.service.SimpleTransactionService;
+import com.palantir.atlasdb.transaction.service.TransactionService;
+import com.palantir.common.concurrent.PTExecutors;
+
+/**
+ * Performance benchmarks for writing commit timestamps to the transactions table, comparing one
+ * putUnlessExists per committer with group commit via {@link BatchingTransactionService}.
+ * <p>
+ * Each invocation commits {@code concurrency} transactions from that many threads at once, so commit
+ * throughput is {@code concurrency} divided by the sampled invocation time.
+ */
+@State(Scope.Benchmark)
+public class TransactionCommitBenchmarks {
+
+    @Param({"1", "16", "64", "256"})
+    private int concurrency;
+
+    private AtlasDbServicesConnector connector;
+    private SimpleTransactionService unbatched;
+    private BatchingTransactionService batched;
+    private ExecutorService committers;
+    private AtomicLong nextStartTimestamp;
+
+    @Setup(Level.Trial)
+    public void setup(AtlasDbServicesConnector conn) {
+        this.connector = conn;
+        AtlasDbServices services = conn.connect();
+        this.unbatched = new SimpleTransactionService(services.getKeyValueService());
+        this.batched = BatchingTransactionService.create(unbatched);
+        this.committers = PTExecutors.newFixedThreadPool(concurrency);
+        // Stay clear of any real transactions by starting from a fresh timestamp, two apart per commit.
+        this.nextStartTimestamp = new AtomicLong(services.getTimestampService().getFreshTimestamp());
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws Exception {
+        committers.shutdownNow();
+        batched.close();
+        connector.close();
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public int unbatchedCommits() throws Exception {
+        return commitConcurrently(unbatched);
+    }
+
+    @Benchmark
+    @Warmup(time = 2, timeUnit = TimeUnit.SECONDS)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS)
+    public int groupCommits() throws Exception {
+        return commitConcurrently(batched);
+    }
+
+    private int commitConcurrently(TransactionService transactionService) throws Exception {
+        List<Future<?>> commits = Lists.newArrayListWithCapacity(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            long startTs = nextStartTimestamp.getAndAdd(2);
+            commits.add(committers.submit(() -> transactionService.putUnlessExists(startTs, startTs + 1)));
+        }
+        for (Future<?> commit : commits) {
+            commit.get();
+        }
+        return commits.size();
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.performance.benchmarks.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.primitives.Ints;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.ImmutableWriteOpts;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbKeyValueService;
+
+/**
+ * State class for a RocksDB key value service in a temporary directory, created once for each key format, with a
+ * table of N rows with row names [0...N) which each have several versions, and an empty table to write to.
+ */
+@State(Scope.Benchmark)
+public class RocksDbKeyFormatTables {
+
+    private static final int NUM_ROWS = 10000;
+    private static final int NUM_VERSIONS = 10;
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * The comparator, and so the key format, of the tables: the java comparator of the row size suffix format, or
+     * RocksDB's builtin comparator for the bytewise format.
+     */
+    @Param({"atlasdb-v2", "leveldb.BytewiseComparator"})
+    private String comparator;
+
+    private final Random random = new Random(Tables.RANDOM_SEED);
+
+    private File dataDir;
+    private RocksDbKeyValueService kvs;
+
+    public KeyValueService getKvs() {
+        return kvs;
+    }
+
+    public TableReference getReadTableRef() {
+        return TableReference.createFromFullyQualifiedName("performance.rocksdb_read");
+    }
+
+    public TableReference getWriteTableRef() {
+        return TableReference.createFromFullyQualifiedName("performance.rocksdb_write");
+    }
+
+    public int getNumRows() {
+        return NUM_ROWS;
+    }
+
+    public long getLatestTimestamp() {
+        return Tables.DUMMY_TIMESTAMP + NUM_VERSIONS - 1;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataDir = Files.createTempDir();
+        kvs = RocksDbKeyValueService.create(
+                dataDir.getAbsolutePath(),
+                ImmutableMap.of(),
+                ImmutableMap.of(),
+                ImmutableWriteOpts.builder().build(),
+                comparator);
+        kvs.createTable(getReadTableRef(), AtlasDbConstants.GENERIC_TABLE_METADATA);
+        kvs.createTable(getWriteTableRef(), AtlasDbConstants.GENERIC_TABLE_METADATA);
+        for (int version = 0; version < NUM_VERSIONS; version++) {
+            for (int startRow = 0; startRow < NUM_ROWS; startRow += BATCH_SIZE) {
+                kvs.put(getReadTableRef(),
+                        Tables.generateContinuousBatch(random, startRow, Math.min(BATCH_SIZE, NUM_ROWS - startRow)),
+                        Tables.DUMMY_TIMESTAMP + version);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanup() throws IOException {
+        kvs.close();
+        FileUtils.deleteDirectory(dataDir);
+    }
+
+    public Map<Cell, byte[]> generateBatchToInsert(int size) {
+        return Tables.generateRandomBatch(random, size);
+    }
+
+    public Map<Cell, Long> getCellsRequest(int numberOfCellsToRequest) {
+        return random.ints(0, NUM_ROWS)
+                .distinct()
+                .limit(numberOfCellsToRequest)
+                .mapToObj(row -> Cell.create(Ints.toByteArray(row), Tables.COLUMN_NAME_IN_BYTES.array()))
+                .collect(Collectors.toMap(cell -> cell, cell -> Long.MAX_VALUE));
+    }
+
+    public Set<Cell> getCells(int numberOfCells) {
+        return getCellsRequest(numberOfCells).keySet();
+    }
+
+    public List<byte[]> getRows(int numberOfRows) {
+        return random.ints(0, NUM_ROWS)
+                .distinct()
+                .limit(numberOfRows)
+                .mapToObj(Ints::toByteArray)
+                .collect(Collectors.toList());
+    }
+
+    public RangeRequest getRangeRequest(int sliceSize) {
+        int startRow = random.nextInt(NUM_ROWS - sliceSize);
+        return RangeRequest.builder()
+                .batchHint(1 + sliceSize)
+                .startRowInclusive(Ints.toByteArray(startRow))
+                .endRowExclusive(Ints.toByteArray(startRow + sliceSize))
+                .build();
+    }
+}
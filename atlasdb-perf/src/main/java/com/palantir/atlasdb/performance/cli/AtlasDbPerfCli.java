@@ -36,10 +36,11 @@ import org.openjdk.jmh.runner.options.OptionsBuilder;
 import org.reflections.Reflections;
 import org.reflections.scanners.MethodAnnotationsScanner;
 
+import com.google.common.collect.Lists;
 import com.palantir.atlasdb.performance.BenchmarkParam;
+import com.palantir.atlasdb.performance.PerformanceComparison;
 import com.palantir.atlasdb.performance.PerformanceResults;
 import com.palantir.atlasdb.performance.backend.DatabasesContainer;
-import com.palantir.atlasdb.performance.backend.DockerizedDatabase;
 import com.palantir.atlasdb.performance.backend.DockerizedDatabaseUri;
 import com.palantir.atlasdb.performance.backend.KeyValueServiceType;
 
@@ -52,23 +53,28 @@ import io.airlift.airline.SingleCommand;
 /**
  * The Atlas Perf(ormance) CLI is a tool for making and running AtlasDB performance tests.
  *
- * This requires you to have a docker-machine running and configured correctly.
+ * This requires you to have a docker-machine running and configured correctly, unless only the in process backends
+ * (IN_MEMORY, ROCKSDB and H2) are used.
  *
  * @author mwakerman, bullman
  */
 @Command(name = "atlasdb-perf", description = "The AtlasDB performance benchmark CLI.")
 public class AtlasDbPerfCli {
+    private static final int REGRESSION_EXIT_CODE = 2;
+
     @Inject
     private HelpOption helpOption;
 
     @Arguments(description = "The performance benchmarks to run. Leave blank to run all performance benchmarks.")
     private Set<String> tests;
 
-    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES or CASSANDRA)"
+    @Option(name = {"-b", "--backend"}, description = "Backing KVS stores to use. (e.g. POSTGRES or CASSANDRA,"
+            + " or IN_MEMORY, ROCKSDB or H2 which run in process without docker)"
             + " Defaults to all backends if not specified.")
     private Set<String> backends;
 
     @Option(name = {"--db-uri"}, description = "Docker uri (e.g. POSTGRES@[phost:pport] or CASSANDRA@[chost:cport])."
+            + " In process backends are given without an address (e.g. ROCKSDB). "
             + "This is an alterative to specifying the --backend options that starts the docker containers locally.")
     private List<String> dbUris;
 
@@ -80,6 +86,27 @@ public class AtlasDbPerfCli {
                     + "Leave blank to only write results to the console.")
     private String outputFile;
 
+    @Option(name = {"--results-dir"},
+            description = "A directory in which to store the results of each run, named after the time of the run, "
+                    + "so that they can be used as the baseline of later runs.")
+    private String resultsDir;
+
+    @Option(name = {"--baseline"},
+            description = "The results to compare this run against: a file written by --output, or the name of a "
+                    + "run in --results-dir. The CLI exits with code " + REGRESSION_EXIT_CODE + " if any benchmark "
+                    + "regressed, or is in the baseline but missing from this run.")
+    private String baseline;
+
+    @Option(name = {"--regression-threshold"},
+            description = "The percentage by which a benchmark's score must be worse than the baseline's, beyond the "
+                    + "confidence intervals of both, for it to have regressed. Defaults to 10.")
+    private double regressionThresholdPercent = 10.0;
+
+    @Option(name = {"--report"},
+            description = "The file in which to store the comparison against the baseline as JSON. "
+                    + "Leave blank to only write the comparison to the console.")
+    private String reportFile;
+
     public static void main(String[] args) throws Exception {
         AtlasDbPerfCli cli = SingleCommand.singleCommand(AtlasDbPerfCli.class).parse(args);
 
@@ -93,15 +120,21 @@ public class AtlasDbPerfCli {
         }
 
         if (hasValidArgs(cli)) {
-            run(cli);
+            if (!run(cli)) {
+                System.exit(REGRESSION_EXIT_CODE);
+            }
         } else {
             System.exit(1);
         }
     }
 
-    private static void run(AtlasDbPerfCli cli) throws Exception {
+    /**
+     * Runs the benchmarks, and returns false if any of them regressed against the baseline or are missing
+     * from this run.
+     */
+    private static boolean run(AtlasDbPerfCli cli) throws Exception {
         if (cli.dbUris != null) {
-            runJmh(cli, getDockerUris(cli));
+            return runJmh(cli, getDockerUris(cli));
         } else {
             Set<String> backends = cli.backends != null
                     ? cli.backends
@@ -109,20 +142,23 @@ public class AtlasDbPerfCli {
                             .stream()
                             .map(Enum::toString)
                             .collect(Collectors.toSet());
-            try (DatabasesContainer container = startupDatabase(backends)) {
-                runJmh(cli,
-                        container.getDockerizedDatabases()
-                                .stream()
-                                .map(DockerizedDatabase::getUri)
-                                .collect(Collectors.toList()));
+            List<KeyValueServiceType> types = backends.stream()
+                    .map(KeyValueServiceType::valueOf)
+                    .collect(Collectors.toList());
+            try (DatabasesContainer container = startupDatabase(types)) {
+                List<DockerizedDatabaseUri> uris = Lists.newArrayList();
+                container.getDockerizedDatabases().forEach(db -> uris.add(db.getUri()));
+                types.stream()
+                        .filter(type -> !type.isDockerized())
+                        .forEach(type -> uris.add(DockerizedDatabaseUri.embedded(type)));
+                return runJmh(cli, uris);
             }
         }
     }
 
-    private static void runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
+    private static boolean runJmh(AtlasDbPerfCli cli, List<DockerizedDatabaseUri> uris) throws Exception {
         ChainedOptionsBuilder optBuilder = new OptionsBuilder()
                 .forks(1)
-                .threads(1)
                 .warmupIterations(1)
                 .measurementIterations(1)
                 .mode(Mode.SampleTime)
@@ -139,15 +175,41 @@ public class AtlasDbPerfCli {
         }
 
         Collection<RunResult> results = new Runner(optBuilder.build()).run();
+        PerformanceResults performanceResults = new PerformanceResults(results);
         if (cli.outputFile != null) {
-            new PerformanceResults(results).writeToFile(new File(cli.outputFile));
+            performanceResults.writeToFile(new File(cli.outputFile));
+        }
+        if (cli.resultsDir != null) {
+            String runName = performanceResults.writeToResultsDir(new File(cli.resultsDir));
+            System.out.println("Stored the results of this run as " + runName + " in " + cli.resultsDir);
+        }
+        if (cli.baseline == null) {
+            return true;
         }
+        PerformanceComparison comparison = PerformanceComparison.compare(
+                PerformanceResults.readFromFile(getBaselineFile(cli)),
+                performanceResults.getResults(),
+                cli.regressionThresholdPercent / 100,
+                PerformanceComparison.DEFAULT_CONFIDENCE);
+        comparison.printSummary(System.out);
+        if (cli.reportFile != null) {
+            comparison.writeToFile(new File(cli.reportFile));
+        }
+        return !comparison.hasRegressions();
+    }
+
+    private static File getBaselineFile(AtlasDbPerfCli cli) {
+        File file = new File(cli.baseline);
+        if (!file.isFile() && cli.resultsDir != null) {
+            return PerformanceResults.getRunFile(new File(cli.resultsDir), cli.baseline);
+        }
+        return file;
     }
 
-    private static DatabasesContainer startupDatabase(Set<String> backends) {
+    private static DatabasesContainer startupDatabase(List<KeyValueServiceType> backends) {
         return DatabasesContainer.startup(
                 backends.stream()
-                        .map(KeyValueServiceType::valueOf)
+                        .filter(KeyValueServiceType::isDockerized)
                         .collect(Collectors.toList()));
     }
 
@@ -175,9 +237,20 @@ public class AtlasDbPerfCli {
             try {
                 getDockerUris(cli);
             } catch (Exception e) {
-                throw new RuntimeException("Invalid dockerized database uri. Must be of the form [dbtype]@[host:port]");
+                throw new RuntimeException("Invalid dockerized database uri. Must be of the form [dbtype]@[host:port],"
+                        + " or [dbtype] for an in process backend");
             }
         }
+        if (cli.baseline != null && !getBaselineFile(cli).isFile()) {
+            throw new RuntimeException("Baseline " + cli.baseline + " is neither a results file nor a run in "
+                    + "--results-dir");
+        }
+        if (cli.reportFile != null && cli.baseline == null) {
+            throw new RuntimeException("Cannot specify --report without --baseline");
+        }
+        if (cli.regressionThresholdPercent < 0) {
+            throw new RuntimeException("--regression-threshold must not be negative");
+        }
         return true;
     }
 
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.palantir.atlasdb.performance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.performance.PerformanceComparison.BenchmarkComparison;
+import com.palantir.atlasdb.performance.PerformanceComparison.Status;
+import com.palantir.atlasdb.performance.PerformanceResults.PerformanceResult;
+
+public class PerformanceComparisonTest {
+    private static final double THRESHOLD = 0.1;
+
+    @Test
+    public void slowerSampleTimeBeyondThresholdRegresses() {
+        PerformanceComparison comparison = compare(result("get", 100.0, 1.0), result("get", 120.0, 1.0));
+        assertEquals(Status.REGRESSED, getOnlyStatus(comparison));
+        assertEquals(0.2, getOnlyComparison(comparison).change(), 1e-9);
+        assertTrue(comparison.hasRegressions());
+    }
+
+    @Test
+    public void fasterSampleTimeBeyondThresholdImproves() {
+        PerformanceComparison comparison = compare(result("get", 100.0, 1.0), result("get", 80.0, 1.0));
+        assertEquals(Status.IMPROVED, getOnlyStatus(comparison));
+        assertFalse(comparison.hasRegressions());
+    }
+
+    @Test
+    public void changeWithinThresholdIsUnchanged() {
+        PerformanceComparison comparison = compare(result("get", 100.0, 1.0), result("get", 105.0, 1.0));
+        assertEquals(Status.UNCHANGED, getOnlyStatus(comparison));
+    }
+
+    @Test
+    public void changeWithinNoiseIsUnchanged() {
+        PerformanceComparison comparison = compare(result("get", 100.0, 80.0), result("get", 140.0, 80.0));
+        assertEquals(Status.UNCHANGED, getOnlyStatus(comparison));
+    }
+
+    @Test
+    public void lowerThroughputRegresses() {
+        PerformanceComparison comparison = compare(
+                result("put", Mode.Throughput, ImmutableMap.of(), 1000.0, 5.0),
+                result("put", Mode.Throughput, ImmutableMap.of(), 800.0, 5.0));
+        assertEquals(Status.REGRESSED, getOnlyStatus(comparison));
+    }
+
+    @Test
+    public void operationSamplesDoNotNarrowTheConfidenceInterval() {
+        // Many tightly clustered samples of single operations, but only two iterations whose scores disagree.
+        PerformanceResult baseline = ImmutablePerformanceResult.builder()
+                .from(result("get", ImmutableList.of(90.0, 110.0)))
+                .data(Collections.nCopies(10000, 100.0))
+                .build();
+        PerformanceResult current = ImmutablePerformanceResult.builder()
+                .from(result("get", ImmutableList.of(100.0, 140.0)))
+                .data(Collections.nCopies(10000, 120.0))
+                .build();
+        assertEquals(Status.UNCHANGED, getOnlyStatus(compare(baseline, current)));
+    }
+
+    @Test
+    public void resultsWithoutIterationScoresHaveNoInterval() {
+        PerformanceResult baseline = ImmutablePerformanceResult.builder()
+                .from(result("get", 100.0, 1.0))
+                .iterationScores(ImmutableList.of())
+                .build();
+        PerformanceComparison comparison = compare(baseline, result("get", 200.0, 1.0));
+        assertEquals(Status.UNCHANGED, getOnlyStatus(comparison));
+        assertNull(getOnlyComparison(comparison).baselineLower());
+    }
+
+    @Test
+    public void tooFewSamplesAreUnchanged() {
+        PerformanceComparison comparison = compare(
+                result("get", ImmutableList.of(100.0)), result("get", ImmutableList.of(200.0)));
+        assertEquals(Status.UNCHANGED, getOnlyStatus(comparison));
+        assertNull(getOnlyComparison(comparison).currentLower());
+    }
+
+    @Test
+    public void benchmarkMissingFromBaselineIsNew() {
+        PerformanceComparison comparison = PerformanceComparison.compare(
+                ImmutableList.of(), ImmutableList.of(result("get", 100.0, 1.0)), THRESHOLD, 0.999);
+        assertEquals(Status.NEW, getOnlyStatus(comparison));
+        assertFalse(comparison.hasRegressions());
+    }
+
+    @Test
+    public void benchmarkMissingFromCurrentRunIsReportedAndFails() {
+        PerformanceComparison comparison = PerformanceComparison.compare(
+                ImmutableList.of(result("get", 100.0, 1.0)), ImmutableList.of(), THRESHOLD, 0.999);
+        BenchmarkComparison missing = getOnlyComparison(comparison);
+        assertEquals(Status.MISSING, missing.status());
+        assertEquals(100.0, missing.baselineMean(), 1e-9);
+        assertNull(missing.currentMean());
+        assertTrue(comparison.hasRegressions());
+    }
+
+    @Test
+    public void zeroBaselineWithZeroCurrentIsUnchanged() {
+        PerformanceComparison comparison = compare(
+                result("get", ImmutableList.of(0.0, 0.0, 0.0)), result("get", ImmutableList.of(0.0, 0.0, 0.0)));
+        assertEquals(Status.UNCHANGED, getOnlyStatus(comparison));
+        assertNull(getOnlyComparison(comparison).change());
+    }
+
+    @Test
+    public void increaseFromZeroBaselineRegresses() {
+        PerformanceComparison comparison = compare(
+                result("get", ImmutableList.of(0.0, 0.0, 0.0)), result("get", 10.0, 1.0));
+        assertEquals(Status.REGRESSED, getOnlyStatus(comparison));
+        assertNull(getOnlyComparison(comparison).change());
+    }
+
+    @Test
+    public void resultsAreMatchedByParameters() {
+        PerformanceComparison comparison = PerformanceComparison.compare(
+                ImmutableList.of(
+                        result("get", Mode.SampleTime, ImmutableMap.of("format", "a"), 100.0, 1.0),
+                        result("get", Mode.SampleTime, ImmutableMap.of("format", "b"), 100.0, 1.0)),
+                ImmutableList.of(
+                        result("get", Mode.SampleTime, ImmutableMap.of("format", "a"), 100.0, 1.0),
+                        result("get", Mode.SampleTime, ImmutableMap.of("format", "b"), 150.0, 1.0)),
+                THRESHOLD,
+                0.999);
+        Map<String, Status> statuses = comparison.getComparisons().stream()
+                .collect(Collectors.toMap(c -> c.params().get("format"), BenchmarkComparison::status));
+        assertEquals(ImmutableMap.of("a", Status.UNCHANGED, "b", Status.REGRESSED), statuses);
+    }
+
+    private static PerformanceComparison compare(PerformanceResult baseline, PerformanceResult current) {
+        return PerformanceComparison.compare(ImmutableList.of(baseline), ImmutableList.of(current), THRESHOLD, 0.999);
+    }
+
+    private static BenchmarkComparison getOnlyComparison(PerformanceComparison comparison) {
+        assertEquals(1, comparison.getComparisons().size());
+        return comparison.getComparisons().get(0);
+    }
+
+    private static Status getOnlyStatus(PerformanceComparison comparison) {
+        return getOnlyComparison(comparison).status();
+    }
+
+    private static PerformanceResult result(String benchmark, double mean, double spread) {
+        return result(benchmark, Mode.SampleTime, ImmutableMap.of(), mean, spread);
+    }
+
+    /**
+     * Returns a result with 20 iterations whose scores are spread evenly around the mean.
+     */
+    private static PerformanceResult result(String benchmark,
+                                            Mode mode,
+                                            Map<String, String> params,
+                                            double mean,
+                                            double spread) {
+        List<Double> scores = DoubleStream.iterate(-1.0, d -> d + 2.0 / 19).limit(20)
+                .map(d -> mean + spread * d)
+                .boxed()
+                .collect(Collectors.toList());
+        return result(benchmark, mode, params, scores);
+    }
+
+    private static PerformanceResult result(String benchmark, List<Double> scores) {
+        return result(benchmark, Mode.SampleTime, ImmutableMap.of(), scores);
+    }
+
+    private static PerformanceResult result(String benchmark,
+                                            Mode mode,
+                                            Map<String, String> params,
+                                            List<Double> scores) {
+        double mean = scores.stream().mapToDouble(Double::doubleValue).average().getAsDouble();
+        return ImmutablePerformanceResult.builder()
+                .date(0)
+                .suite("Benchmarks")
+                .benchmark(benchmark)
+                .backend("IN_MEMORY")
+                .params(params)
+                .mode(mode)
+                .samples(scores.size())
+                .std(0)
+                .mean(mean)
+                .data(ImmutableList.of())
+                .iterationScores(scores)
+                .units(TimeUnit.MICROSECONDS)
+                .p50(mean)
+                .p90(mean)
+                .p99(mean)
+                .build();
+    }
+}
@@ -20,8 +20,13 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.After;
 import org.junit.Before;
@@ -33,6 +38,9 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -275,6 +283,43 @@ public final class RocksDbKeyValueServiceTest {
     }
 
 
+    @Test
+    public void testConcurrentPutUnlessExists() throws Exception {
+        db.createTable(TRANSACTION_TABLE, AtlasDbConstants.EMPTY_TABLE_METADATA);
+        final int numThreads = 8;
+        final Map<Cell, byte[]> values = Maps.newHashMap();
+        for (int i = 0; i < 100; i++) {
+            values.put(Cell.create(Ints.toByteArray(i), COMMIT_TS_COLUMN), PtBytes.EMPTY_BYTE_ARRAY);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        final List<Future<Set<Cell>>> futures = Lists.newArrayList();
+        for (int t = 0; t < numThreads; t++) {
+            final byte[] value = Ints.toByteArray(t);
+            futures.add(executor.submit(() -> {
+                try {
+                    db.putUnlessExists(TRANSACTION_TABLE, Maps.transformValues(values, v -> value));
+                    return values.keySet();
+                } catch (KeyAlreadyExistsException e) {
+                    return Sets.difference(values.keySet(), ImmutableSet.copyOf(e.getExistingKeys()));
+                }
+            }));
+        }
+        final Map<Cell, Integer> winners = Maps.newHashMap();
+        for (int t = 0; t < numThreads; t++) {
+            for (Cell cell : futures.get(t).get()) {
+                assertEquals(null, winners.put(cell, t));
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(values.keySet(), winners.keySet());
+        final Map<Cell, Value> res = db.get(TRANSACTION_TABLE, Maps.transformValues(values, v -> 1L));
+        for (Map.Entry<Cell, Integer> winner : winners.entrySet()) {
+            assertEquals(winner.getValue().intValue(), Ints.fromByteArray(res.get(winner.getKey()).getContents()));
+        }
+    }
+
+
     @Test
     public void testMetadata() {
         db.putMetadataForTable(TABLE, "yoyo".getBytes());
@@ -300,6 +345,51 @@ public final class RocksDbKeyValueServiceTest {
         }
     }
 
+    @Test
+    public void testLargeReadsInParallelBatches() {
+        int numRows = 2500;
+        Map<Cell, Long> latestTimestamps = Maps.newHashMap();
+        Map<Cell, Long> requestAtTwo = Maps.newHashMap();
+        Map<Cell, Long> requestAtMax = Maps.newHashMap();
+        List<byte[]> rows = Lists.newArrayList();
+        for (int i = 0; i < numRows; i++) {
+            byte[] row = Ints.toByteArray(i);
+            rows.add(row);
+            for (String col : ImmutableList.of("a", "b")) {
+                Cell cell = Cell.create(row, col.getBytes());
+                db.put(TABLE, ImmutableMap.of(cell, ("v1" + i).getBytes()), 1);
+                if (i % 2 == 0 && col.equals("a")) {
+                    db.put(TABLE, ImmutableMap.of(cell, ("v3" + i).getBytes()), 3);
+                }
+                latestTimestamps.put(cell, i % 2 == 0 && col.equals("a") ? 3L : 1L);
+                requestAtTwo.put(cell, 2L);
+                requestAtMax.put(cell, Long.MAX_VALUE);
+            }
+            requestAtMax.put(Cell.create(row, "c".getBytes()), Long.MAX_VALUE);
+        }
+
+        Map<Cell, Value> atTwo = db.get(TABLE, requestAtTwo);
+        assertEquals(2 * numRows, atTwo.size());
+        for (Map.Entry<Cell, Value> e : atTwo.entrySet()) {
+            assertEquals(1L, e.getValue().getTimestamp());
+            assertEquals("v1" + Ints.fromByteArray(e.getKey().getRowName()), new String(e.getValue().getContents()));
+        }
+
+        assertEquals(latestTimestamps, db.getLatestTimestamps(TABLE, requestAtMax));
+
+        Collections.shuffle(rows);
+        Map<Cell, Value> latest = db.getRows(TABLE, rows, ColumnSelection.all(), Long.MAX_VALUE);
+        assertEquals(latestTimestamps.keySet(), latest.keySet());
+        for (Map.Entry<Cell, Value> e : latest.entrySet()) {
+            assertEquals(latestTimestamps.get(e.getKey()).longValue(), e.getValue().getTimestamp());
+        }
+
+        Multimap<Cell, Long> allTimestamps = db.getAllTimestamps(TABLE, requestAtMax.keySet(), Long.MAX_VALUE);
+        assertEquals(3 * numRows / 2 + numRows, allTimestamps.size());
+        Cell versioned = Cell.create(Ints.toByteArray(0), "a".getBytes());
+        assertEquals(ImmutableSet.of(1L, 3L), ImmutableSet.copyOf(allTimestamps.get(versioned)));
+    }
+
     private static <K, V> Map<K, V> putAll(Map<K, V> map, Iterable<? extends Map.Entry<? extends K, ? extends V>> it) {
         for (Map.Entry<? extends K, ? extends V> e : it) {
             map.put(e.getKey(), e.getValue());
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.util.Pair;
+
+public final class RocksKeyFormatTest {
+    private static final List<byte[]> NAMES_IN_ORDER = ImmutableList.of(
+            new byte[] {0},
+            new byte[] {0, 0},
+            new byte[] {0, 1},
+            new byte[] {1},
+            new byte[] {1, 0},
+            new byte[] {1, 0, (byte) 0xFF},
+            new byte[] {1, 1},
+            new byte[] {(byte) 0xFF},
+            new byte[] {(byte) 0xFF, 0});
+    private static final List<Long> TIMESTAMPS_IN_ORDER = ImmutableList.of(
+            Long.MAX_VALUE, 1L << 32, 256L, 255L, 1L, 0L, -1L);
+
+    @Test
+    public void testBytewiseKeysSortInAtlasOrder() {
+        List<byte[]> keysInAtlasOrder = Lists.newArrayList();
+        for (byte[] row : NAMES_IN_ORDER) {
+            for (byte[] col : NAMES_IN_ORDER) {
+                for (long ts : TIMESTAMPS_IN_ORDER) {
+                    keysInAtlasOrder.add(RocksKeyFormat.BYTEWISE.getKey(row, col, ts));
+                }
+            }
+        }
+        List<byte[]> sortedKeys = Lists.newArrayList(keysInAtlasOrder);
+        Collections.shuffle(sortedKeys);
+        Collections.sort(sortedKeys, UnsignedBytes.lexicographicalComparator());
+        for (int i = 0; i < keysInAtlasOrder.size(); i++) {
+            assertArrayEquals(keysInAtlasOrder.get(i), sortedKeys.get(i));
+        }
+    }
+
+    @Test
+    public void testRowStartKeySortsBeforeRowAndAfterPreviousRows() {
+        for (int i = 0; i < NAMES_IN_ORDER.size(); i++) {
+            byte[] startKey = RocksKeyFormat.BYTEWISE.getRowStartKey(NAMES_IN_ORDER.get(i), Long.MAX_VALUE);
+            for (int j = 0; j < NAMES_IN_ORDER.size(); j++) {
+                byte[] key = RocksKeyFormat.BYTEWISE.getKey(NAMES_IN_ORDER.get(j), new byte[] {0}, Long.MAX_VALUE);
+                int comparison = UnsignedBytes.lexicographicalComparator().compare(startKey, key);
+                assertEquals(j >= i, comparison < 0);
+            }
+        }
+    }
+
+    @Test
+    public void testKeysRoundTrip() {
+        for (RocksKeyFormat format : RocksKeyFormat.values()) {
+            for (byte[] row : NAMES_IN_ORDER) {
+                for (byte[] col : NAMES_IN_ORDER) {
+                    for (long ts : TIMESTAMPS_IN_ORDER) {
+                        Pair<Cell, Long> cellAndTs = format.parseCellAndTs(format.getKey(row, col, ts));
+                        assertEquals(Cell.create(row, col), cellAndTs.lhSide);
+                        assertEquals(ts, cellAndTs.rhSide.longValue());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpgraderConvertsKeysBetweenFormats() {
+        Cell cell = Cell.create(new byte[] {0, 1, 0}, new byte[] {2, 0});
+        byte[] oldKey = RocksKeyFormat.ROW_SIZE_SUFFIX.getKey(cell, 42L);
+        byte[] newKey = RocksDbUpgrader.convertKey(RocksKeyFormat.ROW_SIZE_SUFFIX, RocksKeyFormat.BYTEWISE, oldKey);
+        assertArrayEquals(RocksKeyFormat.BYTEWISE.getKey(cell, 42L), newKey);
+    }
+
+    @Test
+    public void testKeyFormatForComparator() {
+        assertEquals(RocksKeyFormat.ROW_SIZE_SUFFIX, RocksKeyFormat.forComparator("atlasdb-v2"));
+        assertEquals(RocksKeyFormat.BYTEWISE, RocksKeyFormat.forComparator("leveldb.BytewiseComparator"));
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import org.rocksdb.RocksIterator;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.util.Pair;
+
+/**
+ * Positions an iterator at the first version of each of a sequence of cells or rows, which must be visited in key
+ * order. Rather than seeking for every target, the iterator is left where the last target was found, and only moved
+ * forward by a few entries when the next target is close to it; it is only seeked when the next target is further on.
+ */
+final class ForwardSeeker {
+    private static final int MAX_NEXTS_BEFORE_SEEK = 8;
+
+    private final RocksIterator iter;
+    private final RocksKeyFormat keyFormat;
+    private boolean positioned = false;
+    private Pair<Cell, Long> current = null;
+
+    ForwardSeeker(RocksIterator iter, RocksKeyFormat keyFormat) {
+        this.iter = iter;
+        this.keyFormat = keyFormat;
+    }
+
+    /**
+     * Moves to the first entry which is a version of the given cell at or below the given timestamp, or which comes
+     * after all of them, and returns it, or null if there is no such entry.
+     */
+    Pair<Cell, Long> seek(Cell cell, long timestamp) {
+        if (positioned && moveForwardTo(cell.getRowName(), cell.getColumnName(), timestamp)) {
+            return current;
+        }
+        return seekTo(keyFormat.getKey(cell, timestamp));
+    }
+
+    /**
+     * Moves to the first entry of the given row, or the first entry after it, and returns it, or null if there is no
+     * such entry.
+     */
+    Pair<Cell, Long> seekRow(byte[] row, long timestamp) {
+        if (positioned && moveForwardTo(row, null, timestamp)) {
+            return current;
+        }
+        return seekTo(keyFormat.getRowStartKey(row, timestamp));
+    }
+
+    /**
+     * Moves to the next entry and returns it, or null if there is none.
+     */
+    Pair<Cell, Long> next() {
+        iter.next();
+        current = iter.isValid() ? keyFormat.parseCellAndTs(iter.key()) : null;
+        return current;
+    }
+
+    byte[] value() {
+        return iter.value();
+    }
+
+    private Pair<Cell, Long> seekTo(byte[] key) {
+        iter.seek(key);
+        positioned = true;
+        current = iter.isValid() ? keyFormat.parseCellAndTs(iter.key()) : null;
+        return current;
+    }
+
+    /**
+     * Returns whether the current entry is, or was moved forward to, the entry a seek to the given target would
+     * find. This holds once the current entry is at or after the target, as it is the first entry at or after an
+     * earlier target.
+     */
+    private boolean moveForwardTo(byte[] row, byte[] col, long timestamp) {
+        for (int i = 0; current != null; i++) {
+            if (compareTo(current, row, col, timestamp) >= 0) {
+                return true;
+            }
+            if (i == MAX_NEXTS_BEFORE_SEEK) {
+                return false;
+            }
+            next();
+        }
+        // Nothing is left after an earlier target, so nothing is left after this one either.
+        return true;
+    }
+
+    /**
+     * Compares an entry to the target in key order: by row, then column, then descending timestamp. A null column
+     * targets the start of the row.
+     */
+    private static int compareTo(Pair<Cell, Long> entry, byte[] row, byte[] col, long timestamp) {
+        int cmp = UnsignedBytes.lexicographicalComparator().compare(entry.lhSide.getRowName(), row);
+        if (cmp != 0 || col == null) {
+            return cmp == 0 ? 1 : cmp;
+        }
+        cmp = UnsignedBytes.lexicographicalComparator().compare(entry.lhSide.getColumnName(), col);
+        if (cmp != 0) {
+            return cmp;
+        }
+        return Long.compare(timestamp, entry.rhSide);
+    }
+}
@@ -19,18 +19,28 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 
 public enum RocksComparatorName {
-    V1("atlasdb"),
-    V2("atlasdb-v2");
+    V1("atlasdb", RocksKeyFormat.ROW_SIZE_SUFFIX),
+    V2("atlasdb-v2", RocksKeyFormat.ROW_SIZE_SUFFIX),
+    /**
+     * RocksDB's builtin comparator, which keys in the {@link RocksKeyFormat#BYTEWISE} format sort correctly with.
+     */
+    BYTEWISE("leveldb.BytewiseComparator", RocksKeyFormat.BYTEWISE);
 
     private final String comparatorName;
+    private final RocksKeyFormat keyFormat;
 
     @JsonCreator
-    private RocksComparatorName(String comparatorName) {
+    private RocksComparatorName(String comparatorName, RocksKeyFormat keyFormat) {
         this.comparatorName = comparatorName;
+        this.keyFormat = keyFormat;
     }
 
     @JsonValue
     public String getComparatorName() {
         return comparatorName;
     }
+
+    public RocksKeyFormat getKeyFormat() {
+        return keyFormat;
+    }
 }
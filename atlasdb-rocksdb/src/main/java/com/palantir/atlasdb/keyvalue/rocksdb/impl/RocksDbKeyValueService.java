@@ -28,6 +28,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
 import javax.management.MBeanServer;
@@ -59,10 +66,15 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.InsufficientConsistencyException;
@@ -75,9 +87,10 @@ import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.api.Value;
 import com.palantir.atlasdb.keyvalue.impl.KeyValueServices;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
+import com.palantir.common.annotation.Output;
 import com.palantir.common.base.ClosableIterator;
-import com.palantir.util.MutuallyExclusiveSetLock;
-import com.palantir.util.MutuallyExclusiveSetLock.LockState;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.util.file.TempFileUtils;
 import com.palantir.util.paging.TokenBackedBasicResultsPage;
 
@@ -86,12 +99,24 @@ public class RocksDbKeyValueService implements KeyValueService {
     private static final TableReference METADATA_TABLE_NAME = TableReference.createWithEmptyNamespace("_metadata");
     private static final long PUT_UNLESS_EXISTS_TS = 0L;
     private static final String LOCK_FILE_PREFIX = ".pt_kv_lock";
+    public static final int DEFAULT_READ_THREADS = 4;
+    /**
+     * Reads of more cells or rows than this are split into batches of this size, which are read in parallel.
+     */
+    private static final int PARALLEL_READ_BATCH_SIZE = 1000;
     final RocksDB db;
     final ColumnFamilyMap columnFamilies;
     private final FileLock lock;
     private final RandomAccessFile lockFile;
     private final WriteOpts writeOptions;
-    private final MutuallyExclusiveSetLock<Cell> lockSet = MutuallyExclusiveSetLock.<Cell>create(false);
+    private final RocksKeyFormat keyFormat;
+    private final ExecutorService readExecutor;
+    /**
+     * The cells being written by in flight calls to putUnlessExists, by table, each mapped to a latch released once
+     * its call has finished.
+     */
+    private final ConcurrentMap<TableReference, ConcurrentMap<Cell, CountDownLatch>> putUnlessExistsClaims =
+            Maps.newConcurrentMap();
     private volatile boolean closed = false;
 
     public static RocksDbKeyValueService create(String dataDir) {
@@ -107,6 +132,18 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 Map<String, String> cfOptions,
                                                 WriteOpts writeOpts,
                                                 String comparator) {
+        return create(dataDir, dbOptions, cfOptions, writeOpts, comparator, DEFAULT_READ_THREADS);
+    }
+
+    /**
+     * @param readThreads the number of threads reading the batches of large reads in parallel.
+     */
+    public static RocksDbKeyValueService create(String dataDir,
+                                                Map<String, String> dbOptions,
+                                                Map<String, String> cfOptions,
+                                                WriteOpts writeOpts,
+                                                String comparator,
+                                                int readThreads) {
         DBOptions dbOpts = new DBOptions().setCreateIfMissing(true);
         setReflectionOpts(dbOpts, dbOptions);
         ColumnFamilyOptions cfMetadataOpts = new ColumnFamilyOptions();
@@ -119,11 +156,16 @@ public class RocksDbKeyValueService implements KeyValueService {
         case "atlasdb":
             cfCommonOpts = new ColumnFamilyOptions().setComparator(RocksOldComparator.INSTANCE);
             break;
+        case "leveldb.BytewiseComparator":
+            // RocksDB's default comparator, which compares keys without calling back into java.
+            cfCommonOpts = new ColumnFamilyOptions();
+            break;
         default:
             throw new IllegalArgumentException("Unknown comparator " + comparator);
         }
         setReflectionOpts(cfCommonOpts, cfOptions);
-        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts);
+        RocksKeyFormat keyFormat = RocksKeyFormat.forComparator(comparator);
+        return create(dataDir, dbOpts, cfMetadataOpts, cfCommonOpts, writeOpts, keyFormat, readThreads);
     }
 
     private static void setReflectionOpts(Object opts,
@@ -161,8 +203,30 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                 ColumnFamilyOptions cfMetadataOptions,
                                                 ColumnFamilyOptions cfCommonOptions,
                                                 WriteOpts writeOptions) {
+        return create(dataDir,
+                dbOptions,
+                cfMetadataOptions,
+                cfCommonOptions,
+                writeOptions,
+                RocksKeyFormat.ROW_SIZE_SUFFIX,
+                DEFAULT_READ_THREADS);
+    }
+
+    /**
+     * @param keyFormat the format of the keys of Atlas tables, which must match the comparator of cfCommonOptions.
+     * @param readThreads the number of threads reading the batches of large reads in parallel.
+     */
+    public static RocksDbKeyValueService create(String dataDir,
+                                                DBOptions dbOptions,
+                                                ColumnFamilyOptions cfMetadataOptions,
+                                                ColumnFamilyOptions cfCommonOptions,
+                                                WriteOpts writeOptions,
+                                                RocksKeyFormat keyFormat,
+                                                int readThreads) {
+        Preconditions.checkArgument(readThreads > 0, "readThreads must be positive, was %s", readThreads);
         try {
-            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir), dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions);
+            RocksDbKeyValueService kvs = lockAndCreateDb(new File(dataDir),
+                    dbOptions, cfMetadataOptions, cfCommonOptions, writeOptions, keyFormat, readThreads);
             registerMBean(kvs);
             return kvs;
         } catch (Exception e) {
@@ -186,7 +250,10 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                           final DBOptions dbOptions,
                                                           final ColumnFamilyOptions cfMetadataOptions,
                                                           final ColumnFamilyOptions cfCommonOptions,
-                                                          final WriteOpts writeOpts) throws IOException, RocksDBException {
+                                                          final WriteOpts writeOpts,
+                                                          final RocksKeyFormat keyFormat,
+                                                          final int readThreads)
+            throws IOException, RocksDBException {
         TempFileUtils.mkdirsWithRetry(dbDir);
         Preconditions.checkArgument(dbDir.exists() && dbDir.isDirectory(), "DB file must be a directory: " + dbDir);
         final RandomAccessFile randomAccessFile =
@@ -229,7 +296,10 @@ public class RocksDbKeyValueService implements KeyValueService {
                 }
             }, db);
             columnFamilies.initialize(cfDescriptors, cfHandles);
-            RocksDbKeyValueService ret = new RocksDbKeyValueService(db, columnFamilies, lock, randomAccessFile, writeOpts);
+            ExecutorService readExecutor = PTExecutors.newFixedThreadPool(readThreads,
+                    new NamedThreadFactory("atlas-rocksdb-read", true));
+            RocksDbKeyValueService ret = new RocksDbKeyValueService(
+                    db, columnFamilies, lock, randomAccessFile, writeOpts, keyFormat, readExecutor);
             ret.createTable(METADATA_TABLE_NAME, AtlasDbConstants.EMPTY_TABLE_METADATA);
             success = true;
             return ret;
@@ -256,17 +326,26 @@ public class RocksDbKeyValueService implements KeyValueService {
                                    ColumnFamilyMap columnFamilies,
                                    FileLock lock,
                                    RandomAccessFile file,
-                                   WriteOpts writeOptions) {
+                                   WriteOpts writeOptions,
+                                   RocksKeyFormat keyFormat,
+                                   ExecutorService readExecutor) {
         this.db = db;
         this.columnFamilies = columnFamilies;
         this.lock = lock;
         this.lockFile = file;
         this.writeOptions = writeOptions;
+        this.keyFormat = keyFormat;
+        this.readExecutor = readExecutor;
+    }
+
+    public RocksKeyFormat getKeyFormat() {
+        return keyFormat;
     }
 
     @Override
     public void close() {
         if (!closed) {
+            readExecutor.shutdownNow();
             try {
                 getDb().close();
                 lock.release();
@@ -289,51 +368,107 @@ public class RocksDbKeyValueService implements KeyValueService {
                                     Iterable<byte[]> rows,
                                     ColumnSelection columnSelection,
                                     long timestamp) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (byte[] row : rows) {
-                RocksDbKeyValueServices.getRow(iter, row, columnSelection, timestamp, results);
-            }
-            return results;
-        }
+        List<byte[]> sortedRows = Ordering.from(UnsignedBytes.lexicographicalComparator()).sortedCopy(rows);
+        return readSorted(tableRef, sortedRows, Maps::newHashMap, Map::putAll, (seeker, row, results) ->
+                RocksDbKeyValueServices.getRow(seeker, row, columnSelection, timestamp, results));
     }
 
     @Override
     public Map<Cell, Value> get(TableReference tableRef,
                                 Map<Cell, Long> timestampByCell) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Value> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Value value = RocksDbKeyValueServices.getCell(iter, entry.getKey(), entry.getValue());
-                if (value != null) {
-                    results.put(entry.getKey(), value);
-                }
+        List<Entry<Cell, Long>> sortedCells = sortByCell(timestampByCell);
+        return readSorted(tableRef, sortedCells, Maps::newHashMap, Map::putAll, (seeker, entry, results) -> {
+            Value value = RocksDbKeyValueServices.getCell(seeker, entry.getKey(), entry.getValue());
+            if (value != null) {
+                results.put(entry.getKey(), value);
             }
-            return results;
-        }
+        });
     }
 
     @Override
     public Map<Cell, Long> getLatestTimestamps(TableReference tableRef,
                                                Map<Cell, Long> timestampByCell) {
-        try (Disposer d = new Disposer();
-                ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Map<Cell, Long> results = Maps.newHashMap();
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
-            for (Entry<Cell, Long> entry : timestampByCell.entrySet()) {
-                Long ts = RocksDbKeyValueServices.getTimestamp(iter, entry.getKey(), entry.getValue());
-                if (ts != null) {
-                    results.put(entry.getKey(), ts);
+        List<Entry<Cell, Long>> sortedCells = sortByCell(timestampByCell);
+        return readSorted(tableRef, sortedCells, Maps::newHashMap, Map::putAll, (seeker, entry, results) -> {
+            Long ts = RocksDbKeyValueServices.getTimestamp(seeker, entry.getKey(), entry.getValue());
+            if (ts != null) {
+                results.put(entry.getKey(), ts);
+            }
+        });
+    }
+
+    private static List<Entry<Cell, Long>> sortByCell(Map<Cell, Long> timestampByCell) {
+        List<Entry<Cell, Long>> entries = Lists.newArrayList(timestampByCell.entrySet());
+        entries.sort(Entry.comparingByKey());
+        return entries;
+    }
+
+    /**
+     * Reads the given keys, which must be in key order, with one forward pass of an iterator. When there are more
+     * than {@link #PARALLEL_READ_BATCH_SIZE} keys, consecutive batches of them are read in parallel on the read
+     * threads, each with its own iterator, and their results are merged.
+     */
+    private <K, R> R readSorted(TableReference tableRef,
+                                List<K> sortedKeys,
+                                Supplier<R> resultsFactory,
+                                BiConsumer<R, R> mergeInto,
+                                SortedRead<K, R> read) {
+        try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
+            if (sortedKeys.size() <= PARALLEL_READ_BATCH_SIZE) {
+                return readBatch(table, sortedKeys, resultsFactory, read);
+            }
+            List<Future<R>> futures = Lists.newArrayList();
+            boolean succeeded = false;
+            try {
+                for (List<K> batch : Lists.partition(sortedKeys, PARALLEL_READ_BATCH_SIZE)) {
+                    futures.add(readExecutor.submit(() -> readBatch(table, batch, resultsFactory, read)));
+                }
+                R results = resultsFactory.get();
+                for (Future<R> future : futures) {
+                    mergeInto.accept(results, Futures.getUnchecked(future));
                 }
+                succeeded = true;
+                return results;
+            } finally {
+                if (!succeeded) {
+                    // The iterators of the other batches must not outlive the column family reference.
+                    awaitQuietly(futures);
+                }
+            }
+        }
+    }
+
+    private static void awaitQuietly(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // already failing
+            }
+        }
+    }
+
+    private <K, R> R readBatch(ColumnFamily table,
+                               List<K> sortedKeys,
+                               Supplier<R> resultsFactory,
+                               SortedRead<K, R> read) {
+        try (Disposer d = new Disposer()) {
+            R results = resultsFactory.get();
+            ForwardSeeker seeker = new ForwardSeeker(d.register(getDb().newIterator(table.getHandle())), keyFormat);
+            for (K key : sortedKeys) {
+                read.read(seeker, key, results);
             }
             return results;
         }
     }
 
+    private interface SortedRead<K, R> {
+        void read(ForwardSeeker seeker, K key, R results);
+    }
+
     @Override
     public void put(TableReference tableRef, Map<Cell, byte[]> values, long timestamp) {
         try (Disposer d = new Disposer();
@@ -341,7 +476,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), timestamp);
+                byte[] key = keyFormat.getKey(entry.getKey(), timestamp);
                 batch.put(table.getHandle(), key, entry.getValue());
             }
             getDb().write(options, batch);
@@ -363,7 +498,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 for (Entry<TableReference, ? extends Map<Cell, byte[]>> entry : valuesByTable.entrySet()) {
                     ColumnFamilyHandle table = cfs.get(entry.getKey().getQualifiedName()).getHandle();
                     for (Entry<Cell, byte[]> subEntry : entry.getValue().entrySet()) {
-                        byte[] key = RocksDbKeyValueServices.getKey(subEntry.getKey(), timestamp);
+                        byte[] key = keyFormat.getKey(subEntry.getKey(), timestamp);
                         batch.put(table, key, subEntry.getValue());
                     }
                 }
@@ -386,7 +521,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Value> entry : cellValues.entries()) {
                 Value value = entry.getValue();
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), value.getTimestamp());
+                byte[] key = keyFormat.getKey(entry.getKey(), value.getTimestamp());
                 batch.put(table.getHandle(), key, value.getContents());
             }
             getDb().write(options, batch);
@@ -398,30 +533,63 @@ public class RocksDbKeyValueService implements KeyValueService {
     @Override
     public void putUnlessExists(TableReference tableRef, Map<Cell, byte[]> values)
             throws KeyAlreadyExistsException {
-        LockState<Cell> locks = lockSet.lockOnObjects(values.keySet());
+        Set<Cell> alreadyExists = Sets.newHashSetWithExpectedSize(0);
+        Map<Cell, byte[]> contended = putClaimedUnlessExists(tableRef, values, alreadyExists);
+        while (!contended.isEmpty()) {
+            contended = putClaimedUnlessExists(tableRef, contended, alreadyExists);
+        }
+        if (!alreadyExists.isEmpty()) {
+            throw new KeyAlreadyExistsException("key already exists", alreadyExists);
+        }
+    }
+
+    /**
+     * Claims every cell which is not claimed by a concurrent putUnlessExists, and writes the claimed cells which do
+     * not exist yet in one batch. Claiming never blocks, so calls on disjoint cells proceed in parallel. The cells
+     * claimed by others are returned once those claims are released, without holding any claims while waiting, so
+     * that the caller can retry them; they will then usually exist.
+     */
+    private Map<Cell, byte[]> putClaimedUnlessExists(TableReference tableRef,
+                                                     Map<Cell, byte[]> values,
+                                                     @Output Set<Cell> alreadyExists) {
+        ConcurrentMap<Cell, CountDownLatch> claims =
+                putUnlessExistsClaims.computeIfAbsent(tableRef, unused -> Maps.newConcurrentMap());
+        CountDownLatch claim = new CountDownLatch(1);
+        List<Cell> claimed = Lists.newArrayListWithCapacity(values.size());
+        Map<Cell, CountDownLatch> contended = Maps.newHashMapWithExpectedSize(0);
         try (Disposer d = new Disposer();
                 ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Set<Cell> alreadyExists = Sets.newHashSetWithExpectedSize(0);
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncCommit()));
             WriteBatch batch = d.register(new WriteBatch());
-            RocksIterator iter = d.register(getDb().newIterator(table.getHandle()));
             for (Entry<Cell, byte[]> entry : values.entrySet()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
-                if (RocksDbKeyValueServices.keyExists(iter, key)) {
+                CountDownLatch otherClaim = claims.putIfAbsent(entry.getKey(), claim);
+                if (otherClaim != null) {
+                    contended.put(entry.getKey(), otherClaim);
+                    continue;
+                }
+                claimed.add(entry.getKey());
+                byte[] key = keyFormat.getKey(entry.getKey(), PUT_UNLESS_EXISTS_TS);
+                if (getDb().get(table.getHandle(), key) != null) {
                     alreadyExists.add(entry.getKey());
                 } else {
                     batch.put(table.getHandle(), key, entry.getValue());
                 }
             }
-            getDb().write(options, batch);
-            if (!alreadyExists.isEmpty()) {
-                throw new KeyAlreadyExistsException("key already exists", alreadyExists);
+            if (batch.count() > 0) {
+                getDb().write(options, batch);
             }
         } catch (RocksDBException e) {
             throw Throwables.propagate(e);
         } finally {
-            locks.unlock();
+            for (Cell cell : claimed) {
+                claims.remove(cell, claim);
+            }
+            claim.countDown();
         }
+        for (CountDownLatch otherClaim : contended.values()) {
+            Uninterruptibles.awaitUninterruptibly(otherClaim);
+        }
+        return Maps.filterKeys(values, contended::containsKey);
     }
 
     @Override
@@ -431,7 +599,7 @@ public class RocksDbKeyValueService implements KeyValueService {
             WriteOptions options = d.register(new WriteOptions().setSync(writeOptions.fsyncPut()));
             WriteBatch batch = d.register(new WriteBatch());
             for (Entry<Cell, Long> entry : keys.entries()) {
-                byte[] key = RocksDbKeyValueServices.getKey(entry.getKey(), entry.getValue());
+                byte[] key = keyFormat.getKey(entry.getKey(), entry.getValue());
                 batch.remove(table.getHandle(), key);
             }
             getDb().write(options, batch);
@@ -462,7 +630,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new ValueRangeIterator(table, iter, rangeRequest, timestamp);
+        return new ValueRangeIterator(table, iter, keyFormat, rangeRequest, timestamp);
     }
 
     @Override
@@ -471,7 +639,16 @@ public class RocksDbKeyValueService implements KeyValueService {
                                                                        long timestamp) {
         ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
         RocksIterator iter = getDb().newIterator(table.getHandle());
-        return new TimestampRangeIterator(table, iter, rangeRequest, timestamp);
+        return new TimestampRangeIterator(table, iter, keyFormat, rangeRequest, timestamp);
+    }
+
+    @Override
+    public ClosableIterator<RowResult<CellTimestamps>> getRangeOfCellTimestamps(TableReference tableRef,
+                                                                             RangeRequest rangeRequest,
+                                                                             long timestamp) {
+        ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName());
+        RocksIterator iter = getDb().newIterator(table.getHandle());
+        return new CellTimestampsRangeIterator(table, iter, keyFormat, rangeRequest, timestamp);
     }
 
     @Override
@@ -600,7 +777,7 @@ public class RocksDbKeyValueService implements KeyValueService {
                 WriteOptions options = d.register(new WriteOptions().setSync(true));
                 WriteBatch batch = d.register(new WriteBatch());
                 for (Cell cell : cells) {
-                    byte[] key = RocksDbKeyValueServices.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
+                    byte[] key = keyFormat.getKey(cell, Value.INVALID_VALUE_TIMESTAMP);
                     batch.put(table.getHandle(), key, val);
                 }
                 getDb().write(options, batch);
@@ -614,18 +791,9 @@ public class RocksDbKeyValueService implements KeyValueService {
     public Multimap<Cell, Long> getAllTimestamps(TableReference tableRef,
                                                  Set<Cell> cells,
                                                  long timestamp) {
-        try (ColumnFamily table = columnFamilies.get(tableRef.getQualifiedName())) {
-            Multimap<Cell, Long> results = ArrayListMultimap.create();
-            RocksIterator iter = getDb().newIterator(table.getHandle());
-            try {
-                for (Cell cell : cells) {
-                    RocksDbKeyValueServices.getTimestamps(iter, cell, timestamp, results);
-                }
-            } finally {
-                iter.dispose();
-            }
-            return results;
-        }
+        List<Cell> sortedCells = Ordering.natural().sortedCopy(cells);
+        return readSorted(tableRef, sortedCells, ArrayListMultimap::create, Multimap::putAll, (seeker, cell, results) ->
+                RocksDbKeyValueServices.getTimestamps(seeker, cell, timestamp, results));
     }
 
     @Override
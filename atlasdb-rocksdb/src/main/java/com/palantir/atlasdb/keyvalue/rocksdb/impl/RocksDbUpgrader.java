@@ -18,17 +18,21 @@ package com.palantir.atlasdb.keyvalue.rocksdb.impl;
 import java.io.File;
 
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.WriteOptions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.config.LeaderConfig;
+import com.palantir.atlasdb.keyvalue.api.Cell;
 import com.palantir.atlasdb.keyvalue.api.TableReference;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ColumnFamilyMap.ColumnFamily;
 import com.palantir.atlasdb.rocksdb.RocksDbAtlasDbFactory;
 import com.palantir.atlasdb.rocksdb.RocksDbKeyValueServiceConfig;
+import com.palantir.util.Pair;
 
 public class RocksDbUpgrader {
     private static final ObjectMapper MAPPER = new ObjectMapper();
@@ -60,8 +64,17 @@ public class RocksDbUpgrader {
         }
         factory.createTimestampService(newKvs);
 
+        RocksKeyFormat oldKeyFormat = oldKvs.getKeyFormat();
+        RocksKeyFormat newKeyFormat = newKvs.getKeyFormat();
+        if (oldKeyFormat != newKeyFormat) {
+            System.out.println("Converting keys from the " + oldKeyFormat + " format to the " + newKeyFormat
+                    + " format.");
+        }
+
         for (String table : oldKvs.columnFamilies.getTableNames()) {
             System.out.println("Migrating table " + table);
+            // The metadata and default column families hold raw keys rather than cells and timestamps.
+            boolean convertKeys = oldKeyFormat != newKeyFormat && isAtlasTable(table);
             ColumnFamily oldCf = oldKvs.columnFamilies.get(table);
             ColumnFamily newCf = newKvs.columnFamilies.get(table);
             ColumnFamilyHandle newHandle = newCf.getHandle();
@@ -70,7 +83,7 @@ public class RocksDbUpgrader {
             iter.seekToFirst();
             long count = 0;
             while (iter.isValid()) {
-                byte[] key = iter.key();
+                byte[] key = convertKeys ? convertKey(oldKeyFormat, newKeyFormat, iter.key()) : iter.key();
                 byte[] value = iter.value();
                 newKvs.db.put(newHandle, opts, key, value);
                 iter.next();
@@ -86,6 +99,15 @@ public class RocksDbUpgrader {
         System.out.println("Finished migration of all tables.");
     }
 
+    private static boolean isAtlasTable(String table) {
+        return !table.equals("_metadata") && !table.equals(new String(RocksDB.DEFAULT_COLUMN_FAMILY, Charsets.UTF_8));
+    }
+
+    static byte[] convertKey(RocksKeyFormat oldKeyFormat, RocksKeyFormat newKeyFormat, byte[] key) {
+        Pair<Cell, Long> cellAndTs = oldKeyFormat.parseCellAndTs(key);
+        return newKeyFormat.getKey(cellAndTs.lhSide, cellAndTs.rhSide);
+    }
+
     private static void help() {
         System.out.println("RocksDbUpgrader");
         System.out.println();
@@ -106,5 +128,10 @@ public class RocksDbUpgrader {
         System.out.println("  new-settings.json");
         System.out.println("    Configuration for your new rocksdb database. The");
         System.out.println("    format is the same as for old-settings.json");
+        System.out.println();
+        System.out.println("  To move to keys ordered by the native rocksdb comparator,");
+        System.out.println("  set \"comparator\": \"leveldb.BytewiseComparator\" in");
+        System.out.println("  new-settings.json. The keys of every table are converted");
+        System.out.println("  while they are copied.");
     }
 }
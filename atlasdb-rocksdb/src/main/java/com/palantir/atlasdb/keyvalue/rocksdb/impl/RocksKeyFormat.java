@@ -0,0 +1,199 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.rocksdb.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.apache.commons.lang.ArrayUtils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Longs;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.ptobject.EncodingUtils;
+import com.palantir.util.Pair;
+
+/**
+ * The layout of the keys of the column families holding Atlas tables. Each key holds a cell and a timestamp, and the
+ * keys of a table must sort by row, then column, then descending timestamp.
+ */
+public enum RocksKeyFormat {
+    /**
+     * The row, the column, the timestamp and then the varlong encoded length of the row, reversed. These keys only
+     * sort correctly with {@link RocksComparator} (or, with ascending timestamps, {@link RocksOldComparator}), which
+     * RocksDB calls back into java for every comparison.
+     */
+    ROW_SIZE_SUFFIX {
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            Preconditions.checkArgument(EncodingUtils.sizeOfVarLong(row.length) <= 2);
+            byte[] rowSize = EncodingUtils.encodeVarLong(row.length);
+            ArrayUtils.reverse(rowSize);
+
+            byte[] key = new byte[row.length + col.length + 8 + rowSize.length];
+            ByteBuffer.wrap(key).order(ByteOrder.BIG_ENDIAN)
+                    .put(row)
+                    .put(col)
+                    .putLong(timestamp)
+                    .put(rowSize);
+            return key;
+        }
+
+        @Override
+        byte[] getRowStartKey(byte[] row, long timestamp) {
+            return getKey(row, new byte[1], timestamp);
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            byte[] rowSizeBytes = new byte[2];
+            rowSizeBytes[0] = key[key.length - 1];
+            rowSizeBytes[1] = key[key.length - 2];
+
+            int rowSize = (int) EncodingUtils.decodeVarLong(rowSizeBytes);
+            int colEnd = key.length - 8 - EncodingUtils.sizeOfVarLong(rowSize);
+
+            byte[] rowName = Arrays.copyOf(key, rowSize);
+            byte[] colName = Arrays.copyOfRange(key, rowSize, colEnd);
+            long ts = Longs.fromBytes(
+                    key[colEnd + 0],
+                    key[colEnd + 1],
+                    key[colEnd + 2],
+                    key[colEnd + 3],
+                    key[colEnd + 4],
+                    key[colEnd + 5],
+                    key[colEnd + 6],
+                    key[colEnd + 7]);
+
+            return Pair.create(Cell.create(rowName, colName), ts);
+        }
+    },
+
+    /**
+     * The escaped row, the escaped column and then the inverted timestamp, so that the unsigned lexicographic order of
+     * the keys is the order of their cells and timestamps. These keys sort correctly with RocksDB's builtin bytewise
+     * comparator, which compares them without leaving native code.
+     * <p>
+     * The row and column each have every 0x00 byte written as 0x00 0xFF, and are terminated by 0x00 0x01, so that a
+     * row or column sorts before every longer one it is a prefix of. The timestamp is written big endian with every
+     * bit but the sign bit flipped, so that later timestamps come first.
+     */
+    BYTEWISE {
+        private static final byte ESCAPE = 0x00;
+        private static final byte ESCAPED_ZERO = (byte) 0xFF;
+        private static final byte TERMINATOR = 0x01;
+
+        @Override
+        byte[] getKey(byte[] row, byte[] col, long timestamp) {
+            byte[] key = new byte[escapedSize(row) + escapedSize(col) + 8];
+            int offset = writeEscaped(row, key, 0);
+            offset = writeEscaped(col, key, offset);
+            ByteBuffer.wrap(key, offset, 8).order(ByteOrder.BIG_ENDIAN).putLong(timestamp ^ Long.MAX_VALUE);
+            return key;
+        }
+
+        @Override
+        byte[] getRowStartKey(byte[] row, long timestamp) {
+            // Every key of the row starts with the escaped row, and sorts after it.
+            byte[] key = new byte[escapedSize(row)];
+            writeEscaped(row, key, 0);
+            return key;
+        }
+
+        @Override
+        Pair<Cell, Long> parseCellAndTs(byte[] key) {
+            int rowEnd = findTerminator(key, 0);
+            byte[] rowName = unescape(key, 0, rowEnd);
+            int colEnd = findTerminator(key, rowEnd + 2);
+            byte[] colName = unescape(key, rowEnd + 2, colEnd);
+            long ts = ByteBuffer.wrap(key, colEnd + 2, 8).order(ByteOrder.BIG_ENDIAN).getLong() ^ Long.MAX_VALUE;
+            return Pair.create(Cell.create(rowName, colName), ts);
+        }
+
+        private int escapedSize(byte[] name) {
+            int size = name.length + 2;
+            for (byte b : name) {
+                if (b == ESCAPE) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        private int writeEscaped(byte[] name, byte[] key, int offset) {
+            for (byte b : name) {
+                key[offset++] = b;
+                if (b == ESCAPE) {
+                    key[offset++] = ESCAPED_ZERO;
+                }
+            }
+            key[offset++] = ESCAPE;
+            key[offset++] = TERMINATOR;
+            return offset;
+        }
+
+        private int findTerminator(byte[] key, int start) {
+            for (int i = start; i < key.length - 1; i++) {
+                if (key[i] == ESCAPE) {
+                    if (key[i + 1] == TERMINATOR) {
+                        return i;
+                    }
+                    i++;
+                }
+            }
+            throw new IllegalArgumentException("Malformed key " + Arrays.toString(key));
+        }
+
+        private byte[] unescape(byte[] key, int start, int end) {
+            byte[] name = new byte[end - start];
+            int size = 0;
+            for (int i = start; i < end; i++) {
+                name[size++] = key[i];
+                if (key[i] == ESCAPE) {
+                    i++;
+                }
+            }
+            return size == name.length ? name : Arrays.copyOf(name, size);
+        }
+    };
+
+    /**
+     * Returns the key format used by column families ordered by the comparator with the given name.
+     */
+    public static RocksKeyFormat forComparator(String comparatorName) {
+        for (RocksComparatorName name : RocksComparatorName.values()) {
+            if (name.getComparatorName().equals(comparatorName)) {
+                return name.getKeyFormat();
+            }
+        }
+        throw new IllegalArgumentException("Unknown comparator " + comparatorName);
+    }
+
+    byte[] getKey(Cell cell, long timestamp) {
+        return getKey(cell.getRowName(), cell.getColumnName(), timestamp);
+    }
+
+    abstract byte[] getKey(byte[] row, byte[] col, long timestamp);
+
+    /**
+     * Returns a key which sorts after the keys of every row before the given one, and before the key of every version
+     * of a cell in the given row which is at or below the given timestamp.
+     */
+    abstract byte[] getRowStartKey(byte[] row, long timestamp);
+
+    abstract Pair<Cell, Long> parseCellAndTs(byte[] key);
+}
@@ -27,8 +27,12 @@ import com.palantir.util.Pair;
 
 public class TimestampRangeIterator extends RangeIterator<Set<Long>> {
 
-    TimestampRangeIterator(ColumnFamily table, RocksIterator it, RangeRequest range, long maxTimestamp) {
-        super(table, it, range, maxTimestamp);
+    TimestampRangeIterator(ColumnFamily table,
+                           RocksIterator it,
+                           RocksKeyFormat keyFormat,
+                           RangeRequest range,
+                           long maxTimestamp) {
+        super(table, it, keyFormat, range, maxTimestamp);
     }
 
     @Override
@@ -39,7 +43,7 @@ public class TimestampRangeIterator extends RangeIterator<Set<Long>> {
             ret.add(cellAndInitialTs.rhSide);
         }
         for (it.next(); it.isValid(); it.next()) {
-            Pair<Cell, Long> cellAndTs = RocksDbKeyValueServices.parseCellAndTs(it.key());
+            Pair<Cell, Long> cellAndTs = keyFormat.parseCellAndTs(it.key());
             if (!cellAndTs.lhSide.equals(cell)) {
                 break;
             }
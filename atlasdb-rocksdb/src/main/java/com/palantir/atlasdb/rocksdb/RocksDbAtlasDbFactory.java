@@ -50,7 +50,8 @@ public class RocksDbAtlasDbFactory implements AtlasDbFactory {
                 MoreObjects.firstNonNull(rocksDbConfig.dbOptions(), ImmutableMap.<String, String>of()),
                 MoreObjects.firstNonNull(rocksDbConfig.cfOptions(), ImmutableMap.<String, String>of()),
                 MoreObjects.firstNonNull(rocksDbConfig.writeOptions(), ImmutableWriteOpts.builder().build()),
-                rocksDbConfig.getComparator());
+                rocksDbConfig.getComparator(),
+                rocksDbConfig.readThreads());
     }
 
     @Override
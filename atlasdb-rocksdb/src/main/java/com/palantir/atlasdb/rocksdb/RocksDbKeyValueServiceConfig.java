@@ -28,6 +28,7 @@ import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.ImmutableWriteOpts;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksComparatorName;
+import com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbKeyValueService;
 import com.palantir.atlasdb.keyvalue.rocksdb.impl.WriteOpts;
 import com.palantir.atlasdb.spi.KeyValueServiceConfig;
 
@@ -52,11 +53,25 @@ public abstract class RocksDbKeyValueServiceConfig implements KeyValueServiceCon
 
     public abstract Optional<String> nativeLibTmpDir();
 
+    /**
+     * The comparator ordering the keys of Atlas tables: "atlasdb-v2", "atlasdb" for databases created before
+     * "atlasdb-v2", or "leveldb.BytewiseComparator" for keys which RocksDB can compare without calling back into java.
+     * Existing databases must be copied with {@link com.palantir.atlasdb.keyvalue.rocksdb.impl.RocksDbUpgrader} to
+     * change their comparator.
+     */
     @Value.Default
     public String getComparator() {
         return RocksComparatorName.V2.getComparatorName();
     }
 
+    /**
+     * The number of threads reading the batches of large point reads in parallel.
+     */
+    @Value.Default
+    public int readThreads() {
+        return RocksDbKeyValueService.DEFAULT_READ_THREADS;
+    }
+
     @Value.Check
     protected final void check() {
         Preconditions.checkArgument(dataDir().exists() || dataDir().mkdirs(),
@@ -53,6 +53,7 @@ import com.palantir.atlasdb.AtlasDbConstants;
 import com.palantir.atlasdb.encoding.PtBytes;
 import com.palantir.atlasdb.keyvalue.api.BatchColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.CellTimestamps;
 import com.palantir.atlasdb.keyvalue.api.ColumnRangeSelection;
 import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
 import com.palantir.atlasdb.keyvalue.api.KeyAlreadyExistsException;
@@ -765,6 +766,47 @@ public abstract class AbstractAtlasDbKeyValueServiceTest {
         assertTrue(cell0.getValue().contains(TEST_TIMESTAMP + 1));
     }
 
+    @Test
+    public void testGetRangeOfCellTimestamps() {
+        Cell deletedCell = Cell.create(row0, column0);
+        Cell liveCell = Cell.create(row0, column1);
+        Cell otherRowCell = Cell.create(row1, column0);
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(deletedCell, value00, liveCell, value01), TEST_TIMESTAMP);
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(deletedCell, PtBytes.EMPTY_BYTE_ARRAY, liveCell, value0_t1,
+                otherRowCell, value10), TEST_TIMESTAMP + 1);
+        keyValueService.put(TEST_TABLE, ImmutableMap.of(liveCell, PtBytes.EMPTY_BYTE_ARRAY), TEST_TIMESTAMP + 2);
+
+        Map<Cell, CellTimestamps> cellTimestamps = getCellTimestamps(
+                keyValueService.getRangeOfCellTimestamps(TEST_TABLE, RangeRequest.all(), TEST_TIMESTAMP + 2));
+        assertEquals(ImmutableMap.of(
+                deletedCell, CellTimestamps.create(ImmutableSet.of(TEST_TIMESTAMP, TEST_TIMESTAMP + 1), true),
+                liveCell, CellTimestamps.create(ImmutableSet.of(TEST_TIMESTAMP, TEST_TIMESTAMP + 1), false),
+                otherRowCell, CellTimestamps.create(ImmutableSet.of(TEST_TIMESTAMP + 1), false)),
+                cellTimestamps);
+        assertEquals(cellTimestamps, getCellTimestamps(KeyValueServices.getRangeOfCellTimestampsUsingGetRange(
+                keyValueService, TEST_TABLE, RangeRequest.all(), TEST_TIMESTAMP + 2)));
+
+        cellTimestamps = getCellTimestamps(
+                keyValueService.getRangeOfCellTimestamps(TEST_TABLE, RangeRequest.all(), TEST_TIMESTAMP + 3));
+        assertTrue(cellTimestamps.get(liveCell).isLatestValueEmpty());
+        assertEquals(cellTimestamps, getCellTimestamps(KeyValueServices.getRangeOfCellTimestampsUsingGetRange(
+                keyValueService, TEST_TABLE, RangeRequest.all(), TEST_TIMESTAMP + 3)));
+    }
+
+    private static Map<Cell, CellTimestamps> getCellTimestamps(ClosableIterator<RowResult<CellTimestamps>> rows) {
+        Map<Cell, CellTimestamps> cellTimestamps = Maps.newHashMap();
+        try {
+            while (rows.hasNext()) {
+                for (Entry<Cell, CellTimestamps> cell : rows.next().getCells()) {
+                    cellTimestamps.put(cell.getKey(), cell.getValue());
+                }
+            }
+        } finally {
+            rows.close();
+        }
+        return cellTimestamps;
+    }
+
     @Test
     public void testKeyAlreadyExists() {
         // Test that it does not throw some random exceptions
@@ -17,6 +17,9 @@ package com.palantir.atlasdb.sweep;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.After;
@@ -30,6 +33,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.palantir.atlasdb.cleaner.Cleaner;
 import com.palantir.atlasdb.cleaner.NoOpCleaner;
 import com.palantir.atlasdb.keyvalue.api.Cell;
@@ -54,10 +58,12 @@ import com.palantir.atlasdb.transaction.api.ConflictHandler;
 import com.palantir.atlasdb.transaction.api.LockAwareTransactionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManager;
 import com.palantir.atlasdb.transaction.impl.ConflictDetectionManagers;
+import com.palantir.atlasdb.transaction.impl.ImmutableTransactionOptions;
 import com.palantir.atlasdb.transaction.impl.SerializableTransactionManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManager;
 import com.palantir.atlasdb.transaction.impl.SweepStrategyManagers;
 import com.palantir.atlasdb.transaction.impl.TransactionTables;
+import com.palantir.atlasdb.transaction.service.CommitTimestampCache;
 import com.palantir.atlasdb.transaction.service.TransactionService;
 import com.palantir.atlasdb.transaction.service.TransactionServices;
 import com.palantir.common.base.BatchingVisitables;
@@ -81,10 +87,13 @@ public abstract class AbstractSweeperTest {
     protected BackgroundSweeperImpl backgroundSweeper;
     protected LockService lockService;
     protected TransactionService txService;
+    protected SweepStrategyManager sweepStrategyManager;
+    private TimestampService tsService;
+    private TargetedSweepQueue targetedSweepQueue = TargetedSweepQueue.disabled();
 
     @Before
     public void setup() {
-        TimestampService tsService = new InMemoryTimestampService();
+        tsService = new InMemoryTimestampService();
         this.kvs = SweepStatsKeyValueService.create(getKeyValueService(), tsService);
         LockClient lockClient = LockClient.of("sweep client");
         lockService = LockServiceImpl.create(new LockServerOptions() { @Override public boolean isStandaloneServer() { return false; }});
@@ -92,6 +101,7 @@ public abstract class AbstractSweeperTest {
         Supplier<AtlasDbConstraintCheckingMode> constraints = Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING);
         ConflictDetectionManager cdm = ConflictDetectionManagers.createDefault(kvs);
         SweepStrategyManager ssm = SweepStrategyManagers.createDefault(kvs);
+        sweepStrategyManager = ssm;
         Cleaner cleaner = new NoOpCleaner();
         txManager = new SerializableTransactionManager(kvs, tsService, lockClient, lockService, txService, constraints, cdm, ssm, cleaner, false);
         setupTables(kvs);
@@ -115,11 +125,15 @@ public abstract class AbstractSweeperTest {
     }
 
     protected void setupBackgroundSweeper(int batchSize) {
+        setupBackgroundSweeper(batchSize, 1);
+    }
+
+    protected void setupBackgroundSweeper(int batchSize, int segmentsPerTable) {
         Supplier<Boolean> sweepEnabledSupplier = () -> true;
         Supplier<Long> sweepNoPause = () -> 0L;
         Supplier<Integer> batchSizeSupplier = () -> batchSize;
         Supplier<Integer> cellBatchSizeSupplier = () -> DEFAULT_CELL_BATCH_SIZE;
-        backgroundSweeper = new BackgroundSweeperImpl(txManager, kvs, sweepRunner, sweepEnabledSupplier, sweepNoPause, batchSizeSupplier, cellBatchSizeSupplier, SweepTableFactory.of());
+        backgroundSweeper = new BackgroundSweeperImpl(txManager, kvs, sweepRunner, sweepEnabledSupplier, sweepNoPause, batchSizeSupplier, cellBatchSizeSupplier, SweepTableFactory.of(), 1, segmentsPerTable);
     }
 
     @After
@@ -483,6 +497,68 @@ public abstract class AbstractSweeperTest {
         Assert.assertEquals(0, progressResults.size());
     }
 
+    @Test
+    public void testBackgroundSweepOfSegmentedTable() {
+        setupBackgroundSweeper(DEFAULT_BATCH_SIZE, 4);
+        createTable(SweepStrategy.CONSERVATIVE);
+        putIntoDefaultColumn("0foo", "bar", 50);
+        putIntoDefaultColumn("0foo", "baz", 100);
+        putIntoDefaultColumn("foo", "bar", 60);
+        putIntoDefaultColumn("foo", "baz", 110);
+        // the sweep tables are swept first, one segment at a time
+        runBackgroundSweep(150, 9);
+
+        List<SweepProgressRowResult> progressResults = getProgressTable();
+        Assert.assertEquals(4, progressResults.size());
+        Assert.assertEquals(1, progressResults.stream().filter(SweepProgressRowResult::hasFinishTime).count());
+        for (SweepProgressRowResult result : progressResults) {
+            Assert.assertEquals(TABLE_NAME.getQualifiedName(), result.getFullTableName());
+        }
+
+        runBackgroundSweep(150, 3);
+        Assert.assertEquals(0, getProgressTable().size());
+        Assert.assertEquals(ImmutableSet.of(-1L, 100L), getAllTs("0foo"));
+        Assert.assertEquals(ImmutableSet.of(-1L, 110L), getAllTs("foo"));
+        SweepPriorityRowResult result = getPriorityRow(TABLE_NAME);
+        Assert.assertEquals(new Long(150), result.getMinimumSweptTimestamp());
+        Assert.assertEquals(new Long(2), result.getCellsDeleted());
+        Assert.assertEquals(new Long(2), result.getCellsExamined());
+    }
+
+    @Test
+    public void testConcurrentBackgroundSweeps() throws Exception {
+        setupBackgroundSweeper(2, 2);
+        createTable(SweepStrategy.CONSERVATIVE);
+        for (int i = 0; i < 20; i++) {
+            putIntoDefaultColumn("row" + i, "bar", 10_000 + i);
+            putIntoDefaultColumn("row" + i, "baz", 20_000 + i);
+        }
+        sweepTimestamp.set(30_000);
+        // Start the transactions of the sweeper above the sweep timestamp, or sweeping the sweep tables
+        // would roll back the transactions other workers have in flight on them.
+        tsService.getFreshTimestamps(40_000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100 && !isSwept(TABLE_NAME); i++) {
+                    backgroundSweeper.runOnce();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        SweepPriorityRowResult result = getPriorityRow(TABLE_NAME);
+        Assert.assertEquals(new Long(20), result.getCellsDeleted());
+        Assert.assertEquals(new Long(20), result.getCellsExamined());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(ImmutableSet.of(-1L, 20_000L + i), getAllTs("row" + i));
+        }
+    }
+
     @Test
     public void testBackgroundSweepCanHandleNegativeImmutableTimestamp() {
         createTable(SweepStrategy.CONSERVATIVE);
@@ -540,6 +616,121 @@ public abstract class AbstractSweeperTest {
         Assert.assertEquals(sweepResults.getCellsDeleted(), 1);
     }
 
+    @Test
+    public void testTargetedSweepConservative() {
+        createTable(SweepStrategy.CONSERVATIVE);
+        TargetedSweeper targetedSweeper = createTargetedSweeper();
+        putIntoDefaultColumn("foo", "bar", 50);
+        putIntoDefaultColumn("foo", "baz", 100);
+        putIntoDefaultColumn("qux", "bar", 110);
+
+        sweepTimestamp.set(175);
+        Assert.assertEquals(3, targetedSweeper.runOnce());
+        Assert.assertEquals("baz", get("foo", 150));
+        Assert.assertEquals("", get("foo", 80));
+        Assert.assertEquals(ImmutableSet.of(-1L, 100L), getAllTs("foo"));
+        Assert.assertEquals(ImmutableSet.of(110L), getAllTs("qux"));
+        Assert.assertEquals(0, targetedSweeper.runOnce());
+    }
+
+    @Test
+    public void testTargetedSweepLatestDeletedThorough() {
+        createTable(SweepStrategy.THOROUGH);
+        TargetedSweeper targetedSweeper = createTargetedSweeper();
+        putIntoDefaultColumn("foo", "bar", 50);
+        putIntoDefaultColumn("foo", "", 100);
+
+        sweepTimestamp.set(175);
+        Assert.assertEquals(2, targetedSweeper.runOnce());
+        Assert.assertEquals(null, get("foo", 150));
+        Assert.assertEquals(ImmutableSet.of(), getAllTs("foo"));
+    }
+
+    @Test
+    public void testTargetedSweepWaitsForCommitsBeforeSweepTimestamp() {
+        createTable(SweepStrategy.CONSERVATIVE);
+        TargetedSweeper targetedSweeper = createTargetedSweeper();
+        putIntoDefaultColumn("foo", "bar", 50);
+        putUncommitted("foo", "baz", 100);
+        txService.putUnlessExists(100L, 200L);
+
+        sweepTimestamp.set(175);
+        Assert.assertEquals(1, targetedSweeper.runOnce());
+        Assert.assertEquals(ImmutableSet.of(50L, 100L), getAllTs("foo"));
+
+        sweepTimestamp.set(250);
+        Assert.assertEquals(1, targetedSweeper.runOnce());
+        Assert.assertEquals("baz", get("foo", 300));
+        Assert.assertEquals(ImmutableSet.of(-1L, 100L), getAllTs("foo"));
+    }
+
+    @Test
+    public void testTargetedSweepDoesNotQueueSweepStrategyNothing() {
+        createTable(SweepStrategy.NOTHING);
+        TargetedSweeper targetedSweeper = createTargetedSweeper();
+        putIntoDefaultColumn("foo", "bar", 50);
+        putIntoDefaultColumn("foo", "baz", 100);
+
+        sweepTimestamp.set(175);
+        Assert.assertEquals(0, targetedSweeper.runOnce());
+        Assert.assertEquals(ImmutableSet.of(50L, 100L), getAllTs("foo"));
+    }
+
+    @Test
+    public void testTargetedSweepOfCellsWrittenByTransactions() {
+        createTable(SweepStrategy.CONSERVATIVE);
+        TargetedSweeper targetedSweeper = createTargetedSweeper();
+        SerializableTransactionManager queueingTxManager = new SerializableTransactionManager(
+                kvs,
+                tsService,
+                LockClient.of("queueing client"),
+                lockService,
+                txService,
+                Suppliers.ofInstance(AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING),
+                ConflictDetectionManagers.createDefault(kvs),
+                sweepStrategyManager,
+                new NoOpCleaner(),
+                false,
+                CommitTimestampCache.create(),
+                ImmutableTransactionOptions.builder().sweepQueue(targetedSweepQueue).build());
+        try {
+            putInTransaction(queueingTxManager, "foo", "bar");
+            long lastStartTs = putInTransaction(queueingTxManager, "foo", "baz");
+            Assert.assertEquals(2, getQueuedEntries().size());
+
+            sweepTimestamp.set(tsService.getFreshTimestamp());
+            Assert.assertEquals(2, targetedSweeper.runOnce());
+            Assert.assertEquals(ImmutableSet.of(-1L, lastStartTs), getAllTs("foo"));
+            Assert.assertEquals(0, getQueuedEntries().size());
+        } finally {
+            queueingTxManager.close();
+        }
+    }
+
+    private long putInTransaction(LockAwareTransactionManager transactionManager, String row, String val) {
+        return transactionManager.runTaskWithRetry(tx -> {
+            tx.put(TABLE_NAME, ImmutableMap.of(Cell.create(row.getBytes(), COL.getBytes()), val.getBytes()));
+            return tx.getTimestamp();
+        });
+    }
+
+    private List<TargetedSweepQueue.Entry> getQueuedEntries() {
+        List<TargetedSweepQueue.Entry> entries = Lists.newArrayList();
+        for (int shard = 0; shard < targetedSweepQueue.getShards(); shard++) {
+            entries.addAll(targetedSweepQueue.getEntries(shard, Long.MAX_VALUE, DEFAULT_BATCH_SIZE));
+        }
+        return entries;
+    }
+
+    /**
+     * Creates a targeted sweeper whose queue is filled with the writes made by this test from now on.
+     */
+    private TargetedSweeper createTargetedSweeper() {
+        targetedSweepQueue = TargetedSweepQueue.create(kvs, sweepStrategyManager, 4);
+        return new TargetedSweeper(txManager, targetedSweepQueue, sweepRunner, txService,
+                () -> true, () -> 0L, () -> DEFAULT_BATCH_SIZE);
+    }
+
     private void testSweepManyRows(SweepStrategy strategy) {
         createTable(strategy);
         putIntoDefaultColumn("foo", "bar1", 5);
@@ -567,6 +758,17 @@ public abstract class AbstractSweeperTest {
         });
     }
 
+    private SweepPriorityRowResult getPriorityRow(TableReference tableRef) {
+        return txManager.runTaskReadOnly(t -> SweepTableFactory.of().getSweepPriorityTable(t)
+                .getRow(SweepPriorityTable.SweepPriorityRow.of(tableRef.getQualifiedName()))
+                .orNull());
+    }
+
+    private boolean isSwept(TableReference tableRef) {
+        SweepPriorityRowResult result = getPriorityRow(tableRef);
+        return result != null && result.hasLastSweepTime();
+    }
+
     private void runBackgroundSweep(long sweepTs, int numberOfTimes) {
         sweepTimestamp.set(sweepTs);
         for (int i = 0; i < numberOfTimes; i++) {
@@ -620,12 +822,14 @@ public abstract class AbstractSweeperTest {
 
     protected void put(final TableReference tableRef, final String row, final String column, final String val, final long ts) {
         Cell cell = Cell.create(row.getBytes(), column.getBytes());
+        targetedSweepQueue.enqueue(ImmutableMap.of(tableRef, ImmutableMap.of(cell, val.getBytes())), ts);
         kvs.put(tableRef, ImmutableMap.of(cell, val.getBytes()), ts);
         txService.putUnlessExists(ts, ts);
     }
 
     private void putUncommitted(final String row, final String val, final long ts) {
         Cell cell = Cell.create(row.getBytes(), COL.getBytes());
+        targetedSweepQueue.enqueue(ImmutableMap.of(TABLE_NAME, ImmutableMap.of(cell, val.getBytes())), ts);
         kvs.put(TABLE_NAME, ImmutableMap.of(cell, val.getBytes()), ts);
     }
 
@@ -58,6 +58,7 @@ import com.palantir.common.base.BatchingVisitables;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.lock.LockRefreshToken;
+import com.palantir.util.SoftCache;
 
 
 public abstract class AbstractSerializableTransactionTest extends AbstractTransactionTest {
@@ -76,6 +77,10 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 NoOpCleaner.INSTANCE);
     }
 
+    protected boolean validateReadsByTimestamp() {
+        return false;
+    }
+
     @Override
     protected Transaction startTransaction() {
         ImmutableMap<TableReference, ConflictHandler> tablesToWriteWrite = ImmutableMap.of(
@@ -97,7 +102,11 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
                 AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
                 null,
                 TransactionReadSentinelBehavior.THROW_EXCEPTION,
-                true) {
+                true,
+                new SoftCache<>(),
+                ImmutableTransactionOptions.builder()
+                        .validateReadsByTimestamp(validateReadsByTimestamp())
+                        .build()) {
             @Override
             protected Map<Cell, byte[]> transformGetsForTesting(Map<Cell, byte[]> map) {
                 return Maps.transformValues(map, new Function<byte[], byte[]>() {
@@ -413,6 +422,101 @@ public abstract class AbstractSerializableTransactionTest extends AbstractTransa
         }
     }
 
+    @Test
+    public void testNonPhantomReadReverse() {
+        if (!supportsReverse()) {
+            return;
+        }
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        put(t0, "row2", "col1", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.getFirst(t1.getRange(TEST_TABLE, RangeRequest.reverseBuilder().build()));
+        put(t1, "row22", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row11", "col1", initialValue);
+        t2.commit();
+
+        t1.commit();
+    }
+
+    @Test
+    public void testPhantomReadFailReverse() {
+        if (!supportsReverse()) {
+            return;
+        }
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        put(t0, "row2", "col1", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.getFirst(t1.getRange(TEST_TABLE, RangeRequest.reverseBuilder().build()));
+        put(t1, "row22", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row3", "col1", initialValue);
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // this is expectecd to throw because it is a write skew
+        }
+    }
+
+    @Test
+    public void testPhantomReadFailReverse2() {
+        if (!supportsReverse()) {
+            return;
+        }
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        put(t0, "row2", "col1", initialValue);
+        put(t0, "row2", "col2", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.reverseBuilder().build()));
+        put(t1, "row22", "col1", initialValue);
+
+        Transaction t2 = startTransaction();
+        put(t2, "row0", "col1", initialValue);
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // this is expectecd to throw because it is a write skew
+        }
+    }
+
+    @Test
+    public void testReverseRangeReadNoConflict() {
+        if (!supportsReverse()) {
+            return;
+        }
+        String initialValue = "100";
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", initialValue);
+        put(t0, "row2", "col1", initialValue);
+        put(t0, "row2", "col2", initialValue);
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        BatchingVisitables.copyToList(t1.getRange(TEST_TABLE, RangeRequest.reverseBuilder().batchHint(1).build()));
+        put(t1, "row22", "col1", initialValue);
+        t1.commit();
+    }
+
     @Test
     public void testCellReadWriteFailure() {
         String initialValue = "100";
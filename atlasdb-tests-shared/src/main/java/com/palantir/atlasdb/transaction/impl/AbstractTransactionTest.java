@@ -41,6 +41,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
@@ -882,6 +883,46 @@ public abstract class AbstractTransactionTest extends TransactionTestSetup {
         assertFalse(vals.containsKey(Cell.create("row2".getBytes(), "col1".getBytes())));
     }
 
+    @Test
+    public void testReadMyWritesReverseRange() {
+        if (!supportsReverse()) {
+            return;
+        }
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        put(t, "row2", "col1", "v2");
+        put(t, "row2", "col2", "v3");
+        put(t, "row4", "col1", "v4");
+        put(t, "row5", "col1", "v5");
+        t.commit();
+
+        t = startTransaction();
+        put(t, "row0", "col1", "v6");
+        put(t, "row3", "col1", "v7");
+        put(t, "row2", "col3", "v8");
+        delete(t, "row4", "col1");
+        put(t, "row6", "col1", "v9");
+
+        RangeRequest range = RangeRequest.reverseBuilder()
+                .startRowInclusive(PtBytes.toBytes("row5"))
+                .endRowExclusive(PtBytes.toBytes("row0"))
+                .batchHint(1)
+                .build();
+        List<RowResult<byte[]>> rows = BatchingVisitables.copyToList(t.getRange(TEST_TABLE, range));
+        List<String> rowNames = Lists.newArrayList();
+        for (RowResult<byte[]> row : rows) {
+            rowNames.add(PtBytes.toString(row.getRowName()));
+        }
+        assertEquals(ImmutableList.of("row5", "row3", "row2", "row1"), rowNames);
+        assertEquals(3, rows.get(2).getColumns().size());
+        assertEquals("v8", PtBytes.toString(rows.get(2).getColumns().get(PtBytes.toBytes("col3"))));
+
+        List<RowResult<byte[]>> firstTwo = BatchingVisitables.take(
+                t.getRange(TEST_TABLE, RangeRequest.reverseBuilder().build()), 2);
+        assertEquals("row6", PtBytes.toString(firstTwo.get(0).getRowName()));
+        assertEquals("row5", PtBytes.toString(firstTwo.get(1).getRowName()));
+    }
+
     @Test
     public void testReadMyWritesAfterGetRange() throws InterruptedException, ExecutionException {
         Transaction t = startTransaction();
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionSerializableConflictException;
+import com.palantir.atlasdb.transaction.impl.AbstractSerializableTransactionTest;
+import com.palantir.atlasdb.transaction.impl.TransactionConstants;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class MemoryTimestampValidatedSerializableTransactionTest extends AbstractSerializableTransactionTest {
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return new InMemoryKeyValueService(false, PTExecutors.newSingleThreadExecutor(PTExecutors.newNamedThreadFactory(true)));
+    }
+
+    @Override
+    protected boolean validateReadsByTimestamp() {
+        return true;
+    }
+
+    @Test
+    public void testRewrittenValueDoesNotConflict() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", "100");
+        t0.commit();
+
+        Transaction t1 = startTransaction();
+        assertEquals("100", getCell(t1, "row1", "col1"));
+        put(t1, "row2", "col1", "100");
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", "100");
+        t2.commit();
+
+        t1.commit();
+    }
+
+    @Test
+    public void testAbortedWriteDoesNotConflict() {
+        Transaction t0 = startTransaction();
+        put(t0, "row1", "col1", "100");
+        t0.commit();
+
+        long abortedTimestamp = timestampService.getFreshTimestamp();
+        Transaction t1 = startTransaction();
+        assertEquals("100", get(t1, "row1", "col1"));
+        put(t1, "row2", "col1", "100");
+
+        putDirect("row1", "col1", "50", abortedTimestamp);
+        transactionService.putUnlessExists(abortedTimestamp, TransactionConstants.FAILED_COMMIT_TS);
+
+        t1.commit();
+    }
+
+    @Test
+    public void testWriteToUnreadCellConflicts() {
+        Transaction t1 = startTransaction();
+        assertEquals(null, getCell(t1, "row1", "col1"));
+        put(t1, "row2", "col1", "100");
+
+        Transaction t2 = startTransaction();
+        put(t2, "row1", "col1", "50");
+        t2.commit();
+
+        try {
+            t1.commit();
+            fail();
+        } catch (TransactionSerializableConflictException e) {
+            // expected
+        }
+    }
+}
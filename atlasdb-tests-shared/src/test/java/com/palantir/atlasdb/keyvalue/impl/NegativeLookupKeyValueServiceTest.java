@@ -0,0 +1,187 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.keyvalue.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.Cell;
+import com.palantir.atlasdb.keyvalue.api.ColumnSelection;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.api.Value;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+
+public class NegativeLookupKeyValueServiceTest {
+    private static final TableReference TABLE = TableReference.createWithEmptyNamespace("ns.negative_lookups");
+    private static final TableReference OTHER_TABLE = TableReference.createWithEmptyNamespace("ns.other");
+    private static final byte[] COLUMN = PtBytes.toBytes("col");
+    private static final byte[] VALUE = PtBytes.toBytes("value");
+    private static final long TIMESTAMP = 10L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private KeyValueService rawKvs;
+    private KeyValueService countingKvs;
+
+    @Before
+    public void setUp() {
+        rawKvs = new InMemoryKeyValueService(false);
+        countingKvs = new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return rawKvs;
+            }
+
+            @Override
+            public Map<Cell, Value> get(TableReference tableRef, Map<Cell, Long> timestampByCell) {
+                reads.incrementAndGet();
+                return super.get(tableRef, timestampByCell);
+            }
+
+            @Override
+            public Map<Cell, Value> getRows(TableReference tableRef,
+                                            Iterable<byte[]> rows,
+                                            ColumnSelection columnSelection,
+                                            long timestamp) {
+                reads.incrementAndGet();
+                return super.getRows(tableRef, rows, columnSelection, timestamp);
+            }
+        };
+        rawKvs.createTable(TABLE, metadata(true));
+        rawKvs.createTable(OTHER_TABLE, metadata(false));
+    }
+
+    @Test
+    public void missesDoNotReachTheKeyValueService() {
+        KeyValueService kvs = createKvs(Optional.absent());
+        assertTrue(kvs.get(TABLE, ImmutableMap.of(cell("missing"), Long.MAX_VALUE)).isEmpty());
+        assertTrue(kvs.getRows(TABLE, ImmutableList.of(row("missing")), ColumnSelection.all(), Long.MAX_VALUE)
+                .isEmpty());
+        assertEquals(0, reads.get());
+
+        kvs.get(OTHER_TABLE, ImmutableMap.of(cell("missing"), Long.MAX_VALUE));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void writtenRowsAreRead() {
+        KeyValueService kvs = createKvs(Optional.absent());
+        kvs.put(TABLE, ImmutableMap.of(cell("written"), VALUE), TIMESTAMP);
+        Map<Cell, Value> result = kvs.get(TABLE, ImmutableMap.of(
+                cell("written"), Long.MAX_VALUE,
+                cell("missing"), Long.MAX_VALUE));
+        assertEquals(ImmutableMap.of(cell("written"), Value.create(VALUE, TIMESTAMP)), result);
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void filterIsBuiltFromExistingRows() {
+        rawKvs.put(TABLE, ImmutableMap.of(cell("existing"), VALUE), TIMESTAMP);
+        KeyValueService kvs = createKvs(Optional.absent());
+        assertEquals(1, kvs.getRows(TABLE, ImmutableList.of(row("existing")), ColumnSelection.all(), Long.MAX_VALUE)
+                .size());
+    }
+
+    @Test
+    public void createdTablesAreFiltered() {
+        TableReference newTable = TableReference.createWithEmptyNamespace("ns.new_table");
+        KeyValueService kvs = createKvs(Optional.absent());
+        kvs.createTable(newTable, metadata(true));
+        kvs.put(newTable, ImmutableMap.of(cell("written"), VALUE), TIMESTAMP);
+        assertTrue(kvs.get(newTable, ImmutableMap.of(cell("missing"), Long.MAX_VALUE)).isEmpty());
+        assertEquals(0, reads.get());
+        assertEquals(1, kvs.get(newTable, ImmutableMap.of(cell("written"), Long.MAX_VALUE)).size());
+    }
+
+    @Test
+    public void filterIsReadFromSnapshot() throws IOException {
+        File snapshotDirectory = folder.newFolder();
+        KeyValueService kvs = createKvs(Optional.of(snapshotDirectory));
+        kvs.put(TABLE, ImmutableMap.of(cell("written"), VALUE), TIMESTAMP);
+        kvs.close();
+        assertEquals(1, snapshotDirectory.listFiles().length);
+
+        // Rows which are only in the table, and not in the snapshot, are not seen.
+        rawKvs = new InMemoryKeyValueService(false);
+        rawKvs.createTable(TABLE, metadata(true));
+        rawKvs.put(TABLE, ImmutableMap.of(cell("written"), VALUE, cell("unseen"), VALUE), TIMESTAMP);
+        kvs = createKvs(Optional.of(snapshotDirectory));
+        assertEquals(1, kvs.get(TABLE, ImmutableMap.of(
+                cell("written"), Long.MAX_VALUE,
+                cell("unseen"), Long.MAX_VALUE)).size());
+        assertEquals(0, snapshotDirectory.listFiles().length);
+    }
+
+    @Test
+    public void droppedTablesAreNotFiltered() {
+        KeyValueService kvs = createKvs(Optional.absent());
+        kvs.dropTable(TABLE);
+        kvs.createTable(TABLE, metadata(false));
+        kvs.get(TABLE, ImmutableMap.of(cell("missing"), Long.MAX_VALUE));
+        assertEquals(1, reads.get());
+    }
+
+    private KeyValueService createKvs(Optional<File> snapshotDirectory) {
+        return NegativeLookupKeyValueService.create(countingKvs, 1000, 0.001, snapshotDirectory);
+    }
+
+    private static byte[] metadata(boolean negativeLookups) {
+        return new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.WARM,
+                PartitionStrategy.ORDERED,
+                false,
+                0,
+                negativeLookups,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                false).persistToBytes();
+    }
+
+    private static byte[] row(String row) {
+        return PtBytes.toBytes(row);
+    }
+
+    private static Cell cell(String row) {
+        return Cell.create(row(row), COLUMN);
+    }
+}
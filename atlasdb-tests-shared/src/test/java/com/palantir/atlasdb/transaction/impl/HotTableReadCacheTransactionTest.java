@@ -0,0 +1,232 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.palantir.atlasdb.AtlasDbConstants;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.TableReference;
+import com.palantir.atlasdb.keyvalue.impl.ForwardingKeyValueService;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.CachePriority;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.ExpirationStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.PartitionStrategy;
+import com.palantir.atlasdb.protos.generated.TableMetadataPersistence.SweepStrategy;
+import com.palantir.atlasdb.table.description.ColumnMetadataDescription;
+import com.palantir.atlasdb.table.description.NameMetadataDescription;
+import com.palantir.atlasdb.table.description.TableMetadata;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.lock.AtlasRowLockDescriptor;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.util.SoftCache;
+
+/**
+ * Runs the transaction tests against a table with a HOT cache priority, so that cell reads are served from a
+ * read cache shared between the transactions of each test.
+ */
+public class HotTableReadCacheTransactionTest extends AbstractTransactionTest {
+    private HotTableReadCache readCache;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        keyValueService.putMetadataForTable(TEST_TABLE, new TableMetadata(
+                new NameMetadataDescription(),
+                new ColumnMetadataDescription(),
+                ConflictHandler.RETRY_ON_WRITE_WRITE,
+                CachePriority.HOT,
+                PartitionStrategy.ORDERED,
+                false,
+                0,
+                false,
+                SweepStrategy.CONSERVATIVE,
+                ExpirationStrategy.NEVER,
+                false).persistToBytes());
+        readCache = HotTableReadCache.create(keyValueService, 1000);
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        readCache.close();
+        super.tearDown();
+    }
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return new InMemoryKeyValueService(false,
+                PTExecutors.newSingleThreadExecutor(PTExecutors.newNamedThreadFactory(true)));
+    }
+
+    @Override
+    protected Transaction startTransaction() {
+        return new SnapshotTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(timestampService.getFreshTimestamp()),
+                ConflictDetectionManagers.fromMap(ImmutableMap.of(
+                        TEST_TABLE,
+                        ConflictHandler.RETRY_ON_WRITE_WRITE,
+                        TransactionConstants.TRANSACTION_TABLE,
+                        ConflictHandler.IGNORE_ALL)),
+                sweepStrategyManager,
+                0L,
+                ImmutableList.of(),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                false,
+                new SoftCache<>(),
+                ImmutableTransactionOptions.builder().readCache(readCache).build());
+    }
+
+    @Override
+    @Test
+    public void testTableMetadata() {
+        // This test expects the test table to have the default metadata.
+        keyValueService.putMetadataForTable(TEST_TABLE, AtlasDbConstants.GENERIC_TABLE_METADATA);
+        super.testTableMetadata();
+    }
+
+    @Test
+    public void testReadsAreServedFromCache() {
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        t.commit();
+
+        assertEquals("v1", getCell(startTransaction(), "row1", "col1"));
+        long missCount = readCache.getMissCount();
+        assertEquals("v1", getCell(startTransaction(), "row1", "col1"));
+        assertEquals("v1", get(startTransaction(), "row1", "col1"));
+        assertEquals(missCount, readCache.getMissCount());
+        assertEquals(2, readCache.getHitCount());
+    }
+
+    @Test
+    public void testAbsentCellsAreCached() {
+        assertNull(getCell(startTransaction(), "row1", "col1"));
+        assertNull(getCell(startTransaction(), "row1", "col1"));
+        assertEquals(1, readCache.getHitCount());
+    }
+
+    @Test
+    public void testCommitInvalidatesCache() {
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        t.commit();
+        assertEquals("v1", getCell(startTransaction(), "row1", "col1"));
+
+        Transaction before = startTransaction();
+        t = startTransaction();
+        put(t, "row1", "col1", "v2");
+        t.commit();
+
+        assertEquals("v1", getCell(before, "row1", "col1"));
+        assertEquals("v2", getCell(startTransaction(), "row1", "col1"));
+        assertEquals("v2", getCell(startTransaction(), "row1", "col1"));
+    }
+
+    @Test
+    public void testOlderTransactionDoesNotReadNewerCachedValue() {
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        t.commit();
+
+        Transaction older = startTransaction();
+        t = startTransaction();
+        put(t, "row1", "col1", "v2");
+        t.commit();
+
+        assertEquals("v2", getCell(startTransaction(), "row1", "col1"));
+        assertEquals("v1", getCell(older, "row1", "col1"));
+    }
+
+    @Test
+    public void testValueIsNotCachedIfNewerWriteIsSeen() throws Exception {
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        t.commit();
+
+        long otherStartTimestamp = timestampService.getFreshTimestamp();
+        Transaction reader = startTransaction();
+        putDirect("row1", "col1", "v2", otherStartTimestamp);
+        transactionService.putUnlessExists(otherStartTimestamp, timestampService.getFreshTimestamp());
+
+        // The reader sees a write which committed after it started, so it must not cache the older value.
+        assertEquals("v1", getCell(reader, "row1", "col1"));
+        assertEquals("v2", getCell(startTransaction(), "row1", "col1"));
+    }
+
+    @Test
+    public void testCommitLocksAreReleasedIfCacheMetadataLookupFails() throws InterruptedException {
+        readCache.close();
+        readCache = HotTableReadCache.create(new ForwardingKeyValueService() {
+            @Override
+            protected KeyValueService delegate() {
+                return keyValueService;
+            }
+
+            @Override
+            public byte[] getMetadataForTable(TableReference tableRef) {
+                throw new IllegalStateException("metadata unavailable");
+            }
+        }, 1000);
+
+        Transaction t = startTransaction();
+        put(t, "row1", "col1", "v1");
+        try {
+            t.commit();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        LockRefreshToken token = lockService.lock(
+                LockClient.ANONYMOUS.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(
+                        AtlasRowLockDescriptor.of(TEST_TABLE.getQualifiedName(), PtBytes.toBytes("row1")),
+                        LockMode.WRITE))
+                        .doNotBlock()
+                        .build());
+        assertNotNull("The commit locks of the failed transaction were not released", token);
+        lockService.unlock(token);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.palantir.atlasdb.cleaner.NoOpCleaner;
+import com.palantir.atlasdb.encoding.PtBytes;
+import com.palantir.atlasdb.keyvalue.api.KeyValueService;
+import com.palantir.atlasdb.keyvalue.api.RangeRequest;
+import com.palantir.atlasdb.keyvalue.api.RowResult;
+import com.palantir.atlasdb.keyvalue.impl.InMemoryKeyValueService;
+import com.palantir.atlasdb.transaction.api.AtlasDbConstraintCheckingMode;
+import com.palantir.atlasdb.transaction.api.ConflictHandler;
+import com.palantir.atlasdb.transaction.api.Transaction;
+import com.palantir.atlasdb.transaction.api.TransactionReadSentinelBehavior;
+import com.palantir.common.base.BatchingVisitables;
+import com.palantir.common.concurrent.PTExecutors;
+import com.palantir.util.SoftCache;
+
+/**
+ * Runs the transaction tests with range scans prefetching their pages, and a buffer small enough that prefetching
+ * regularly stops at the memory cap.
+ */
+public class PrefetchingTransactionTest extends AbstractTransactionTest {
+    private static final RangePrefetcher prefetcher = RangePrefetcher.create(4, 3, 2 * 1024);
+
+    @AfterClass
+    public static void closePrefetcher() {
+        prefetcher.close();
+    }
+
+    @Override
+    protected KeyValueService getKeyValueService() {
+        return new InMemoryKeyValueService(false,
+                PTExecutors.newSingleThreadExecutor(PTExecutors.newNamedThreadFactory(true)));
+    }
+
+    @Override
+    protected Transaction startTransaction() {
+        return new SnapshotTransaction(
+                keyValueService,
+                lockService,
+                timestampService,
+                transactionService,
+                NoOpCleaner.INSTANCE,
+                Suppliers.ofInstance(timestampService.getFreshTimestamp()),
+                ConflictDetectionManagers.fromMap(ImmutableMap.of(
+                        TEST_TABLE,
+                        ConflictHandler.RETRY_ON_WRITE_WRITE,
+                        TransactionConstants.TRANSACTION_TABLE,
+                        ConflictHandler.IGNORE_ALL)),
+                sweepStrategyManager,
+                0L,
+                ImmutableList.of(),
+                AtlasDbConstraintCheckingMode.NO_CONSTRAINT_CHECKING,
+                null,
+                TransactionReadSentinelBehavior.THROW_EXCEPTION,
+                false,
+                new SoftCache<>(),
+                ImmutableTransactionOptions.builder().rangePrefetcher(prefetcher).build());
+    }
+
+    @Test
+    public void testRangeScanOverManyPages() {
+        Transaction t = startTransaction();
+        for (int i = 0; i < 1000; i++) {
+            put(t, String.format("row%04d", i), "col", "value" + i);
+        }
+        t.commit();
+
+        t = startTransaction();
+        List<RowResult<byte[]>> rows = BatchingVisitables.copyToList(
+                t.getRange(TEST_TABLE, RangeRequest.builder().batchHint(7).build()));
+        assertEquals(1000, rows.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.format("row%04d", i), PtBytes.toString(rows.get(i).getRowName()));
+        }
+        t.commit();
+    }
+
+    @Test
+    public void testAbandonedRangeScan() {
+        Transaction t = startTransaction();
+        for (int i = 0; i < 100; i++) {
+            put(t, String.format("row%04d", i), "col", "value" + i);
+        }
+        t.commit();
+
+        t = startTransaction();
+        for (int i = 0; i < 10; i++) {
+            BatchingVisitables.take(t.getRange(TEST_TABLE, RangeRequest.builder().batchHint(3).build()), 5);
+        }
+        List<RowResult<byte[]>> rows = BatchingVisitables.copyToList(
+                t.getRange(TEST_TABLE, RangeRequest.builder().batchHint(3).build()));
+        assertEquals(100, rows.size());
+        t.commit();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.impl.AsyncLockResource;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * Serves the timestamp and lock services of many independent clients from one TimeLock cluster. Each client uses a
+ * namespace as the first segment of the URL path, for example {@code /my-client/timestamp/fresh-timestamp} or
+ * {@code /my-client/lock/...}.
+ * <p>
+ * Only the configured namespaces are served, and requests for any other namespace fail with a 404, so clients cannot
+ * make the server create services for arbitrary names. The services for a namespace are created the first time it is
+ * used, and live for as long as the server. Namespaces which clash with the paths of the server's other resources,
+ * such as {@code timestamp} or {@code lock}, cannot be used.
+ */
+@Path("/{namespace: " + NamespacedTimeLockResource.NAMESPACE_REGEX + "}")
+public class NamespacedTimeLockResource {
+    static final String NAMESPACE_REGEX = "[a-zA-Z0-9_-]+";
+    private static final Pattern NAMESPACE_PATTERN = Pattern.compile(NAMESPACE_REGEX);
+    static final Set<String> RESERVED_NAMESPACES = ImmutableSet.of(
+            "timestamp", "lock", "async-lock", "leader", "acceptor", "learner");
+
+    private final Set<String> namespaces;
+    private final Function<String, TimeLockServices> servicesFactory;
+    private final ConcurrentMap<String, TimeLockServices> servicesByNamespace = new ConcurrentHashMap<>();
+
+    public NamespacedTimeLockResource(Set<String> namespaces, Function<String, TimeLockServices> servicesFactory) {
+        for (String namespace : namespaces) {
+            Preconditions.checkArgument(NAMESPACE_PATTERN.matcher(namespace).matches(),
+                    "Namespace %s must match %s", namespace, NAMESPACE_REGEX);
+            Preconditions.checkArgument(!RESERVED_NAMESPACES.contains(namespace),
+                    "Namespace %s clashes with the path of another resource of the server", namespace);
+        }
+        this.namespaces = ImmutableSet.copyOf(namespaces);
+        this.servicesFactory = servicesFactory;
+    }
+
+    @Path("/timestamp")
+    public TimestampService getTimestampService(@PathParam("namespace") String namespace) {
+        return getServices(namespace).getTimestampService();
+    }
+
+    @Path("/lock")
+    public RemoteLockService getLockService(@PathParam("namespace") String namespace) {
+        return getServices(namespace).getLockService();
+    }
+
+    @Path("/async-lock")
+    public AsyncLockResource getAsyncLockResource(@PathParam("namespace") String namespace) {
+        return new AsyncLockResource(getServices(namespace).getAsyncLockService());
+    }
+
+    private TimeLockServices getServices(String namespace) {
+        if (!namespaces.contains(namespace)) {
+            throw new NotFoundException("Namespace " + namespace + " is not served by this TimeLock server");
+        }
+        return servicesByNamespace.computeIfAbsent(namespace, servicesFactory);
+    }
+}
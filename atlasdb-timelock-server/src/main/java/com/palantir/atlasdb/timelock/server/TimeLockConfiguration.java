@@ -16,7 +16,10 @@
 
 package com.palantir.atlasdb.timelock.server;
 
+import java.util.Set;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
 import com.palantir.atlasdb.config.AtlasDbConfig;
 
 import io.dropwizard.Configuration;
@@ -24,13 +27,24 @@ import io.dropwizard.Configuration;
 public class TimeLockConfiguration extends Configuration {
     
     private final AtlasDbConfig atlasdb;
+    private final Set<String> namespaces;
     
-    public TimeLockConfiguration(@JsonProperty("atlasdb") AtlasDbConfig atlasdb) {
+    public TimeLockConfiguration(
+            @JsonProperty("atlasdb") AtlasDbConfig atlasdb,
+            @JsonProperty("namespaces") Set<String> namespaces) {
         this.atlasdb = atlasdb;
+        this.namespaces = namespaces == null ? ImmutableSet.of() : ImmutableSet.copyOf(namespaces);
     }
     
     public AtlasDbConfig getConfig() {
         return atlasdb;
     }
+
+    /**
+     * The namespaces served by {@link NamespacedTimeLockResource}. None are served by default.
+     */
+    public Set<String> getNamespaces() {
+        return namespaces;
+    }
     
 }
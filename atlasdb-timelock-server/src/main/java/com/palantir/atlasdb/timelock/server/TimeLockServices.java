@@ -0,0 +1,50 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.server;
+
+import com.palantir.lock.AsyncLockService;
+import com.palantir.lock.RemoteLockService;
+import com.palantir.timestamp.TimestampService;
+
+/**
+ * The timestamp and lock services of one TimeLock namespace.
+ */
+public final class TimeLockServices {
+    private final TimestampService timestampService;
+    private final RemoteLockService lockService;
+    private final AsyncLockService asyncLockService;
+
+    public TimeLockServices(
+            TimestampService timestampService,
+            RemoteLockService lockService,
+            AsyncLockService asyncLockService) {
+        this.timestampService = timestampService;
+        this.lockService = lockService;
+        this.asyncLockService = asyncLockService;
+    }
+
+    public TimestampService getTimestampService() {
+        return timestampService;
+    }
+
+    public RemoteLockService getLockService() {
+        return lockService;
+    }
+
+    public AsyncLockService getAsyncLockService() {
+        return asyncLockService;
+    }
+}
@@ -37,6 +37,11 @@ public class ConfigModule {
         return config.getConfig().leader().get();
     }
 
+    @Provides
+    public TimeLockConfiguration provideTimeLockConfig() {
+        return config;
+    }
+
     @Provides
     public KeyValueServiceConfig provideKvsConfig() {
         return config.getConfig().keyValueService();
@@ -45,8 +45,11 @@ import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.PaxosLeaderElectionService;
 import com.palantir.leader.PingableLeader;
 import com.palantir.paxos.PaxosAcceptor;
+import com.palantir.paxos.PaxosAcceptorState;
 import com.palantir.paxos.PaxosLearner;
 import com.palantir.paxos.PaxosProposer;
+import com.palantir.paxos.PaxosValue;
+import com.palantir.paxos.SegmentedPaxosStateLog;
 
 import dagger.Module;
 import dagger.Provides;
@@ -103,14 +106,20 @@ public class LeaderElectionModule {
     @Singleton
     @Local
     public PaxosAcceptor providePaxosAcceptor(LeaderConfig config) {
-        return newAcceptor(config.acceptorLogDir().getPath());
+        String logDir = config.acceptorLogDir().getPath();
+        return config.segmentedPaxosLogs()
+                ? newAcceptor(SegmentedPaxosStateLog.<PaxosAcceptorState>create(logDir))
+                : newAcceptor(logDir);
     }
 
     @Provides
     @Singleton
     @Local
     public PaxosLearner providePaxosLearner(LeaderConfig config) {
-        return newLearner(config.learnerLogDir().getPath());
+        String logDir = config.learnerLogDir().getPath();
+        return config.segmentedPaxosLogs()
+                ? newLearner(SegmentedPaxosStateLog.<PaxosValue>create(logDir))
+                : newLearner(logDir);
     }
 
     @Provides
@@ -16,17 +16,31 @@
 
 package com.palantir.atlasdb.timelock.server.modules;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
 import javax.inject.Singleton;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 import com.palantir.atlasdb.config.LeaderConfig;
 import com.palantir.atlasdb.factory.ServiceDiscoveringAtlasSupplier;
+import com.palantir.atlasdb.keyvalue.impl.SimpleKvsTimestampBoundStore;
 import com.palantir.atlasdb.spi.KeyValueServiceConfig;
+import com.palantir.atlasdb.timelock.server.NamespacedTimeLockResource;
+import com.palantir.atlasdb.timelock.server.TimeLockConfiguration;
+import com.palantir.atlasdb.timelock.server.TimeLockServices;
+import com.palantir.common.concurrent.NamedThreadFactory;
+import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.leader.LeaderElectionService;
 import com.palantir.leader.proxy.AwaitingLeadershipProxy;
+import com.palantir.lock.AsyncLockService;
+import com.palantir.lock.LockServerOptions;
 import com.palantir.lock.RemoteLockService;
+import com.palantir.lock.impl.AsyncLockResource;
 import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.CoalescingTimestampService;
+import com.palantir.timestamp.PersistentTimestampService;
 import com.palantir.timestamp.TimestampService;
 
 import dagger.Module;
@@ -34,6 +48,8 @@ import dagger.Provides;
 
 @Module
 public class TimeAndLockModule {
+    private static final int NAMESPACED_LOCK_SERVER_THREADS = 4;
+
     @Provides
     @Singleton
     public ServiceDiscoveringAtlasSupplier provideAtlasSupplier(KeyValueServiceConfig kvsConfig, LeaderConfig leaderConfig) {
@@ -44,12 +60,54 @@ public class TimeAndLockModule {
     @Singleton
     public TimestampService provideTimestampService(LeaderElectionService leaderElectionService, ServiceDiscoveringAtlasSupplier atlasSupplier) {
         Supplier<TimestampService> localTimestampService = atlasSupplier::getTimestampService;
-        return AwaitingLeadershipProxy.newProxyInstance(TimestampService.class, localTimestampService, leaderElectionService);
+        return CoalescingTimestampService.create(AwaitingLeadershipProxy.newProxyInstance(
+                TimestampService.class, localTimestampService, leaderElectionService));
     }
 
     @Provides
     @Singleton
     public RemoteLockService provideLockService(LeaderElectionService leaderElectionService) {
-        return AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, LockServiceImpl::create, leaderElectionService);
+        return AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class, LockServiceImpl::create,
+                leaderElectionService, AsyncLockService.class);
+    }
+
+    /**
+     * Serves the asynchronous lock endpoints from the same lock server as {@link #provideLockService}, whose proxy
+     * also implements {@link AsyncLockService}.
+     */
+    @Provides
+    @Singleton
+    public AsyncLockResource provideAsyncLockResource(RemoteLockService lockService) {
+        return new AsyncLockResource((AsyncLockService) lockService);
+    }
+
+    /**
+     * Provides the services of every configured namespace, which share the leader election of this server, one pool
+     * of threads for reaping locks and one for refreshing timestamp bounds. The bound of each namespace is kept in its
+     * own row of the key value service.
+     */
+    @Provides
+    @Singleton
+    public NamespacedTimeLockResource provideNamespacedTimeLockResource(TimeLockConfiguration config, LeaderElectionService leaderElectionService, ServiceDiscoveringAtlasSupplier atlasSupplier) {
+        ScheduledThreadPoolExecutor lockExecutor = PTExecutors.newScheduledThreadPoolExecutor(
+                NAMESPACED_LOCK_SERVER_THREADS, new NamedThreadFactory("timelock-lock-servers", true));
+        lockExecutor.setRemoveOnCancelPolicy(true);
+        ExecutorService timestampExecutor = PTExecutors.newCachedThreadPool(
+                new NamedThreadFactory("timelock-timestamp-allocators", true));
+
+        return new NamespacedTimeLockResource(config.getNamespaces(), namespace -> {
+            Supplier<TimestampService> localTimestampService = () -> PersistentTimestampService.create(
+                    SimpleKvsTimestampBoundStore.createForNamespace(atlasSupplier.getKeyValueService(), namespace),
+                    timestampExecutor);
+            Supplier<RemoteLockService> localLockService =
+                    () -> LockServiceImpl.create(LockServerOptions.DEFAULT, lockExecutor);
+            RemoteLockService lockService = AwaitingLeadershipProxy.newProxyInstance(RemoteLockService.class,
+                    localLockService, leaderElectionService, AsyncLockService.class);
+            return new TimeLockServices(
+                    CoalescingTimestampService.create(AwaitingLeadershipProxy.newProxyInstance(
+                            TimestampService.class, localTimestampService, leaderElectionService)),
+                    lockService,
+                    (AsyncLockService) lockService);
+        });
     }
 }
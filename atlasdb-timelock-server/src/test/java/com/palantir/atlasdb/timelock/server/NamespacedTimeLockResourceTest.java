@@ -0,0 +1,110 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.atlasdb.timelock.server;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import javax.ws.rs.NotFoundException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+import com.palantir.lock.impl.LockServiceImpl;
+import com.palantir.timestamp.InMemoryTimestampService;
+
+public class NamespacedTimeLockResourceTest {
+    private static final String FIRST = "first";
+    private static final String SECOND = "second";
+
+    private final List<String> createdNamespaces = Lists.newArrayList();
+    private NamespacedTimeLockResource resource;
+
+    @Before
+    public void setUp() {
+        resource = new NamespacedTimeLockResource(ImmutableSet.of(FIRST, SECOND), namespace -> {
+            createdNamespaces.add(namespace);
+            LockServiceImpl lockService = LockServiceImpl.create();
+            return new TimeLockServices(new InMemoryTimestampService(), lockService, lockService);
+        });
+    }
+
+    @Test
+    public void routesEachNamespaceToItsOwnServices() {
+        assertThat(resource.getTimestampService(FIRST), sameInstance(resource.getTimestampService(FIRST)));
+        assertThat(resource.getLockService(FIRST), sameInstance(resource.getLockService(FIRST)));
+        assertThat(resource.getTimestampService(FIRST), not(sameInstance(resource.getTimestampService(SECOND))));
+        assertThat(resource.getLockService(FIRST), not(sameInstance(resource.getLockService(SECOND))));
+        assertThat(createdNamespaces, is(Lists.newArrayList(FIRST, SECOND)));
+    }
+
+    @Test
+    public void namespacesHaveIndependentTimestamps() {
+        long firstTimestamp = resource.getTimestampService(FIRST).getFreshTimestamp();
+        resource.getTimestampService(FIRST).getFreshTimestamps(1000);
+
+        assertThat(resource.getTimestampService(SECOND).getFreshTimestamp(), is(firstTimestamp));
+    }
+
+    @Test
+    public void namespacesHaveIndependentLocks() throws InterruptedException {
+        LockRequest request = LockRequest.builder(
+                ImmutableSortedMap.of(StringLockDescriptor.of("lock"), LockMode.WRITE))
+                .doNotBlock()
+                .build();
+        String client = LockClient.ANONYMOUS.getClientId();
+
+        assertThat(resource.getLockService(FIRST).lock(client, request), notNullValue());
+        assertThat(resource.getLockService(SECOND).lock(client, request), notNullValue());
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void rejectsNamespacesThatAreNotConfigured() {
+        try {
+            resource.getLockService("unknown");
+        } finally {
+            assertThat(createdNamespaces.isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void rejectsConfiguredNamespacesThatCannotBeRouted() {
+        for (String namespace : ImmutableSet.of("not/a/namespace", "timestamp", "lock", "async-lock", "leader")) {
+            try {
+                new NamespacedTimeLockResource(ImmutableSet.of(FIRST, namespace), unused -> {
+                    throw new AssertionError();
+                });
+                fail("Expected namespace " + namespace + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertThat(e.getMessage(), containsString(namespace));
+            }
+        }
+    }
+}
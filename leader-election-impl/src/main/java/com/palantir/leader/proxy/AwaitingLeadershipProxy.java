@@ -47,17 +47,32 @@ public final class AwaitingLeadershipProxy extends AbstractInvocationHandler {
     private static final Logger log = LoggerFactory.getLogger(AwaitingLeadershipProxy.class);
     private static final Logger leaderLog = LoggerFactory.getLogger("leadership");
 
-    @SuppressWarnings("unchecked")
     public static <T> T newProxyInstance(Class<T> interfaceClass,
                                          Supplier<T> delegateSupplier,
                                          LeaderElectionService leaderElectionService) {
+        return newProxyInstance(interfaceClass, delegateSupplier, leaderElectionService, new Class<?>[0]);
+    }
+
+    /**
+     * Like {@link #newProxyInstance(Class, Supplier, LeaderElectionService)}, except that the proxy also implements
+     * the given additional interfaces, so that one delegate can be served through several of them. Every delegate
+     * must implement all of the additional interfaces.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newProxyInstance(Class<T> interfaceClass,
+                                         Supplier<T> delegateSupplier,
+                                         LeaderElectionService leaderElectionService,
+                                         Class<?>... additionalInterfaces) {
         AwaitingLeadershipProxy proxy = new AwaitingLeadershipProxy(
                 delegateSupplier,
                 leaderElectionService,
                 interfaceClass);
         proxy.tryToGainLeadership();
-        return (T) Proxy.newProxyInstance(interfaceClass.getClassLoader(), new Class<?>[] {
-                interfaceClass, Closeable.class }, proxy);
+        Class<?>[] interfaces = new Class<?>[additionalInterfaces.length + 2];
+        interfaces[0] = interfaceClass;
+        System.arraycopy(additionalInterfaces, 0, interfaces, 1, additionalInterfaces.length);
+        interfaces[interfaces.length - 1] = Closeable.class;
+        return (T) Proxy.newProxyInstance(interfaceClass.getClassLoader(), interfaces, proxy);
     }
 
     final Supplier<?> delegateSupplier;
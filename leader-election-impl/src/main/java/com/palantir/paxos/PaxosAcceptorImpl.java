@@ -30,7 +30,10 @@ public class PaxosAcceptorImpl implements PaxosAcceptor {
      * @return a new acceptor
      */
     public static PaxosAcceptor newAcceptor(String logDir) {
-        PaxosStateLog<PaxosAcceptorState> log = new PaxosStateLogImpl<PaxosAcceptorState>(logDir);
+        return newAcceptor(new PaxosStateLogImpl<PaxosAcceptorState>(logDir));
+    }
+
+    public static PaxosAcceptor newAcceptor(PaxosStateLog<PaxosAcceptorState> log) {
         return new PaxosAcceptorImpl(
                 new ConcurrentSkipListMap<Long, PaxosAcceptorState>(),
                 log,
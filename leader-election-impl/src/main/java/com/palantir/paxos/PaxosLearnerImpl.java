@@ -34,7 +34,10 @@ public class PaxosLearnerImpl implements PaxosLearner {
      * @return a new learner
      */
     public static PaxosLearner newLearner(String logDir) {
-        PaxosStateLogImpl<PaxosValue> log = new PaxosStateLogImpl<PaxosValue>(logDir);
+        return newLearner(new PaxosStateLogImpl<PaxosValue>(logDir));
+    }
+
+    public static PaxosLearner newLearner(PaxosStateLog<PaxosValue> log) {
         ConcurrentSkipListMap<Long, PaxosValue> state = new ConcurrentSkipListMap<Long, PaxosValue>();
 
         byte[] greatestValidValue = PaxosStateLogs.getGreatestValidLogEntry(log);
@@ -90,6 +90,11 @@ public class PaxosStateLogImpl<V extends Persistable & Versionable> implements P
         this.path = path;
         try {
             FileUtils.forceMkdir(new File(path));
+            if (new File(path, SegmentedPaxosStateLog.SEGMENTS_DIRECTORY).exists()) {
+                // The rounds in this directory have been migrated, and the files which are left are stale
+                throw new IllegalStateException("The paxos log in " + new File(path).getAbsolutePath()
+                        + " has been migrated to " + SegmentedPaxosStateLog.class.getSimpleName());
+            }
             if (getGreatestLogEntry() == PaxosAcceptor.NO_LOG_ENTRY) {
                 // For a brand new log, we create a lowest entry so #getLeastLogEntry will return the right thing
                 // If we didn't add this then we could miss seq 0 and accept seq 1, then when we restart we will
@@ -231,7 +236,7 @@ public class PaxosStateLogImpl<V extends Persistable & Versionable> implements P
         }
     }
 
-    private List<File> getLogEntries(File dir) {
+    static List<File> getLogEntries(File dir) {
         File[] files = dir.listFiles();
         if (files == null) {
             return null;
@@ -0,0 +1,620 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.palantir.common.base.Throwables;
+import com.palantir.common.persist.Persistable;
+
+/**
+ * A {@link PaxosStateLog} which appends rounds to a sequence of segment files, instead of writing each round to a
+ * file of its own like {@link PaxosStateLogImpl}.
+ * <p>
+ * Every record carries a CRC32 checksum, and the location of the latest record for each sequence number is kept in an
+ * in-memory index which is rebuilt by replaying the segments on startup. A torn record at the end of the log, left by
+ * a crash during a write, is discarded. Concurrent writes are group committed: a writer appends its record and then
+ * either syncs the log itself or waits for a sync already in progress, so one fsync makes many rounds durable.
+ * Truncation is recorded in the log, and segments are deleted once none of their rounds are live.
+ * <p>
+ * The segments live in a {@value #SEGMENTS_DIRECTORY} directory under the log directory. A log directory which holds
+ * a file-per-round log is migrated the first time it is opened, and can no longer be opened by
+ * {@link PaxosStateLogImpl} afterwards.
+ */
+public class SegmentedPaxosStateLog<V extends Persistable & Versionable> implements PaxosStateLog<V>, Closeable {
+    private static final Logger log = LoggerFactory.getLogger(SegmentedPaxosStateLog.class);
+
+    public static final String SEGMENTS_DIRECTORY = "segments";
+    private static final String MIGRATION_DIRECTORY = "segments.migrating";
+    private static final String SEGMENT_SUFFIX = ".log";
+    static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final byte ROUND_RECORD = 1;
+    private static final byte TRUNCATE_RECORD = 2;
+    /** The record type, sequence number and payload length. */
+    private static final int HEADER_BYTES = 1 + 8 + 4;
+    /** The CRC32 checksum of the header and payload. */
+    private static final int TRAILER_BYTES = 4;
+
+    private final File directory;
+    private final long maxSegmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition installed = lock.newCondition();
+    @GuardedBy("lock") private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    @GuardedBy("lock") private final TreeMap<Long, Location> index = new TreeMap<Long, Location>();
+    @GuardedBy("lock") private final Map<Long, Long> seqToVersionMap = new HashMap<Long, Long>();
+    @GuardedBy("lock") private Segment activeSegment;
+    @GuardedBy("lock") private long appendedRecords = 0;
+    @GuardedBy("lock") private int uninstalledRounds = 0;
+
+    private final Object syncMonitor = new Object();
+    @GuardedBy("syncMonitor") private long syncedRecords = 0;
+    @GuardedBy("syncMonitor") private boolean syncInProgress = false;
+
+    /**
+     * Opens the segmented log in {@code path}, creating it or migrating a file-per-round log in that directory if
+     * necessary.
+     */
+    public static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(String path) {
+        return create(path, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    @VisibleForTesting
+    static <V extends Persistable & Versionable> SegmentedPaxosStateLog<V> create(String path, long maxSegmentBytes) {
+        try {
+            File logDir = new File(path);
+            FileUtils.forceMkdir(logDir);
+            File segmentsDir = new File(logDir, SEGMENTS_DIRECTORY);
+            List<File> legacyFiles = PaxosStateLogImpl.getLogEntries(logDir);
+            if (!legacyFiles.isEmpty()) {
+                if (!segmentsDir.exists()) {
+                    migrate(logDir, segmentsDir, maxSegmentBytes);
+                }
+                for (File legacyFile : PaxosStateLogImpl.getLogEntries(logDir)) {
+                    FileUtils.forceDelete(legacyFile);
+                }
+            }
+            return new SegmentedPaxosStateLog<V>(segmentsDir, maxSegmentBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("IO problem related to the path " + new File(path).getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Copies every round of the file-per-round log in {@code logDir} into new segments, and only then moves them
+     * into place, so that a crash part way through leaves the file-per-round log as the authoritative copy.
+     */
+    private static void migrate(File logDir, File segmentsDir, long maxSegmentBytes) throws IOException {
+        PaxosStateLogImpl<?> legacyLog = new PaxosStateLogImpl<>(logDir.getPath());
+        File migrationDir = new File(logDir, MIGRATION_DIRECTORY);
+        FileUtils.deleteDirectory(migrationDir);
+        int migrated = 0;
+        SegmentedPaxosStateLog<?> newLog = new SegmentedPaxosStateLog<>(migrationDir, maxSegmentBytes);
+        try {
+            newLog.truncate(PaxosAcceptor.NO_LOG_ENTRY);
+            for (File file : PaxosStateLogImpl.getLogEntries(logDir)) {
+                long seq = Long.parseLong(file.getName());
+                if (seq == PaxosAcceptor.NO_LOG_ENTRY) {
+                    newLog.writeRecord(ROUND_RECORD, seq, new byte[0], null);
+                    continue;
+                }
+                byte[] bytes = legacyLog.readRound(seq);
+                if (bytes == null) {
+                    continue;
+                }
+                newLog.writeRecord(ROUND_RECORD, seq, bytes, null);
+                migrated++;
+            }
+        } finally {
+            newLog.close();
+        }
+        Files.move(migrationDir.toPath(), segmentsDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(logDir);
+        log.info("Migrated {} paxos rounds in {} to the segmented log layout", migrated, logDir.getAbsolutePath());
+    }
+
+    private SegmentedPaxosStateLog(File directory, long maxSegmentBytes) throws IOException {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        FileUtils.forceMkdir(directory);
+        lock.lock();
+        try {
+            replay();
+            if (segments.isEmpty()) {
+                activeSegment = createSegment(0);
+                // As with PaxosStateLogImpl, a brand new log has a lowest entry so that #getLeastLogEntry is right.
+                writeRecord(ROUND_RECORD, PaxosAcceptor.NO_LOG_ENTRY, new byte[0], null);
+            } else {
+                activeSegment = segments.lastEntry().getValue();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void writeRound(long seq, V round) {
+        writeRecord(ROUND_RECORD, seq, round.persistToBytes(), round.getVersion());
+    }
+
+    /**
+     * Appends a record, waits for it to be synced and then makes it visible to readers. A round with a lower version
+     * than one already written for the same sequence number is ignored. If the record cannot be written or synced,
+     * it is never made visible.
+     */
+    private void writeRecord(byte type, long seq, byte[] payload, Long version) {
+        byte[] record = encode(type, seq, payload);
+        Long previousVersion = null;
+        Location location;
+        lock.lock();
+        try {
+            if (version != null) {
+                previousVersion = seqToVersionMap.get(seq);
+                if (previousVersion != null && version < previousVersion) {
+                    return;
+                }
+                seqToVersionMap.put(seq, version);
+            }
+            try {
+                location = append(record, payload.length);
+            } catch (RuntimeException e) {
+                rollBackVersion(seq, version, previousVersion);
+                throw e;
+            }
+            uninstalledRounds++;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean synced = false;
+        try {
+            awaitSync(location.recordNumber);
+            synced = true;
+        } finally {
+            lock.lock();
+            try {
+                if (synced) {
+                    install(seq, location);
+                } else {
+                    rollBackVersion(seq, version, previousVersion);
+                }
+                if (--uninstalledRounds == 0) {
+                    installed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Forgets the version of a round that failed to be written, unless a later write has replaced it. */
+    @GuardedBy("lock")
+    private void rollBackVersion(long seq, Long version, Long previousVersion) {
+        if (version == null || !version.equals(seqToVersionMap.get(seq))) {
+            return;
+        }
+        if (previousVersion == null) {
+            seqToVersionMap.remove(seq);
+        } else {
+            seqToVersionMap.put(seq, previousVersion);
+        }
+    }
+
+    @Override
+    public byte[] readRound(long seq) throws IOException {
+        lock.lock();
+        try {
+            Location location = index.get(seq);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + location.payloadLength + TRAILER_BYTES);
+            location.segment.channel.read(buffer, location.offset);
+            buffer.flip();
+            byte[] payload = decode(buffer);
+            if (payload == null) {
+                throw new CorruptLogFileException();
+            }
+            return payload;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getLeastLogEntry() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : index.firstKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getGreatestLogEntry() {
+        lock.lock();
+        try {
+            return index.isEmpty() ? PaxosAcceptor.NO_LOG_ENTRY : index.lastKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void truncate(long toDeleteInclusive) {
+        lock.lock();
+        try {
+            // Rounds which are appended but not yet visible could otherwise be made visible after the truncation.
+            while (uninstalledRounds > 0) {
+                installed.awaitUninterruptibly();
+            }
+            if (!index.isEmpty() && index.lastKey() >= 0) {
+                // We never want to remove our most recent entry
+                toDeleteInclusive = Math.min(index.lastKey() - 1, toDeleteInclusive);
+            }
+            if (index.isEmpty() || index.firstKey() > toDeleteInclusive) {
+                return;
+            }
+            // The marker is synced with the next write; if it is lost, the truncated rounds are merely kept.
+            append(encode(TRUNCATE_RECORD, toDeleteInclusive, new byte[0]), 0);
+            applyTruncation(toDeleteInclusive);
+            deleteDeadSegments();
+        } catch (IOException e) {
+            log.error("problem truncating paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            for (Segment segment : segments.values()) {
+                IOUtils.closeQuietly(segment.channel);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @VisibleForTesting
+    int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private Location append(byte[] record, int payloadLength) {
+        try {
+            if (activeSegment.size > 0 && activeSegment.size + record.length > maxSegmentBytes) {
+                // Writers still waiting on the old segment are covered by this sync.
+                activeSegment.channel.force(false);
+                activeSegment = createSegment(activeSegment.id + 1);
+            }
+            long offset = activeSegment.size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                activeSegment.channel.write(buffer, offset + buffer.position());
+            }
+            activeSegment.size += record.length;
+            return new Location(activeSegment, offset, payloadLength, ++appendedRecords);
+        } catch (IOException e) {
+            log.error("problem writing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    /**
+     * Returns once the record with the given number is durable, syncing the active segment if no other writer is
+     * already doing so.
+     */
+    private void awaitSync(long recordNumber) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                synchronized (syncMonitor) {
+                    while (syncInProgress && syncedRecords < recordNumber) {
+                        try {
+                            syncMonitor.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (syncedRecords >= recordNumber) {
+                        return;
+                    }
+                    syncInProgress = true;
+                }
+
+                long syncedUpTo = 0;
+                try {
+                    syncedUpTo = sync();
+                } finally {
+                    synchronized (syncMonitor) {
+                        syncedRecords = Math.max(syncedRecords, syncedUpTo);
+                        syncInProgress = false;
+                        syncMonitor.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Syncs the active segment, and returns the number of records which are now durable. */
+    private long sync() {
+        FileChannel channel;
+        long appended;
+        lock.lock();
+        try {
+            channel = activeSegment.channel;
+            appended = appendedRecords;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // The segment was synced when it was rolled over, and has since been deleted.
+        } catch (IOException e) {
+            log.error("problem syncing paxos state", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+        return appended;
+    }
+
+    @GuardedBy("lock")
+    private void install(long seq, Location location) {
+        Location previous = index.get(seq);
+        if (previous != null && previous.recordNumber > location.recordNumber) {
+            return;
+        }
+        index.put(seq, location);
+        location.segment.liveRounds++;
+        if (previous != null) {
+            previous.segment.liveRounds--;
+        }
+    }
+
+    @GuardedBy("lock")
+    private void applyTruncation(long toDeleteInclusive) {
+        Iterator<Location> truncated = index.headMap(toDeleteInclusive, true).values().iterator();
+        while (truncated.hasNext()) {
+            truncated.next().segment.liveRounds--;
+            truncated.remove();
+        }
+    }
+
+    /**
+     * Deletes segments from the start of the log while none of their rounds are live. Only deleting a prefix of the
+     * log means that no truncation marker is lost while rounds it truncated are still on disk.
+     */
+    @GuardedBy("lock")
+    private void deleteDeadSegments() throws IOException {
+        while (segments.size() > 1) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (oldest == activeSegment || oldest.liveRounds > 0) {
+                return;
+            }
+            segments.remove(oldest.id);
+            IOUtils.closeQuietly(oldest.channel);
+            FileUtils.forceDelete(oldest.file);
+        }
+    }
+
+    @GuardedBy("lock")
+    private void replay() throws IOException {
+        File[] files = directory.listFiles();
+        TreeMap<Long, File> segmentFiles = new TreeMap<Long, File>();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                segmentFiles.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            Segment segment = openSegment(entry.getKey(), entry.getValue());
+            long validBytes = replaySegment(segment);
+            if (validBytes < segment.channel.size()) {
+                if (entry.getKey().equals(segmentFiles.lastKey())) {
+                    log.warn("Discarding a torn record at the end of paxos log segment {}",
+                            segment.file.getAbsolutePath());
+                    segment.channel.truncate(validBytes);
+                    segment.channel.force(true);
+                } else {
+                    log.error("Paxos log segment {} is corrupt after byte {}, and is not the last segment",
+                            segment.file.getAbsolutePath(), validBytes);
+                    for (Segment opened : segments.values()) {
+                        IOUtils.closeQuietly(opened.channel);
+                    }
+                    throw new CorruptLogFileException();
+                }
+            }
+            segment.size = validBytes;
+        }
+        synchronized (syncMonitor) {
+            syncedRecords = appendedRecords;
+        }
+    }
+
+    /** Applies the valid records of a segment to the index, and returns the length of the valid prefix. */
+    @GuardedBy("lock")
+    private long replaySegment(Segment segment) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        long offset = 0;
+        try {
+            while (true) {
+                byte[] header = new byte[HEADER_BYTES];
+                try {
+                    in.readFully(header);
+                } catch (EOFException e) {
+                    return offset;
+                }
+                ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+                byte type = headerBuffer.get();
+                long seq = headerBuffer.getLong();
+                int payloadLength = headerBuffer.getInt();
+                if (payloadLength < 0 || offset + HEADER_BYTES + payloadLength + TRAILER_BYTES > segment.file.length()) {
+                    return offset;
+                }
+                byte[] rest = new byte[payloadLength + TRAILER_BYTES];
+                in.readFully(rest);
+                ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + rest.length);
+                record.put(header).put(rest).flip();
+                if (decode(record) == null) {
+                    return offset;
+                }
+                if (type == ROUND_RECORD) {
+                    install(seq, new Location(segment, offset, payloadLength, ++appendedRecords));
+                } else if (type == TRUNCATE_RECORD) {
+                    ++appendedRecords;
+                    applyTruncation(seq);
+                } else {
+                    return offset;
+                }
+                offset += HEADER_BYTES + payloadLength + TRAILER_BYTES;
+            }
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    @GuardedBy("lock")
+    private Segment createSegment(long id) throws IOException {
+        Segment segment = openSegment(id, new File(directory, id + SEGMENT_SUFFIX));
+        syncDirectory(directory);
+        return segment;
+    }
+
+    @GuardedBy("lock")
+    private Segment openSegment(long id, File file) throws IOException {
+        @SuppressWarnings("resource")
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        Segment segment = new Segment(id, file, channel);
+        segment.size = channel.size();
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform allows directories to be synced.
+            log.debug("Could not sync directory {}", dir.getAbsolutePath(), e);
+        }
+    }
+
+    private static byte[] encode(byte type, long seq, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length + TRAILER_BYTES);
+        buffer.put(type).putLong(seq).putInt(payload.length).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, HEADER_BYTES + payload.length);
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    /** Returns the payload of a record, or null if its checksum does not match. */
+    private static byte[] decode(ByteBuffer record) {
+        if (record.remaining() < HEADER_BYTES + TRAILER_BYTES) {
+            return null;
+        }
+        int payloadLength = record.getInt(record.position() + 1 + 8);
+        if (payloadLength < 0 || record.remaining() != HEADER_BYTES + payloadLength + TRAILER_BYTES) {
+            return null;
+        }
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, HEADER_BYTES + payloadLength);
+        int checksum = ByteBuffer.wrap(bytes, HEADER_BYTES + payloadLength, TRAILER_BYTES).getInt();
+        if (checksum != (int) crc.getValue()) {
+            return null;
+        }
+        byte[] payload = new byte[payloadLength];
+        System.arraycopy(bytes, HEADER_BYTES, payload, 0, payloadLength);
+        return payload;
+    }
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        final FileChannel channel;
+        long size;
+        int liveRounds;
+
+        Segment(long id, File file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final long offset;
+        final int payloadLength;
+        /** The position of the record in the log, which orders writes of the same sequence number. */
+        final long recordNumber;
+
+        Location(Segment segment, long offset, int payloadLength, long recordNumber) {
+            this.segment = segment;
+            this.offset = offset;
+            this.payloadLength = payloadLength;
+            this.recordNumber = recordNumber;
+        }
+    }
+}
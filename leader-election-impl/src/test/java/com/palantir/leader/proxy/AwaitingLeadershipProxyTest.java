@@ -22,6 +22,10 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
 
 import org.junit.Test;
 
@@ -68,4 +72,17 @@ public class AwaitingLeadershipProxyTest {
         assertThat(proxy.equals(null), equalTo(false));
         assertThat(proxy.toString(), startsWith("com.palantir.leader.proxy.AwaitingLeadershipProxy@"));
     }
+
+    @Test
+    public void shouldImplementAdditionalInterfaces() throws Exception {
+        Runnable mockRunnable = mock(Runnable.class, withSettings().extraInterfaces(Callable.class));
+        Supplier<Runnable> delegateSupplier = Suppliers.ofInstance(mockRunnable);
+        LeaderElectionService mockLeader = mock(LeaderElectionService.class);
+
+        Runnable proxy = AwaitingLeadershipProxy.newProxyInstance(
+                Runnable.class, delegateSupplier, mockLeader, Callable.class);
+
+        assertThat(proxy instanceof Callable, equalTo(true));
+        assertThat(proxy instanceof Closeable, equalTo(true));
+    }
 }
@@ -0,0 +1,230 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.paxos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class SegmentedPaxosStateLogTest {
+    private static final String LEADER = "leader";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void newLogMatchesFilePerRoundLog() throws IOException {
+        PaxosStateLog<PaxosValue> legacyLog = new PaxosStateLogImpl<PaxosValue>(folder.newFolder().getPath());
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(folder.newFolder().getPath());
+        assertEquals(legacyLog.getLeastLogEntry(), log.getLeastLogEntry());
+        assertEquals(legacyLog.getGreatestLogEntry(), log.getGreatestLogEntry());
+
+        for (long seq = 0; seq < 10; seq++) {
+            legacyLog.writeRound(seq, value(seq));
+            log.writeRound(seq, value(seq));
+        }
+        assertEquals(legacyLog.getLeastLogEntry(), log.getLeastLogEntry());
+        assertEquals(legacyLog.getGreatestLogEntry(), log.getGreatestLogEntry());
+        assertArrayEquals(legacyLog.readRound(5), log.readRound(5));
+        assertNull(log.readRound(10));
+
+        legacyLog.truncate(20);
+        log.truncate(20);
+        assertEquals(legacyLog.getLeastLogEntry(), log.getLeastLogEntry());
+        assertEquals(legacyLog.getGreatestLogEntry(), log.getGreatestLogEntry());
+        assertNull(log.readRound(5));
+        log.close();
+    }
+
+    @Test
+    public void rejectsOlderVersionOfRound() throws IOException {
+        SegmentedPaxosStateLog<PaxosAcceptorState> log = SegmentedPaxosStateLog.create(folder.newFolder().getPath());
+        PaxosAcceptorState olderState = PaxosAcceptorState.newState(new PaxosProposalId(1, LEADER));
+        PaxosAcceptorState newerState = olderState.withPromise(new PaxosProposalId(2, LEADER));
+        log.writeRound(3, newerState);
+        log.writeRound(3, olderState);
+        PaxosAcceptorState state = PaxosAcceptorState.BYTES_HYDRATOR.hydrateFromBytes(log.readRound(3));
+        assertEquals(newerState.lastPromisedId, state.lastPromisedId);
+        log.close();
+    }
+
+    @Test
+    public void replaysLogOnReopen() throws IOException {
+        String dir = folder.newFolder().getPath();
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(dir, 256);
+        for (long seq = 0; seq < 50; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        log.truncate(19);
+        log.close();
+
+        log = SegmentedPaxosStateLog.create(dir, 256);
+        assertEquals(20, log.getLeastLogEntry());
+        assertEquals(49, log.getGreatestLogEntry());
+        assertNull(log.readRound(19));
+        assertEquals(35, hydrate(log.readRound(35)).getRound());
+        log.close();
+    }
+
+    @Test
+    public void truncationDeletesDeadSegments() throws IOException {
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(folder.newFolder().getPath(), 256);
+        for (long seq = 0; seq < 100; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        int segmentsBeforeTruncation = log.getSegmentCount();
+        assertTrue(segmentsBeforeTruncation > 10);
+
+        log.truncate(89);
+        assertTrue(log.getSegmentCount() < segmentsBeforeTruncation / 2);
+        assertEquals(90, log.getLeastLogEntry());
+        assertEquals(99, hydrate(log.readRound(99)).getRound());
+        log.close();
+    }
+
+    @Test
+    public void discardsTornRecordAtEndOfLog() throws IOException {
+        String dir = folder.newFolder().getPath();
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(dir);
+        log.writeRound(0, value(0));
+        log.writeRound(1, value(1));
+        log.close();
+
+        File segment = new File(new File(dir, SegmentedPaxosStateLog.SEGMENTS_DIRECTORY), "0.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        log = SegmentedPaxosStateLog.create(dir);
+        assertEquals(0, log.getGreatestLogEntry());
+        assertNull(log.readRound(1));
+        log.writeRound(1, value(1));
+        log.close();
+
+        log = SegmentedPaxosStateLog.create(dir);
+        assertEquals(1, hydrate(log.readRound(1)).getRound());
+        log.close();
+    }
+
+    @Test
+    public void refusesToOpenLogWithCorruptSegmentBeforeTheLast() throws IOException {
+        String dir = folder.newFolder().getPath();
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(dir, 256);
+        for (long seq = 0; seq < 20; seq++) {
+            log.writeRound(seq, value(seq));
+        }
+        assertTrue(log.getSegmentCount() > 2);
+        log.close();
+
+        File segment = new File(new File(dir, SegmentedPaxosStateLog.SEGMENTS_DIRECTORY), "0.log");
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(file.length() - 1);
+            int lastByte = file.read();
+            file.seek(file.length() - 1);
+            file.write(lastByte ^ 0xff);
+        }
+
+        long corruptLength = segment.length();
+        try {
+            SegmentedPaxosStateLog.create(dir, 256);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof PaxosStateLog.CorruptLogFileException);
+        }
+        assertEquals(corruptLength, segment.length());
+    }
+
+    @Test
+    public void migratesFilePerRoundLog() throws IOException {
+        String dir = folder.newFolder().getPath();
+        PaxosStateLog<PaxosValue> legacyLog = new PaxosStateLogImpl<PaxosValue>(dir);
+        for (long seq = 0; seq < 10; seq++) {
+            legacyLog.writeRound(seq, value(seq));
+        }
+        legacyLog.truncate(3);
+
+        SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(dir);
+        assertEquals(4, log.getLeastLogEntry());
+        assertEquals(9, log.getGreatestLogEntry());
+        assertNull(log.readRound(3));
+        assertEquals(7, hydrate(log.readRound(7)).getRound());
+        assertTrue(PaxosStateLogImpl.getLogEntries(new File(dir)).isEmpty());
+        log.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void filePerRoundLogCannotOpenMigratedLog() throws IOException {
+        String dir = folder.newFolder().getPath();
+        SegmentedPaxosStateLog.create(dir).close();
+        new PaxosStateLogImpl<PaxosValue>(dir);
+    }
+
+    @Test
+    public void concurrentWritesAreAllDurable() throws Exception {
+        String dir = folder.newFolder().getPath();
+        final SegmentedPaxosStateLog<PaxosValue> log = SegmentedPaxosStateLog.create(dir, 4096);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = Lists.newArrayList();
+        for (int thread = 0; thread < 8; thread++) {
+            final int offset = thread;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (long seq = offset; seq < 400; seq += 8) {
+                        log.writeRound(seq, value(seq));
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        log.close();
+
+        SegmentedPaxosStateLog<PaxosValue> reopened = SegmentedPaxosStateLog.create(dir, 4096);
+        for (long seq = 0; seq < 400; seq++) {
+            assertEquals(seq, hydrate(reopened.readRound(seq)).getRound());
+        }
+        reopened.close();
+    }
+
+    private static PaxosValue value(long seq) {
+        return new PaxosValue(LEADER, seq, new byte[] {(byte) seq});
+    }
+
+    private static PaxosValue hydrate(byte[] bytes) {
+        return PaxosValue.BYTES_HYDRATOR.hydrateFromBytes(bytes);
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A lock service which can wait for locks without holding a thread for every waiting request.
+ */
+public interface AsyncLockService {
+    /**
+     * Equivalent to {@link LockService#lockWithFullLockResponse(LockClient, LockRequest)}, except that the
+     * request is carried out without blocking the calling thread. Cancelling the returned future withdraws the
+     * request.
+     */
+    ListenableFuture<LockResponse> lockAsync(LockClient client, LockRequest request);
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock;
+
+import javax.annotation.Nullable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * The lock endpoints of a server backed by an {@link AsyncLockService}. They behave like the matching methods of
+ * {@link RemoteLockService}, but the server holds no thread while a request waits for its locks, so this is the
+ * interface to use for requests that are expected to block.
+ */
+@Path("/async-lock")
+public interface RemoteAsyncLockService {
+    /**
+     * @see RemoteLockService#lock(String, LockRequest)
+     */
+    @POST
+    @Path("lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Nullable
+    LockRefreshToken lock(@PathParam("client") String client, LockRequest request) throws InterruptedException;
+
+    /**
+     * @see RemoteLockService#lockAndGetHeldLocks(String, LockRequest)
+     */
+    @POST
+    @Path("try-lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    HeldLocksToken lockAndGetHeldLocks(@PathParam("client") String client, LockRequest request)
+            throws InterruptedException;
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.palantir.lock.AsyncLockService;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockGroupBehavior;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.RemoteAsyncLockService;
+
+/**
+ * Serves {@link RemoteAsyncLockService} from an {@link AsyncLockService}. Each request is suspended until its lock
+ * attempt completes, so no server thread is held while it waits. If the client disconnects first, the attempt is
+ * cancelled.
+ */
+@Path("/async-lock")
+public final class AsyncLockResource {
+    private final AsyncLockService lockService;
+
+    public AsyncLockResource(AsyncLockService lockService) {
+        this.lockService = Preconditions.checkNotNull(lockService);
+    }
+
+    /**
+     * @see RemoteAsyncLockService#lock(String, LockRequest)
+     */
+    @POST
+    @Path("lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void lock(@PathParam("client") String client, LockRequest request, @Suspended AsyncResponse response) {
+        Preconditions.checkArgument(request.getLockGroupBehavior() == LockGroupBehavior.LOCK_ALL_OR_NONE,
+                "lock() only supports LockGroupBehavior.LOCK_ALL_OR_NONE. Consider using lockAndGetHeldLocks().");
+        resumeWhenDone(response, lockService.lockAsync(LockClient.of(client), request),
+                new Function<LockResponse, LockRefreshToken>() {
+                    @Override
+                    public LockRefreshToken apply(LockResponse result) {
+                        return result.success() ? result.getLockRefreshToken() : null;
+                    }
+                });
+    }
+
+    /**
+     * @see RemoteAsyncLockService#lockAndGetHeldLocks(String, LockRequest)
+     */
+    @POST
+    @Path("try-lock/{client: .*}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public void lockAndGetHeldLocks(@PathParam("client") String client, LockRequest request,
+            @Suspended AsyncResponse response) {
+        resumeWhenDone(response, lockService.lockAsync(LockClient.of(client), request),
+                new Function<LockResponse, HeldLocksToken>() {
+                    @Override
+                    public HeldLocksToken apply(LockResponse result) {
+                        return result.getToken();
+                    }
+                });
+    }
+
+    private static <T> void resumeWhenDone(final AsyncResponse response, final ListenableFuture<LockResponse> future,
+            final Function<LockResponse, T> toEntity) {
+        response.register(new ConnectionCallback() {
+            @Override
+            public void onDisconnect(AsyncResponse disconnected) {
+                future.cancel(false);
+            }
+        });
+        Futures.addCallback(future, new FutureCallback<LockResponse>() {
+            @Override
+            public void onSuccess(LockResponse result) {
+                response.resume(toEntity.apply(result));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                response.resume(t);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+}
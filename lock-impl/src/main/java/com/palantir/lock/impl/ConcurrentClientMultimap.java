@@ -0,0 +1,116 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.palantir.lock.LockClient;
+
+/**
+ * A multimap from lock client to values, where each client has its own collection guarded by its own monitor.
+ * <p>
+ * Unlike a synchronized multimap, updates for different clients never contend. A client's collection is removed
+ * once it becomes empty, so clients which come and go do not leak.
+ */
+@ThreadSafe
+final class ConcurrentClientMultimap<V> {
+    private final ConcurrentMap<LockClient, Collection<V>> collections = Maps.newConcurrentMap();
+    private final Supplier<? extends Collection<V>> collectionSupplier;
+
+    /**
+     * @param collectionSupplier supplies the (not thread-safe) collection to hold the values of each client
+     */
+    ConcurrentClientMultimap(Supplier<? extends Collection<V>> collectionSupplier) {
+        this.collectionSupplier = collectionSupplier;
+    }
+
+    void put(LockClient client, V value) {
+        while (true) {
+            Collection<V> values = collections.get(client);
+            if (values == null) {
+                Collection<V> newValues = collectionSupplier.get();
+                values = collections.putIfAbsent(client, newValues);
+                if (values == null) {
+                    values = newValues;
+                }
+            }
+            synchronized (values) {
+                // The collection may have been emptied and removed since we looked it up.
+                if (collections.get(client) == values) {
+                    values.add(value);
+                    return;
+                }
+            }
+        }
+    }
+
+    void remove(LockClient client, Object value) {
+        Collection<V> values = collections.get(client);
+        if (values == null) {
+            return;
+        }
+        synchronized (values) {
+            if (values.remove(value) && values.isEmpty()) {
+                collections.remove(client, values);
+            }
+        }
+    }
+
+    /** Returns a snapshot of the values for {@code client}, in the iteration order of its collection. */
+    List<V> get(LockClient client) {
+        Collection<V> values = collections.get(client);
+        if (values == null) {
+            return ImmutableList.of();
+        }
+        synchronized (values) {
+            return ImmutableList.copyOf(values);
+        }
+    }
+
+    /** Returns the first value for {@code client} in the iteration order of its collection, if there is one. */
+    @Nullable V getFirst(LockClient client) {
+        Collection<V> values = collections.get(client);
+        if (values == null) {
+            return null;
+        }
+        synchronized (values) {
+            Iterator<V> iterator = values.iterator();
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    /** Returns a snapshot of the values of every client, for logging. */
+    Map<LockClient, List<V>> asMap() {
+        Map<LockClient, List<V>> snapshot = Maps.newHashMap();
+        for (LockClient client : collections.keySet()) {
+            List<V> values = get(client);
+            if (!values.isEmpty()) {
+                snapshot.put(client, values);
+            }
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.palantir.lock.ExpiringToken;
+
+/**
+ * A hashed timing wheel of lock tokens (or grants) waiting to be reaped.
+ * <p>
+ * Time is divided into ticks of {@code tickMillis}, and a token that should be reaped at time {@code t} is stored in
+ * the bucket for the first tick at or after {@code t}, modulo the number of buckets. Scheduling a token, or moving it
+ * to a later bucket when it is refreshed, is O(1). The reaper calls {@link #advance} once per tick to take the tokens
+ * from the buckets that have come due and decides for each one whether to reap it or to schedule it again; tokens
+ * which are due in a later revolution of the wheel stay in their bucket.
+ * <p>
+ * Unlocked tokens are not removed eagerly; they are dropped when their bucket comes due.
+ */
+@ThreadSafe
+final class ExpiringTokenWheel<T extends ExpiringToken> {
+    private final long tickMillis;
+    private final List<Set<T>> buckets;
+    private final ConcurrentMap<T, Long> tickByToken = Maps.newConcurrentMap();
+    /** Held for reading to schedule tokens, and for writing to visit buckets, so no token lands in a visited bucket. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private @GuardedBy("lock") long lastTick;
+
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private final AtomicLong reapedOnLastTick = new AtomicLong();
+    private final AtomicLong reapedTotal = new AtomicLong();
+
+    ExpiringTokenWheel(long tickMillis, int numBuckets, long nowMillis) {
+        Preconditions.checkArgument(tickMillis > 0, "tickMillis must be positive");
+        Preconditions.checkArgument(numBuckets > 0, "numBuckets must be positive");
+        this.tickMillis = tickMillis;
+        this.buckets = Lists.newArrayListWithCapacity(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(Sets.<T>newConcurrentHashSet());
+        }
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Schedules {@code token} to be handed back by {@link #advance} once {@code reapTimeMillis} has passed, replacing
+     * any previous schedule for an equal token.
+     */
+    void schedule(T token, long reapTimeMillis) {
+        lock.readLock().lock();
+        try {
+            long tick = Math.max(ceilDiv(reapTimeMillis, tickMillis), lastTick + 1);
+            Long previousTick = tickByToken.put(token, tick);
+            if (previousTick != null && bucketIndex(previousTick) != bucketIndex(tick)) {
+                bucket(previousTick).remove(token);
+            }
+            bucket(tick).add(token);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the tokens in every bucket that has come due by {@code nowMillis}. The caller must either
+     * reap each token or {@link #schedule} it again.
+     */
+    List<T> advance(long nowMillis) {
+        long currentTick = nowMillis / tickMillis;
+        lock.writeLock().lock();
+        try {
+            long firstTick = lastTick + 1;
+            if (currentTick < firstTick) {
+                return ImmutableList.of();
+            }
+            recordLag(nowMillis - firstTick * tickMillis);
+            // After a stall of more than one revolution, every bucket is due exactly once.
+            long lastTickToVisit = Math.min(currentTick, firstTick + buckets.size() - 1);
+            List<T> due = Lists.newArrayList();
+            for (long tick = firstTick; tick <= lastTickToVisit; tick++) {
+                Set<T> bucket = bucket(tick);
+                for (T token : bucket) {
+                    Long scheduledTick = tickByToken.get(token);
+                    if (scheduledTick != null && scheduledTick > currentTick) {
+                        continue;
+                    }
+                    bucket.remove(token);
+                    tickByToken.remove(token);
+                    due.add(token);
+                }
+            }
+            lastTick = currentTick;
+            return due;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void recordReaped(int count) {
+        reapedOnLastTick.set(count);
+        reapedTotal.addAndGet(count);
+    }
+
+    /** Returns the scheduled tokens, in no particular order. */
+    Set<T> getScheduledTokens() {
+        return tickByToken.keySet();
+    }
+
+    long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    long getReapedOnLastTick() {
+        return reapedOnLastTick.get();
+    }
+
+    long getReapedTotal() {
+        return reapedTotal.get();
+    }
+
+    private void recordLag(long lagMillis) {
+        lastLagMillis.set(lagMillis);
+        long max;
+        do {
+            max = maxLagMillis.get();
+        } while (lagMillis > max && !maxLagMillis.compareAndSet(max, lagMillis));
+    }
+
+    private Set<T> bucket(long tick) {
+        return buckets.get(bucketIndex(tick));
+    }
+
+    private int bucketIndex(long tick) {
+        return (int) (tick % buckets.size());
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
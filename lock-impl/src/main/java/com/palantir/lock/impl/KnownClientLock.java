@@ -19,6 +19,7 @@ import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockMode;
 
@@ -42,6 +43,19 @@ public interface KnownClientLock {
     /** Acquires the lock unless the current thread is interrupted. */
     void lockInterruptibly() throws InterruptedException;
 
+    /**
+     * Acquires the lock without blocking the current thread. If the lock is not
+     * available, then the request is queued on the lock and the returned future
+     * completes when the lock is released to it; no thread is held while the
+     * request waits. Cancelling the future withdraws the request, and releases
+     * the lock if it was granted concurrently with the cancellation.
+     *
+     * @throws IllegalMonitorStateException if the lock can never be granted,
+     *         for example because the registered client holds the read lock
+     *         and is requesting the write lock.
+     */
+    ListenableFuture<Void> lockAsync();
+
     /**
      * Acquires the lock only if it is free at the time of invocation. This
      * method does not block.
@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.palantir.lock.LockClient;
 import com.palantir.lock.LockDescriptor;
 import com.palantir.lock.LockMode;
@@ -93,7 +94,18 @@ public class LockServerLock implements ClientAwareReadWriteLock {
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireSharedInterruptibly(clientIndex);
+            try {
+                sync.acquireSharedInterruptibly(clientIndex);
+            } catch (InterruptedException e) {
+                // Asynchronous waiters queued behind this thread may be able to go now.
+                sync.signalAsyncWaiters();
+                throw e;
+            }
+        }
+
+        @Override
+        public ListenableFuture<Void> lockAsync() {
+            return sync.acquireAsync(clientIndex, true);
         }
 
         @Override
@@ -118,20 +130,31 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         @Override
         public LockClient tryLock(long time, TimeUnit unit) throws InterruptedException {
             LockClient client = tryLock();
-            if (client != null && sync.tryAcquireSharedNanos(clientIndex, unit.toNanos(time))) {
+            if (client == null) {
                 return null;
             }
-            return client;
+            boolean acquired = false;
+            try {
+                acquired = sync.tryAcquireSharedNanos(clientIndex, unit.toNanos(time));
+            } finally {
+                if (!acquired) {
+                    // Asynchronous waiters queued behind this thread may be able to go now.
+                    sync.signalAsyncWaiters();
+                }
+            }
+            return acquired ? null : client;
         }
 
         @Override
         public void changeOwner(LockClient newOwner) {
             sync.changeOwnerShared(clientIndex, newOwner);
+            sync.signalAsyncWaiters();
         }
 
         @Override
         public void unlock() {
             sync.releaseShared(clientIndex);
+            sync.signalAsyncWaiters();
         }
 
         @Override
@@ -170,7 +193,18 @@ public class LockServerLock implements ClientAwareReadWriteLock {
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            sync.acquireInterruptibly(clientIndex);
+            try {
+                sync.acquireInterruptibly(clientIndex);
+            } catch (InterruptedException e) {
+                // Asynchronous waiters queued behind this thread may be able to go now.
+                sync.signalAsyncWaiters();
+                throw e;
+            }
+        }
+
+        @Override
+        public ListenableFuture<Void> lockAsync() {
+            return sync.acquireAsync(clientIndex, false);
         }
 
         @Override
@@ -195,25 +229,37 @@ public class LockServerLock implements ClientAwareReadWriteLock {
         @Override
         public LockClient tryLock(long time, TimeUnit unit) throws InterruptedException {
             LockClient client = tryLock();
-            if (client != null && sync.tryAcquireNanos(clientIndex, unit.toNanos(time))) {
+            if (client == null) {
                 return null;
             }
-            return client;
+            boolean acquired = false;
+            try {
+                acquired = sync.tryAcquireNanos(clientIndex, unit.toNanos(time));
+            } finally {
+                if (!acquired) {
+                    // Asynchronous waiters queued behind this thread may be able to go now.
+                    sync.signalAsyncWaiters();
+                }
+            }
+            return acquired ? null : client;
         }
 
         @Override
         public void changeOwner(LockClient newOwner) {
             sync.changeOwner(clientIndex, newOwner);
+            sync.signalAsyncWaiters();
         }
 
         @Override
         public void unlock() {
             sync.release(clientIndex);
+            sync.signalAsyncWaiters();
         }
 
         @Override
         public void unlockAndFreeze() {
             sync.unlockAndFreeze(clientIndex);
+            sync.signalAsyncWaiters();
         }
 
         @Override
@@ -15,7 +15,12 @@
  */
 package com.palantir.lock.impl;
 
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
@@ -23,7 +28,12 @@ import javax.annotation.concurrent.GuardedBy;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.palantir.lock.LockClient;
 
 import gnu.trove.iterator.TIntIntIterator;
@@ -33,10 +43,14 @@ import gnu.trove.map.hash.TIntIntHashMap;
 class LockServerSync extends AbstractQueuedSynchronizer {
     private static final long serialVersionUID = 1L;
 
+    /** The granted waiters that the current thread has yet to complete; see {@link #completeGrantedWaiters}. */
+    private static final ThreadLocal<Queue<AsyncWaiter>> waitersToComplete = new ThreadLocal<Queue<AsyncWaiter>>();
+
     private final LockClientIndices clients;
     private @GuardedBy("this") boolean frozen;
     private @GuardedBy("this") int writeLockHolder = 0;
     private @GuardedBy("this") TIntIntMap readLockHolders;
+    private @GuardedBy("this") Queue<AsyncWaiter> asyncWaiters;
 
     public LockServerSync(LockClientIndices clients) {
         this.clients = Preconditions.checkNotNull(clients);
@@ -53,6 +67,10 @@ class LockServerSync extends AbstractQueuedSynchronizer {
 
     @Override
     protected synchronized boolean tryAcquire(int clientIndex) {
+        return tryAcquire(clientIndex, hasBlockedPredecessors());
+    }
+
+    private boolean tryAcquire(int clientIndex, boolean hasPredecessors) {
         if (frozen) {
             return false;
         }
@@ -61,7 +79,7 @@ class LockServerSync extends AbstractQueuedSynchronizer {
             setState(writeCount + 1);
             return true;
         }
-        if (hasBlockedPredecessors()) {
+        if (hasPredecessors) {
             return false;
         }
         if (writeCount == 0 && !isReadLockHeld()) {
@@ -94,18 +112,22 @@ class LockServerSync extends AbstractQueuedSynchronizer {
 
     @Override
     protected synchronized int tryAcquireShared(int clientIndex) {
+        return tryAcquireShared(clientIndex, hasBlockedPredecessors()) ? 1 : -1;
+    }
+
+    private boolean tryAcquireShared(int clientIndex, boolean hasPredecessors) {
         if (frozen) {
-            return -1;
+            return false;
         }
         int writeCount = getState();
-        if (writeCount == 0 && !holdsReadLock(clientIndex) && hasBlockedPredecessors()) {
-            return -1;
+        if (writeCount == 0 && !holdsReadLock(clientIndex) && hasPredecessors) {
+            return false;
         }
         if (writeCount > 0 && !holdsWriteLock(clientIndex)) {
-            return -1;
+            return false;
         }
         incrementReadCount(clientIndex);
-        return 1;
+        return true;
     }
 
     @Override
@@ -118,6 +140,136 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         return false;
     }
 
+    /**
+     * Acquires the lock for the given client without blocking the calling thread. If the lock cannot be acquired
+     * immediately, the request is queued and the returned future is completed by the thread that makes the lock
+     * available (see {@link #signalAsyncWaiters()}). Asynchronous waiters and threads parked in {@link #acquire} are
+     * served in the order they arrived: each waiter remembers the threads that were already parked when it was
+     * queued, and neither side can barge in front of the other.
+     * <p>
+     * Cancelling the returned future withdraws the request. If the lock was granted concurrently with the
+     * cancellation, it is released again.
+     */
+    ListenableFuture<Void> acquireAsync(int clientIndex, boolean shared) {
+        final AsyncWaiter waiter;
+        synchronized (this) {
+            boolean hasPredecessors = hasAsyncWaiters() || hasQueuedThreads();
+            boolean acquired = shared
+                    ? tryAcquireShared(clientIndex, hasPredecessors)
+                    : tryAcquire(clientIndex, hasPredecessors);
+            if (acquired) {
+                return Futures.immediateFuture(null);
+            }
+            if (asyncWaiters == null) {
+                asyncWaiters = new ArrayDeque<AsyncWaiter>(1);
+            }
+            List<Thread> threadsAhead = hasQueuedThreads()
+                    ? Lists.newArrayList(getQueuedThreads())
+                    : Lists.<Thread>newArrayListWithCapacity(0);
+            waiter = new AsyncWaiter(this, clientIndex, shared, threadsAhead);
+            asyncWaiters.add(waiter);
+        }
+        waiter.future.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (waiter.future.isCancelled()) {
+                    removeAsyncWaiter(waiter);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return waiter.future;
+    }
+
+    /**
+     * Grants the lock to as many queued asynchronous waiters as possible, in order. Must be called without holding
+     * the monitor of this object after every operation that may make the lock available, and after a parked thread
+     * gives up waiting.
+     */
+    void signalAsyncWaiters() {
+        List<AsyncWaiter> granted;
+        synchronized (this) {
+            if (!hasAsyncWaiters()) {
+                return;
+            }
+            granted = grantAsyncWaiters();
+        }
+        completeGrantedWaiters(granted);
+    }
+
+    private void removeAsyncWaiter(AsyncWaiter waiter) {
+        List<AsyncWaiter> granted;
+        synchronized (this) {
+            if (asyncWaiters == null || !asyncWaiters.remove(waiter)) {
+                return;
+            }
+            granted = grantAsyncWaiters();
+        }
+        completeGrantedWaiters(granted);
+    }
+
+    @GuardedBy("this")
+    private List<AsyncWaiter> grantAsyncWaiters() {
+        List<AsyncWaiter> granted = Lists.newArrayList();
+        for (Iterator<AsyncWaiter> iter = asyncWaiters.iterator(); iter.hasNext(); ) {
+            AsyncWaiter waiter = iter.next();
+            if (waiter.hasQueuedThreadsAhead()) {
+                break;
+            }
+            try {
+                boolean acquired = waiter.shared
+                        ? tryAcquireShared(waiter.clientIndex, false)
+                        : tryAcquire(waiter.clientIndex, false);
+                if (!acquired) {
+                    break;
+                }
+                granted.add(waiter);
+            } catch (IllegalMonitorStateException e) {
+                waiter.failure = e;
+                granted.add(waiter);
+            }
+            iter.remove();
+        }
+        if (hasQueuedThreads() && (!hasAsyncWaiters() || asyncWaiters.peek().hasQueuedThreadsAhead())) {
+            // The first parked thread may have been held back by the waiters we just removed.
+            LockSupport.unpark(getFirstQueuedThread());
+        }
+        return granted;
+    }
+
+    /**
+     * Completes the futures of the given granted waiters. Completing a future runs its listeners on this thread,
+     * and those may release locks and so grant further waiters, possibly of other locks. Rather than recursing
+     * without bound, waiters granted while this thread is already completing waiters are queued, and the outermost
+     * call completes them in a loop.
+     */
+    private static void completeGrantedWaiters(List<AsyncWaiter> granted) {
+        if (granted.isEmpty()) {
+            return;
+        }
+        Queue<AsyncWaiter> pending = waitersToComplete.get();
+        if (pending != null) {
+            pending.addAll(granted);
+            return;
+        }
+        pending = new ArrayDeque<AsyncWaiter>(granted);
+        waitersToComplete.set(pending);
+        try {
+            for (AsyncWaiter waiter = pending.poll(); waiter != null; waiter = pending.poll()) {
+                waiter.complete();
+            }
+        } finally {
+            waitersToComplete.remove();
+        }
+    }
+
+    private boolean hasAsyncWaiters() {
+        return asyncWaiters != null && !asyncWaiters.isEmpty();
+    }
+
+    synchronized int getAsyncWaiterCount() {
+        return asyncWaiters == null ? 0 : asyncWaiters.size();
+    }
+
     synchronized void unlockAndFreeze(int clientIndex) {
         if (isAnonymous(clientIndex)) {
             throw LockServerLock.throwIllegalMonitorStateException(
@@ -218,7 +370,12 @@ class LockServerSync extends AbstractQueuedSynchronizer {
     // Note: Replace with hasQueuesPredecessors when lock server
     // no longer needs to run on java 6.
     private boolean hasBlockedPredecessors() {
-        return getFirstQueuedThread() != Thread.currentThread() && hasQueuedThreads();
+        Thread current = Thread.currentThread();
+        if (getFirstQueuedThread() != current && hasQueuedThreads()) {
+            return true;
+        }
+        // Only waiters that were queued before the current thread parked come ahead of it.
+        return hasAsyncWaiters() && !asyncWaiters.peek().isQueuedBehind(current);
     }
 
     synchronized boolean isFrozen() {
@@ -233,6 +390,7 @@ class LockServerSync extends AbstractQueuedSynchronizer {
                 .add("writeClient", writeLockHolder == 0 ? null : clients.fromIndex(writeLockHolder))
                 .add("readClients", clients.fromIndices(getReadClients()))
                 .add("queuedThreads", getQueueLength())
+                .add("asyncWaiters", asyncWaiters == null ? 0 : asyncWaiters.size())
                 .add("isFrozen", frozen)
                 .toString();
     }
@@ -274,4 +432,55 @@ class LockServerSync extends AbstractQueuedSynchronizer {
         }
         return Ints.asList(readLockHolders.keys()); // (authorized)
     }
+
+    private static final class AsyncWaiter {
+        final LockServerSync sync;
+        final int clientIndex;
+        final boolean shared;
+        final SettableFuture<Void> future = SettableFuture.create();
+        /** The threads that were parked in {@link #acquire} when this waiter was queued, and may still be. */
+        final List<Thread> threadsAhead;
+        @Nullable IllegalMonitorStateException failure;
+
+        AsyncWaiter(LockServerSync sync, int clientIndex, boolean shared, List<Thread> threadsAhead) {
+            this.sync = sync;
+            this.clientIndex = clientIndex;
+            this.shared = shared;
+            this.threadsAhead = threadsAhead;
+        }
+
+        @GuardedBy("sync")
+        boolean hasQueuedThreadsAhead() {
+            removeThreadsThatStoppedWaiting();
+            return !threadsAhead.isEmpty();
+        }
+
+        @GuardedBy("sync")
+        boolean isQueuedBehind(Thread thread) {
+            removeThreadsThatStoppedWaiting();
+            return threadsAhead.contains(thread);
+        }
+
+        private void removeThreadsThatStoppedWaiting() {
+            for (Iterator<Thread> iter = threadsAhead.iterator(); iter.hasNext(); ) {
+                if (!sync.isQueued(iter.next())) {
+                    iter.remove();
+                }
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.setException(failure);
+            } else if (!future.set(null)) {
+                // The waiter was cancelled after we granted it the lock.
+                if (shared) {
+                    sync.releaseShared(clientIndex);
+                } else {
+                    sync.release(clientIndex);
+                }
+                sync.signalAsyncWaiters();
+            }
+        }
+    }
 }
@@ -24,17 +24,17 @@ import static com.palantir.lock.LockGroupBehavior.LOCK_AS_MANY_AS_POSSIBLE;
 import java.io.Closeable;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,10 +51,6 @@ import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Supplier;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -63,16 +59,18 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultiset;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.palantir.common.base.Throwables;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
 import com.palantir.common.random.SecureRandomPool;
 import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.lock.AsyncLockService;
 import com.palantir.lock.BlockingMode;
 import com.palantir.lock.ExpiringToken;
 import com.palantir.lock.HeldLocksGrant;
@@ -103,14 +101,19 @@ import com.palantir.util.Pair;
  *
  * @author jtamer
  */
-@ThreadSafe public final class LockServiceImpl implements LockService, RemoteLockService, LockServiceImplMBean, Closeable {
+@ThreadSafe public final class LockServiceImpl
+        implements LockService, RemoteLockService, AsyncLockService, LockServiceImplMBean, Closeable {
 
     private static final Logger log = LoggerFactory.getLogger(LockServiceImpl.class);
     private static final Logger requestLogger = LoggerFactory.getLogger("lock.request");
 
-    /** Executor for the reaper threads. */
-    private final ExecutorService executor = PTExecutors.newCachedThreadPool(
-            new NamedThreadFactory(LockServiceImpl.class.getName(), true));
+    /** Executor which runs the reapers and times out asynchronous lock requests. */
+    private final ScheduledExecutorService executor;
+
+    /** Whether the executor belongs to this lock server, rather than being shared with others. */
+    private final boolean ownsExecutor;
+
+    private final List<ScheduledFuture<?>> reaperTasks;
 
     private static final Function<HeldLocksToken, String> TOKEN_TO_ID =
             new Function<HeldLocksToken, String>() {
@@ -162,14 +165,7 @@ import com.palantir.util.Pair;
     private final LockClientIndices clientIndices = new LockClientIndices();
 
     /** The backing client-aware read write lock for each lock descriptor. */
-    private final LoadingCache<LockDescriptor, ClientAwareReadWriteLock> descriptorToLockMap =
-            CacheBuilder.newBuilder().weakValues().build(
-                    new CacheLoader<LockDescriptor, ClientAwareReadWriteLock>() {
-                        @Override
-                        public ClientAwareReadWriteLock load(LockDescriptor from) {
-                            return new LockServerLock(from, clientIndices);
-                        }
-                    });
+    private final LockTable descriptorToLockMap = new LockTable(clientIndices);
 
     /** The locks (and canonical token) associated with each HeldLocksToken. */
     private final ConcurrentMap<HeldLocksToken, HeldLocks<HeldLocksToken>> heldLocksTokenMap =
@@ -179,36 +175,54 @@ import com.palantir.util.Pair;
     private final ConcurrentMap<HeldLocksGrant, HeldLocks<HeldLocksGrant>> heldLocksGrantMap =
             new MapMaker().makeMap();
 
-    /** The priority queue of lock tokens waiting to be reaped. */
-    private final BlockingQueue<HeldLocksToken> lockTokenReaperQueue =
-            new PriorityBlockingQueue<HeldLocksToken>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock tokens waiting to be reaped. */
+    private final ExpiringTokenWheel<HeldLocksToken> lockTokenReaper = new ExpiringTokenWheel<HeldLocksToken>(
+            REAPER_TICK_MILLIS, REAPER_BUCKETS, System.currentTimeMillis());
 
-    /** The priority queue of lock grants waiting to be reaped. */
-    private final BlockingQueue<HeldLocksGrant> lockGrantReaperQueue =
-            new PriorityBlockingQueue<HeldLocksGrant>(1, ExpiringToken.COMPARATOR);
+    /** The timing wheel of lock grants waiting to be reaped. */
+    private final ExpiringTokenWheel<HeldLocksGrant> lockGrantReaper = new ExpiringTokenWheel<HeldLocksGrant>(
+            REAPER_TICK_MILLIS, REAPER_BUCKETS, System.currentTimeMillis());
 
     /** The mapping from lock client to the set of tokens held by that client. */
-    private final SetMultimap<LockClient, HeldLocksToken> lockClientMultimap =
-            Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, HeldLocksToken>create());
+    private final ConcurrentClientMultimap<HeldLocksToken> lockClientMultimap =
+            new ConcurrentClientMultimap<HeldLocksToken>(new Supplier<Set<HeldLocksToken>>() {
+                @Override
+                public Set<HeldLocksToken> get() {
+                    return Sets.newHashSet();
+                }
+            });
 
-    private final SetMultimap<LockClient, LockRequest> outstandingLockRequestMultimap =
-        Multimaps.synchronizedSetMultimap(HashMultimap.<LockClient, LockRequest>create());
+    private final ConcurrentClientMultimap<LockRequest> outstandingLockRequestMultimap =
+            new ConcurrentClientMultimap<LockRequest>(new Supplier<Set<LockRequest>>() {
+                @Override
+                public Set<LockRequest> get() {
+                    return Sets.newHashSet();
+                }
+            });
 
     private final Set<Thread> indefinitelyBlockingThreads =
             Sets.newConcurrentHashSet();
 
-    private final Multimap<LockClient, Long> versionIdMap = Multimaps.synchronizedMultimap(
-            Multimaps.newMultimap(Maps.<LockClient, Collection<Long>>newHashMap(), new Supplier<TreeMultiset<Long>>() {
+    /** The requests made through {@link #lockAsync} which have not completed yet. */
+    private final Set<AsyncLockAttempt> pendingAsyncLockAttempts =
+            Sets.newConcurrentHashSet();
+
+    private final ConcurrentClientMultimap<Long> versionIdMap =
+            new ConcurrentClientMultimap<Long>(new Supplier<TreeMultiset<Long>>() {
                 @Override
                 public TreeMultiset<Long> get() {
                     return TreeMultiset.create();
                 }
-            }));
+            });
 
     private static final AtomicInteger instanceCount = new AtomicInteger();
     private static final int MAX_FAILED_LOCKS_TO_LOG = 20;
     private static final int MAX_LOCKS_TO_LOG = 10000;
 
+    /** The reapers visit their buckets every tick; 4096 ticks of 50ms cover the default lock timeout. */
+    private static final long REAPER_TICK_MILLIS = 50;
+    private static final int REAPER_BUCKETS = 4096;
+
     /** Creates a new lock server instance with default options. */
     // TODO (jtamer) read lock server options from a prefs file
     public static LockServiceImpl create() {
@@ -217,11 +231,20 @@ import com.palantir.util.Pair;
 
     /** Creates a new lock server instance with the given options. */
     public static LockServiceImpl create(LockServerOptions options) {
+        return create(options, null);
+    }
+
+    /**
+     * Creates a new lock server instance with the given options, which runs its reapers and asynchronous lock
+     * timeouts on {@code executor}. The executor may be shared between lock servers, and is not shut down when the
+     * lock server is closed. If {@code executor} is null, the lock server creates its own.
+     */
+    public static LockServiceImpl create(LockServerOptions options, @Nullable ScheduledExecutorService executor) {
         if (log.isTraceEnabled()) {
             log.trace("Creating LockService with options=" + options);
         }
         final String jmxBeanRegistrationName = "com.palantir.lock:type=LockServer_" + instanceCount.getAndIncrement();
-        LockServiceImpl lockService = new LockServiceImpl(options, new Runnable() {
+        LockServiceImpl lockService = new LockServiceImpl(options, executor, new Runnable() {
             @Override public void run() {
                 JMXUtils.unregisterMBeanCatchAndLogExceptions(jmxBeanRegistrationName);
             }
@@ -230,7 +253,8 @@ import com.palantir.util.Pair;
         return lockService;
     }
 
-    private LockServiceImpl(LockServerOptions options, Runnable callOnClose) {
+    private LockServiceImpl(LockServerOptions options, @Nullable ScheduledExecutorService sharedExecutor,
+            Runnable callOnClose) {
         Preconditions.checkNotNull(options);
         this.callOnClose = callOnClose;
         isStandaloneServer = options.isStandaloneServer();
@@ -239,20 +263,29 @@ import com.palantir.util.Pair;
         maxAllowedBlockingDuration = SimpleTimeDuration.of(options.getMaxAllowedBlockingDuration());
         maxNormalLockAge = SimpleTimeDuration.of(options.getMaxNormalLockAge());
         randomBitCount = options.getRandomBitCount();
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                Thread.currentThread().setName("Held Locks Token Reaper");
-                reapLocks(lockTokenReaperQueue, heldLocksTokenMap);
-            }
-        });
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                Thread.currentThread().setName("Held Locks Grant Reaper");
-                reapLocks(lockGrantReaperQueue, heldLocksGrantMap);
-            }
-        });
+        if (sharedExecutor == null) {
+            ScheduledThreadPoolExecutor ownExecutor = PTExecutors.newScheduledThreadPoolExecutor(2,
+                    new NamedThreadFactory(LockServiceImpl.class.getName(), true));
+            ownExecutor.setRemoveOnCancelPolicy(true);
+            executor = ownExecutor;
+            ownsExecutor = true;
+        } else {
+            executor = sharedExecutor;
+            ownsExecutor = false;
+        }
+        reaperTasks = ImmutableList.<ScheduledFuture<?>>of(
+                executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        reapLocks(lockTokenReaper, heldLocksTokenMap);
+                    }
+                }, REAPER_TICK_MILLIS, REAPER_TICK_MILLIS, TimeUnit.MILLISECONDS),
+                executor.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        reapLocks(lockGrantReaper, heldLocksGrantMap);
+                    }
+                }, REAPER_TICK_MILLIS, REAPER_TICK_MILLIS, TimeUnit.MILLISECONDS));
     }
 
     private HeldLocksToken createHeldLocksToken(LockClient client,
@@ -266,7 +299,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksToken> heldLocks = HeldLocks.of(token, heldLocksMap);
             if (heldLocksTokenMap.putIfAbsent(token, heldLocks) == null) {
-                lockTokenReaperQueue.add(token);
+                scheduleReaping(lockTokenReaper, token);
                 if (!client.isAnonymous()) {
                     lockClientMultimap.put(client, token);
                 }
@@ -288,7 +321,7 @@ import com.palantir.util.Pair;
                     expirationDateMs, lockDescriptorMap, lockTimeout, versionId);
             HeldLocks<HeldLocksGrant> newHeldLocks = HeldLocks.of(grant, heldLocksMap);
             if (heldLocksGrantMap.putIfAbsent(grant, newHeldLocks) == null) {
-                lockGrantReaperQueue.add(grant);
+                scheduleReaping(lockGrantReaper, grant);
                 return grant;
             }
             log.error("Lock ID collision! The RANDOM_BIT_COUNT constant must be increased. "
@@ -313,15 +346,7 @@ import com.palantir.util.Pair;
 
     @Override
     public LockResponse lockWithFullLockResponse(LockClient client, LockRequest request) throws InterruptedException {
-        Preconditions.checkNotNull(client);
-        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
-        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
-                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
-                request.getLockTimeout(), maxAllowedLockTimeout);
-        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
-                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
-                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
-                request.getBlockingDuration(), maxAllowedBlockingDuration);
+        checkLockRequest(client, request);
         long startTime = System.currentTimeMillis();
         if (requestLogger.isDebugEnabled()) {
             requestLogger.debug("LockServiceImpl processing lock request {} for requesting thread {}",
@@ -349,75 +374,312 @@ import com.palantir.util.Pair;
             tryLocks(client, request, request.getBlockingMode(), deadline,
                     request.getLockGroupBehavior(), locks, failedLocks);
 
-            if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
-                if (log.isTraceEnabled()) {
-                    log.trace(".lock(" + client + ", " + request + ") returns null");
-                }
-                if (requestLogger.isDebugEnabled()) {
-                    requestLogger.debug("Timed out requesting {} for requesting thread {} after {} ms",
-                            request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
-                }
-                return new LockResponse(failedLocks);
+            LockResponse response = createLockResponse(client, request, locks, failedLocks, startTime);
+            if (response.getToken() != null && Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while locking.");
+            }
+            return response;
+        } finally {
+            outstandingLockRequestMultimap.remove(client, request);
+            indefinitelyBlockingThreads.remove(Thread.currentThread());
+            unlockAll(client, locks);
+        }
+    }
+
+    /**
+     * Equivalent to {@link #lockWithFullLockResponse(LockClient, LockRequest)}, except that no thread is blocked
+     * while the request waits for its locks. Locks that are not immediately available are queued on, and the rest of
+     * the request is carried on by the thread that releases them; {@link BlockingMode#BLOCK_UNTIL_TIMEOUT} requests
+     * are timed out by a single scheduler thread. This lets the lock server hold a large number of waiting requests
+     * with a fixed number of threads.
+     * <p>
+     * Cancelling the returned future withdraws the request and releases any locks acquired for it so far. If the
+     * lock server is shut down, waiting requests fail with {@link ServiceNotAvailableException}.
+     */
+    @Override
+    public ListenableFuture<LockResponse> lockAsync(LockClient client, LockRequest request) {
+        checkLockRequest(client, request);
+        if (requestLogger.isDebugEnabled()) {
+            requestLogger.debug("LockServiceImpl processing async lock request {} for requesting thread {}",
+                    request, request.getCreatingThreadName());
+        }
+        if (isShutDown) {
+            throw new ServiceNotAvailableException("This lock server is shut down.");
+        }
+        AsyncLockAttempt attempt = new AsyncLockAttempt(client, request);
+        attempt.start();
+        return attempt.result;
+    }
+
+    private void checkLockRequest(LockClient client, LockRequest request) {
+        Preconditions.checkNotNull(client);
+        Preconditions.checkArgument(client != INTERNAL_LOCK_GRANT_CLIENT);
+        Preconditions.checkArgument(request.getLockTimeout().compareTo(maxAllowedLockTimeout) <= 0,
+                "Requested lock timeout (%s) is greater than maximum allowed lock timeout (%s)",
+                request.getLockTimeout(), maxAllowedLockTimeout);
+        Preconditions.checkArgument((request.getBlockingMode() != BLOCK_UNTIL_TIMEOUT)
+                || (request.getBlockingDuration().compareTo(maxAllowedBlockingDuration) <= 0),
+                "Requested blocking duration (%s) is greater than maximum allowed blocking duration (%s)",
+                request.getBlockingDuration(), maxAllowedBlockingDuration);
+    }
+
+    /**
+     * Builds the response to a lock request once all attempts to acquire its locks are done. If a token is
+     * created, {@code locks} is cleared, since they are now held by the token; otherwise the caller must release
+     * whatever is left in {@code locks}.
+     */
+    private LockResponse createLockResponse(LockClient client, LockRequest request,
+            Map<ClientAwareReadWriteLock, LockMode> locks, Map<LockDescriptor, LockClient> failedLocks,
+            long startTime) {
+        if (request.getBlockingMode() == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE) {
+            if (log.isTraceEnabled()) {
+                log.trace(".lock(" + client + ", " + request + ") returns null");
+            }
+            if (requestLogger.isDebugEnabled()) {
+                requestLogger.debug("Timed out requesting {} for requesting thread {} after {} ms",
+                        request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
             }
+            return new LockResponse(failedLocks);
+        }
 
-            if (locks.isEmpty() || ((request.getLockGroupBehavior() == LOCK_ALL_OR_NONE)
-                    && (locks.size() < request.getLockDescriptors().size()))) {
-                if (log.isTraceEnabled()) {
-                    log.trace(".lock(" + client + ", " + request + ") returns null");
+        if (locks.isEmpty() || ((request.getLockGroupBehavior() == LOCK_ALL_OR_NONE)
+                && (locks.size() < request.getLockDescriptors().size()))) {
+            if (log.isTraceEnabled()) {
+                log.trace(".lock(" + client + ", " + request + ") returns null");
+            }
+            if (requestLogger.isDebugEnabled()) {
+                requestLogger.debug("Failed to acquire all locks for {} for requesting thread {} after {} ms",
+                        request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+            }
+            if (requestLogger.isTraceEnabled()) {
+                StringBuilder sb = new StringBuilder("Current holders of the first ").append(
+                        MAX_FAILED_LOCKS_TO_LOG).append(" of ").append(failedLocks.size()).append(
+                        " total failed locks were: [");
+                Iterator<Entry<LockDescriptor, LockClient>> entries = failedLocks.entrySet().iterator();
+                for (int i = 0; i < MAX_FAILED_LOCKS_TO_LOG; i++) {
+                    if (entries.hasNext()) {
+                        Entry<LockDescriptor, LockClient> entry = entries.next();
+                        sb.append(" Lock: ").append(entry.getKey().toString()).append(
+                                ", Holder: ").append(entry.getValue().toString()).append(";");
+                    }
                 }
-                if (requestLogger.isDebugEnabled()) {
-                    requestLogger.debug("Failed to acquire all locks for {} for requesting thread {} after {} ms",
-                            request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+                sb.append(" ]");
+                requestLogger.trace(sb.toString());
+            }
+            return new LockResponse(null, failedLocks);
+        }
+
+        Builder<LockDescriptor, LockMode> lockDescriptorMap = ImmutableSortedMap.naturalOrder();
+        for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
+            lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
+        }
+        if (request.getVersionId() != null) {
+            versionIdMap.put(client, request.getVersionId());
+        }
+        HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
+                request.getLockTimeout(), request.getVersionId());
+        locks.clear();
+        if (log.isTraceEnabled()) {
+            log.trace(".lock(" + client + ", " + request + ") returns " + token);
+        }
+        if (requestLogger.isDebugEnabled()) {
+            requestLogger.debug("Successfully acquired locks {} for requesting thread {} after {} ms",
+                    request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+        }
+        return new LockResponse(token, failedLocks);
+    }
+
+    private void unlockAll(LockClient client, Map<ClientAwareReadWriteLock, LockMode> locks) {
+        try {
+            for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
+                entry.getKey().get(client, entry.getValue()).unlock();
+            }
+        } catch (Throwable e) { // (authorized)
+            log.error("Internal lock server error: state has been corrupted!!", e);
+            throw Throwables.throwUncheckedException(e);
+        }
+    }
+
+    /**
+     * A request made through {@link #lockAsync}. Its locks are acquired one at a time, in the same order as
+     * {@link #tryLocks}. When a lock has to be waited for, the rest of the request is carried on by the listener of
+     * that lock's future, so at most one thread works on an attempt at any time and its state needs no locking.
+     */
+    private final class AsyncLockAttempt {
+        final LockClient client;
+        final LockRequest request;
+        final SettableFuture<LockResponse> result = SettableFuture.create();
+        final Map<ClientAwareReadWriteLock, LockMode> locks = Maps.newLinkedHashMap();
+        final Map<LockDescriptor, LockClient> failedLocks = Maps.newHashMap();
+        final Queue<BlockingMode> passes = Lists.newLinkedList();
+        final long startTime = System.currentTimeMillis();
+        @Nullable final Long deadline;
+        Iterator<Entry<LockDescriptor, LockMode>> remainingLocks = Collections.emptyIterator();
+        BlockingMode blockingMode;
+        volatile @Nullable ListenableFuture<Void> pendingLock;
+
+        AsyncLockAttempt(LockClient client, LockRequest request) {
+            this.client = client;
+            this.request = request;
+            this.deadline = (request.getBlockingDuration() == null) ? null
+                    : System.nanoTime() + request.getBlockingDuration().toNanos();
+            if (request.getBlockingMode() == BLOCK_UNTIL_TIMEOUT
+                    && request.getLockGroupBehavior() == LOCK_AS_MANY_AS_POSSIBLE) {
+                passes.add(DO_NOT_BLOCK);
+            }
+            passes.add(request.getBlockingMode());
+        }
+
+        void start() {
+            pendingAsyncLockAttempts.add(this);
+            outstandingLockRequestMultimap.put(client, request);
+            result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    outstandingLockRequestMultimap.remove(client, request);
+                    pendingAsyncLockAttempts.remove(AsyncLockAttempt.this);
+                    ListenableFuture<Void> lock = pendingLock;
+                    if (lock != null) {
+                        lock.cancel(false);
+                    }
                 }
-                if (requestLogger.isTraceEnabled()) {
-                    StringBuilder sb = new StringBuilder("Current holders of the first ").append(
-                            MAX_FAILED_LOCKS_TO_LOG).append(" of ").append(failedLocks.size()).append(
-                            " total failed locks were: [");
-                    Iterator<Entry<LockDescriptor, LockClient>> entries = failedLocks.entrySet().iterator();
-                    for (int i = 0; i < MAX_FAILED_LOCKS_TO_LOG; i++) {
-                        if (entries.hasNext()) {
-                            Entry<LockDescriptor, LockClient> entry = entries.next();
-                            sb.append(" Lock: ").append(entry.getKey().toString()).append(
-                                    ", Holder: ").append(entry.getValue().toString()).append(";");
+            }, MoreExecutors.directExecutor());
+            acquireLocks();
+        }
+
+        /**
+         * Acquires locks until one has to be waited for or the request is complete.
+         */
+        private void acquireLocks() {
+            try {
+                while (!result.isDone()) {
+                    if (!remainingLocks.hasNext()) {
+                        if (passes.isEmpty()) {
+                            complete();
+                            return;
                         }
+                        blockingMode = passes.remove();
+                        remainingLocks = request.getLockDescriptors().entries().iterator();
+                        continue;
+                    }
+                    Entry<LockDescriptor, LockMode> entry = remainingLocks.next();
+                    if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
+                            && !descriptorToLockMap.contains(entry.getKey())) {
+                        continue;
+                    }
+                    ClientAwareReadWriteLock lock = getLock(entry.getKey());
+                    if (locks.containsKey(lock)) {
+                        continue;
+                    }
+                    if (!tryAcquireOrWait(lock, entry.getKey(), entry.getValue())) {
+                        return;
                     }
-                    sb.append(" ]");
-                    requestLogger.trace(sb.toString());
                 }
-                return new LockResponse(null, failedLocks);
+                // The request was cancelled or the lock server was shut down.
+                unlockAll(client, locks);
+                locks.clear();
+            } catch (Throwable t) {
+                fail(t);
             }
+        }
 
-            Builder<LockDescriptor, LockMode> lockDescriptorMap = ImmutableSortedMap.naturalOrder();
-            for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
-                lockDescriptorMap.put(entry.getKey().getDescriptor(), entry.getValue());
-            }
-            if (request.getVersionId() != null) {
-                versionIdMap.put(client, request.getVersionId());
+        /**
+         * Returns {@code false} if we are now waiting for the lock, in which case the listener of the lock's future
+         * carries on with the request.
+         */
+        private boolean tryAcquireOrWait(ClientAwareReadWriteLock lock, LockDescriptor descriptor, LockMode mode) {
+            KnownClientLock knownClientLock = lock.get(client, mode);
+            @Nullable LockClient currentHolder = null;
+            long remainingNanos = 0;
+            if (blockingMode == DO_NOT_BLOCK || blockingMode == BLOCK_UNTIL_TIMEOUT) {
+                currentHolder = knownClientLock.tryLock();
+                if (currentHolder == null) {
+                    locks.put(lock, mode);
+                    return true;
+                }
+                remainingNanos = (blockingMode == DO_NOT_BLOCK) ? 0 : deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    lockFailed(descriptor, currentHolder);
+                    return true;
+                }
             }
-            HeldLocksToken token = createHeldLocksToken(client, LockCollections.of(lockDescriptorMap.build()), LockCollections.of(locks),
-                    request.getLockTimeout(), request.getVersionId());
-            locks.clear();
-            if (log.isTraceEnabled()) {
-                log.trace(".lock(" + client + ", " + request + ") returns " + token);
+
+            final ListenableFuture<Void> lockFuture = knownClientLock.lockAsync();
+            if (lockFuture.isDone()) {
+                Futures.getUnchecked(lockFuture);
+                locks.put(lock, mode);
+                return true;
             }
-            if (Thread.interrupted()) {
-                throw new InterruptedException("Interrupted while locking.");
+            pendingLock = lockFuture;
+            if (result.isDone()) {
+                lockFuture.cancel(false);
             }
-            if (requestLogger.isDebugEnabled()) {
-                requestLogger.debug("Successfully acquired locks {} for requesting thread {} after {} ms",
-                        request, request.getCreatingThreadName(), System.currentTimeMillis() - startTime);
+            if (blockingMode == BLOCK_UNTIL_TIMEOUT) {
+                final ScheduledFuture<?> timeout = executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        lockFuture.cancel(false);
+                    }
+                }, remainingNanos, TimeUnit.NANOSECONDS);
+                lockFuture.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        timeout.cancel(false);
+                    }
+                }, MoreExecutors.directExecutor());
             }
-            return new LockResponse(token, failedLocks);
-        } finally {
-            outstandingLockRequestMultimap.remove(client, request);
-            indefinitelyBlockingThreads.remove(Thread.currentThread());
+            final ClientAwareReadWriteLock lockToWaitFor = lock;
+            final LockDescriptor descriptorToWaitFor = descriptor;
+            final LockMode modeToWaitFor = mode;
+            final LockClient holderWhenQueued = currentHolder;
+            lockFuture.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    onLockCompleted(lockFuture, lockToWaitFor, descriptorToWaitFor, modeToWaitFor, holderWhenQueued);
+                }
+            }, MoreExecutors.directExecutor());
+            return false;
+        }
+
+        private void onLockCompleted(ListenableFuture<Void> lockFuture, ClientAwareReadWriteLock lock,
+                LockDescriptor descriptor, LockMode mode, @Nullable LockClient holderWhenQueued) {
             try {
-                for (Entry<ClientAwareReadWriteLock, LockMode> entry : locks.entrySet()) {
-                    entry.getKey().get(client, entry.getValue()).unlock();
+                if (!lockFuture.isCancelled()) {
+                    Futures.getUnchecked(lockFuture);
+                    locks.put(lock, mode);
+                } else if (!result.isDone()) {
+                    // Timed out; like tryLock(time, unit), report the holder seen before we started waiting.
+                    lockFailed(descriptor, holderWhenQueued);
                 }
-            } catch (Throwable e) { // (authorized)
-                log.error("Internal lock server error: state has been corrupted!!", e);
-                throw Throwables.throwUncheckedException(e);
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+            acquireLocks();
+        }
+
+        private void lockFailed(LockDescriptor descriptor, LockClient currentHolder) {
+            failedLocks.put(descriptor, currentHolder);
+            if (request.getLockGroupBehavior() == LOCK_ALL_OR_NONE) {
+                remainingLocks = Collections.emptyIterator();
+            }
+        }
+
+        private void complete() {
+            LockResponse response = createLockResponse(client, request, locks, failedLocks, startTime);
+            unlockAll(client, locks);
+            locks.clear();
+            if (!result.set(response) && response.getToken() != null) {
+                unlock(response.getToken());
+            }
+        }
+
+        private void fail(Throwable t) {
+            try {
+                unlockAll(client, locks);
+                locks.clear();
+            } finally {
+                result.setException(t);
             }
         }
     }
@@ -437,16 +699,11 @@ import com.palantir.util.Pair;
             previousThreadName = updateThreadName(request);
             for (Entry<LockDescriptor, LockMode> entry : request.getLockDescriptors().entries()) {
                 if (blockingMode == BlockingMode.BLOCK_INDEFINITELY_THEN_RELEASE
-                        && !descriptorToLockMap.asMap().containsKey(entry.getKey())) {
+                        && !descriptorToLockMap.contains(entry.getKey())) {
                     continue;
                 }
 
-                ClientAwareReadWriteLock lock;
-                try {
-                    lock = descriptorToLockMap.get(entry.getKey());
-                } catch (ExecutionException e) {
-                    throw new RuntimeException(e.getCause());
-                }
+                ClientAwareReadWriteLock lock = getLock(entry.getKey());
                 if (locks.containsKey(lock)) {
                     // This is the 2nd time we are calling tryLocks and we already locked this one.
                     continue;
@@ -479,6 +736,10 @@ import com.palantir.util.Pair;
         }
     }
 
+    private ClientAwareReadWriteLock getLock(LockDescriptor descriptor) {
+        return descriptorToLockMap.get(descriptor);
+    }
+
     @Nullable private LockClient tryLock(KnownClientLock lock, BlockingMode blockingMode,
             @Nullable Long deadline) throws InterruptedException {
         switch (blockingMode) {
@@ -538,7 +799,7 @@ import com.palantir.util.Pair;
         LockClient client = heldLocks.realToken.getClient();
         if (client.isAnonymous()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaper, token);
             String errorMessage =
                     "Received .unlockAndFreeze() call for anonymous client with token "
                     + heldLocks.realToken;
@@ -547,7 +808,7 @@ import com.palantir.util.Pair;
         }
         if (heldLocks.locks.hasReadLock()) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaper, token);
             String errorMessage = "Received .unlockAndFreeze() call for read locks: "
                     + heldLocks.realToken;
             log.warn(errorMessage);
@@ -602,12 +863,10 @@ import com.palantir.util.Pair;
             throw new IllegalArgumentException("Illegal client!");
         }
         ImmutableSet.Builder<HeldLocksToken> tokens = ImmutableSet.builder();
-        synchronized (lockClientMultimap) {
-            for (HeldLocksToken token : lockClientMultimap.get(client)) {
-                @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
-                if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
-                    tokens.add(token);
-                }
+        for (HeldLocksToken token : lockClientMultimap.get(client)) {
+            @Nullable HeldLocks<HeldLocksToken> heldLocks = heldLocksTokenMap.get(token);
+            if ((heldLocks != null) && !isFrozen(heldLocks.locks.getKeys())) {
+                tokens.add(token);
             }
         }
         ImmutableSet<HeldLocksToken> tokenSet = tokens.build();
@@ -670,6 +929,7 @@ import com.palantir.util.Pair;
             return null;
         }
         HeldLocksToken finalToken = heldLocks.realToken;
+        scheduleReaping(lockTokenReaper, finalToken);
         logIfAbnormallyOld(finalToken, now);
         return finalToken;
     }
@@ -708,6 +968,7 @@ import com.palantir.util.Pair;
             return null;
         }
         HeldLocksGrant refreshedGrant = heldLocks.realToken;
+        scheduleReaping(lockGrantReaper, refreshedGrant);
         logIfAbnormallyOld(refreshedGrant, now);
         if (log.isTraceEnabled()) {
             log.trace(".refreshGrant(" + grant.getGrantId().toString(Character.MAX_RADIX)
@@ -760,7 +1021,7 @@ import com.palantir.util.Pair;
         }
         if (isFrozen(heldLocks.locks.getKeys())) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaper, token);
             log.warn("Cannot convert to grant because token is frozen: " + token);
             throw new IllegalArgumentException("token is frozen: " + token);
         }
@@ -769,7 +1030,7 @@ import com.palantir.util.Pair;
                     INTERNAL_LOCK_GRANT_CLIENT);
         } catch (IllegalMonitorStateException e) {
             heldLocksTokenMap.put(token, heldLocks);
-            lockTokenReaperQueue.add(token);
+            scheduleReaping(lockTokenReaper, token);
             log.warn("Failure converting " + token + " to grant", e);
             throw e;
         }
@@ -880,49 +1141,27 @@ import com.palantir.util.Pair;
 
     @Override
     @Nullable public Long getMinLockedInVersionId(LockClient client) {
-        Long versionId = null;
-        synchronized (versionIdMap) {
-            Collection<Long> versionsForClient = versionIdMap.get(client);
-            if (versionsForClient != null && !versionsForClient.isEmpty()) {
-                versionId = versionsForClient.iterator().next();
-            }
-        }
+        Long versionId = versionIdMap.getFirst(client);
         if (log.isTraceEnabled()) {
             log.trace(".getMinLockedInVersionId() returns " + versionId);
         }
         return versionId;
     }
 
-    private <T extends ExpiringToken> void reapLocks(BlockingQueue<T> queue,
+    private <T extends ExpiringToken> void scheduleReaping(ExpiringTokenWheel<T> reaper, T token) {
+        reaper.schedule(token, token.getExpirationDateMs() + maxAllowedClockDrift.toMillis());
+    }
+
+    /** Reaps the expired tokens in the buckets of {@code reaper} which have come due. */
+    private <T extends ExpiringToken> void reapLocks(ExpiringTokenWheel<T> reaper,
             ConcurrentMap<T, HeldLocks<T>> heldLocksMap) {
-        while (true) {
-            // shutdownNow() sends interrupt signal to the running threads to terminate them.
-            // If interrupt signal happens right after try {} catch (InterruptedException),
-            // the interrupt state MIGHT be swallowed in catch (Throwable t) {}; so threads will
-            // miss the shutdown signal.
-            if (isShutDown) {
-                break;
-            }
-            try {
-                T token = null;
-                try {
-                    token = queue.take();
-                    long sleepTimeMs = token.getExpirationDateMs() - currentTimeMillis()
-                            + maxAllowedClockDrift.toMillis();
-                    if (sleepTimeMs > 0) {
-                        Thread.sleep(sleepTimeMs);
-                    }
-                } catch (InterruptedException e) {
-                    if (isShutDown) {
-                        break;
-                    } else {
-                        log.warn("The lock server reaper thread should not be " +
-                                "interrupted if the server is not shutting down.", e);
-                        if (token == null) {
-                            continue;
-                        }
-                    }
-                }
+        if (isShutDown) {
+            return;
+        }
+        // Exceptions must not escape, or the executor will stop running this reaper.
+        try {
+            int reaped = 0;
+            for (T token : reaper.advance(currentTimeMillis())) {
                 @Nullable HeldLocks<T> heldLocks = heldLocksMap.get(token);
                 if (heldLocks == null) {
                     continue;
@@ -930,15 +1169,17 @@ import com.palantir.util.Pair;
                 T realToken = heldLocks.realToken;
                 if (realToken.getExpirationDateMs() > currentTimeMillis()
                         - maxAllowedClockDrift.toMillis()) {
-                    queue.add(realToken);
+                    scheduleReaping(reaper, realToken);
                 } else {
                     log.warn("Lock token " + realToken
                             + " was not properly refreshed and is now being reaped.");
                     unlockInternal(realToken, heldLocksMap);
+                    reaped++;
                 }
-            } catch (Throwable t) {
-                log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
             }
+            reaper.recordReaped(reaped);
+        } catch (Throwable t) {
+            log.error("Something went wrong while reaping locks. Attempting to continue anyway.", t);
         }
     }
 
@@ -968,17 +1209,6 @@ import com.palantir.util.Pair;
         return options;
     }
 
-    private <T> List<T> queueToOrderedList(Queue<T> queue) {
-        List<T> list = Lists.newLinkedList();
-        while (!queue.isEmpty()) {
-            list.add(queue.poll());
-        }
-        for (T element : list) {
-            queue.add(element);
-        }
-        return list;
-    }
-
     /**
      * Prints the current state of the lock server to the logs. Useful for
      * debugging.
@@ -997,8 +1227,8 @@ import com.palantir.util.Pair;
                 Pair.create("outstandingLockRequestMultimap", outstandingLockRequestMultimap.asMap().entrySet()),
                 Pair.create("heldLocksTokenMap", heldLocksTokenMap.entrySet()),
                 Pair.create("heldLocksGrantMap", heldLocksGrantMap.entrySet()),
-                Pair.create("lockTokenReaperQueue", queueToOrderedList(lockTokenReaperQueue)),
-                Pair.create("lockGrantReaperQueue", queueToOrderedList(lockGrantReaperQueue)),
+                Pair.create("lockTokenReaper", lockTokenReaper.getScheduledTokens()),
+                Pair.create("lockGrantReaper", lockGrantReaper.getScheduledTokens()),
                 Pair.create("lockClientMultimap", lockClientMultimap.asMap().entrySet()),
                 Pair.create("versionIdMap", versionIdMap.asMap().entrySet()))) {
             Collection<?> elements = nameValuePair.getRhSide();
@@ -1015,11 +1245,37 @@ import com.palantir.util.Pair;
         log.error(logString.toString());
     }
 
+    @Override
+    public long getReaperLagMillis() {
+        return Math.max(lockTokenReaper.getLastLagMillis(), lockGrantReaper.getLastLagMillis());
+    }
+
+    @Override
+    public long getMaxReaperLagMillis() {
+        return Math.max(lockTokenReaper.getMaxLagMillis(), lockGrantReaper.getMaxLagMillis());
+    }
+
+    @Override
+    public long getTokensReapedOnLastTick() {
+        return lockTokenReaper.getReapedOnLastTick() + lockGrantReaper.getReapedOnLastTick();
+    }
+
+    @Override
+    public long getTotalTokensReaped() {
+        return lockTokenReaper.getReapedTotal() + lockGrantReaper.getReapedTotal();
+    }
+
     @Override
     public void close() {
         isShutDown = true;
-        executor.shutdownNow();
+        for (ScheduledFuture<?> reaperTask : reaperTasks) {
+            reaperTask.cancel(false);
+        }
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
         wakeIndefiniteBlockers();
+        failAsyncLockAttempts();
         callOnClose.run();
     }
 
@@ -1029,6 +1285,12 @@ import com.palantir.util.Pair;
         }
     }
 
+    private void failAsyncLockAttempts() {
+        for (AsyncLockAttempt attempt : pendingAsyncLockAttempts) {
+            attempt.result.setException(new ServiceNotAvailableException("This lock server is shut down."));
+        }
+    }
+
     @Override
     public long currentTimeMillis() {
         return System.currentTimeMillis();
@@ -17,4 +17,13 @@ package com.palantir.lock.impl;
 
 public interface LockServiceImplMBean {
     void logCurrentState();
+
+    /** How late the lock reapers last visited a due bucket of their timing wheel, in milliseconds. */
+    long getReaperLagMillis();
+
+    long getMaxReaperLagMillis();
+
+    long getTokensReapedOnLastTick();
+
+    long getTotalTokensReaped();
 }
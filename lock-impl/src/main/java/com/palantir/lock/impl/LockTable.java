@@ -0,0 +1,225 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.palantir.lock.LockDescriptor;
+
+/**
+ * The lock server's table of {@link LockServerLock}s, keyed by lock descriptor.
+ * <p>
+ * Locks are only weakly referenced by the table, so a lock which is neither held nor waited on is garbage collected
+ * and recreated the next time it is requested. The table is split into stripes by descriptor hash, each with its own
+ * monitor, and each stripe is an open-addressed hash table with linear probing. A stripe removes the entries of its
+ * collected locks, and grows or shrinks its slot array, while it is being written to, so that there is no global
+ * cleanup and requests for unrelated descriptors only contend when they land on the same stripe.
+ */
+@ThreadSafe
+final class LockTable {
+    static final int DEFAULT_STRIPES = 256;
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final LockClientIndices clientIndices;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    LockTable(LockClientIndices clientIndices) {
+        this(clientIndices, DEFAULT_STRIPES);
+    }
+
+    @VisibleForTesting
+    LockTable(LockClientIndices clientIndices, int numStripes) {
+        Preconditions.checkArgument(numStripes > 0 && Integer.bitCount(numStripes) == 1,
+                "numStripes must be a power of two");
+        this.clientIndices = clientIndices;
+        this.stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(numStripes);
+    }
+
+    /** Returns the lock for {@code descriptor}, creating it if it does not exist. */
+    ClientAwareReadWriteLock get(LockDescriptor descriptor) {
+        int hash = hash(descriptor);
+        return stripeFor(hash).get(descriptor, hash);
+    }
+
+    /** Returns whether a lock for {@code descriptor} currently exists. */
+    boolean contains(LockDescriptor descriptor) {
+        int hash = hash(descriptor);
+        return stripeFor(hash).contains(descriptor, hash);
+    }
+
+    /** Returns a snapshot of the locks in the table, for logging. */
+    Map<LockDescriptor, ClientAwareReadWriteLock> asMap() {
+        Map<LockDescriptor, ClientAwareReadWriteLock> locks = Maps.newHashMap();
+        for (Stripe stripe : stripes) {
+            stripe.copyInto(locks);
+        }
+        return locks;
+    }
+
+    /** Returns the number of locks in the table, which may include locks that were just collected. */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(int hash) {
+        // The stripe is picked from the high bits and the slot from the low bits, so that they are independent.
+        return stripeShift == Integer.SIZE ? stripes[0] : stripes[hash >>> stripeShift];
+    }
+
+    private static int hash(LockDescriptor descriptor) {
+        int h = descriptor.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class LockReference extends WeakReference<LockServerLock> {
+        final LockDescriptor descriptor;
+        final int hash;
+
+        LockReference(LockServerLock lock, int hash, ReferenceQueue<LockServerLock> queue) {
+            super(lock, queue);
+            this.descriptor = lock.getDescriptor();
+            this.hash = hash;
+        }
+    }
+
+    private final class Stripe {
+        private final ReferenceQueue<LockServerLock> collectedLocks = new ReferenceQueue<LockServerLock>();
+        @GuardedBy("this") private LockReference[] slots = new LockReference[MIN_STRIPE_CAPACITY];
+        @GuardedBy("this") private int size = 0;
+
+        synchronized ClientAwareReadWriteLock get(LockDescriptor descriptor, int hash) {
+            expungeCollectedLocks();
+            int mask = slots.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                LockReference ref = slots[i];
+                if (ref == null) {
+                    LockServerLock lock = new LockServerLock(descriptor, clientIndices);
+                    slots[i] = new LockReference(lock, hash, collectedLocks);
+                    size++;
+                    if (2 * size > slots.length) {
+                        resize(2 * slots.length);
+                    }
+                    return lock;
+                }
+                if (ref.hash == hash && ref.descriptor.equals(descriptor)) {
+                    LockServerLock lock = ref.get();
+                    if (lock == null) {
+                        // Collected but not yet expunged; the stale reference is skipped when it is dequeued.
+                        lock = new LockServerLock(descriptor, clientIndices);
+                        slots[i] = new LockReference(lock, hash, collectedLocks);
+                    }
+                    return lock;
+                }
+            }
+        }
+
+        synchronized boolean contains(LockDescriptor descriptor, int hash) {
+            int mask = slots.length - 1;
+            for (int i = hash & mask; slots[i] != null; i = (i + 1) & mask) {
+                LockReference ref = slots[i];
+                if (ref.hash == hash && ref.descriptor.equals(descriptor)) {
+                    return ref.get() != null;
+                }
+            }
+            return false;
+        }
+
+        synchronized void copyInto(Map<LockDescriptor, ClientAwareReadWriteLock> locks) {
+            for (LockReference ref : slots) {
+                LockServerLock lock = ref == null ? null : ref.get();
+                if (lock != null) {
+                    locks.put(ref.descriptor, lock);
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        @GuardedBy("this")
+        private void expungeCollectedLocks() {
+            boolean removedAny = false;
+            for (Object ref; (ref = collectedLocks.poll()) != null; ) {
+                removedAny |= remove((LockReference) ref);
+            }
+            if (removedAny && slots.length > MIN_STRIPE_CAPACITY && 8 * size < slots.length) {
+                resize(slots.length / 2);
+            }
+        }
+
+        @GuardedBy("this")
+        private boolean remove(LockReference ref) {
+            int mask = slots.length - 1;
+            int i = ref.hash & mask;
+            while (slots[i] != ref) {
+                if (slots[i] == null) {
+                    // Already replaced, or dropped by a resize.
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = null;
+            size--;
+            // Shift back any later entries of the probe sequence that can no longer be reached past the gap.
+            for (int j = (i + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+                int home = slots[j].hash & mask;
+                boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!reachable) {
+                    slots[i] = slots[j];
+                    slots[j] = null;
+                    i = j;
+                }
+            }
+            return true;
+        }
+
+        @GuardedBy("this")
+        private void resize(int capacity) {
+            LockReference[] oldSlots = slots;
+            slots = new LockReference[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (LockReference ref : oldSlots) {
+                if (ref != null && ref.get() != null) {
+                    int i = ref.hash & mask;
+                    while (slots[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = ref;
+                    size++;
+                }
+            }
+        }
+    }
+}
@@ -20,7 +20,11 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 import com.palantir.lock.client.LockRefreshingLockServiceTest;
+import com.palantir.lock.impl.AsyncLockResourceTest;
 import com.palantir.lock.impl.ClientAwareLockTest;
+import com.palantir.lock.impl.ExpiringTokenWheelTest;
+import com.palantir.lock.impl.LockServiceImplAsyncTest;
+import com.palantir.lock.impl.LockTableTest;
 
 /**
  * Runs all lock server tests.
@@ -30,6 +34,10 @@ import com.palantir.lock.impl.ClientAwareLockTest;
 @SuiteClasses(value = {
         ClientAwareLockTest.class,
         LockServiceImplTest.class,
+        LockServiceImplAsyncTest.class,
+        AsyncLockResourceTest.class,
+        ExpiringTokenWheelTest.class,
+        LockTableTest.class,
         LockRefreshingLockServiceTest.class
 }) @RunWith(value = Suite.class) public final class AllLockTests {
     /* Empty; the annotations above take care of everything. */
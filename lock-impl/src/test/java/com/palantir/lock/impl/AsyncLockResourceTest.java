@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRefreshToken;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Tests for {@link AsyncLockResource}.
+ */
+public final class AsyncLockResourceTest {
+    private final LockDescriptor lock = StringLockDescriptor.of("lock");
+    private LockServiceImpl server;
+    private AsyncLockResource resource;
+
+    @Before public void setUp() {
+        server = LockServiceImpl.create();
+        resource = new AsyncLockResource(server);
+    }
+
+    @After public void tearDown() {
+        server.close();
+    }
+
+    /** Tests that a request is resumed with its token once the lock it waited for is released. */
+    @Test public void testResponseIsResumedWhenLockIsGranted() throws Exception {
+        HeldLocksToken holder = lockNow();
+        RecordingResponse response = new RecordingResponse();
+        resource.lock("client", writeLockRequest(), response.proxy);
+        Assert.assertTrue(response.resumed.isEmpty());
+
+        server.unlock(holder);
+        Assert.assertEquals(1, response.resumed.size());
+        LockRefreshToken token = (LockRefreshToken) response.resumed.get(0);
+        Assert.assertTrue(server.unlock(token));
+    }
+
+    /** Tests that a request whose client disconnects stops waiting for its locks. */
+    @Test public void testDisconnectCancelsLockAttempt() throws Exception {
+        HeldLocksToken holder = lockNow();
+        RecordingResponse response = new RecordingResponse();
+        resource.lockAndGetHeldLocks("client", writeLockRequest(), response.proxy);
+
+        Assert.assertEquals(1, response.connectionCallbacks.size());
+        response.connectionCallbacks.get(0).onDisconnect(response.proxy);
+        Assert.assertEquals(1, response.resumed.size());
+        Assert.assertTrue(response.resumed.get(0) instanceof Throwable);
+
+        server.unlock(holder);
+        Assert.assertNotNull(lockNow());
+    }
+
+    private HeldLocksToken lockNow() throws InterruptedException {
+        return server.lockAndGetHeldLocks(LockClient.ANONYMOUS.getClientId(),
+                LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).doNotBlock().build());
+    }
+
+    private LockRequest writeLockRequest() {
+        return LockRequest.builder(ImmutableSortedMap.of(lock, LockMode.WRITE)).build();
+    }
+
+    /** Records what the resource resumes an {@link AsyncResponse} with, and the callbacks it registers. */
+    private static final class RecordingResponse implements InvocationHandler {
+        final List<Object> resumed = Lists.newArrayList();
+        final List<ConnectionCallback> connectionCallbacks = Lists.newArrayList();
+        final AsyncResponse proxy = (AsyncResponse) Proxy.newProxyInstance(
+                AsyncResponse.class.getClassLoader(), new Class<?>[] {AsyncResponse.class}, this);
+
+        @Override
+        public Object invoke(Object unused, Method method, Object[] args) {
+            if (method.getName().equals("resume")) {
+                resumed.add(args[0]);
+                return true;
+            } else if (method.getName().equals("register") && args[0] instanceof ConnectionCallback) {
+                connectionCallbacks.add((ConnectionCallback) args[0]);
+                return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }
+    }
+}
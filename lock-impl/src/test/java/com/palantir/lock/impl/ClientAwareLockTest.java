@@ -30,6 +30,8 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.palantir.common.concurrent.InterruptibleFuture;
 import com.palantir.common.concurrent.NamedThreadFactory;
 import com.palantir.common.concurrent.PTExecutors;
@@ -391,6 +393,87 @@ public final class ClientAwareLockTest {
         anonymousWriteLock.unlock();
     }
 
+    /** Tests that asynchronous waiters are granted the lock in order when it is released. */
+    @Test public void testLockAsync() throws Exception {
+        anonymousReadLock.lock();
+        ListenableFuture<Void> writer = knownClientWriteLock.lockAsync();
+        ListenableFuture<Void> reader = anonymousReadLock.lockAsync();
+        Assert.assertFalse(writer.isDone());
+        Assert.assertFalse(reader.isDone());
+        Assert.assertNotNull(knownClientReadLock.tryLock());
+
+        anonymousReadLock.unlock();
+        writer.get(0, TimeUnit.SECONDS);
+        Assert.assertFalse(reader.isDone());
+        Assert.assertNull(knownClientWriteLock.tryLock());
+        knownClientWriteLock.unlock();
+        knownClientWriteLock.unlock();
+        reader.get(0, TimeUnit.SECONDS);
+        anonymousReadLock.unlock();
+        Assert.assertNull(anonymousWriteLock.tryLock());
+        anonymousWriteLock.unlock();
+    }
+
+    /**
+     * Tests that a long chain of asynchronous waiters, each of whose callbacks releases the lock the next one is
+     * waiting for, is completed without recursing once per waiter.
+     */
+    @Test public void testLongChainOfLockAsyncCallbacks() throws Exception {
+        int chainLength = 100000;
+        final KnownClientLock[] locks = new KnownClientLock[chainLength];
+        ListenableFuture<?>[] waiters = new ListenableFuture<?>[chainLength];
+        LockClientIndices clients = new LockClientIndices();
+        for (int i = 0; i < chainLength; i++) {
+            locks[i] = new LockServerLock(StringLockDescriptor.of("lock" + i), clients)
+                    .get(LockClient.ANONYMOUS, LockMode.WRITE);
+            locks[i].lock();
+        }
+        for (int i = 0; i < chainLength; i++) {
+            final int next = i + 1;
+            waiters[i] = locks[i].lockAsync();
+            waiters[i].addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (next < locks.length) {
+                        locks[next].unlock();
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        locks[0].unlock();
+        for (ListenableFuture<?> waiter : waiters) {
+            waiter.get(0, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Tests that cancelling an asynchronous waiter lets the threads queued behind it through. */
+    @Test public void testCancelledLockAsyncUnblocksWaitingThreads() throws Exception {
+        anonymousReadLock.lock();
+        ListenableFuture<Void> writer = anonymousWriteLock.lockAsync();
+        Future<?> reader = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                barrier.await();
+                knownClientReadLock.lock();
+                return null;
+            }
+        });
+        barrier.await();
+        try {
+            reader.get(10, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException expected) {
+            /* Expected. */
+        }
+        Assert.assertTrue(writer.cancel(false));
+        reader.get(5, TimeUnit.SECONDS);
+        knownClientReadLock.unlock();
+        anonymousReadLock.unlock();
+        Assert.assertNull(anonymousWriteLock.tryLock());
+        anonymousWriteLock.unlock();
+    }
+
     /** Tests that our objects have {@code toString()} methods defined. */
     @Test public void testToStrings() {
         Assert.assertEquals("client", client.getClientId());
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.math.BigInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.palantir.lock.HeldLocksGrant;
+
+/**
+ * Tests for {@link ExpiringTokenWheel}.
+ */
+public final class ExpiringTokenWheelTest {
+    private static final long TICK = 10;
+    private static final int BUCKETS = 8;
+    private static final long START = 1000;
+
+    private final ExpiringTokenWheel<HeldLocksGrant> wheel = new ExpiringTokenWheel<HeldLocksGrant>(
+            TICK, BUCKETS, START);
+
+    /** Tests that tokens are only handed back once the tick containing their reap time has passed. */
+    @Test public void testTokensAreDueAfterTheirReapTime() {
+        HeldLocksGrant first = grant(1);
+        HeldLocksGrant second = grant(2);
+        wheel.schedule(first, START + 15);
+        wheel.schedule(second, START + 35);
+
+        Assert.assertEquals(ImmutableList.of(), wheel.advance(START + 19));
+        Assert.assertEquals(ImmutableList.of(first), wheel.advance(START + 20));
+        Assert.assertEquals(ImmutableSet.of(second), wheel.getScheduledTokens());
+        Assert.assertEquals(ImmutableList.of(second), wheel.advance(START + 45));
+        Assert.assertTrue(wheel.getScheduledTokens().isEmpty());
+    }
+
+    /** Tests that scheduling a token again moves it rather than leaving a copy behind. */
+    @Test public void testReschedulingMovesToken() {
+        HeldLocksGrant token = grant(1);
+        wheel.schedule(token, START + 10);
+        wheel.schedule(token, START + 50);
+
+        Assert.assertEquals(ImmutableList.of(), wheel.advance(START + 40));
+        Assert.assertEquals(ImmutableList.of(token), wheel.advance(START + 50));
+        Assert.assertEquals(ImmutableList.of(), wheel.advance(START + 200));
+    }
+
+    /** Tests that tokens due in a later revolution of the wheel stay in their bucket. */
+    @Test public void testTokensBeyondOneRevolutionWait() {
+        HeldLocksGrant near = grant(1);
+        HeldLocksGrant far = grant(2);
+        wheel.schedule(near, START + TICK);
+        wheel.schedule(far, START + TICK + BUCKETS * TICK);
+
+        Assert.assertEquals(ImmutableList.of(near), wheel.advance(START + TICK));
+        Assert.assertEquals(ImmutableList.of(), wheel.advance(START + BUCKETS * TICK));
+        Assert.assertEquals(ImmutableList.of(far), wheel.advance(START + TICK + BUCKETS * TICK));
+    }
+
+    /** Tests that tokens scheduled in the past are due on the next tick, and that lag is recorded. */
+    @Test public void testLagAndReapedCounts() {
+        HeldLocksGrant token = grant(1);
+        wheel.schedule(token, 0);
+        Assert.assertEquals(ImmutableList.of(token), wheel.advance(START + 3 * TICK + 5));
+        Assert.assertEquals(2 * TICK + 5, wheel.getLastLagMillis());
+        wheel.recordReaped(1);
+        wheel.advance(START + 4 * TICK);
+        Assert.assertEquals(0, wheel.getLastLagMillis());
+        Assert.assertEquals(2 * TICK + 5, wheel.getMaxLagMillis());
+        wheel.recordReaped(0);
+        Assert.assertEquals(0, wheel.getReapedOnLastTick());
+        Assert.assertEquals(1, wheel.getReapedTotal());
+    }
+
+    private static HeldLocksGrant grant(long id) {
+        return new HeldLocksGrant(BigInteger.valueOf(id));
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.palantir.common.remoting.ServiceNotAvailableException;
+import com.palantir.lock.HeldLocksToken;
+import com.palantir.lock.LockClient;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.LockMode;
+import com.palantir.lock.LockRequest;
+import com.palantir.lock.LockResponse;
+import com.palantir.lock.SimpleTimeDuration;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Tests for {@link LockServiceImpl#lockAsync}.
+ */
+public final class LockServiceImplAsyncTest {
+    private static final int NUM_WAITERS = 1000;
+
+    private final LockClient client = LockClient.of("client");
+    private final LockDescriptor lock1 = StringLockDescriptor.of("lock1");
+    private final LockDescriptor lock2 = StringLockDescriptor.of("lock2");
+    private LockServiceImpl server;
+
+    @Before public void setUp() {
+        server = LockServiceImpl.create();
+    }
+
+    @After public void tearDown() {
+        server.close();
+    }
+
+    /** Tests that many waiters on one lock are queued without a thread each, and granted in order. */
+    @Test public void testWaitersAreGrantedInOrderWithoutBlockingThreads() throws Exception {
+        HeldLocksToken holder = lockNow(lock1, LockMode.WRITE);
+        List<ListenableFuture<LockResponse>> waiters = Lists.newArrayList();
+        for (int i = 0; i < NUM_WAITERS; i++) {
+            waiters.add(server.lockAsync(client, LockRequest.builder(
+                    ImmutableSortedMap.of(lock1, LockMode.WRITE)).build()));
+        }
+        for (ListenableFuture<LockResponse> waiter : waiters) {
+            Assert.assertFalse(waiter.isDone());
+        }
+
+        HeldLocksToken previous = holder;
+        for (ListenableFuture<LockResponse> waiter : waiters) {
+            server.unlock(previous);
+            LockResponse response = waiter.get(0, TimeUnit.SECONDS);
+            Assert.assertTrue(response.success());
+            previous = response.getToken();
+        }
+        server.unlock(previous);
+        Assert.assertNotNull(lockNow(lock1, LockMode.WRITE));
+    }
+
+    /** Tests that a thread parked waiting for a lock is granted it before a later asynchronous request. */
+    @Test public void testParkedThreadIsGrantedBeforeLaterAsyncRequest() throws Exception {
+        HeldLocksToken holder = lockNow(lock1, LockMode.WRITE);
+        final AtomicReference<HeldLocksToken> syncToken = new AtomicReference<HeldLocksToken>();
+        Thread syncLocker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    syncToken.set(server.lockWithFullLockResponse(client, LockRequest.builder(
+                            ImmutableSortedMap.of(lock1, LockMode.WRITE)).build()).getToken());
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        syncLocker.start();
+        while (syncLocker.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        ListenableFuture<LockResponse> waiter = server.lockAsync(LockClient.of("other"), LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE)).build());
+        Assert.assertFalse(waiter.isDone());
+
+        server.unlock(holder);
+        syncLocker.join(10000);
+        Assert.assertNotNull(syncToken.get());
+        Assert.assertFalse(waiter.isDone());
+
+        server.unlock(syncToken.get());
+        Assert.assertTrue(waiter.get(10, TimeUnit.SECONDS).success());
+    }
+
+    /** Tests that blocked readers are granted the lock together. */
+    @Test public void testReadersAreGrantedTogether() throws Exception {
+        HeldLocksToken holder = lockNow(lock1, LockMode.WRITE);
+        ListenableFuture<LockResponse> reader1 = server.lockAsync(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.READ)).build());
+        ListenableFuture<LockResponse> reader2 = server.lockAsync(LockClient.of("other"), LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.READ)).build());
+        Assert.assertFalse(reader1.isDone());
+        Assert.assertFalse(reader2.isDone());
+
+        server.unlock(holder);
+        Assert.assertTrue(reader1.get(0, TimeUnit.SECONDS).success());
+        Assert.assertTrue(reader2.get(0, TimeUnit.SECONDS).success());
+    }
+
+    /** Tests that a lock-all-or-none request only completes once every lock is held. */
+    @Test public void testAllOrNoneRequestWaitsForEveryLock() throws Exception {
+        HeldLocksToken holder = lockNow(lock2, LockMode.WRITE);
+        ListenableFuture<LockResponse> waiter = server.lockAsync(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE, lock2, LockMode.WRITE)).build());
+        Assert.assertFalse(waiter.isDone());
+        Assert.assertNull(server.lockWithFullLockResponse(LockClient.ANONYMOUS, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.READ)).doNotBlock().build()).getToken());
+
+        server.unlock(holder);
+        HeldLocksToken token = waiter.get(0, TimeUnit.SECONDS).getToken();
+        Assert.assertNotNull(token);
+        Assert.assertEquals(ImmutableList.of(lock1, lock2), token.getLockDescriptors().getKeys());
+    }
+
+    /** Tests that blocking requests time out without a thread and report the holder of the lock. */
+    @Test public void testBlockUntilTimeout() throws Exception {
+        lockNow(lock1, LockMode.WRITE);
+        LockResponse response = server.lockAsync(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE, lock2, LockMode.WRITE))
+                .blockForAtMost(SimpleTimeDuration.of(50, TimeUnit.MILLISECONDS))
+                .build()).get(10, TimeUnit.SECONDS);
+        Assert.assertFalse(response.success());
+        Assert.assertEquals(LockClient.ANONYMOUS, response.getLockHolders().get(lock1));
+        Assert.assertNotNull(lockNow(lock2, LockMode.WRITE));
+    }
+
+    /** Tests that cancelling a request releases the locks it already acquired. */
+    @Test public void testCancellingReleasesAcquiredLocks() throws Exception {
+        HeldLocksToken holder = lockNow(lock2, LockMode.WRITE);
+        ListenableFuture<LockResponse> waiter = server.lockAsync(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE, lock2, LockMode.WRITE)).build());
+        Assert.assertTrue(waiter.cancel(false));
+
+        Assert.assertNotNull(lockNow(lock1, LockMode.WRITE));
+        server.unlock(holder);
+        Assert.assertNotNull(lockNow(lock2, LockMode.WRITE));
+    }
+
+    /** Tests that waiting requests fail when the lock server is shut down. */
+    @Test public void testShutdownFailsWaitingRequests() throws Exception {
+        LockServiceImpl serverToClose = LockServiceImpl.create();
+        serverToClose.lockAsync(LockClient.ANONYMOUS, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE)).build());
+        ListenableFuture<LockResponse> waiter = serverToClose.lockAsync(client, LockRequest.builder(
+                ImmutableSortedMap.of(lock1, LockMode.WRITE)).build());
+        Assert.assertFalse(waiter.isDone());
+        serverToClose.close();
+        try {
+            waiter.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException expected) {
+            Assert.assertTrue(expected.getCause() instanceof ServiceNotAvailableException);
+        }
+    }
+
+    private HeldLocksToken lockNow(LockDescriptor descriptor, LockMode mode) throws InterruptedException {
+        HeldLocksToken token = server.lockWithFullLockResponse(LockClient.ANONYMOUS, LockRequest.builder(
+                ImmutableSortedMap.of(descriptor, mode)).doNotBlock().build()).getToken();
+        Assert.assertNotNull(token);
+        return token;
+    }
+}
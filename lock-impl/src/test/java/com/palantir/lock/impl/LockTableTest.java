@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.lock.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.palantir.lock.LockDescriptor;
+import com.palantir.lock.StringLockDescriptor;
+
+/**
+ * Tests for {@link LockTable}.
+ */
+public final class LockTableTest {
+    private static final int NUM_LOCKS = 10000;
+
+    /** Tests that the same lock is returned for a descriptor for as long as it is referenced. */
+    @Test public void testSameLockForDescriptor() {
+        LockTable table = new LockTable(new LockClientIndices());
+        List<ClientAwareReadWriteLock> locks = Lists.newArrayList();
+        for (int i = 0; i < NUM_LOCKS; i++) {
+            locks.add(table.get(descriptor(i)));
+        }
+        for (int i = 0; i < NUM_LOCKS; i++) {
+            Assert.assertTrue(table.contains(descriptor(i)));
+            Assert.assertSame(locks.get(i), table.get(descriptor(i)));
+            Assert.assertEquals(descriptor(i), locks.get(i).getDescriptor());
+        }
+        Assert.assertFalse(table.contains(descriptor(NUM_LOCKS)));
+        Assert.assertEquals(NUM_LOCKS, table.asMap().size());
+    }
+
+    /** Tests that unreferenced locks are removed without disturbing the locks which are still referenced. */
+    @Test public void testUnreferencedLocksAreRemoved() throws InterruptedException {
+        LockTable table = new LockTable(new LockClientIndices(), 1);
+        List<ClientAwareReadWriteLock> referencedLocks = Lists.newArrayList();
+        for (int i = 0; i < NUM_LOCKS; i++) {
+            ClientAwareReadWriteLock lock = table.get(descriptor(i));
+            if (i % 100 == 0) {
+                referencedLocks.add(lock);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (table.size() > referencedLocks.size() + 1 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            table.get(descriptor(-1));
+        }
+        Assert.assertTrue(table.size() <= referencedLocks.size() + 1);
+        for (ClientAwareReadWriteLock lock : referencedLocks) {
+            Assert.assertSame(lock, table.get(lock.getDescriptor()));
+        }
+    }
+
+    private static LockDescriptor descriptor(int i) {
+        return StringLockDescriptor.of("lock" + i);
+    }
+}
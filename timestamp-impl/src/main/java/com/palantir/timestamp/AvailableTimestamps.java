@@ -19,9 +19,15 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+/**
+ * Hands out ranges of timestamps below the persisted upper limit.
+ * <p>
+ * Ranges that fit under the current upper limit are handed out without locking, by compare-and-setting the
+ * last returned timestamp. Only requests that need the upper limit to be increased synchronously take the lock.
+ */
 public class AvailableTimestamps {
     static final long ALLOCATION_BUFFER_SIZE = 1000 * 1000;
-    private static final long MINIMUM_BUFFER = ALLOCATION_BUFFER_SIZE / 2;
+    static final long MINIMUM_BUFFER = ALLOCATION_BUFFER_SIZE / 2;
     private static final long MAX_TIMESTAMPS_TO_HAND_OUT = 10 * 1000;
 
     private final LastReturnedTimestamp lastReturnedTimestamp;
@@ -32,19 +38,38 @@ public class AvailableTimestamps {
         this.upperLimit = upperLimit;
     }
 
-    public synchronized TimestampRange handOut(long numberToHandOut) {
+    public TimestampRange handOut(long numberToHandOut) {
         checkArgument(
                 numberToHandOut <= MAX_TIMESTAMPS_TO_HAND_OUT,
                 "Can only hand out %s timestamps at a time, but %s were requested",
                 MAX_TIMESTAMPS_TO_HAND_OUT, numberToHandOut);
-
-        return handOutTimestamp(lastHandedOut() + numberToHandOut);
+        checkArgument(numberToHandOut > 0, "Must hand out at least one timestamp, but %s were requested",
+                numberToHandOut);
+
+        while (true) {
+            long lastHandedOut = lastHandedOut();
+            long targetTimestamp = lastHandedOut + numberToHandOut;
+            if (targetTimestamp > upperLimit.get()) {
+                return handOutAfterAllocating(numberToHandOut);
+            }
+            // The upper limit never decreases, so the range is still covered if the CAS succeeds.
+            if (lastReturnedTimestamp.compareAndSet(lastHandedOut, targetTimestamp)) {
+                return TimestampRange.createInclusiveRange(lastHandedOut + 1, targetTimestamp);
+            }
+        }
     }
 
-    public synchronized void refreshBuffer() {
+    /**
+     * Whether the buffer of allocated but unused timestamps should be refreshed, because it has dropped below
+     * half of {@link #ALLOCATION_BUFFER_SIZE} or the upper limit has not been increased in the last minute.
+     */
+    public boolean shouldRefreshBuffer() {
         long buffer = upperLimit.get() - lastHandedOut();
+        return buffer < MINIMUM_BUFFER || !upperLimit.hasIncreasedWithin(1, MINUTES);
+    }
 
-        if (buffer < MINIMUM_BUFFER || !upperLimit.hasIncreasedWithin(1, MINUTES)) {
+    public synchronized void refreshBuffer() {
+        if (shouldRefreshBuffer()) {
             allocateEnoughTimestampsToHandOut(lastHandedOut() + ALLOCATION_BUFFER_SIZE);
         }
     }
@@ -58,18 +83,16 @@ public class AvailableTimestamps {
         return lastReturnedTimestamp.get();
     }
 
-    private synchronized TimestampRange handOutTimestamp(long targetTimestamp) {
-        checkArgument(
-                targetTimestamp > lastHandedOut(),
-                "Could not hand out timestamp '%s' as it was earlier than the last handed out timestamp: %s",
-                targetTimestamp, lastHandedOut());
-
-        TimestampRange rangeToHandOut = TimestampRange.createInclusiveRange(lastHandedOut() + 1, targetTimestamp);
-
-        allocateEnoughTimestampsToHandOut(targetTimestamp);
-        lastReturnedTimestamp.increaseToAtLeast(targetTimestamp);
-
-        return rangeToHandOut;
+    private synchronized TimestampRange handOutAfterAllocating(long numberToHandOut) {
+        while (true) {
+            long lastHandedOut = lastHandedOut();
+            long targetTimestamp = lastHandedOut + numberToHandOut;
+            allocateEnoughTimestampsToHandOut(targetTimestamp);
+            // Other threads may still hand out timestamps on the lock-free path while we allocate.
+            if (lastReturnedTimestamp.compareAndSet(lastHandedOut, targetTimestamp)) {
+                return TimestampRange.createInclusiveRange(lastHandedOut + 1, targetTimestamp);
+            }
+        }
     }
 
     private void allocateEnoughTimestampsToHandOut(long timestamp) {
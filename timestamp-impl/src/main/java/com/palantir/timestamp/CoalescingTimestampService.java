@@ -0,0 +1,270 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.palantir.common.base.Throwables;
+import com.palantir.util.JMXUtils;
+
+/**
+ * Coalesces concurrent requests on the timestamp server into a single range allocation.
+ * <p>
+ * Every request is queued, and at most one allocation is in flight at a time. The thread that starts an allocation
+ * takes all queued requests (up to {@link #MAX_TIMESTAMPS_PER_BATCH} timestamps), makes one call to the delegate and
+ * hands each request its own sub-range. Requests queued while an allocation is in progress park until it finishes,
+ * and then the oldest of them is woken to start the next allocation for all of them, so the number of allocations
+ * per request falls as concurrency rises. Each request is only served from an allocation that started after it was
+ * queued, so timestamps are as fresh as if it had called the delegate directly.
+ * <p>
+ * Batch sizes are exported over JMX to help tune clients and the allocator. Create one instance for the lifetime of
+ * the server, e.g. around a leadership proxy rather than inside its delegate supplier, so that the MBean is only
+ * registered once.
+ */
+@ThreadSafe
+public final class CoalescingTimestampService implements TimestampService, CoalescingTimestampServiceMBean, Closeable {
+    static final int MAX_TIMESTAMPS_PER_BATCH = 10 * 1000;
+    private static final int HISTOGRAM_BUCKETS = Integer.SIZE;
+    private static final AtomicInteger instanceCount = new AtomicInteger();
+
+    private final TimestampService delegate;
+    private final Runnable callOnClose;
+    private final Queue<Request> pendingRequests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean allocating = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLongArray batchSizeHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final AtomicLongArray timestampsPerBatchHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    private CoalescingTimestampService(TimestampService delegate, Runnable callOnClose) {
+        this.delegate = delegate;
+        this.callOnClose = callOnClose;
+    }
+
+    public static CoalescingTimestampService create(TimestampService delegate) {
+        String jmxBeanRegistrationName =
+                "com.palantir.timestamp:type=CoalescingTimestampService_" + instanceCount.getAndIncrement();
+        CoalescingTimestampService service = new CoalescingTimestampService(
+                delegate,
+                () -> JMXUtils.unregisterMBeanCatchAndLogExceptions(jmxBeanRegistrationName));
+        JMXUtils.registerMBeanCatchAndLogExceptions(service, jmxBeanRegistrationName);
+        return service;
+    }
+
+    @Override
+    public long getFreshTimestamp() {
+        return getFreshTimestamps(1).getLowerBound();
+    }
+
+    @Override
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+        Preconditions.checkArgument(numTimestampsRequested > 0,
+                "Number of timestamps requested must be greater than zero, was %s",
+                numTimestampsRequested);
+
+        Request request = new Request(Math.min(numTimestampsRequested, MAX_TIMESTAMPS_PER_BATCH));
+        pendingRequests.add(request);
+        boolean interrupted = false;
+        while (!request.isDone()) {
+            if (allocating.compareAndSet(false, true)) {
+                try {
+                    allocateBatch();
+                } finally {
+                    allocating.set(false);
+                }
+                wakeNextAllocator();
+            } else {
+                LockSupport.park(this);
+                // Like a lock, waiting for timestamps is not interruptible, so keep parking until we are done.
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return request.getResult();
+    }
+
+    /**
+     * Wakes the oldest waiting request to allocate timestamps for everything queued since the last allocation
+     * started. Must be called after clearing {@link #allocating}: a request queued after this check sees the flag
+     * clear and allocates by itself.
+     */
+    private void wakeNextAllocator() {
+        Request next = pendingRequests.peek();
+        if (next != null) {
+            LockSupport.unpark(next.waiter);
+        }
+    }
+
+    private void allocateBatch() {
+        List<Request> batch = Lists.newArrayList();
+        int timestampsInBatch = 0;
+        for (Request next = pendingRequests.peek();
+                next != null && (batch.isEmpty() || timestampsInBatch + next.size <= MAX_TIMESTAMPS_PER_BATCH);
+                next = pendingRequests.peek()) {
+            pendingRequests.poll();
+            batch.add(next);
+            timestampsInBatch += next.size;
+        }
+
+        TimestampRange allocated;
+        try {
+            allocated = delegate.getFreshTimestamps(timestampsInBatch);
+        } catch (Throwable t) {
+            for (Request request : batch) {
+                request.fail(t);
+            }
+            return;
+        }
+        recordBatch(batch.size(), allocated.size());
+
+        long nextTimestamp = allocated.getLowerBound();
+        for (Request request : batch) {
+            long remaining = allocated.getUpperBound() - nextTimestamp + 1;
+            if (remaining <= 0) {
+                // The delegate handed out fewer timestamps than we asked for; serve the rest in a later batch.
+                pendingRequests.add(request);
+                continue;
+            }
+            long upperBound = nextTimestamp + Math.min(request.size, remaining) - 1;
+            request.complete(TimestampRange.createInclusiveRange(nextTimestamp, upperBound));
+            nextTimestamp = upperBound + 1;
+        }
+    }
+
+    private void recordBatch(int requests, long timestamps) {
+        requestCount.addAndGet(requests);
+        batchCount.incrementAndGet();
+        maxBatchSize.accumulateAndGet(requests, Math::max);
+        batchSizeHistogram.incrementAndGet(bucketFor(requests));
+        timestampsPerBatchHistogram.incrementAndGet(bucketFor(timestamps));
+    }
+
+    private static int bucketFor(long size) {
+        return Math.min(HISTOGRAM_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(Math.max(size, 1)));
+    }
+
+    @VisibleForTesting
+    int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    @Override
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : (double) requestCount.get() / batches;
+    }
+
+    @Override
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    @Override
+    public long[] getBatchSizeHistogram() {
+        return toArray(batchSizeHistogram);
+    }
+
+    @Override
+    public long[] getTimestampsPerBatchHistogram() {
+        return toArray(timestampsPerBatchHistogram);
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Unregisters the MBean, and closes the delegate if it is {@link Closeable}.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            callOnClose.run();
+            if (delegate instanceof Closeable) {
+                try {
+                    ((Closeable) delegate).close();
+                } catch (IOException e) {
+                    throw Throwables.rewrapAndThrowUncheckedException(e);
+                }
+            }
+        }
+    }
+
+    private static final class Request {
+        private final int size;
+        private final Thread waiter = Thread.currentThread();
+        private volatile TimestampRange result;
+        private volatile Throwable failure;
+
+        Request(int size) {
+            this.size = size;
+        }
+
+        boolean isDone() {
+            return result != null || failure != null;
+        }
+
+        void complete(TimestampRange range) {
+            result = range;
+            LockSupport.unpark(waiter);
+        }
+
+        void fail(Throwable t) {
+            failure = t;
+            LockSupport.unpark(waiter);
+        }
+
+        TimestampRange getResult() {
+            if (failure != null) {
+                throw Throwables.rewrapAndThrowUncheckedException(failure);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+public interface CoalescingTimestampServiceMBean {
+    /**
+     * The number of timestamp requests served.
+     */
+    long getRequestCount();
+
+    /**
+     * The number of calls made to the underlying timestamp service.
+     */
+    long getBatchCount();
+
+    double getAverageBatchSize();
+
+    long getMaxBatchSize();
+
+    /**
+     * Counts of batches by the number of requests they served. Entry {@code i} counts batches of between
+     * {@code 2^i} and {@code 2^(i+1) - 1} requests.
+     */
+    long[] getBatchSizeHistogram();
+
+    /**
+     * Counts of batches by the number of timestamps they allocated, bucketed as in {@link #getBatchSizeHistogram}.
+     */
+    long[] getTimestampsPerBatchHistogram();
+}
@@ -16,6 +16,7 @@
 package com.palantir.timestamp;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -28,6 +29,7 @@ public class PersistentTimestampService implements TimestampService {
 
     private final ExecutorService executor;
     private final AvailableTimestamps availableTimestamps;
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean(false);
 
     public PersistentTimestampService(AvailableTimestamps availableTimestamps, ExecutorService executor) {
         this.availableTimestamps = availableTimestamps;
@@ -35,11 +37,18 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     public static PersistentTimestampService create(TimestampBoundStore tbs) {
+        ExecutorService executor = PTExecutors.newSingleThreadExecutor(PTExecutors.newThreadFactory("Timestamp allocator", Thread.NORM_PRIORITY, true));
+        return create(tbs, executor);
+    }
+
+    /**
+     * Creates a timestamp service which refreshes its buffer of timestamps on {@code executor}. The executor may be
+     * shared between timestamp services, since each has at most one refresh in flight.
+     */
+    public static PersistentTimestampService create(TimestampBoundStore tbs, ExecutorService executor) {
         PersistentUpperLimit upperLimit = new PersistentUpperLimit(tbs);
         LastReturnedTimestamp lastReturned = new LastReturnedTimestamp(upperLimit.get());
         AvailableTimestamps availableTimestamps = new AvailableTimestamps(lastReturned, upperLimit);
-        ExecutorService executor = PTExecutors.newSingleThreadExecutor(PTExecutors.newThreadFactory("Timestamp allocator", Thread.NORM_PRIORITY, true));
-
         return new PersistentTimestampService(availableTimestamps, executor);
     }
 
@@ -53,10 +62,12 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     @Override
-    public synchronized TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+    public TimestampRange getFreshTimestamps(int numTimestampsRequested) {
         int numTimestampsToHandOut = cleanUpTimestampRequest(numTimestampsRequested);
         TimestampRange handedOut = availableTimestamps.handOut(numTimestampsToHandOut);
-        asynchronouslyRefreshBuffer();
+        if (availableTimestamps.shouldRefreshBuffer()) {
+            asynchronouslyRefreshBuffer();
+        }
         return handedOut;
     }
 
@@ -85,12 +96,22 @@ public class PersistentTimestampService implements TimestampService {
     }
 
     private void asynchronouslyRefreshBuffer() {
-        executor.submit(new Runnable() {
-            @Override
-            public void run() {
-                availableTimestamps.refreshBuffer();
-            }
-        });
+        // Only one refresh is in flight at a time; callers that see a low buffer while it runs need not queue another.
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    availableTimestamps.refreshBuffer();
+                } finally {
+                    refreshInProgress.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshInProgress.set(false);
+            throw e;
+        }
     }
 
 }
@@ -16,10 +16,12 @@
 package com.palantir.timestamp;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.longThat;
@@ -28,10 +30,18 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import com.google.common.collect.Lists;
+
 public class AvailableTimestampsTest {
 
     public static final long UPPER_LIMIT = 1000 * 1000;
@@ -116,6 +126,46 @@ public class AvailableTimestampsTest {
         availableTimestamps.handOut(10*1000);
     }
 
+    @Test public void
+    shouldOnlyAskForABufferRefreshIfHalfOfItIsUsedUpOrItIsStale() {
+        when(persistentUpperLimit.hasIncreasedWithin(1, MINUTES)).thenReturn(true);
+        assertThat(availableTimestamps.shouldRefreshBuffer(), is(true));
+
+        when(persistentUpperLimit.get()).thenReturn(LAST_RETURNED + AvailableTimestamps.MINIMUM_BUFFER);
+        assertThat(availableTimestamps.shouldRefreshBuffer(), is(false));
+
+        when(persistentUpperLimit.hasIncreasedWithin(1, MINUTES)).thenReturn(false);
+        assertThat(availableTimestamps.shouldRefreshBuffer(), is(true));
+    }
+
+    @Test public void
+    shouldHandOutContiguousDisjointRangesToConcurrentCallers() throws InterruptedException {
+        PersistentUpperLimit upperLimit = new PersistentUpperLimit(new InMemoryTimestampBoundStore());
+        AvailableTimestamps timestamps = new AvailableTimestamps(new LastReturnedTimestamp(upperLimit.get()), upperLimit);
+        int threads = 8;
+        int requestsPerThread = 1000;
+        List<TimestampRange> handedOut = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                for (int j = 0; j < requestsPerThread; j++) {
+                    // Large enough requests to regularly exhaust the upper limit and take the allocating path.
+                    handedOut.add(timestamps.handOut(1000));
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, SECONDS);
+
+        List<TimestampRange> sorted = Lists.newArrayList(handedOut);
+        sorted.sort(Comparator.comparingLong(TimestampRange::getLowerBound));
+        assertThat(sorted.size(), is(threads * requestsPerThread));
+        for (int i = 1; i < sorted.size(); i++) {
+            assertThat(sorted.get(i).getLowerBound(), is(sorted.get(i - 1).getUpperBound() + 1));
+        }
+        assertThat(sorted.get(sorted.size() - 1).getUpperBound(), is(lessThanOrEqualTo(upperLimit.get())));
+    }
+
     @Test public void
     canFastForwardToANewMinimumTimestamp() {
         long newMinimum = 2 * UPPER_LIMIT;
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2016 Palantir Technologies
+ *
+ * Licensed under the BSD-3 License (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://opensource.org/licenses/BSD-3-Clause
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.palantir.timestamp;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.palantir.common.concurrent.PTExecutors;
+
+public class CoalescingTimestampServiceTest {
+    private static final int NUM_REQUESTS = 50;
+
+    private final BlockingTimestampService delegate = new BlockingTimestampService();
+    private final CoalescingTimestampService timestampService = CoalescingTimestampService.create(delegate);
+    private final ExecutorService executor = PTExecutors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        delegate.release();
+        executor.shutdownNow();
+        timestampService.close();
+    }
+
+    @Test
+    public void uncontendedRequestsAreServedDirectly() {
+        assertThat(timestampService.getFreshTimestamp(), is(1L));
+        assertRange(timestampService.getFreshTimestamps(10), 2, 11);
+        assertThat(delegate.calls.get(), is(2));
+        assertThat(timestampService.getBatchCount(), is(2L));
+    }
+
+    @Test
+    public void requestsQueuedBehindAnAllocationAreServedWithOneCall() throws Exception {
+        delegate.block();
+        Future<TimestampRange> first = executor.submit(() -> timestampService.getFreshTimestamps(1));
+        delegate.awaitBlockedCall();
+        List<Future<TimestampRange>> queued = Lists.newArrayList();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            int size = i % 3 + 1;
+            queued.add(executor.submit(() -> timestampService.getFreshTimestamps(size)));
+        }
+        awaitQueuedRequests(NUM_REQUESTS);
+        delegate.release();
+
+        assertRange(first.get(), 1, 1);
+        long nextExpected = 2;
+        List<TimestampRange> ranges = Lists.newArrayList();
+        for (Future<TimestampRange> future : queued) {
+            ranges.add(future.get());
+        }
+        ranges.sort((a, b) -> Long.compare(a.getLowerBound(), b.getLowerBound()));
+        for (TimestampRange range : ranges) {
+            assertThat(range.getLowerBound(), is(nextExpected));
+            nextExpected = range.getUpperBound() + 1;
+        }
+        assertThat(delegate.calls.get(), is(2));
+        assertThat(timestampService.getMaxBatchSize(), is((long) NUM_REQUESTS));
+        assertThat(timestampService.getBatchSizeHistogram()[5], is(1L));
+    }
+
+    @Test
+    public void failedAllocationsFailEveryRequestInTheBatch() throws Exception {
+        delegate.block();
+        Future<TimestampRange> first = executor.submit(() -> timestampService.getFreshTimestamps(1));
+        delegate.awaitBlockedCall();
+        Future<TimestampRange> second = executor.submit(() -> timestampService.getFreshTimestamps(1));
+        Future<TimestampRange> third = executor.submit(() -> timestampService.getFreshTimestamps(1));
+        awaitQueuedRequests(2);
+        delegate.failNextCall();
+        delegate.release();
+
+        first.get();
+        assertFailed(second);
+        assertFailed(third);
+        assertThat(timestampService.getFreshTimestamp(), is(2L));
+    }
+
+    @Test
+    public void concurrentRequestsGetDisjointTimestamps() throws Exception {
+        List<Future<List<Long>>> futures = Lists.newArrayList();
+        for (int i = 0; i < NUM_REQUESTS; i++) {
+            futures.add(executor.submit(() -> {
+                List<Long> timestamps = Lists.newArrayList();
+                for (int j = 0; j < 100; j++) {
+                    timestamps.add(timestampService.getFreshTimestamp());
+                }
+                return timestamps;
+            }));
+        }
+        Set<Long> timestamps = Sets.newHashSet();
+        for (Future<List<Long>> future : futures) {
+            List<Long> ofOneThread = future.get();
+            assertThat(Ordering.natural().isStrictlyOrdered(ofOneThread), is(true));
+            timestamps.addAll(ofOneThread);
+        }
+        assertThat(timestamps.size(), is(NUM_REQUESTS * 100));
+        assertThat(timestampService.getRequestCount(), is((long) NUM_REQUESTS * 100));
+    }
+
+    @Test
+    public void closingAlsoClosesTheDelegate() {
+        AtomicInteger closed = new AtomicInteger();
+        CoalescingTimestampService service = CoalescingTimestampService.create(new ClosingTimestampService(closed));
+        service.close();
+        service.close();
+        assertThat(closed.get(), is(1));
+    }
+
+    @Test
+    public void largeRequestsAreCappedAtTheBatchLimit() {
+        TimestampRange range =
+                timestampService.getFreshTimestamps(CoalescingTimestampService.MAX_TIMESTAMPS_PER_BATCH + 1);
+        assertThat(range.size(), is((long) CoalescingTimestampService.MAX_TIMESTAMPS_PER_BATCH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRequestsForLessThanOneTimestamp() {
+        timestampService.getFreshTimestamps(0);
+    }
+
+    private void awaitQueuedRequests(int count) throws InterruptedException {
+        while (timestampService.getPendingRequestCount() < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertRange(TimestampRange range, long lowerBound, long upperBound) {
+        assertThat(range.getLowerBound(), is(lowerBound));
+        assertThat(range.getUpperBound(), is(upperBound));
+    }
+
+    private static void assertFailed(Future<TimestampRange> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected the request to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof IllegalStateException, is(true));
+        }
+    }
+
+    private static class ClosingTimestampService extends InMemoryTimestampService implements Closeable {
+        private final AtomicInteger closed;
+
+        ClosingTimestampService(AtomicInteger closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+
+    private static class BlockingTimestampService implements TimestampService {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile CountDownLatch entered = new CountDownLatch(0);
+        private volatile CountDownLatch released = new CountDownLatch(0);
+        private volatile boolean failNext = false;
+        private long lastTimestamp = 0;
+
+        void block() {
+            entered = new CountDownLatch(1);
+            released = new CountDownLatch(1);
+        }
+
+        void awaitBlockedCall() throws InterruptedException {
+            entered.await();
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        void failNextCall() {
+            failNext = true;
+        }
+
+        @Override
+        public long getFreshTimestamp() {
+            return getFreshTimestamps(1).getLowerBound();
+        }
+
+        @Override
+        public synchronized TimestampRange getFreshTimestamps(int numTimestampsRequested) {
+            assertThat(numTimestampsRequested, is(lessThan(CoalescingTimestampService.MAX_TIMESTAMPS_PER_BATCH + 1)));
+            boolean firstCall = calls.getAndIncrement() == 0;
+            if (firstCall) {
+                entered.countDown();
+                try {
+                    released.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            } else if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("Failed to allocate timestamps");
+            }
+            TimestampRange range = TimestampRange.createInclusiveRange(
+                    lastTimestamp + 1, lastTimestamp + numTimestampsRequested);
+            lastTimestamp += numTimestampsRequested;
+            return range;
+        }
+    }
+}